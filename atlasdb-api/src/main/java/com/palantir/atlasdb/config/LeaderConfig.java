@@ -77,6 +77,25 @@ public abstract class LeaderConfig {
         return 5000L;
     }
 
+    /**
+     * If positive, a leader that has confirmed its leadership with a quorum answers leadership checks locally for
+     * this long, less {@link #leaderLeaseMaxClockDriftMs()}, rather than asking the quorum on every request. The
+     * acceptors refuse to let another node become leader for this long after each confirmation, so failover after
+     * the leader dies takes up to this much longer. All leaders must be configured with the same lease.
+     */
+    @Value.Default
+    public long leaderLeaseDurationMs() {
+        return 0L;
+    }
+
+    /**
+     * The most that the clocks of any two leaders may drift apart over one lease.
+     */
+    @Value.Default
+    public long leaderLeaseMaxClockDriftMs() {
+        return 0L;
+    }
+
     @Value.Check
     protected final void check() {
         Preconditions.checkState(quorumSize() > leaders().size() / 2,
@@ -91,6 +110,10 @@ public abstract class LeaderConfig {
                 "Learner log directory '%s' does not exist and cannot be created.", learnerLogDir());
         Preconditions.checkArgument(acceptorLogDir().exists() || acceptorLogDir().mkdirs(),
                 "Acceptor log directory '%s' does not exist and cannot be created.", acceptorLogDir());
+        Preconditions.checkArgument(leaderLeaseDurationMs() == 0
+                        || leaderLeaseDurationMs() > leaderLeaseMaxClockDriftMs(),
+                "The leader lease duration %s must be greater than the maximum clock drift %s.",
+                leaderLeaseDurationMs(), leaderLeaseMaxClockDriftMs());
     }
 
     @JsonIgnore
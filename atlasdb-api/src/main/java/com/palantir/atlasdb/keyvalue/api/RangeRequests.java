@@ -15,10 +15,16 @@
  */
 package com.palantir.atlasdb.keyvalue.api;
 
+import java.util.List;
+import java.util.SortedSet;
+
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.primitives.UnsignedBytes;
 import com.palantir.atlasdb.encoding.PtBytes;
 
 public final class RangeRequests {
@@ -200,4 +206,34 @@ public final class RangeRequests {
             return nextLexicographicNameInternal(rowName);
         }
     }
+
+    /**
+     * Splits a range at the given rows into disjoint ranges, returned in key order, which together cover exactly the
+     * rows of the original range. Each range starts at the split row before it, and keeps the columns and batch hint
+     * of the original range. Split rows which are empty or not strictly inside the range are ignored.
+     * <p>
+     * Reverse ranges are not supported.
+     */
+    public static List<RangeRequest> split(RangeRequest range, Iterable<byte[]> splitRows) {
+        Preconditions.checkArgument(!range.isReverse(), "Cannot split a reverse range: %s", range);
+        if (range.isEmptyRange()) {
+            return ImmutableList.of(range);
+        }
+        SortedSet<byte[]> boundaries = ImmutableSortedSet.orderedBy(UnsignedBytes.lexicographicalComparator())
+                .addAll(splitRows)
+                .build();
+        ImmutableList.Builder<RangeRequest> ranges = ImmutableList.builder();
+        byte[] start = range.getStartInclusive();
+        for (byte[] boundary : boundaries) {
+            if (boundary.length == 0
+                    || !range.inRange(boundary)
+                    || UnsignedBytes.lexicographicalComparator().compare(start, boundary) >= 0) {
+                continue;
+            }
+            ranges.add(range.getBuilder().startRowInclusive(start).endRowExclusive(boundary).build());
+            start = boundary;
+        }
+        ranges.add(range.getBuilder().startRowInclusive(start).build());
+        return ranges.build();
+    }
 }
@@ -38,6 +38,15 @@ public abstract class SweepResults {
      */
     public abstract long getStaleValuesDeleted();
 
+    /**
+     * The approximate number of bytes of cell names in the (cell, timestamp) pairs deleted, which is roughly how much
+     * the deletions wrote to the key value service.
+     */
+    @Value.Default
+    public long getCellNameBytesDeleted() {
+        return 0L;
+    }
+
     public abstract long getSweptTimestamp();
 
     public static ImmutableSweepResults.Builder builder() {
@@ -19,17 +19,21 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
 
 import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.ColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RangeRequests;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.transaction.service.TransactionService;
 import com.palantir.common.annotation.Idempotent;
 import com.palantir.common.base.BatchingVisitable;
+import com.palantir.common.base.BatchingVisitables;
 
 /**
  * Provides the methods for a transaction with the key-value store.
@@ -82,6 +86,55 @@ public interface Transaction {
             TableReference tableRef,
             Iterable<RangeRequest> rangeRequests);
 
+    /**
+     * Scans the provided range by splitting it at the given rows and scanning the resulting ranges in parallel, on
+     * tasks run by the given executor, at most {@code concurrency} of them at once. The rows are returned in no
+     * particular order, as soon as any of the tasks has read them. The split rows would usually come from the row
+     * partitioners of the table, and any that are not strictly inside the range are ignored.
+     * <p>
+     * The returned stream must be closed once it is no longer needed, which stops the tasks still scanning. Reverse
+     * ranges are not supported.
+     * <p>
+     * The default implementation scans the split ranges one after another on the thread consuming the stream, as
+     * {@link #getRangeInParallelOrdered} does by default, and ignores the executor and concurrency.
+     *
+     * @param tableRef the table to scan
+     * @param rangeRequest the range of rows and columns to scan
+     * @param splitRows the rows at which to split the range
+     * @param executor the executor running the scans of the split ranges
+     * @param concurrency the maximum number of split ranges to scan at once
+     */
+    @Idempotent
+    default Stream<RowResult<byte[]>> getRangeInParallel(
+            TableReference tableRef,
+            RangeRequest rangeRequest,
+            Iterable<byte[]> splitRows,
+            Executor executor,
+            int concurrency) {
+        return getRangeInParallelOrdered(tableRef, rangeRequest, splitRows, executor, concurrency);
+    }
+
+    /**
+     * Like {@link #getRangeInParallel(TableReference, RangeRequest, Iterable, Executor, int)}, but returns the rows
+     * in key order. The rows of each split range are returned once those of the ranges before it have been, and only
+     * the first {@code concurrency} split ranges not yet returned are scanned ahead, so a range with many rows holds
+     * up the ones after it.
+     * <p>
+     * The default implementation scans the split ranges one after another with {@link #getRange}, on the thread
+     * consuming the stream, and ignores the executor and concurrency. Each split range is read in full once the
+     * stream reaches it.
+     */
+    @Idempotent
+    default Stream<RowResult<byte[]>> getRangeInParallelOrdered(
+            TableReference tableRef,
+            RangeRequest rangeRequest,
+            Iterable<byte[]> splitRows,
+            Executor executor,
+            int concurrency) {
+        return RangeRequests.split(rangeRequest, splitRows).stream()
+                .flatMap(range -> BatchingVisitables.copyToList(getRange(tableRef, range)).stream());
+    }
+
     /**
      * Puts values into the key-value store. If you put a null or the empty byte array, then
      * this is treated like a delete to the store.
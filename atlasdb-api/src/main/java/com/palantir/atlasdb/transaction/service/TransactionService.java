@@ -19,8 +19,13 @@ import java.util.Map;
 
 import javax.annotation.CheckForNull;
 
+import com.google.common.primitives.Longs;
 import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
 
+import gnu.trove.TLongCollection;
+import gnu.trove.map.TLongLongMap;
+import gnu.trove.map.hash.TLongLongHashMap;
+
 /**
  * Transaction service is used by the atlas protocol to determine is a given transaction has been
  * committed or aborted.
@@ -38,6 +43,17 @@ public interface TransactionService {
 
     Map<Long, Long> get(Iterable<Long> startTimestamps);
 
+    /**
+     * Primitive version of {@link #get(Iterable)} for callers that look up many start timestamps at once, such as
+     * sweep. The returned map belongs to the caller, which may modify it.
+     */
+    default TLongLongMap get(TLongCollection startTimestamps) {
+        Map<Long, Long> commitTimestamps = get(Longs.asList(startTimestamps.toArray()));
+        TLongLongMap result = new TLongLongHashMap(commitTimestamps.size());
+        result.putAll(commitTimestamps);
+        return result;
+    }
+
     /**
      * This operation is guaranteed to be atomic and only set the value if it hasn't already been
      * set.
@@ -180,6 +180,39 @@ public abstract class CassandraKeyValueServiceConfig implements KeyValueServiceC
         return 64;
     }
 
+    /**
+     * Whether range scans which have read past their first page fetch their next page from Cassandra while the
+     * current page is consumed.
+     */
+    @Value.Default
+    public boolean prefetchRangeScanPages() {
+        return false;
+    }
+
+    /**
+     * The number of token ranges of the ring that range scans running to the end of a table fetch pages of at once.
+     * Such scans are split along the token ranges of the ring when this is more than one.
+     */
+    @Value.Default
+    public int tokenRangeScanConcurrency() {
+        return 1;
+    }
+
+    /**
+     * Whether requests are sent to the less loaded of two random candidate hosts, weighing the recent latency of each
+     * host by the requests it has in flight, rather than picking hosts by their number of open requests alone.
+     */
+    @Value.Default
+    public boolean latencyAwareHostSelection() {
+        return false;
+    }
+
+    /**
+     * If present, a range scan page which has not been read after this percentile of the recent latencies of the
+     * host it was sent to is also read from another host owning its first row, and the first result returned is used.
+     */
+    public abstract Optional<Double> speculativeReadLatencyPercentile();
+
     @Value.Default
     public boolean scyllaDb() {
         return false;
@@ -210,5 +243,12 @@ public abstract class CassandraKeyValueServiceConfig implements KeyValueServiceC
         double evictionCheckProportion = proportionConnectionsToCheckPerEvictionRun();
         Preconditions.checkArgument(evictionCheckProportion > 0.01 && evictionCheckProportion <= 1,
                 "'proportionConnectionsToCheckPerEvictionRun' must be between 0.01 and 1");
+        Preconditions.checkArgument(tokenRangeScanConcurrency() > 0,
+                "'tokenRangeScanConcurrency' must be positive");
+        if (speculativeReadLatencyPercentile().isPresent()) {
+            double percentile = speculativeReadLatencyPercentile().get();
+            Preconditions.checkArgument(percentile > 0 && percentile < 100,
+                    "'speculativeReadLatencyPercentile' must be between 0 and 100");
+        }
     }
 }
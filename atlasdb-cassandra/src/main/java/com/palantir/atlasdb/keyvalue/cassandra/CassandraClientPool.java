@@ -28,15 +28,24 @@ import java.util.Map.Entry;
 import java.util.NavigableMap;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.OptionalDouble;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
 import java.util.stream.Collectors;
 
+import javax.annotation.Nullable;
+
 import org.apache.cassandra.thrift.Cassandra;
 import org.apache.cassandra.thrift.NotFoundException;
 import org.apache.cassandra.thrift.TimedOutException;
@@ -48,6 +57,8 @@ import org.slf4j.LoggerFactory;
 import org.slf4j.helpers.MessageFormatter;
 
 import com.codahale.metrics.Meter;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.HashMultimap;
@@ -55,6 +66,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableRangeMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Range;
@@ -64,12 +76,15 @@ import com.google.common.io.BaseEncoding;
 import com.google.common.primitives.UnsignedBytes;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.palantir.atlasdb.cassandra.CassandraKeyValueServiceConfig;
+import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.InsufficientConsistencyException;
+import com.palantir.atlasdb.keyvalue.api.RangeRequests;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.cassandra.CassandraClientFactory.ClientCreationFailedException;
 import com.palantir.atlasdb.util.MetricsManager;
 import com.palantir.common.base.FunctionCheckedException;
 import com.palantir.common.base.Throwables;
+import com.palantir.common.concurrent.NamedThreadFactory;
 import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.remoting2.tracing.Tracers;
 
@@ -106,15 +121,22 @@ public class CassandraClientPool {
     @VisibleForTesting
     static final int MAX_TRIES_TOTAL = 6;
 
+    /**
+     * The time over which the weight of a latency sample in the average latency of a host decays by a factor of e.
+     */
+    private static final double LATENCY_DECAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+
     volatile RangeMap<LightweightOppToken, List<InetSocketAddress>> tokenMap = ImmutableRangeMap.of();
     Map<InetSocketAddress, Long> blacklistedHosts = Maps.newConcurrentMap();
     Map<InetSocketAddress, CassandraClientPoolingContainer> currentPools = Maps.newConcurrentMap();
     final CassandraKeyValueServiceConfig config;
     final ScheduledExecutorService refreshDaemon;
+    @Nullable
+    private final ScheduledExecutorService speculativeReadExecutor;
 
     private final MetricsManager metricsManager = new MetricsManager();
     private final RequestMetrics aggregateMetrics = new RequestMetrics(null);
-    private final Map<InetSocketAddress, RequestMetrics> metricsByHost = new HashMap<>();
+    private final Map<InetSocketAddress, RequestMetrics> metricsByHost = Maps.newConcurrentMap();
 
     public static class LightweightOppToken implements Comparable<LightweightOppToken> {
         final byte[] bytes;
@@ -155,6 +177,12 @@ public class CassandraClientPool {
         private final Meter totalRequests;
         private final Meter totalRequestExceptions;
         private final Meter totalRequestConnectionExceptions;
+        private final Meter totalSpeculativeReads;
+        // Latency is only tracked per host, so that recording it does not contend on state shared by all requests.
+        @Nullable
+        private final Timer requestLatency;
+        // Null until the first latency sample. Updated without locking, as every request to the host records one.
+        private final AtomicReference<LatencyAverage> latencyAverage = new AtomicReference<>();
 
         RequestMetrics(String metricPrefix) {
             totalRequests = metricsManager.registerMeter(
@@ -163,12 +191,63 @@ public class CassandraClientPool {
                     CassandraClientPool.class, metricPrefix, "requestExceptions");
             totalRequestConnectionExceptions = metricsManager.registerMeter(
                     CassandraClientPool.class, metricPrefix, "requestConnectionExceptions");
+            totalSpeculativeReads = metricsManager.registerMeter(
+                    CassandraClientPool.class, metricPrefix, "speculativeReads");
+            requestLatency = metricPrefix == null
+                    ? null
+                    : metricsManager.registerTimer(CassandraClientPool.class, metricPrefix, "requestLatency");
         }
 
         void markRequest() {
             totalRequests.mark();
         }
 
+        void markSpeculativeRead() {
+            totalSpeculativeReads.mark();
+        }
+
+        /**
+         * Samples are weighted by how recent they are rather than by how many came after them, so that the average
+         * of a busy host reflects its last few seconds of requests, as does that of a host receiving few requests.
+         */
+        void markRequestLatency(long latencyNanos) {
+            requestLatency.update(latencyNanos, TimeUnit.NANOSECONDS);
+            long now = System.nanoTime();
+            latencyAverage.updateAndGet(average -> average == null
+                    ? new LatencyAverage(latencyNanos, now)
+                    : average.withSample(latencyNanos, now));
+        }
+
+        OptionalDouble getLatencyEwmaNanos() {
+            LatencyAverage average = latencyAverage.get();
+            return average == null ? OptionalDouble.empty() : OptionalDouble.of(average.ewmaNanos);
+        }
+
+        /**
+         * Returns the average latency of recent requests, moving towards the given latency while the host receives
+         * no requests, so that a host which was slow is tried again once it has been left alone for a while.
+         */
+        double getLatencyEwmaNanos(double idleLatencyNanos) {
+            LatencyAverage average = latencyAverage.get();
+            if (average == null) {
+                return idleLatencyNanos;
+            }
+            double weight = average.decayWeight(System.nanoTime());
+            return average.ewmaNanos * weight + idleLatencyNanos * (1 - weight);
+        }
+
+        /**
+         * Returns the latency under which the given percentile of recent requests returned, or empty if no request
+         * has returned yet.
+         */
+        Optional<Long> getLatencyPercentileNanos(double percentile) {
+            Snapshot snapshot = requestLatency.getSnapshot();
+            if (snapshot.size() == 0) {
+                return Optional.empty();
+            }
+            return Optional.of((long) snapshot.getValue(percentile / 100));
+        }
+
         void markRequestException() {
             totalRequestExceptions.mark();
         }
@@ -188,6 +267,92 @@ public class CassandraClientPool {
         }
     }
 
+    /**
+     * One of the two runs of a speculative read. A run that has lost the race is abandoned: it makes no further
+     * attempts, and the connection it is reading from, if any, is closed so that a read blocked on a slow host returns
+     * at once. The closed connection is discarded by the pool.
+     */
+    private static final class ReadAttempt {
+        private Cassandra.Client client;
+        private boolean abandoned;
+        private boolean closedConnection;
+
+        @SuppressWarnings("unchecked")
+        <V, K extends Exception> FunctionCheckedException<Cassandra.Client, V, K> wrap(
+                FunctionCheckedException<Cassandra.Client, V, K> fn) {
+            return pooledClient -> {
+                start(pooledClient);
+                V result;
+                boolean connectionClosed;
+                try {
+                    result = fn.apply(pooledClient);
+                } finally {
+                    connectionClosed = finish();
+                }
+                if (connectionClosed) {
+                    // Fail the run so that the pool discards the connection closed under it.
+                    throw (K) new TTransportException("The connection was closed as another read returned first.");
+                }
+                return result;
+            };
+        }
+
+        synchronized boolean isAbandoned() {
+            return abandoned;
+        }
+
+        synchronized void abandon() {
+            abandoned = true;
+            if (client != null) {
+                closedConnection = true;
+                client.getInputProtocol().getTransport().close();
+            }
+        }
+
+        private synchronized void start(Cassandra.Client newClient) {
+            if (abandoned) {
+                throw new ReadAbandonedException();
+            }
+            client = newClient;
+        }
+
+        private synchronized boolean finish() {
+            client = null;
+            return closedConnection;
+        }
+    }
+
+    private static final class ReadAbandonedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        ReadAbandonedException() {
+            super("The read was abandoned as another read returned first.");
+        }
+    }
+
+    private static final class LatencyAverage {
+        private final double ewmaNanos;
+        private final long lastSampleNanoTime;
+
+        LatencyAverage(double ewmaNanos, long lastSampleNanoTime) {
+            this.ewmaNanos = ewmaNanos;
+            this.lastSampleNanoTime = lastSampleNanoTime;
+        }
+
+        LatencyAverage withSample(long latencyNanos, long now) {
+            double weight = decayWeight(now);
+            return new LatencyAverage(
+                    ewmaNanos * weight + latencyNanos * (1 - weight),
+                    Math.max(lastSampleNanoTime, now));
+        }
+
+        double decayWeight(long now) {
+            // Concurrent samples may arrive out of order.
+            long elapsedNanos = Math.max(now - lastSampleNanoTime, 0);
+            return Math.exp(-(double) elapsedNanos / LATENCY_DECAY_NANOS);
+        }
+    }
+
     private enum StartupChecks {
         RUN,
         DO_NOT_RUN
@@ -209,6 +374,11 @@ public class CassandraClientPool {
                 .setDaemon(true)
                 .setNameFormat("CassandraClientPoolRefresh-%d")
                 .build()));
+        speculativeReadExecutor = config.speculativeReadLatencyPercentile().isPresent()
+                ? Tracers.wrap(PTExecutors.newScheduledThreadPool(
+                        Math.max(config.poolSize() * config.servers().size(), 1),
+                        new NamedThreadFactory("atlas-cassandra-speculative-read", true)))
+                : null;
         refreshDaemon.scheduleWithFixedDelay(() -> {
             try {
                 refreshPool();
@@ -228,6 +398,9 @@ public class CassandraClientPool {
 
     public void shutdown() {
         refreshDaemon.shutdown();
+        if (speculativeReadExecutor != null) {
+            speculativeReadExecutor.shutdown();
+        }
         currentPools.forEach((address, cassandraClientPoolingContainer) ->
                 cassandraClientPoolingContainer.shutdownPooling());
         metricsManager.deregisterMetrics();
@@ -397,12 +570,16 @@ public class CassandraClientPool {
             livingHosts = filteredHosts;
         }
 
-        InetSocketAddress randomLivingHost = getRandomHostByActiveConnections(
+        InetSocketAddress randomLivingHost = getRandomHostByLoad(
                 Maps.filterKeys(currentPools, livingHosts::contains));
         return Optional.ofNullable(pools.get(randomLivingHost));
     }
 
     public InetSocketAddress getRandomHostForKey(byte[] key) {
+        return getRandomHostForKeyExcluding(key, ImmutableSet.of());
+    }
+
+    private InetSocketAddress getRandomHostForKeyExcluding(byte[] key, Set<InetSocketAddress> excludedHosts) {
         List<InetSocketAddress> hostsForKey = tokenMap.get(new LightweightOppToken(key));
 
         if (hostsForKey == null) {
@@ -413,7 +590,7 @@ public class CassandraClientPool {
         }
 
         Set<InetSocketAddress> liveOwnerHosts = Sets.difference(
-                ImmutableSet.copyOf(hostsForKey),
+                Sets.difference(ImmutableSet.copyOf(hostsForKey), excludedHosts),
                 blacklistedHosts.keySet());
 
         if (liveOwnerHosts.isEmpty()) {
@@ -423,13 +600,111 @@ public class CassandraClientPool {
             log.debug("Current ring view is: {} and our current host blacklist is {}", tokenMap, blacklistedHosts);
             return getRandomGoodHost().getHost();
         } else {
-            return getRandomHostByActiveConnections(Maps.filterKeys(currentPools, liveOwnerHosts::contains));
+            return getRandomHostByLoad(Maps.filterKeys(currentPools, liveOwnerHosts::contains));
+        }
+    }
+
+    /**
+     * Returns another live host owning the given key than the given host, if there is one.
+     */
+    private Optional<InetSocketAddress> getOtherLiveHostForKey(byte[] key, InetSocketAddress host) {
+        List<InetSocketAddress> hostsForKey = tokenMap.get(new LightweightOppToken(key));
+        if (hostsForKey == null) {
+            return Optional.empty();
+        }
+        boolean hasOtherLiveOwner = hostsForKey.stream()
+                .anyMatch(owner -> !owner.equals(host)
+                        && !blacklistedHosts.containsKey(owner)
+                        && currentPools.containsKey(owner));
+        return hasOtherLiveOwner
+                ? Optional.of(getRandomHostForKeyExcluding(key, ImmutableSet.of(host)))
+                : Optional.empty();
+    }
+
+    /**
+     * Returns the first row of each token range of the ring but the first, as last seen by the pool, in key order. A
+     * scan split at these rows queries each token range from its first row, and so starts on a host that owns it.
+     * Returns no rows until the ring has been described, or if it has a single token range.
+     */
+    public List<byte[]> getTokenRangeBoundaries() {
+        List<byte[]> boundaries = Lists.newArrayList();
+        for (Range<LightweightOppToken> tokenRange : tokenMap.asMapOfRanges().keySet()) {
+            if (!tokenRange.hasUpperBound()) {
+                continue;
+            }
+            byte[] endToken = tokenRange.upperEndpoint().bytes;
+            // Token ranges include their end token, so the next token range starts just after it.
+            if (endToken.length > 0 && endToken.length < Cell.MAX_NAME_LENGTH) {
+                boundaries.add(RangeRequests.nextLexicographicName(endToken));
+            }
+        }
+        boundaries.sort(UnsignedBytes.lexicographicalComparator());
+        return boundaries;
+    }
+
+    private InetSocketAddress getRandomHostByLoad(Map<InetSocketAddress, CassandraClientPoolingContainer> pools) {
+        if (!config.latencyAwareHostSelection()) {
+            return WeightedHosts.create(pools).getRandomHost();
         }
+        double clusterLatencyNanos = getAverageLatencyNanos(pools.keySet());
+        return getLessLoadedOfTwoRandomHosts(
+                ImmutableList.copyOf(pools.keySet()),
+                host -> getLoad(host, pools.get(host), clusterLatencyNanos));
     }
 
-    private static InetSocketAddress getRandomHostByActiveConnections(
-            Map<InetSocketAddress, CassandraClientPoolingContainer> pools) {
-        return WeightedHosts.create(pools).getRandomHost();
+    private double getAverageLatencyNanos(Set<InetSocketAddress> hosts) {
+        double totalLatencyNanos = 0.0;
+        int hostsWithLatency = 0;
+        for (InetSocketAddress host : hosts) {
+            RequestMetrics requestMetricsForHost = metricsByHost.get(host);
+            OptionalDouble latencyNanos = requestMetricsForHost == null
+                    ? OptionalDouble.empty()
+                    : requestMetricsForHost.getLatencyEwmaNanos();
+            if (latencyNanos.isPresent()) {
+                totalLatencyNanos += latencyNanos.getAsDouble();
+                hostsWithLatency++;
+            }
+        }
+        return hostsWithLatency == 0 ? 0.0 : totalLatencyNanos / hostsWithLatency;
+    }
+
+    /**
+     * The load of a host is its recent average latency times the requests it has open, counting the one to be sent.
+     * Hosts which have not returned a request yet are assumed to be as fast as the candidate hosts on average.
+     */
+    private double getLoad(
+            InetSocketAddress host,
+            CassandraClientPoolingContainer hostPool,
+            double clusterLatencyNanos) {
+        RequestMetrics requestMetricsForHost = metricsByHost.get(host);
+        double latencyNanos = requestMetricsForHost == null
+                ? clusterLatencyNanos
+                : requestMetricsForHost.getLatencyEwmaNanos(clusterLatencyNanos);
+        // Adding one keeps hosts apart by their open requests before any latency is known.
+        return (latencyNanos + 1) * (Math.max(hostPool.getOpenRequests(), 0) + 1);
+    }
+
+    /**
+     * Picks two distinct hosts at random and returns the less loaded of the two. Comparing two random hosts avoids
+     * sending every request to the least loaded host while its load is not yet updated, as the latencies of hosts
+     * are only known once requests to them return.
+     */
+    @VisibleForTesting
+    static InetSocketAddress getLessLoadedOfTwoRandomHosts(
+            List<InetSocketAddress> hosts,
+            ToDoubleFunction<InetSocketAddress> loadByHost) {
+        Preconditions.checkArgument(!hosts.isEmpty(), "hosts should be non-empty");
+        if (hosts.size() == 1) {
+            return hosts.get(0);
+        }
+        int firstIndex = ThreadLocalRandom.current().nextInt(hosts.size());
+        int secondIndex = ThreadLocalRandom.current().nextInt(hosts.size() - 1);
+        if (secondIndex >= firstIndex) {
+            secondIndex++;
+        }
+        InetSocketAddress first = hosts.get(firstIndex);
+        InetSocketAddress second = hosts.get(secondIndex);
+        return loadByHost.applyAsDouble(second) < loadByHost.applyAsDouble(first) ? second : first;
     }
 
     public void runOneTimeStartupChecks() {
@@ -579,6 +854,13 @@ public class CassandraClientPool {
     public <V, K extends Exception> V runWithRetryOnHost(
             InetSocketAddress specifiedHost,
             FunctionCheckedException<Cassandra.Client, V, K> fn) throws K {
+        return runWithRetryOnHost(specifiedHost, fn, null);
+    }
+
+    private <V, K extends Exception> V runWithRetryOnHost(
+            InetSocketAddress specifiedHost,
+            FunctionCheckedException<Cassandra.Client, V, K> fn,
+            @Nullable ReadAttempt attempt) throws K {
         int numTries = 0;
         boolean shouldRetryOnDifferentHost = false;
         Set<InetSocketAddress> triedHosts = Sets.newHashSet();
@@ -600,6 +882,9 @@ public class CassandraClientPool {
             } catch (Exception e) {
                 numTries++;
                 triedHosts.add(hostPool.getHost());
+                if (attempt != null && attempt.isAbandoned()) {
+                    throw new ReadAbandonedException();
+                }
                 this.<K>handleException(numTries, hostPool.getHost(), e);
                 if (isRetriableWithBackoffException(e)) {
                     log.warn("Retrying with backoff a query intended for host {}.", hostPool.getHost(), e);
@@ -617,6 +902,85 @@ public class CassandraClientPool {
         }
     }
 
+    /**
+     * Runs a read on a host owning the given key, retrying as {@link #runWithRetryOnHost} does. If speculative reads
+     * are enabled and the read has not returned after the configured percentile of the recent latencies of that host,
+     * it is also run on another live host owning the key, and the first result returned is used. The read must be
+     * idempotent, and safe to run on two hosts at once.
+     * <p>
+     * The first read runs on the calling thread; only the speculative read is handed to a pool bounded by the number
+     * of connections to the cluster, and it waits there if every thread is busy. Whichever run loses is abandoned and
+     * its connection closed, so it holds neither a thread nor a connection once the read has returned. If the first
+     * read fails, the speculative read is waited for if it has started, and the failure of the first read is thrown
+     * unchanged if that fails too.
+     */
+    @SuppressWarnings("unchecked")
+    public <V, K extends Exception> V runReadWithRetryForKey(
+            byte[] key,
+            FunctionCheckedException<Cassandra.Client, V, K> fn) throws K {
+        InetSocketAddress host = getRandomHostForKey(key);
+        if (speculativeReadExecutor == null) {
+            return runWithRetryOnHost(host, fn);
+        }
+        RequestMetrics requestMetricsForHost = metricsByHost.get(host);
+        Optional<Long> speculationDelayNanos = requestMetricsForHost == null
+                ? Optional.empty()
+                : requestMetricsForHost.getLatencyPercentileNanos(config.speculativeReadLatencyPercentile().get());
+        if (!speculationDelayNanos.isPresent()) {
+            return runWithRetryOnHost(host, fn);
+        }
+
+        ReadAttempt firstRead = new ReadAttempt();
+        ReadAttempt speculativeRead = new ReadAttempt();
+        CompletableFuture<V> speculativeResult = new CompletableFuture<>();
+        Future<?> speculation = speculativeReadExecutor.schedule(
+                () -> runSpeculativeRead(key, host, requestMetricsForHost, fn, speculativeRead, firstRead,
+                        speculativeResult),
+                speculationDelayNanos.get(),
+                TimeUnit.NANOSECONDS);
+        try {
+            return runWithRetryOnHost(host, firstRead.wrap(fn), firstRead);
+        } catch (Exception e) {
+            if (speculation.cancel(false)) {
+                throw (K) e;
+            }
+            try {
+                return speculativeResult.get();
+            } catch (ExecutionException | CancellationException speculativeFailure) {
+                throw (K) e;
+            } catch (InterruptedException interrupted) {
+                throw Throwables.throwUncheckedException(interrupted);
+            }
+        } finally {
+            speculation.cancel(false);
+            speculativeRead.abandon();
+        }
+    }
+
+    private <V, K extends Exception> void runSpeculativeRead(
+            byte[] key,
+            InetSocketAddress host,
+            RequestMetrics requestMetricsForHost,
+            FunctionCheckedException<Cassandra.Client, V, K> fn,
+            ReadAttempt speculativeRead,
+            ReadAttempt firstRead,
+            CompletableFuture<V> speculativeResult) {
+        Optional<InetSocketAddress> otherHost = getOtherLiveHostForKey(key, host);
+        if (!otherHost.isPresent() || speculativeRead.isAbandoned()) {
+            speculativeResult.cancel(false);
+            return;
+        }
+        log.debug("Speculatively running a read intended for host {} on host {}.", host, otherHost.get());
+        aggregateMetrics.markSpeculativeRead();
+        requestMetricsForHost.markSpeculativeRead();
+        try {
+            speculativeResult.complete(runWithRetryOnHost(otherHost.get(), speculativeRead.wrap(fn), speculativeRead));
+            firstRead.abandon();
+        } catch (Throwable t) {
+            speculativeResult.completeExceptionally(t);
+        }
+    }
+
     public <V, K extends Exception> V run(FunctionCheckedException<Cassandra.Client, V, K> fn) throws K {
         return runOnHost(getRandomGoodHost().getHost(), fn);
     }
@@ -633,17 +997,29 @@ public class CassandraClientPool {
             FunctionCheckedException<Cassandra.Client, V, K> fn) throws K {
 
         recordRequestOnHost(hostPool);
+        long startTime = System.nanoTime();
         try {
-            return hostPool.runWithPooledResource(fn);
+            V result = hostPool.runWithPooledResource(fn);
+            recordLatencyOnHost(hostPool, System.nanoTime() - startTime);
+            return result;
         } catch (Exception e) {
             recordExceptionOnHost(hostPool);
             if (isConnectionException(e)) {
+                // Other failures, such as the pool being exhausted, return quickly and would make the host look fast.
+                recordLatencyOnHost(hostPool, System.nanoTime() - startTime);
                 recordConnectionExceptionOnHost(hostPool);
             }
             throw e;
         }
     }
 
+    private void recordLatencyOnHost(CassandraClientPoolingContainer hostPool, long latencyNanos) {
+        RequestMetrics requestMetricsForHost = metricsByHost.get(hostPool.getHost());
+        if (requestMetricsForHost != null) {
+            requestMetricsForHost.markRequestLatency(latencyNanos);
+        }
+    }
+
     private void recordRequestOnHost(CassandraClientPoolingContainer hostPool) {
         updateMetricOnAggregateAndHost(hostPool, RequestMetrics::markRequest);
     }
@@ -105,7 +105,7 @@ import com.palantir.atlasdb.keyvalue.cassandra.CassandraKeyValueServices.StartTs
 import com.palantir.atlasdb.keyvalue.cassandra.CassandraKeyValueServices.ThreadSafeResultVisitor;
 import com.palantir.atlasdb.keyvalue.cassandra.jmx.CassandraJmxCompaction;
 import com.palantir.atlasdb.keyvalue.cassandra.jmx.CassandraJmxCompactionManager;
-import com.palantir.atlasdb.keyvalue.cassandra.paging.CassandraRangePagingIterable;
+import com.palantir.atlasdb.keyvalue.cassandra.paging.CassandraRangeScanner;
 import com.palantir.atlasdb.keyvalue.cassandra.paging.ColumnFetchMode;
 import com.palantir.atlasdb.keyvalue.cassandra.paging.ColumnGetter;
 import com.palantir.atlasdb.keyvalue.cassandra.paging.CqlColumnGetter;
@@ -153,6 +153,7 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
 
     private final Optional<CassandraJmxCompactionManager> compactionManager;
     private final CassandraClientPool clientPool;
+    private final CassandraRangeScanner rangeScanner;
     private SchemaMutationLock schemaMutationLock;
     private final Optional<LeaderConfig> leaderConfig;
     private final HiddenTables hiddenTables;
@@ -192,11 +193,15 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
                                        CassandraKeyValueServiceConfigManager configManager,
                                        Optional<CassandraJmxCompactionManager> compactionManager,
                                        Optional<LeaderConfig> leaderConfig) {
-        super(AbstractKeyValueService.createFixedThreadPool("Atlas Cassandra KVS",
-                configManager.getConfig().poolSize() * configManager.getConfig().servers().size()));
+        super(AbstractKeyValueService.createFixedThreadPool("Atlas Cassandra KVS", maxConnections(configManager)));
         this.log = log;
         this.configManager = configManager;
         this.clientPool = new CassandraClientPool(configManager.getConfig());
+        this.rangeScanner = CassandraRangeScanner.create(
+                clientPool,
+                configManager.getConfig().prefetchRangeScanPages(),
+                configManager.getConfig().tokenRangeScanConcurrency(),
+                maxConnections(configManager));
         this.compactionManager = compactionManager;
         this.leaderConfig = leaderConfig;
         this.hiddenTables = new HiddenTables();
@@ -208,6 +213,10 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
         this.cassandraTables = new CassandraTables(clientPool, configManager);
     }
 
+    private static int maxConnections(CassandraKeyValueServiceConfigManager configManager) {
+        return configManager.getConfig().poolSize() * configManager.getConfig().servers().size();
+    }
+
     private LockLeader whoIsTheLockCreator() {
         return leaderConfig
                 .transform((config) -> config.whoIsTheLockLeader())
@@ -1444,15 +1453,7 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
             return ClosableIterators.wrap(ImmutableList.<RowResult<T>>of().iterator());
         }
 
-        CassandraRangePagingIterable<T> rowResults = new CassandraRangePagingIterable<>(
-                rowGetter,
-                columnGetter,
-                rangeRequest,
-                resultsExtractor,
-                timestamp
-        );
-
-        return ClosableIterators.wrap(rowResults.iterator());
+        return rangeScanner.scan(rowGetter, columnGetter, rangeRequest, resultsExtractor, timestamp);
     }
 
     /**
@@ -1940,6 +1941,7 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
     @Override
     public void close() {
         clientPool.shutdown();
+        rangeScanner.close();
         if (compactionManager.isPresent()) {
             compactionManager.get().close();
         }
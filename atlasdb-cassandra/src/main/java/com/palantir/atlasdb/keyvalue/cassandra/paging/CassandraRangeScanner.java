@@ -0,0 +1,262 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra.paging;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RangeRequests;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.cassandra.CassandraClientPool;
+import com.palantir.atlasdb.keyvalue.cassandra.ResultsExtractor;
+import com.palantir.common.base.ClosableIterator;
+import com.palantir.common.base.Throwables;
+import com.palantir.common.concurrent.NamedThreadFactory;
+import com.palantir.common.concurrent.PTExecutors;
+import com.palantir.remoting2.tracing.Tracers;
+import com.palantir.util.paging.TokenBackedBasicResultsPage;
+
+/**
+ * Scans ranges of a table a page at a time, each page being read with a {@link RowGetter} and a
+ * {@link ColumnGetter}, as {@link CassandraRangePagingIterable} does.
+ * <p>
+ * The scanner can fetch the next page of a scan on another thread while the current one is consumed. It can also
+ * split scans which run to the end of the table along the token ranges of the ring, and fetch the first pages of up
+ * to a number of token ranges ahead at once. Each page is read from a host owning the token range it starts in, and
+ * the rows are still returned in key order. Pages are fetched on a fixed number of threads shared by all scans.
+ */
+public final class CassandraRangeScanner {
+    private static final CassandraRangeScanner SYNCHRONOUS =
+            new CassandraRangeScanner(null, ImmutableList::of, false, 1);
+
+    @Nullable
+    private final ExecutorService executor;
+    private final Supplier<List<byte[]>> tokenRangeBoundaries;
+    private final boolean prefetchPages;
+    private final int tokenRangeConcurrency;
+
+    /**
+     * @param prefetchPages whether to fetch the next page of each scan while the current one is consumed.
+     * @param tokenRangeConcurrency the number of token ranges of a scan to fetch pages of at once, or one to not
+     *                              split scans along token ranges.
+     * @param maxConcurrentFetches the number of pages which may be fetched on other threads at once, across all
+     *                             scans. Further fetches wait for one of those to complete.
+     */
+    public static CassandraRangeScanner create(
+            CassandraClientPool clientPool,
+            boolean prefetchPages,
+            int tokenRangeConcurrency,
+            int maxConcurrentFetches) {
+        Preconditions.checkArgument(tokenRangeConcurrency > 0,
+                "tokenRangeConcurrency must be positive, was %s", tokenRangeConcurrency);
+        Preconditions.checkArgument(maxConcurrentFetches > 0,
+                "maxConcurrentFetches must be positive, was %s", maxConcurrentFetches);
+        if (!prefetchPages && tokenRangeConcurrency == 1) {
+            return SYNCHRONOUS;
+        }
+        ExecutorService executor = PTExecutors.newFixedThreadPool(maxConcurrentFetches,
+                new NamedThreadFactory("atlas-cassandra-range-scan", true));
+        return new CassandraRangeScanner(
+                Tracers.wrap(executor),
+                clientPool::getTokenRangeBoundaries,
+                prefetchPages,
+                tokenRangeConcurrency);
+    }
+
+    public static CassandraRangeScanner synchronous() {
+        return SYNCHRONOUS;
+    }
+
+    private CassandraRangeScanner(
+            @Nullable ExecutorService executor,
+            Supplier<List<byte[]>> tokenRangeBoundaries,
+            boolean prefetchPages,
+            int tokenRangeConcurrency) {
+        this.executor = executor;
+        this.tokenRangeBoundaries = tokenRangeBoundaries;
+        this.prefetchPages = prefetchPages;
+        this.tokenRangeConcurrency = tokenRangeConcurrency;
+    }
+
+    public <T> ClosableIterator<RowResult<T>> scan(
+            RowGetter rowGetter,
+            ColumnGetter columnGetter,
+            RangeRequest rangeRequest,
+            Supplier<ResultsExtractor<T>> resultsExtractor,
+            long timestamp) {
+        return new RangeScan<>(
+                rowGetter,
+                columnGetter,
+                splitAlongTokenRanges(rangeRequest),
+                resultsExtractor,
+                timestamp,
+                tokenRangeConcurrency);
+    }
+
+    private List<RangeRequest> splitAlongTokenRanges(RangeRequest rangeRequest) {
+        // Only scans which run to the end of the table are split, so that short scans, which usually only read their
+        // first page, do not also read the first pages of the token ranges after it.
+        if (tokenRangeConcurrency == 1 || rangeRequest.getEndExclusive().length != 0) {
+            return ImmutableList.of(rangeRequest);
+        }
+        return RangeRequests.split(rangeRequest, tokenRangeBoundaries.get());
+    }
+
+    public void close() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private final class RangeScan<T> extends AbstractIterator<RowResult<T>> implements ClosableIterator<RowResult<T>> {
+        private final Iterator<RangeRequest> rangesToStart;
+        private final Deque<TokenRangeScan<T>> startedRanges = new ArrayDeque<>();
+        private final RowGetter rowGetter;
+        private final ColumnGetter columnGetter;
+        private final Supplier<ResultsExtractor<T>> resultsExtractor;
+        private final long timestamp;
+        private final int rangesToFetchAhead;
+        private Iterator<RowResult<T>> currentPage = Collections.emptyIterator();
+
+        RangeScan(RowGetter rowGetter,
+                  ColumnGetter columnGetter,
+                  List<RangeRequest> ranges,
+                  Supplier<ResultsExtractor<T>> resultsExtractor,
+                  long timestamp,
+                  int rangesToFetchAhead) {
+            this.rangesToStart = ranges.iterator();
+            this.rowGetter = rowGetter;
+            this.columnGetter = columnGetter;
+            this.resultsExtractor = resultsExtractor;
+            this.timestamp = timestamp;
+            this.rangesToFetchAhead = rangesToFetchAhead;
+        }
+
+        @Override
+        protected RowResult<T> computeNext() {
+            while (!currentPage.hasNext()) {
+                startRanges();
+                TokenRangeScan<T> range = startedRanges.peekFirst();
+                if (range == null) {
+                    return endOfData();
+                }
+                TokenBackedBasicResultsPage<RowResult<T>, byte[]> page = range.nextPage();
+                if (page == null) {
+                    startedRanges.removeFirst();
+                } else {
+                    currentPage = page.getResults().iterator();
+                }
+            }
+            return currentPage.next();
+        }
+
+        private void startRanges() {
+            while (startedRanges.size() < rangesToFetchAhead && rangesToStart.hasNext()) {
+                CassandraRangePagingIterable<T> pages = new CassandraRangePagingIterable<>(
+                        rowGetter, columnGetter, rangesToStart.next(), resultsExtractor, timestamp);
+                startedRanges.addLast(new TokenRangeScan<>(pages));
+            }
+        }
+
+        @Override
+        public void close() {
+            for (TokenRangeScan<T> range : startedRanges) {
+                range.cancel();
+            }
+            startedRanges.clear();
+            currentPage = Collections.emptyIterator();
+        }
+    }
+
+    /**
+     * The pages of one range, fetched in order. Its first page is fetched on the executor as soon as it is created.
+     * If prefetching pages, each page after the second is fetched on the executor once the page before it is
+     * returned.
+     */
+    private final class TokenRangeScan<T> {
+        private final CassandraRangePagingIterable<T> pages;
+        @Nullable
+        private TokenBackedBasicResultsPage<RowResult<T>, byte[]> lastPage = null;
+        @Nullable
+        private Future<TokenBackedBasicResultsPage<RowResult<T>, byte[]>> nextPage = null;
+        private boolean exhausted = false;
+        private int pagesReturned = 0;
+
+        TokenRangeScan(CassandraRangePagingIterable<T> pages) {
+            this.pages = pages;
+            if (executor != null) {
+                nextPage = executor.submit(pages::getFirstPage);
+            }
+        }
+
+        /**
+         * Returns the next page of the range, or null once the range has been read in full.
+         */
+        @Nullable
+        TokenBackedBasicResultsPage<RowResult<T>, byte[]> nextPage() {
+            if (exhausted) {
+                return null;
+            }
+            TokenBackedBasicResultsPage<RowResult<T>, byte[]> page = getNextPage();
+            lastPage = page;
+            pagesReturned++;
+            // CassandraRangePagingIterable marks any page with fewer rows than the batch hint as the last one, so
+            // only a full page is followed by another. Callers which only want a few rows usually ask for a batch
+            // of that size and stop after the first page, so we only read ahead once the caller asks for more.
+            if (!page.moreResultsAvailable()) {
+                exhausted = true;
+            } else if (prefetchPages && pagesReturned > 1) {
+                nextPage = executor.submit(() -> pages.getNextPage(page));
+            }
+            return page;
+        }
+
+        private TokenBackedBasicResultsPage<RowResult<T>, byte[]> getNextPage() {
+            try {
+                if (nextPage != null) {
+                    Future<TokenBackedBasicResultsPage<RowResult<T>, byte[]>> future = nextPage;
+                    nextPage = null;
+                    return future.get();
+                }
+                return lastPage == null ? pages.getFirstPage() : pages.getNextPage(lastPage);
+            } catch (ExecutionException e) {
+                throw Throwables.rewrapAndThrowUncheckedException(e.getCause());
+            } catch (Exception e) {
+                throw Throwables.throwUncheckedException(e);
+            }
+        }
+
+        void cancel() {
+            if (nextPage != null) {
+                // Interrupting a Thrift call could break its pooled connection, so the fetch is left to finish.
+                nextPage.cancel(false);
+            }
+        }
+    }
+}
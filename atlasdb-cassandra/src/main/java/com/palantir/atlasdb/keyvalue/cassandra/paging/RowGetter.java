@@ -15,7 +15,6 @@
  */
 package com.palantir.atlasdb.keyvalue.cassandra.paging;
 
-import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.util.List;
 
@@ -58,9 +57,8 @@ public class RowGetter {
 
     public List<KeySlice> getRows(KeyRange keyRange) throws Exception {
         ColumnParent colFam = new ColumnParent(CassandraKeyValueService.internalTableName(tableRef));
-        InetSocketAddress host = clientPool.getRandomHostForKey(keyRange.getStart_key());
-        return clientPool.runWithRetryOnHost(
-                host,
+        return clientPool.runReadWithRetryForKey(
+                keyRange.getStart_key(),
                 new FunctionCheckedException<Cassandra.Client, List<KeySlice>, Exception>() {
                     @Override
                     public List<KeySlice> apply(Cassandra.Client client) throws Exception {
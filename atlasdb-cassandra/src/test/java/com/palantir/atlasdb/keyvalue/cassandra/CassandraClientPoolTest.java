@@ -17,9 +17,11 @@ package com.palantir.atlasdb.keyvalue.cassandra;
 
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -29,16 +31,26 @@ import java.net.UnknownHostException;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.cassandra.thrift.Cassandra;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 
 import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableRangeMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Range;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.palantir.atlasdb.cassandra.CassandraKeyValueServiceConfig;
 import com.palantir.atlasdb.util.AtlasDbMetrics;
 import com.palantir.common.base.FunctionCheckedException;
@@ -207,6 +219,158 @@ public class CassandraClientPoolTest {
         verifyBlacklistMetric(1);
     }
 
+    @Test
+    public void tokenRangeBoundariesStartJustAfterTheEndTokenOfEachRange() {
+        CassandraClientPool cassandraClientPool = clientPoolWithServersInCurrentPool(ImmutableSet.of(HOST_1, HOST_2));
+        CassandraClientPool.LightweightOppToken tokenA = new CassandraClientPool.LightweightOppToken(new byte[] {0x10});
+        CassandraClientPool.LightweightOppToken tokenB = new CassandraClientPool.LightweightOppToken(new byte[] {0x20});
+        cassandraClientPool.tokenMap = ImmutableRangeMap.<CassandraClientPool.LightweightOppToken,
+                List<InetSocketAddress>>builder()
+                .put(Range.atMost(tokenA), ImmutableList.of(HOST_1))
+                .put(Range.openClosed(tokenA, tokenB), ImmutableList.of(HOST_2))
+                .put(Range.greaterThan(tokenB), ImmutableList.of(HOST_1))
+                .build();
+
+        List<byte[]> boundaries = cassandraClientPool.getTokenRangeBoundaries();
+
+        assertEquals(2, boundaries.size());
+        assertArrayEquals(new byte[] {0x10, 0x00}, boundaries.get(0));
+        assertArrayEquals(new byte[] {0x20, 0x00}, boundaries.get(1));
+    }
+
+    @Test
+    public void noTokenRangeBoundariesBeforeTheRingIsKnown() {
+        CassandraClientPool cassandraClientPool = clientPoolWithServersInCurrentPool(ImmutableSet.of(HOST_1));
+
+        assertThat(cassandraClientPool.getTokenRangeBoundaries().isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldPickTheLessLoadedOfTwoHosts() {
+        List<InetSocketAddress> hosts = ImmutableList.of(HOST_1, HOST_2);
+
+        for (int i = 0; i < 50; i++) {
+            InetSocketAddress host = CassandraClientPool.getLessLoadedOfTwoRandomHosts(
+                    hosts, address -> address.equals(HOST_1) ? 10.0 : 1.0);
+            assertThat(host, equalTo(HOST_2));
+        }
+    }
+
+    @Test
+    public void shouldPickTheOnlyHostWhateverItsLoad() {
+        InetSocketAddress host = CassandraClientPool.getLessLoadedOfTwoRandomHosts(
+                ImmutableList.of(HOST_1), address -> Double.MAX_VALUE);
+
+        assertThat(host, equalTo(HOST_1));
+    }
+
+    @Test
+    public void shouldAvoidHostsWithMoreOpenRequestsWhenLatencyAware() {
+        CassandraKeyValueServiceConfig config = mockConfig(ImmutableSet.of());
+        when(config.latencyAwareHostSelection()).thenReturn(true);
+        CassandraClientPool cassandraClientPool = clientPoolWith(
+                config, ImmutableSet.of(HOST_1, HOST_2), Optional.empty());
+        when(cassandraClientPool.currentPools.get(HOST_1).getOpenRequests()).thenReturn(5);
+
+        for (int i = 0; i < 50; i++) {
+            assertThat(cassandraClientPool.getRandomGoodHostForPredicate(address -> true).get().getHost(),
+                    equalTo(HOST_2));
+        }
+    }
+
+    @Test
+    public void shouldAvoidSlowerHostsWhenLatencyAware() {
+        CassandraKeyValueServiceConfig config = mockConfig(ImmutableSet.of());
+        when(config.latencyAwareHostSelection()).thenReturn(true);
+        CassandraClientPool cassandraClientPool = clientPoolWith(
+                config, ImmutableSet.of(HOST_1, HOST_2), Optional.empty());
+        setResultForHost(cassandraClientPool.currentPools.get(HOST_1), "slow", 50);
+
+        runNoopOnHost(HOST_1, cassandraClientPool);
+        runNoopOnHost(HOST_2, cassandraClientPool);
+
+        for (int i = 0; i < 50; i++) {
+            assertThat(cassandraClientPool.getRandomGoodHostForPredicate(address -> true).get().getHost(),
+                    equalTo(HOST_2));
+        }
+    }
+
+    @Test
+    public void shouldSpeculativelyReadFromAnotherReplicaWhenTheFirstIsSlow() throws Exception {
+        CassandraKeyValueServiceConfig config = mockConfig(ImmutableSet.of());
+        when(config.latencyAwareHostSelection()).thenReturn(true);
+        setSpeculativeReadLatencyPercentile(config, 50.0);
+        CassandraClientPool cassandraClientPool = clientPoolWith(
+                config, ImmutableSet.of(HOST_1, HOST_2), Optional.empty());
+        cassandraClientPool.tokenMap = ImmutableRangeMap.of(Range.all(), ImmutableList.of(HOST_1, HOST_2));
+        // Requests are routed to the first host, which has fewer open requests, and then turns slow.
+        when(cassandraClientPool.currentPools.get(HOST_2).getOpenRequests()).thenReturn(1000);
+        runNoopOnHost(HOST_1, cassandraClientPool);
+        CountDownLatch slowConnectionClosed = new CountDownLatch(1);
+        Cassandra.Client slowClient = clientClosingLatch(slowConnectionClosed);
+        runWithClientOnHost(cassandraClientPool.currentPools.get(HOST_1), slowClient);
+        runWithClientOnHost(cassandraClientPool.currentPools.get(HOST_2), clientClosingLatch(new CountDownLatch(1)));
+        AtomicReference<Thread> slowReadThread = new AtomicReference<>();
+        CountDownLatch slowReadStarted = new CountDownLatch(1);
+
+        Object result = cassandraClientPool.runReadWithRetryForKey(new byte[] {0x10}, client -> {
+            if (client != slowClient) {
+                assertThat(slowReadStarted.await(10, TimeUnit.SECONDS), is(true));
+                return "fast";
+            }
+            slowReadThread.set(Thread.currentThread());
+            slowReadStarted.countDown();
+            // A slow read only returns once the losing run's connection is closed under it.
+            assertThat(slowConnectionClosed.await(10, TimeUnit.SECONDS), is(true));
+            throw new TTransportException("Socket closed");
+        });
+
+        assertThat(result, equalTo("fast"));
+        assertThat(slowReadThread.get(), equalTo(Thread.currentThread()));
+        assertEquals(1, getAggregateMeterCountForMetricName("speculativeReads"));
+    }
+
+    @Test
+    public void shouldRethrowTheFailureOfTheFirstReadAsIsWhenBothReadsFail() {
+        CassandraKeyValueServiceConfig config = mockConfig(ImmutableSet.of());
+        setSpeculativeReadLatencyPercentile(config, 50.0);
+        CassandraClientPool cassandraClientPool = clientPoolWith(
+                config, ImmutableSet.of(HOST_1, HOST_2), Optional.empty());
+        cassandraClientPool.tokenMap = ImmutableRangeMap.of(Range.all(), ImmutableList.of(HOST_1, HOST_2));
+        runNoopOnHost(HOST_1, cassandraClientPool);
+        runNoopOnHost(HOST_2, cassandraClientPool);
+        IllegalStateException failure = new IllegalStateException("read failed");
+        setFailureModeForHost(cassandraClientPool.currentPools.get(HOST_1), failure);
+        setFailureModeForHost(cassandraClientPool.currentPools.get(HOST_2), failure);
+
+        try {
+            cassandraClientPool.runReadWithRetryForKey(new byte[] {0x10}, input -> null);
+            fail();
+        } catch (IllegalStateException e) {
+            assertThat(e, is(failure));
+        }
+    }
+
+    @Test
+    public void shouldNotSpeculativelyReadWhenTheFirstReplicaIsFast() {
+        CassandraKeyValueServiceConfig config = mockConfig(ImmutableSet.of());
+        setSpeculativeReadLatencyPercentile(config, 99.0);
+        CassandraClientPool cassandraClientPool = clientPoolWith(
+                config, ImmutableSet.of(HOST_1, HOST_2), Optional.empty());
+        cassandraClientPool.tokenMap = ImmutableRangeMap.of(Range.all(), ImmutableList.of(HOST_1, HOST_2));
+        setResultForHost(cassandraClientPool.currentPools.get(HOST_1), "first", 200);
+        setResultForHost(cassandraClientPool.currentPools.get(HOST_2), "first", 200);
+        runNoopOnHost(HOST_1, cassandraClientPool);
+        runNoopOnHost(HOST_2, cassandraClientPool);
+        setResultForHost(cassandraClientPool.currentPools.get(HOST_1), "first", 0);
+        setResultForHost(cassandraClientPool.currentPools.get(HOST_2), "first", 0);
+
+        Object result = cassandraClientPool.runReadWithRetryForKey(new byte[] {0x10}, input -> null);
+
+        assertThat(result, equalTo("first"));
+        assertEquals(0, getAggregateMeterCountForMetricName("speculativeReads"));
+    }
+
     private void verifyNumberOfAttemptsOnHost(InetSocketAddress host,
                                               CassandraClientPool cassandraClientPool,
                                               int numAttempts) {
@@ -232,11 +396,26 @@ public class CassandraClientPoolTest {
             ImmutableSet<InetSocketAddress> servers,
             ImmutableSet<InetSocketAddress> serversInPool,
             Optional<Exception> failureMode) {
+        return clientPoolWith(mockConfig(servers), serversInPool, failureMode);
+    }
+
+    private CassandraKeyValueServiceConfig mockConfig(ImmutableSet<InetSocketAddress> servers) {
         CassandraKeyValueServiceConfig config = mock(CassandraKeyValueServiceConfig.class);
         when(config.poolRefreshIntervalSeconds()).thenReturn(POOL_REFRESH_INTERVAL_SECONDS);
         when(config.timeBetweenConnectionEvictionRunsSeconds()).thenReturn(TIME_BETWEEN_EVICTION_RUNS_SECONDS);
         when(config.servers()).thenReturn(servers);
+        when(config.speculativeReadLatencyPercentile()).thenReturn(com.google.common.base.Optional.absent());
+        return config;
+    }
 
+    private static void setSpeculativeReadLatencyPercentile(CassandraKeyValueServiceConfig config, double percentile) {
+        when(config.speculativeReadLatencyPercentile()).thenReturn(com.google.common.base.Optional.of(percentile));
+    }
+
+    private CassandraClientPool clientPoolWith(
+            CassandraKeyValueServiceConfig config,
+            ImmutableSet<InetSocketAddress> serversInPool,
+            Optional<Exception> failureMode) {
         CassandraClientPool cassandraClientPool = CassandraClientPool.createWithoutChecksForTesting(config);
 
         serversInPool.forEach(address ->
@@ -265,6 +444,39 @@ public class CassandraClientPoolTest {
         }
     }
 
+    private void setResultForHost(CassandraClientPoolingContainer poolingContainer, Object result, long delayMillis) {
+        try {
+            doAnswer(invocation -> {
+                Uninterruptibles.sleepUninterruptibly(delayMillis, TimeUnit.MILLISECONDS);
+                return result;
+            }).when(poolingContainer).runWithPooledResource(
+                    Mockito.<FunctionCheckedException<Cassandra.Client, Object, Exception>>any());
+        } catch (Exception e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void runWithClientOnHost(CassandraClientPoolingContainer poolingContainer, Cassandra.Client client) {
+        try {
+            doAnswer(invocation -> ((FunctionCheckedException<Cassandra.Client, Object, Exception>)
+                    invocation.getArguments()[0]).apply(client))
+                    .when(poolingContainer).runWithPooledResource(
+                            Mockito.<FunctionCheckedException<Cassandra.Client, Object, Exception>>any());
+        } catch (Exception e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    private static Cassandra.Client clientClosingLatch(CountDownLatch connectionClosed) {
+        TTransport transport = mock(TTransport.class);
+        doAnswer(invocation -> {
+            connectionClosed.countDown();
+            return null;
+        }).when(transport).close();
+        return new Cassandra.Client(new TBinaryProtocol(transport));
+    }
+
     private void runNoopOnHost(InetSocketAddress host, CassandraClientPool pool) {
         pool.runOnHost(host, input -> null);
     }
@@ -323,6 +535,11 @@ public class CassandraClientPoolTest {
         return metricRegistry.getGauges().get(fullyQualifiedMetricName).getValue();
     }
 
+    private long getAggregateMeterCountForMetricName(String metricName) {
+        String fullyQualifiedMetricName = MetricRegistry.name(CassandraClientPool.class, metricName);
+        return metricRegistry.getMeters().get(fullyQualifiedMetricName).getCount();
+    }
+
     private Object getMetricValueFromHostAndMetricName(String hostname, String metricName) {
         String fullyQualifiedMetricName = MetricRegistry.name(CassandraClientPool.class, hostname, metricName);
         return metricRegistry.getGauges().get(fullyQualifiedMetricName).getValue();
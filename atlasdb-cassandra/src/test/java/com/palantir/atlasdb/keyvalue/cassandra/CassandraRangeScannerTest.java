@@ -0,0 +1,240 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.apache.cassandra.thrift.Cassandra;
+import org.apache.cassandra.thrift.Column;
+import org.apache.cassandra.thrift.ColumnOrSuperColumn;
+import org.apache.cassandra.thrift.ConsistencyLevel;
+import org.apache.cassandra.thrift.KeyRange;
+import org.apache.cassandra.thrift.KeySlice;
+import org.apache.cassandra.thrift.UnavailableException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.UnsignedBytes;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.InsufficientConsistencyException;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.keyvalue.cassandra.paging.CassandraRangeScanner;
+import com.palantir.atlasdb.keyvalue.cassandra.paging.ColumnFetchMode;
+import com.palantir.atlasdb.keyvalue.cassandra.paging.RowGetter;
+import com.palantir.atlasdb.keyvalue.cassandra.paging.ThriftColumnGetter;
+import com.palantir.atlasdb.keyvalue.impl.TracingPrefsConfig;
+import com.palantir.common.base.ClosableIterator;
+import com.palantir.common.base.FunctionCheckedException;
+
+public class CassandraRangeScannerTest {
+    private static final TableReference TABLE = TableReference.createFromFullyQualifiedName("ns.table");
+    private static final byte[] COLUMN = PtBytes.toBytes("col");
+    private static final long TIMESTAMP = 10L;
+    private static final int NUM_ROWS = 100;
+    private static final int BATCH_HINT = 7;
+    private static final int QUERY_LATENCY_MILLIS = 10;
+    private static final int MAX_CONCURRENT_FETCHES = 8;
+
+    private final NavigableMap<byte[], KeySlice> rows = new TreeMap<>(UnsignedBytes.lexicographicalComparator());
+    private final AtomicInteger queriesStarted = new AtomicInteger();
+    private final AtomicInteger queriesInFlight = new AtomicInteger();
+    private final AtomicInteger maxQueriesInFlight = new AtomicInteger();
+    private final CassandraClientPool clientPool = mock(CassandraClientPool.class);
+    private final Cassandra.Client client = mock(Cassandra.Client.class);
+
+    private CassandraRangeScanner scanner;
+
+    @Before
+    public void setUp() throws Exception {
+        for (int i = 0; i < NUM_ROWS; i++) {
+            byte[] row = rowName(i);
+            rows.put(row, new KeySlice(ByteBuffer.wrap(row), ImmutableList.of(column(PtBytes.toBytes("v" + i)))));
+        }
+        when(clientPool.runReadWithRetryForKey(any(), any())).thenAnswer(invocation -> {
+            @SuppressWarnings("unchecked")
+            FunctionCheckedException<Cassandra.Client, ?, ?> fn =
+                    (FunctionCheckedException<Cassandra.Client, ?, ?>) invocation.getArguments()[1];
+            return fn.apply(client);
+        });
+        when(clientPool.getTokenRangeBoundaries()).thenReturn(ImmutableList.of(
+                rowName(10), rowName(25), rowName(40), rowName(55), rowName(70), rowName(85)));
+        when(client.get_range_slices(any(), any(), any(), any())).thenAnswer(
+                invocation -> getRangeSlices((KeyRange) invocation.getArguments()[2]));
+    }
+
+    @After
+    public void tearDown() {
+        if (scanner != null) {
+            scanner.close();
+        }
+    }
+
+    @Test
+    public void returnsAllRowsInOrderWhenScanningSynchronously() {
+        scanner = CassandraRangeScanner.synchronous();
+
+        assertThat(scanAll()).isEqualTo(allRowNames());
+        assertThat(maxQueriesInFlight.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void returnsAllRowsInOrderWhenPrefetchingPages() {
+        scanner = CassandraRangeScanner.create(clientPool, true, 1, MAX_CONCURRENT_FETCHES);
+
+        assertThat(scanAll()).isEqualTo(allRowNames());
+        verify(clientPool, never()).getTokenRangeBoundaries();
+    }
+
+    @Test
+    public void returnsAllRowsInOrderWhenSplittingAlongTokenRanges() {
+        scanner = CassandraRangeScanner.create(clientPool, true, 4, MAX_CONCURRENT_FETCHES);
+
+        assertThat(scanAll()).isEqualTo(allRowNames());
+    }
+
+    @Test
+    public void queriesTokenRangesConcurrently() {
+        scanner = CassandraRangeScanner.create(clientPool, false, 4, MAX_CONCURRENT_FETCHES);
+
+        assertThat(scanAll()).isEqualTo(allRowNames());
+        assertThat(maxQueriesInFlight.get()).isGreaterThan(1).isLessThanOrEqualTo(4);
+    }
+
+    @Test
+    public void fetchesNoMorePagesAtOnceThanAllowed() {
+        scanner = CassandraRangeScanner.create(clientPool, false, 4, 1);
+
+        assertThat(scanAll()).isEqualTo(allRowNames());
+        // One page fetched on the executor, and one on the scanning thread.
+        assertThat(maxQueriesInFlight.get()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    public void doesNotPrefetchPagesOfScansWhichOnlyReadTheFirstPage() {
+        scanner = CassandraRangeScanner.create(clientPool, true, 1, MAX_CONCURRENT_FETCHES);
+
+        RangeRequest range = RangeRequest.builder().batchHint(BATCH_HINT).build();
+        try (ClosableIterator<RowResult<Value>> results = startScan(range, ConsistencyLevel.QUORUM)) {
+            for (int i = 0; i < BATCH_HINT; i++) {
+                results.next();
+            }
+            Uninterruptibles.sleepUninterruptibly(5 * QUERY_LATENCY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        assertThat(queriesStarted.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void doesNotSplitScansEndingBeforeTheEndOfTheTable() {
+        scanner = CassandraRangeScanner.create(clientPool, true, 4, MAX_CONCURRENT_FETCHES);
+        RangeRequest range = RangeRequest.builder().endRowExclusive(rowName(50)).batchHint(BATCH_HINT).build();
+
+        assertThat(scan(range, ConsistencyLevel.QUORUM)).isEqualTo(allRowNames().subList(0, 50));
+        verify(clientPool, never()).getTokenRangeBoundaries();
+    }
+
+    @Test
+    public void rethrowsFailuresFromOtherThreads() throws Exception {
+        scanner = CassandraRangeScanner.create(clientPool, true, 4, MAX_CONCURRENT_FETCHES);
+        doThrow(new UnavailableException()).when(client).get_range_slices(any(), any(), any(), any());
+
+        assertThatThrownBy(() -> scan(RangeRequest.all(), ConsistencyLevel.ALL))
+                .isInstanceOf(InsufficientConsistencyException.class);
+    }
+
+    private List<String> scanAll() {
+        return scan(RangeRequest.builder().batchHint(BATCH_HINT).build(), ConsistencyLevel.QUORUM);
+    }
+
+    private List<String> scan(RangeRequest range, ConsistencyLevel consistency) {
+        try (ClosableIterator<RowResult<Value>> results = startScan(range, consistency)) {
+            List<String> rowNames = Lists.newArrayList();
+            results.forEachRemaining(row -> rowNames.add(PtBytes.toString(row.getRowName())));
+            return rowNames;
+        }
+    }
+
+    private ClosableIterator<RowResult<Value>> startScan(RangeRequest range, ConsistencyLevel consistency) {
+        TracingQueryRunner queryRunner = new TracingQueryRunner(
+                LoggerFactory.getLogger(CassandraRangeScannerTest.class),
+                new TracingPrefsConfig());
+        RowGetter rowGetter = new RowGetter(
+                clientPool,
+                queryRunner,
+                consistency,
+                TABLE,
+                ColumnFetchMode.FETCH_ALL);
+        return scanner.scan(rowGetter, new ThriftColumnGetter(), range, ValueExtractor::create, TIMESTAMP);
+    }
+
+    private List<KeySlice> getRangeSlices(KeyRange keyRange) {
+        queriesStarted.incrementAndGet();
+        int inFlight = queriesInFlight.incrementAndGet();
+        maxQueriesInFlight.accumulateAndGet(inFlight, Math::max);
+        try {
+            Uninterruptibles.sleepUninterruptibly(QUERY_LATENCY_MILLIS, TimeUnit.MILLISECONDS);
+            NavigableMap<byte[], KeySlice> slices = keyRange.getEnd_key().length == 0
+                    ? rows.tailMap(keyRange.getStart_key(), true)
+                    : rows.subMap(keyRange.getStart_key(), true, keyRange.getEnd_key(), true);
+            return slices.values().stream().limit(keyRange.getCount()).collect(Collectors.toList());
+        } finally {
+            queriesInFlight.decrementAndGet();
+        }
+    }
+
+    private static ColumnOrSuperColumn column(byte[] value) {
+        Column column = new Column(CassandraKeyValueServices.makeCompositeBuffer(COLUMN, TIMESTAMP - 1));
+        column.setValue(value);
+        column.setTimestamp(TIMESTAMP - 1);
+        ColumnOrSuperColumn columnOrSuperColumn = new ColumnOrSuperColumn();
+        columnOrSuperColumn.setColumn(column);
+        return columnOrSuperColumn;
+    }
+
+    private static byte[] rowName(int index) {
+        return PtBytes.toBytes(String.format("row%03d", index));
+    }
+
+    private static List<String> allRowNames() {
+        return IntStream.range(0, NUM_ROWS)
+                .mapToObj(i -> PtBytes.toString(rowName(i)))
+                .collect(Collectors.toList());
+    }
+}
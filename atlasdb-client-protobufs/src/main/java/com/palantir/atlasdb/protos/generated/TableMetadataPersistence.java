@@ -1027,6 +1027,15 @@ public final class TableMetadataPersistence {
      * <code>optional bool nameLoggable = 12 [default = false];</code>
      */
     boolean getNameLoggable();
+
+    /**
+     * <code>optional bool writeOnce = 13 [default = false];</code>
+     */
+    boolean hasWriteOnce();
+    /**
+     * <code>optional bool writeOnce = 13 [default = false];</code>
+     */
+    boolean getWriteOnce();
   }
   /**
    * Protobuf type {@code com.palantir.atlasdb.protos.generated.TableMetadata}
@@ -1180,6 +1189,11 @@ public final class TableMetadataPersistence {
               nameLoggable_ = input.readBool();
               break;
             }
+            case 104: {
+              bitField0_ |= 0x00001000;
+              writeOnce_ = input.readBool();
+              break;
+            }
           }
         }
       } catch (com.google.protobuf.InvalidProtocolBufferException e) {
@@ -1412,6 +1426,21 @@ public final class TableMetadataPersistence {
       return nameLoggable_;
     }
 
+    public static final int WRITEONCE_FIELD_NUMBER = 13;
+    private boolean writeOnce_;
+    /**
+     * <code>optional bool writeOnce = 13 [default = false];</code>
+     */
+    public boolean hasWriteOnce() {
+      return ((bitField0_ & 0x00001000) == 0x00001000);
+    }
+    /**
+     * <code>optional bool writeOnce = 13 [default = false];</code>
+     */
+    public boolean getWriteOnce() {
+      return writeOnce_;
+    }
+
     private void initFields() {
       rowName_ = com.palantir.atlasdb.protos.generated.TableMetadataPersistence.NameMetadataDescription.getDefaultInstance();
       columns_ = com.palantir.atlasdb.protos.generated.TableMetadataPersistence.ColumnMetadataDescription.getDefaultInstance();
@@ -1425,6 +1454,7 @@ public final class TableMetadataPersistence {
       explicitCompressionBlockSizeKiloBytes_ = 0;
       appendHeavyAndReadLight_ = false;
       nameLoggable_ = false;
+      writeOnce_ = false;
     }
     private byte memoizedIsInitialized = -1;
     public final boolean isInitialized() {
@@ -1495,6 +1525,9 @@ public final class TableMetadataPersistence {
       if (((bitField0_ & 0x00000800) == 0x00000800)) {
         output.writeBool(12, nameLoggable_);
       }
+      if (((bitField0_ & 0x00001000) == 0x00001000)) {
+        output.writeBool(13, writeOnce_);
+      }
       getUnknownFields().writeTo(output);
     }
 
@@ -1552,6 +1585,10 @@ public final class TableMetadataPersistence {
         size += com.google.protobuf.CodedOutputStream
           .computeBoolSize(12, nameLoggable_);
       }
+      if (((bitField0_ & 0x00001000) == 0x00001000)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBoolSize(13, writeOnce_);
+      }
       size += getUnknownFields().getSerializedSize();
       memoizedSerializedSize = size;
       return size;
@@ -1703,6 +1740,8 @@ public final class TableMetadataPersistence {
         bitField0_ = (bitField0_ & ~0x00000400);
         nameLoggable_ = false;
         bitField0_ = (bitField0_ & ~0x00000800);
+        writeOnce_ = false;
+        bitField0_ = (bitField0_ & ~0x00001000);
         return this;
       }
 
@@ -1787,6 +1826,10 @@ public final class TableMetadataPersistence {
           to_bitField0_ |= 0x00000800;
         }
         result.nameLoggable_ = nameLoggable_;
+        if (((from_bitField0_ & 0x00001000) == 0x00001000)) {
+          to_bitField0_ |= 0x00001000;
+        }
+        result.writeOnce_ = writeOnce_;
         result.bitField0_ = to_bitField0_;
         onBuilt();
         return result;
@@ -1839,6 +1882,9 @@ public final class TableMetadataPersistence {
         if (other.hasNameLoggable()) {
           setNameLoggable(other.getNameLoggable());
         }
+        if (other.hasWriteOnce()) {
+          setWriteOnce(other.getWriteOnce());
+        }
         this.mergeUnknownFields(other.getUnknownFields());
         return this;
       }
@@ -2450,6 +2496,38 @@ public final class TableMetadataPersistence {
         return this;
       }
 
+      private boolean writeOnce_ ;
+      /**
+       * <code>optional bool writeOnce = 13 [default = false];</code>
+       */
+      public boolean hasWriteOnce() {
+        return ((bitField0_ & 0x00001000) == 0x00001000);
+      }
+      /**
+       * <code>optional bool writeOnce = 13 [default = false];</code>
+       */
+      public boolean getWriteOnce() {
+        return writeOnce_;
+      }
+      /**
+       * <code>optional bool writeOnce = 13 [default = false];</code>
+       */
+      public Builder setWriteOnce(boolean value) {
+        bitField0_ |= 0x00001000;
+        writeOnce_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional bool writeOnce = 13 [default = false];</code>
+       */
+      public Builder clearWriteOnce() {
+        bitField0_ = (bitField0_ & ~0x00001000);
+        writeOnce_ = false;
+        onChanged();
+        return this;
+      }
+
       // @@protoc_insertion_point(builder_scope:com.palantir.atlasdb.protos.generated.TableMetadata)
     }
 
@@ -9048,7 +9126,7 @@ public final class TableMetadataPersistence {
     java.lang.String[] descriptorData = {
       "\nEmain/proto/com/palantir/atlasdb/protos" +
       "/TableMetadataPersistence.proto\022%com.pal" +
-      "antir.atlasdb.protos.generated\"\271\005\n\rTable" +
+      "antir.atlasdb.protos.generated\"\323\005\n\rTable" +
       "Metadata\022O\n\007rowName\030\001 \002(\0132>.com.palantir" +
       ".atlasdb.protos.generated.NameMetadataDe" +
       "scription\022Q\n\007columns\030\002 \002(\0132@.com.palanti" +
@@ -9066,65 +9144,66 @@ public final class TableMetadataPersistence {
       "nerated.SweepStrategy\022-\n%explicitCompres" +
       "sionBlockSizeKiloBytes\030\n \001(\005\022\037\n\027appendHe" +
       "avyAndReadLight\030\013 \001(\010\022\033\n\014nameLoggable\030\014 ",
-      "\001(\010:\005false\"\214\001\n\027NameMetadataDescription\022R" +
-      "\n\tnameParts\030\001 \003(\0132?.com.palantir.atlasdb" +
-      ".protos.generated.NameComponentDescripti" +
-      "on\022\035\n\025hasFirstComponentHash\030\002 \001(\010\"\217\002\n\030Na" +
-      "meComponentDescription\022\025\n\rcomponentName\030" +
-      "\001 \002(\t\022>\n\004type\030\002 \002(\01620.com.palantir.atlas" +
-      "db.protos.generated.ValueType\022D\n\005order\030\003" +
-      " \002(\01625.com.palantir.atlasdb.protos.gener" +
-      "ated.ValueByteOrder\022\035\n\025hasUniformPartiti" +
-      "oner\030\004 \001(\010\022\032\n\022explicitPartitions\030\005 \003(\t\022\033",
-      "\n\014nameLoggable\030\006 \001(\010:\005false\"\310\001\n\031ColumnMe" +
-      "tadataDescription\022S\n\014namedColumns\030\001 \003(\0132" +
-      "=.com.palantir.atlasdb.protos.generated." +
-      "NamedColumnDescription\022V\n\rdynamicColumn\030" +
-      "\002 \001(\0132?.com.palantir.atlasdb.protos.gene" +
-      "rated.DynamicColumnDescription\"\300\001\n\030Dynam" +
-      "icColumnDescription\022V\n\016columnNameDesc\030\001 " +
-      "\002(\0132>.com.palantir.atlasdb.protos.genera" +
-      "ted.NameMetadataDescription\022L\n\005value\030\002 \002" +
-      "(\0132=.com.palantir.atlasdb.protos.generat",
-      "ed.ColumnValueDescription\"\250\001\n\026NamedColum" +
-      "nDescription\022\021\n\tshortName\030\001 \002(\t\022\020\n\010longN" +
-      "ame\030\002 \002(\t\022L\n\005value\030\003 \002(\0132=.com.palantir." +
-      "atlasdb.protos.generated.ColumnValueDesc" +
-      "ription\022\033\n\014nameLoggable\030\004 \001(\010:\005false\"\274\003\n" +
-      "\026ColumnValueDescription\022>\n\004type\030\001 \002(\01620." +
-      "com.palantir.atlasdb.protos.generated.Va" +
-      "lueType\022\021\n\tclassName\030\002 \001(\t\022M\n\013compressio" +
-      "n\030\003 \001(\01622.com.palantir.atlasdb.protos.ge" +
-      "nerated.Compression:\004NONE\022H\n\006format\030\004 \001(",
-      "\01628.com.palantir.atlasdb.protos.generate" +
-      "d.ColumnValueFormat\022\032\n\022canonicalClassNam" +
-      "e\030\005 \001(\t\022\037\n\023protoFileDescriptor\030\006 \001(\014B\002\030\001" +
-      "\022\030\n\020protoMessageName\030\007 \001(\t\022_\n\027protoFileD" +
-      "escriptorTree\030\010 \001(\0132>.com.palantir.atlas" +
-      "db.protos.generated.FileDescriptorTreePr" +
-      "oto\"\214\001\n\027FileDescriptorTreeProto\022\033\n\023proto" +
-      "FileDescriptor\030\001 \002(\014\022T\n\014dependencies\030\002 \003" +
-      "(\0132>.com.palantir.atlasdb.protos.generat" +
-      "ed.FileDescriptorTreeProto*\305\001\n\tValueType",
-      "\022\014\n\010VAR_LONG\020\001\022\016\n\nFIXED_LONG\020\002\022\n\n\006STRING" +
-      "\020\003\022\010\n\004BLOB\020\004\022\023\n\017VAR_SIGNED_LONG\020\005\022\034\n\030FIX" +
-      "ED_LONG_LITTLE_ENDIAN\020\006\022\016\n\nSHA256HASH\020\007\022" +
-      "\016\n\nVAR_STRING\020\010\022\027\n\023NULLABLE_FIXED_LONG\020\t" +
-      "\022\016\n\nSIZED_BLOB\020\n\022\010\n\004UUID\020\013*#\n\013Compressio" +
-      "n\022\010\n\004NONE\020\001\022\n\n\006SNAPPY\020\002*N\n\021ColumnValueFo" +
-      "rmat\022\t\n\005PROTO\020\001\022\017\n\013PERSISTABLE\020\002\022\016\n\nVALU" +
-      "E_TYPE\020\003\022\r\n\tPERSISTER\020\004*/\n\016ValueByteOrde" +
-      "r\022\r\n\tASCENDING\020\001\022\016\n\nDESCENDING\020\002*\215\001\n\024Tab" +
-      "leConflictHandler\022\016\n\nIGNORE_ALL\020\001\022\030\n\024RET",
-      "RY_ON_WRITE_WRITE\020\002\022\032\n\026RETRY_ON_VALUE_CH" +
-      "ANGED\020\003\022\020\n\014SERIALIZABLE\020\004\022\035\n\031RETRY_ON_WR" +
-      "ITE_WRITE_CELL\020\005*F\n\rCachePriority\022\013\n\007COL" +
-      "DEST\020\000\022\010\n\004COLD\020 \022\010\n\004WARM\020@\022\007\n\003HOT\020`\022\013\n\007H" +
-      "OTTEST\020\177**\n\021PartitionStrategy\022\013\n\007ORDERED" +
-      "\020\000\022\010\n\004HASH\020\001*<\n\rSweepStrategy\022\013\n\007NOTHING" +
-      "\020\000\022\020\n\014CONSERVATIVE\020\001\022\014\n\010THOROUGH\020\002*;\n\022Ex" +
-      "pirationStrategy\022\t\n\005NEVER\020\000\022\032\n\026INDIVIDUA" +
-      "LLY_SPECIFIED\020\001"
+      "\001(\010:\005false\022\030\n\twriteOnce\030\r \001(\010:\005false\"\214\001\n" +
+      "\027NameMetadataDescription\022R\n\tnameParts\030\001 " +
+      "\003(\0132?.com.palantir.atlasdb.protos.genera" +
+      "ted.NameComponentDescription\022\035\n\025hasFirst" +
+      "ComponentHash\030\002 \001(\010\"\217\002\n\030NameComponentDes" +
+      "cription\022\025\n\rcomponentName\030\001 \002(\t\022>\n\004type\030" +
+      "\002 \002(\01620.com.palantir.atlasdb.protos.gene" +
+      "rated.ValueType\022D\n\005order\030\003 \002(\01625.com.pal" +
+      "antir.atlasdb.protos.generated.ValueByte" +
+      "Order\022\035\n\025hasUniformPartitioner\030\004 \001(\010\022\032\n\022",
+      "explicitPartitions\030\005 \003(\t\022\033\n\014nameLoggable" +
+      "\030\006 \001(\010:\005false\"\310\001\n\031ColumnMetadataDescript" +
+      "ion\022S\n\014namedColumns\030\001 \003(\0132=.com.palantir" +
+      ".atlasdb.protos.generated.NamedColumnDes" +
+      "cription\022V\n\rdynamicColumn\030\002 \001(\0132?.com.pa" +
+      "lantir.atlasdb.protos.generated.DynamicC" +
+      "olumnDescription\"\300\001\n\030DynamicColumnDescri" +
+      "ption\022V\n\016columnNameDesc\030\001 \002(\0132>.com.pala" +
+      "ntir.atlasdb.protos.generated.NameMetada" +
+      "taDescription\022L\n\005value\030\002 \002(\0132=.com.palan",
+      "tir.atlasdb.protos.generated.ColumnValue" +
+      "Description\"\250\001\n\026NamedColumnDescription\022\021" +
+      "\n\tshortName\030\001 \002(\t\022\020\n\010longName\030\002 \002(\t\022L\n\005v" +
+      "alue\030\003 \002(\0132=.com.palantir.atlasdb.protos" +
+      ".generated.ColumnValueDescription\022\033\n\014nam" +
+      "eLoggable\030\004 \001(\010:\005false\"\274\003\n\026ColumnValueDe" +
+      "scription\022>\n\004type\030\001 \002(\01620.com.palantir.a" +
+      "tlasdb.protos.generated.ValueType\022\021\n\tcla" +
+      "ssName\030\002 \001(\t\022M\n\013compression\030\003 \001(\01622.com." +
+      "palantir.atlasdb.protos.generated.Compre",
+      "ssion:\004NONE\022H\n\006format\030\004 \001(\01628.com.palant" +
+      "ir.atlasdb.protos.generated.ColumnValueF" +
+      "ormat\022\032\n\022canonicalClassName\030\005 \001(\t\022\037\n\023pro" +
+      "toFileDescriptor\030\006 \001(\014B\002\030\001\022\030\n\020protoMessa" +
+      "geName\030\007 \001(\t\022_\n\027protoFileDescriptorTree\030" +
+      "\010 \001(\0132>.com.palantir.atlasdb.protos.gene" +
+      "rated.FileDescriptorTreeProto\"\214\001\n\027FileDe" +
+      "scriptorTreeProto\022\033\n\023protoFileDescriptor" +
+      "\030\001 \002(\014\022T\n\014dependencies\030\002 \003(\0132>.com.palan" +
+      "tir.atlasdb.protos.generated.FileDescrip",
+      "torTreeProto*\305\001\n\tValueType\022\014\n\010VAR_LONG\020\001" +
+      "\022\016\n\nFIXED_LONG\020\002\022\n\n\006STRING\020\003\022\010\n\004BLOB\020\004\022\023" +
+      "\n\017VAR_SIGNED_LONG\020\005\022\034\n\030FIXED_LONG_LITTLE" +
+      "_ENDIAN\020\006\022\016\n\nSHA256HASH\020\007\022\016\n\nVAR_STRING\020" +
+      "\010\022\027\n\023NULLABLE_FIXED_LONG\020\t\022\016\n\nSIZED_BLOB" +
+      "\020\n\022\010\n\004UUID\020\013*#\n\013Compression\022\010\n\004NONE\020\001\022\n\n" +
+      "\006SNAPPY\020\002*N\n\021ColumnValueFormat\022\t\n\005PROTO\020" +
+      "\001\022\017\n\013PERSISTABLE\020\002\022\016\n\nVALUE_TYPE\020\003\022\r\n\tPE" +
+      "RSISTER\020\004*/\n\016ValueByteOrder\022\r\n\tASCENDING" +
+      "\020\001\022\016\n\nDESCENDING\020\002*\215\001\n\024TableConflictHand",
+      "ler\022\016\n\nIGNORE_ALL\020\001\022\030\n\024RETRY_ON_WRITE_WR" +
+      "ITE\020\002\022\032\n\026RETRY_ON_VALUE_CHANGED\020\003\022\020\n\014SER" +
+      "IALIZABLE\020\004\022\035\n\031RETRY_ON_WRITE_WRITE_CELL" +
+      "\020\005*F\n\rCachePriority\022\013\n\007COLDEST\020\000\022\010\n\004COLD" +
+      "\020 \022\010\n\004WARM\020@\022\007\n\003HOT\020`\022\013\n\007HOTTEST\020\177**\n\021Pa" +
+      "rtitionStrategy\022\013\n\007ORDERED\020\000\022\010\n\004HASH\020\001*<" +
+      "\n\rSweepStrategy\022\013\n\007NOTHING\020\000\022\020\n\014CONSERVA" +
+      "TIVE\020\001\022\014\n\010THOROUGH\020\002*;\n\022ExpirationStrate" +
+      "gy\022\t\n\005NEVER\020\000\022\032\n\026INDIVIDUALLY_SPECIFIED\020" +
+      "\001"
     };
     com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner assigner =
         new com.google.protobuf.Descriptors.FileDescriptor.    InternalDescriptorAssigner() {
@@ -9143,7 +9222,7 @@ public final class TableMetadataPersistence {
     internal_static_com_palantir_atlasdb_protos_generated_TableMetadata_fieldAccessorTable = new
       com.google.protobuf.GeneratedMessage.FieldAccessorTable(
         internal_static_com_palantir_atlasdb_protos_generated_TableMetadata_descriptor,
-        new java.lang.String[] { "RowName", "Columns", "ConflictHandler", "CachePriority", "PartitionStrategy", "RangeScanAllowed", "ExplicitCompression", "NegativeLookups", "SweepStrategy", "ExplicitCompressionBlockSizeKiloBytes", "AppendHeavyAndReadLight", "NameLoggable", });
+        new java.lang.String[] { "RowName", "Columns", "ConflictHandler", "CachePriority", "PartitionStrategy", "RangeScanAllowed", "ExplicitCompression", "NegativeLookups", "SweepStrategy", "ExplicitCompressionBlockSizeKiloBytes", "AppendHeavyAndReadLight", "NameLoggable", "WriteOnce", });
     internal_static_com_palantir_atlasdb_protos_generated_NameMetadataDescription_descriptor =
       getDescriptor().getMessageTypes().get(1);
     internal_static_com_palantir_atlasdb_protos_generated_NameMetadataDescription_fieldAccessorTable = new
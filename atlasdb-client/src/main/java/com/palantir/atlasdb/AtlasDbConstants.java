@@ -30,6 +30,9 @@ public class AtlasDbConstants {
     public static final TableReference TIMESTAMP_TABLE = TableReference.createWithEmptyNamespace("_timestamp");
     public static final TableReference PERSISTED_LOCKS_TABLE = TableReference.createWithEmptyNamespace(
             "_persisted_locks");
+    public static final TableReference SWEEP_QUEUE_TABLE = TableReference.createWithEmptyNamespace("_sweep_queue");
+    public static final TableReference SWEEP_QUEUE_PROGRESS_TABLE = TableReference.createWithEmptyNamespace(
+            "_sweep_queue_progress");
 
     public static final TableReference DEFAULT_METADATA_TABLE = TableReference.createWithEmptyNamespace("_metadata");
     public static final TableReference DEFAULT_ORACLE_METADATA_TABLE = TableReference.createWithEmptyNamespace("atlasdb_metadata");
@@ -67,7 +70,9 @@ public class AtlasDbConstants {
             SCRUB_TABLE,
             NAMESPACE_TABLE,
             PARTITION_MAP_TABLE,
-            PERSISTED_LOCKS_TABLE);
+            PERSISTED_LOCKS_TABLE,
+            SWEEP_QUEUE_TABLE,
+            SWEEP_QUEUE_PROGRESS_TABLE);
 
     /**
      * Tables that must always be on a KVS that supports an atomic putUnlessExists operation.
@@ -96,8 +101,15 @@ public class AtlasDbConstants {
     public static final int DEFAULT_SWEEP_DELETE_BATCH_HINT = 1000;
     public static final int DEFAULT_SWEEP_CANDIDATE_BATCH_HINT = 100; // TODO(gsheasby): Bump up this default once getRangeOfTimestamps has been replaced.
     public static final int DEFAULT_SWEEP_READ_LIMIT = 1_000_000;
+    public static final int DEFAULT_SWEEP_THREADS = 1;
+    public static final boolean DEFAULT_ENABLE_TARGETED_SWEEP = false;
 
     public static final int DEFAULT_STREAM_IN_MEMORY_THRESHOLD = 4 * 1024 * 1024;
+    public static final int DEFAULT_STREAM_CONCURRENT_BLOCK_WRITES = 4;
+
+    public static final long DEFAULT_WRITE_ONCE_VALUE_CACHE_SIZE_BYTES = 64 * 1024 * 1024;
+    public static final long DEFAULT_LOCK_WATCHING_VALUE_CACHE_SIZE_BYTES = 64 * 1024 * 1024;
+    public static final long DEFAULT_RANGE_SCAN_PREFETCH_MAX_BUFFERED_BYTES = 16 * 1024 * 1024;
 
     public static final int MAX_TABLE_PREFIX_LENGTH = 7;
     public static final int MAX_OVERFLOW_TABLE_PREFIX_LENGTH = 6;
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.cache;
+
+import javax.annotation.Nullable;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.palantir.atlasdb.util.AtlasDbMetrics;
+
+/**
+ * {@link TimestampCache} backed by a Guava {@link Cache}. Every lookup and insert boxes its timestamps, so prefer
+ * {@link PrimitiveTimestampCache} for large caches.
+ */
+public class GuavaTimestampCache implements TimestampCache {
+
+    private final Cache<Long, Long> startToCommitTimestampCache;
+
+    public static TimestampCache create() {
+        GuavaTimestampCache timestampCache = new GuavaTimestampCache(createDefaultCache());
+        AtlasDbMetrics.registerCache(timestampCache.startToCommitTimestampCache,
+                MetricRegistry.name(TimestampCache.class, "startToCommitTimestamp"));
+        return timestampCache;
+    }
+
+    @VisibleForTesting
+    GuavaTimestampCache(Cache<Long, Long> cache) {
+        this.startToCommitTimestampCache = cache;
+    }
+
+    @VisibleForTesting
+    static Cache<Long, Long> createDefaultCache() {
+        return CacheBuilder.newBuilder()
+                .maximumSize(1_000_000) // up to ~72MB with java Long object bloat
+                .recordStats()
+                .build();
+    }
+
+    @Nullable
+    @Override
+    public Long getCommitTimestampIfPresent(Long startTimestamp) {
+        return startToCommitTimestampCache.getIfPresent(startTimestamp);
+    }
+
+    @Override
+    public long getCommitTimestampIfPresent(long startTimestamp, long valueIfAbsent) {
+        Long commitTimestamp = startToCommitTimestampCache.getIfPresent(startTimestamp);
+        return commitTimestamp == null ? valueIfAbsent : commitTimestamp;
+    }
+
+    @Override
+    public void putAlreadyCommittedTransaction(Long startTimestamp, Long commitTimestamp) {
+        startToCommitTimestampCache.put(startTimestamp, commitTimestamp);
+    }
+
+    @Override
+    public void putAlreadyCommittedTransaction(long startTimestamp, long commitTimestamp) {
+        startToCommitTimestampCache.put(startTimestamp, commitTimestamp);
+    }
+
+    @Override
+    public void clear() {
+        startToCommitTimestampCache.invalidateAll();
+    }
+}
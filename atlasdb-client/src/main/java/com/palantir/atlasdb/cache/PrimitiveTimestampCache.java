@@ -0,0 +1,364 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.cache;
+
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.math.IntMath;
+import com.palantir.atlasdb.util.MetricsManager;
+
+/**
+ * {@link TimestampCache} backed by open-addressing long to long hash tables held in primitive arrays, so neither
+ * lookups nor inserts allocate, and an entry costs 16 bytes plus a reference byte instead of two boxed
+ * {@link Long}s and a cache entry.
+ * <p>
+ * The cache is split into lock-striped segments. Each segment is a fixed-size linear-probing table that is allocated
+ * on first insert and evicts with the CLOCK (second chance) algorithm once it is full. Reads are lock-free in the
+ * common case, using an optimistic {@link StampedLock} read that is only retried under the read lock if a
+ * concurrent write touched the segment.
+ * <p>
+ * {@link Long#MIN_VALUE} is reserved and is never cached, either as a start or as a commit timestamp.
+ */
+public final class PrimitiveTimestampCache implements TimestampCache {
+    private static final Logger log = LoggerFactory.getLogger(PrimitiveTimestampCache.class);
+
+    /**
+     * Roughly three million entries, which takes ~68MB of heap when full; the Guava based cache needed about as much
+     * for a third of the entries.
+     */
+    @VisibleForTesting
+    static final int DEFAULT_MAX_SIZE = 3_000_000;
+
+    private static final int DEFAULT_NUM_SEGMENTS = 64;
+    private static final long NO_VALUE = Long.MIN_VALUE;
+
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final int segmentShift;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public static TimestampCache create() {
+        PrimitiveTimestampCache timestampCache = new PrimitiveTimestampCache(DEFAULT_MAX_SIZE, DEFAULT_NUM_SEGMENTS);
+        timestampCache.registerMetrics(new MetricsManager(), "startToCommitTimestamp");
+        return timestampCache;
+    }
+
+    @VisibleForTesting
+    PrimitiveTimestampCache(int maxSize, int numSegments) {
+        Preconditions.checkArgument(maxSize > 0, "maxSize must be positive, was %s", maxSize);
+        Preconditions.checkArgument(numSegments > 0 && Integer.bitCount(numSegments) == 1,
+                "numSegments must be a positive power of two, was %s", numSegments);
+        int entriesPerSegment = IntMath.divide(maxSize, numSegments, RoundingMode.CEILING);
+        // Round up to a power of two while keeping the load factor at or below 3/4, so probe sequences stay short.
+        int minSlotsPerSegment = IntMath.checkedAdd(IntMath.checkedMultiply(entriesPerSegment, 4) / 3, 1);
+        int slotsPerSegment = IntMath.checkedMultiply(Integer.highestOneBit(minSlotsPerSegment - 1), 2);
+        this.segments = new Segment[numSegments];
+        for (int i = 0; i < numSegments; i++) {
+            segments[i] = new Segment(slotsPerSegment, entriesPerSegment);
+        }
+        this.segmentMask = numSegments - 1;
+        this.segmentShift = Long.SIZE - Integer.numberOfTrailingZeros(numSegments);
+    }
+
+    @Nullable
+    @Override
+    public Long getCommitTimestampIfPresent(Long startTimestamp) {
+        long commitTimestamp = getCommitTimestampIfPresent(startTimestamp.longValue(), NO_VALUE);
+        return commitTimestamp == NO_VALUE ? null : commitTimestamp;
+    }
+
+    @Override
+    public long getCommitTimestampIfPresent(long startTimestamp, long valueIfAbsent) {
+        if (startTimestamp == NO_VALUE) {
+            misses.increment();
+            return valueIfAbsent;
+        }
+        long hash = hash(startTimestamp);
+        long commitTimestamp = segmentFor(hash).get(startTimestamp, hash);
+        if (commitTimestamp == NO_VALUE) {
+            misses.increment();
+            return valueIfAbsent;
+        }
+        hits.increment();
+        return commitTimestamp;
+    }
+
+    @Override
+    public void putAlreadyCommittedTransaction(Long startTimestamp, Long commitTimestamp) {
+        putAlreadyCommittedTransaction(startTimestamp.longValue(), commitTimestamp.longValue());
+    }
+
+    @Override
+    public void putAlreadyCommittedTransaction(long startTimestamp, long commitTimestamp) {
+        if (startTimestamp == NO_VALUE || commitTimestamp == NO_VALUE) {
+            return;
+        }
+        long hash = hash(startTimestamp);
+        if (segmentFor(hash).put(startTimestamp, commitTimestamp, hash)) {
+            evictions.increment();
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    @VisibleForTesting
+    long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    private void registerMetrics(MetricsManager metricsManager, String metricPrefix) {
+        // As for AtlasDbMetrics.registerCache, only the first cache created against a registry reports metrics.
+        String fullyQualifiedPrefix = MetricRegistry.name(TimestampCache.class, metricPrefix);
+        Set<String> existingMetrics = metricsManager.getRegistry().getNames().stream()
+                .filter(name -> name.startsWith(fullyQualifiedPrefix))
+                .collect(Collectors.toSet());
+        if (!existingMetrics.isEmpty()) {
+            log.info("Not registering timestamp cache with prefix '{}' as metric registry already contains metrics: {}",
+                    fullyQualifiedPrefix, existingMetrics);
+            return;
+        }
+        registerGauge(metricsManager, metricPrefix, "cache.hit.count", hits::sum);
+        registerGauge(metricsManager, metricPrefix, "cache.miss.count", misses::sum);
+        registerGauge(metricsManager, metricPrefix, "cache.request.count", () -> hits.sum() + misses.sum());
+        registerGauge(metricsManager, metricPrefix, "cache.eviction.count", evictions::sum);
+        registerGauge(metricsManager, metricPrefix, "cache.estimated.size", this::size);
+        registerGauge(metricsManager, metricPrefix, "cache.hit.ratio", () -> ratio(hits.sum(), misses.sum()));
+        registerGauge(metricsManager, metricPrefix, "cache.miss.ratio", () -> ratio(misses.sum(), hits.sum()));
+    }
+
+    private static <T> void registerGauge(MetricsManager metricsManager, String prefix, String name, Gauge<T> gauge) {
+        metricsManager.registerMetric(TimestampCache.class, prefix, name, gauge);
+    }
+
+    private static double ratio(long count, long otherCount) {
+        long total = count + otherCount;
+        return total == 0 ? Double.NaN : (double) count / total;
+    }
+
+    private Segment segmentFor(long hash) {
+        // Masked as well, since a shift by 64 is a no-op when there is only one segment.
+        return segments[(int) (hash >>> segmentShift) & segmentMask];
+    }
+
+    private static long hash(long key) {
+        // Fibonacci hashing; consecutive timestamps spread over both segments (high bits) and slots (low bits).
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 29);
+    }
+
+    /**
+     * A linear-probing table storing keys and values interleaved in one array, so a probe touches one cache line.
+     * Entries are removed with backward-shift deletion, so the table never contains tombstones.
+     */
+    private static final class Segment {
+        private final StampedLock lock = new StampedLock();
+        private final int mask;
+        private final int maxEntries;
+
+        // Lazily allocated on first insert, and released on clear.
+        private long[] entries;
+        private byte[] referenced;
+        private int size;
+        private int clockHand;
+
+        Segment(int slots, int maxEntries) {
+            this.mask = slots - 1;
+            this.maxEntries = maxEntries;
+        }
+
+        long get(long key, long hash) {
+            long stamp = lock.tryOptimisticRead();
+            long value = find(key, hash);
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    value = find(key, hash);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return value;
+        }
+
+        /**
+         * Returns true if an existing entry was evicted to make room.
+         */
+        boolean put(long key, long value, long hash) {
+            long stamp = lock.writeLock();
+            try {
+                if (entries == null) {
+                    allocate();
+                }
+                int slot = findSlot(key, hash);
+                if (slot >= 0) {
+                    entries[2 * slot + 1] = value;
+                    referenced[slot] = 1;
+                    return false;
+                }
+                boolean evicted = false;
+                if (size >= maxEntries) {
+                    evictOne();
+                    evicted = true;
+                }
+                insert(key, value, hash);
+                return evicted;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void clear() {
+            long stamp = lock.writeLock();
+            try {
+                entries = null;
+                referenced = null;
+                size = 0;
+                clockHand = 0;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        int size() {
+            long stamp = lock.readLock();
+            try {
+                return size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        /**
+         * May run without holding the lock, so it must tolerate concurrent modification; the caller validates the
+         * result. Probing is bounded by the table size and the arrays are never resized, so it always terminates
+         * without going out of bounds.
+         */
+        private long find(long key, long hash) {
+            long[] table = entries;
+            byte[] refs = referenced;
+            if (table == null || refs == null) {
+                return NO_VALUE;
+            }
+            int slot = (int) hash & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                long existing = table[2 * slot];
+                if (existing == key) {
+                    // Benign race: a lost update only costs the entry its second chance.
+                    refs[slot] = 1;
+                    return table[2 * slot + 1];
+                } else if (existing == NO_VALUE) {
+                    return NO_VALUE;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return NO_VALUE;
+        }
+
+        private int findSlot(long key, long hash) {
+            int slot = (int) hash & mask;
+            while (true) {
+                long existing = entries[2 * slot];
+                if (existing == key) {
+                    return slot;
+                } else if (existing == NO_VALUE) {
+                    return -1;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        private void insert(long key, long value, long hash) {
+            int slot = (int) hash & mask;
+            while (entries[2 * slot] != NO_VALUE) {
+                slot = (slot + 1) & mask;
+            }
+            entries[2 * slot] = key;
+            entries[2 * slot + 1] = value;
+            referenced[slot] = 0;
+            size++;
+        }
+
+        private void evictOne() {
+            // Every slot we pass has its reference bit cleared, so this finds a victim within two revolutions.
+            while (true) {
+                int slot = clockHand;
+                clockHand = (clockHand + 1) & mask;
+                if (entries[2 * slot] == NO_VALUE) {
+                    continue;
+                }
+                if (referenced[slot] != 0) {
+                    referenced[slot] = 0;
+                } else {
+                    removeAt(slot);
+                    return;
+                }
+            }
+        }
+
+        private void removeAt(int slot) {
+            int hole = slot;
+            int next = (hole + 1) & mask;
+            while (entries[2 * next] != NO_VALUE) {
+                int home = (int) hash(entries[2 * next]) & mask;
+                // The entry can fill the hole only if the hole lies on its probe path, i.e. between home and next.
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    entries[2 * hole] = entries[2 * next];
+                    entries[2 * hole + 1] = entries[2 * next + 1];
+                    referenced[hole] = referenced[next];
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+            entries[2 * hole] = NO_VALUE;
+            entries[2 * hole + 1] = NO_VALUE;
+            referenced[hole] = 0;
+            size--;
+        }
+
+        private void allocate() {
+            long[] table = new long[2 * (mask + 1)];
+            Arrays.fill(table, NO_VALUE);
+            referenced = new byte[mask + 1];
+            entries = table;
+        }
+    }
+}
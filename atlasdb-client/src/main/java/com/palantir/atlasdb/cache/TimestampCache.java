@@ -1,5 +1,5 @@
 /*
- * Copyright 2016 Palantir Technologies, Inc. All rights reserved.
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
  *
  * Licensed under the BSD-3 License (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,37 +17,16 @@ package com.palantir.atlasdb.cache;
 
 import javax.annotation.Nullable;
 
-import com.codahale.metrics.MetricRegistry;
-import com.google.common.annotations.VisibleForTesting;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
-import com.palantir.atlasdb.util.AtlasDbMetrics;
-
 /**
- * This class just here for readability and not directly leaking / tying us down to a Guava class in our API.
+ * Cache of start timestamp to commit timestamp for transactions that are known to have finished.
+ * <p>
+ * This interface is here for readability and not directly leaking / tying us down to a particular cache
+ * implementation in our API.
  */
-public class TimestampCache {
-
-    private final Cache<Long, Long> startToCommitTimestampCache;
-
-    public static TimestampCache create() {
-        TimestampCache timestampCache = new TimestampCache(createDefaultCache());
-        AtlasDbMetrics.registerCache(timestampCache.startToCommitTimestampCache,
-                MetricRegistry.name(TimestampCache.class, "startToCommitTimestamp"));
-        return timestampCache;
-    }
-
-    @VisibleForTesting
-    TimestampCache(Cache<Long, Long> cache) {
-        this.startToCommitTimestampCache = cache;
-    }
+public interface TimestampCache {
 
-    @VisibleForTesting
-    static Cache<Long, Long> createDefaultCache() {
-        return CacheBuilder.newBuilder()
-                .maximumSize(1_000_000) // up to ~72MB with java Long object bloat
-                .recordStats()
-                .build();
+    static TimestampCache create() {
+        return PrimitiveTimestampCache.create();
     }
 
     /**
@@ -57,9 +36,17 @@ public class TimestampCache {
      * @return commit timestamp for the specified transaction start timestamp if present in cache, otherwise null
      */
     @Nullable
-    public Long getCommitTimestampIfPresent(Long startTimestamp) {
-        return startToCommitTimestampCache.getIfPresent(startTimestamp);
-    }
+    Long getCommitTimestampIfPresent(Long startTimestamp);
+
+    /**
+     * Primitive variant of {@link #getCommitTimestampIfPresent(Long)} that avoids boxing on the read path.
+     *
+     * @param startTimestamp transaction start timestamp
+     * @param valueIfAbsent value to return if the start timestamp is not present in the cache
+     * @return commit timestamp for the specified transaction start timestamp if present in cache,
+     * otherwise valueIfAbsent
+     */
+    long getCommitTimestampIfPresent(long startTimestamp, long valueIfAbsent);
 
     /**
      * Be very careful to only insert timestamps here that are already present in the backing store,
@@ -68,14 +55,18 @@ public class TimestampCache {
      * @param startTimestamp transaction start timestamp
      * @param commitTimestamp transaction commit timestamp
      */
-    public void putAlreadyCommittedTransaction(Long startTimestamp, Long commitTimestamp) {
-        startToCommitTimestampCache.put(startTimestamp, commitTimestamp);
-    }
+    void putAlreadyCommittedTransaction(Long startTimestamp, Long commitTimestamp);
+
+    /**
+     * Primitive variant of {@link #putAlreadyCommittedTransaction(Long, Long)}; the same caveats apply.
+     *
+     * @param startTimestamp transaction start timestamp
+     * @param commitTimestamp transaction commit timestamp
+     */
+    void putAlreadyCommittedTransaction(long startTimestamp, long commitTimestamp);
 
     /**
      * Clear all values from the cache.
      */
-    public void clear() {
-        startToCommitTimestampCache.invalidateAll();
-    }
+    void clear();
 }
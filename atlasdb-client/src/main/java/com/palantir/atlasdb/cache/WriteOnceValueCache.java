@@ -0,0 +1,182 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.cache;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nullable;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Ints;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.impl.Cells;
+import com.palantir.atlasdb.table.description.TableMetadata;
+import com.palantir.atlasdb.util.AtlasDbMetrics;
+
+/**
+ * Cache of the committed values of tables whose metadata declares them {@link TableMetadata#isWriteOnce() write
+ * once}, shared by all the transactions of a transaction manager. As such a cell is never overwritten, its cached
+ * value can be read in place of the key value service by any transaction that started after the value committed.
+ * <p>
+ * A value is only cached once its commit timestamp is below the immutable timestamp of the transaction that read it,
+ * so that the cache only ever holds the writes of finished transactions. The cache is bounded by the approximate
+ * number of bytes of the cells and values it holds.
+ * <p>
+ * Tables are checked for the write once flag the first time they are read. A write once table must therefore not be
+ * truncated, or dropped and recreated, while a transaction manager that has cached its values is running.
+ */
+public final class WriteOnceValueCache {
+    private static final WriteOnceValueCache DISABLED = new WriteOnceValueCache(null, null);
+
+    @Nullable
+    private final KeyValueService keyValueService;
+    @Nullable
+    private final Cache<CellReference, CachedValue> values;
+    private final ConcurrentMap<TableReference, Boolean> writeOnceTables = Maps.newConcurrentMap();
+
+    public static WriteOnceValueCache create(KeyValueService keyValueService, long maxSizeInBytes) {
+        Preconditions.checkArgument(maxSizeInBytes >= 0, "maxSizeInBytes cannot be negative, was %s", maxSizeInBytes);
+        if (maxSizeInBytes == 0) {
+            return DISABLED;
+        }
+        WriteOnceValueCache valueCache = new WriteOnceValueCache(keyValueService, createCache(maxSizeInBytes));
+        AtlasDbMetrics.registerCache(valueCache.values, MetricRegistry.name(WriteOnceValueCache.class, "values"));
+        return valueCache;
+    }
+
+    public static WriteOnceValueCache disabled() {
+        return DISABLED;
+    }
+
+    @VisibleForTesting
+    WriteOnceValueCache(@Nullable KeyValueService keyValueService,
+                        @Nullable Cache<CellReference, CachedValue> values) {
+        this.keyValueService = keyValueService;
+        this.values = values;
+    }
+
+    @VisibleForTesting
+    static Cache<CellReference, CachedValue> createCache(long maxSizeInBytes) {
+        return CacheBuilder.newBuilder()
+                .maximumWeight(maxSizeInBytes)
+                .<CellReference, CachedValue>weigher((cellReference, cachedValue) -> Ints.saturatedCast(
+                        Cells.getApproxSizeOfCell(cellReference.cell) + cachedValue.contents.length))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns whether values of the given table are cached; this is false for every table if the cache is disabled.
+     */
+    public boolean isCached(TableReference tableRef) {
+        if (values == null) {
+            return false;
+        }
+        return writeOnceTables.computeIfAbsent(tableRef, this::isWriteOnce);
+    }
+
+    /**
+     * Returns the cached values of the given cells which are visible to a transaction with the given start timestamp.
+     * Cells that are not cached, or that committed after the transaction started, are left out.
+     */
+    public Map<Cell, byte[]> getVisibleValues(TableReference tableRef, Iterable<Cell> cells, long startTimestamp) {
+        Map<Cell, byte[]> result = Maps.newHashMap();
+        if (values == null) {
+            return result;
+        }
+        for (Cell cell : cells) {
+            CachedValue cachedValue = values.getIfPresent(new CellReference(tableRef, cell));
+            if (cachedValue != null && cachedValue.commitTimestamp < startTimestamp) {
+                result.put(cell, cachedValue.contents.clone());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Caches a value that a transaction has read, if it committed before that transaction's immutable timestamp.
+     */
+    public void cacheCommittedValue(TableReference tableRef,
+                                    Cell cell,
+                                    byte[] contents,
+                                    long commitTimestamp,
+                                    long immutableTimestamp) {
+        if (values != null && commitTimestamp < immutableTimestamp) {
+            values.put(new CellReference(tableRef, cell), new CachedValue(contents.clone(), commitTimestamp));
+        }
+    }
+
+    public void clear() {
+        if (values != null) {
+            values.invalidateAll();
+        }
+    }
+
+    private boolean isWriteOnce(TableReference tableRef) {
+        byte[] metadata = keyValueService.getMetadataForTable(tableRef);
+        return metadata != null
+                && metadata.length > 0
+                && TableMetadata.BYTES_HYDRATOR.hydrateFromBytes(metadata).isWriteOnce();
+    }
+
+    @VisibleForTesting
+    static final class CellReference {
+        private final TableReference tableRef;
+        private final Cell cell;
+
+        CellReference(TableReference tableRef, Cell cell) {
+            this.tableRef = tableRef;
+            this.cell = cell;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (other == null || getClass() != other.getClass()) {
+                return false;
+            }
+            CellReference that = (CellReference) other;
+            return tableRef.equals(that.tableRef) && cell.equals(that.cell);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(tableRef, cell);
+        }
+    }
+
+    @VisibleForTesting
+    static final class CachedValue {
+        private final byte[] contents;
+        private final long commitTimestamp;
+
+        CachedValue(byte[] contents, long commitTimestamp) {
+            this.contents = contents;
+            this.commitTimestamp = commitTimestamp;
+        }
+    }
+}
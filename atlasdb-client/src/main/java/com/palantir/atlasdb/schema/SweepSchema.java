@@ -41,11 +41,13 @@ public enum SweepSchema implements AtlasSchema {
                 SweepSchema.class.getPackage().getName() + ".generated",
                 NAMESPACE);
 
-        // This table tracks progress on a sweep job of a single table.
+        // This table tracks progress on a sweep job of a single table,
+        // for each thread of the background sweeper.
         schema.addTableDefinition("progress", new TableDefinition() {{
             javaTableName("SweepProgress");
             rowName();
-                // This table has at most one row.
+                // The id of the background sweeper thread; zero unless
+                // several tables are swept at once.
                 rowComponent("dummy", ValueType.VAR_LONG);
             columns();
                 // The name of the table being swept.
@@ -60,7 +62,9 @@ public enum SweepSchema implements AtlasSchema {
                 column("cells_deleted", "d", ValueType.VAR_LONG);
                 // The number of cells examined so far.
                 column("cells_examined", "e", ValueType.VAR_LONG);
-            conflictHandler(ConflictHandler.IGNORE_ALL);
+            // Threads claim tables by writing their row after reading
+            // everyone else's, so concurrent claims must conflict.
+            conflictHandler(ConflictHandler.SERIALIZABLE);
             ignoreHotspottingChecks();
         }});
 
@@ -38,6 +38,7 @@ public class StreamStoreDefinition {
     private final boolean compressStream;
 
     private int inMemoryThreshold;
+    private final int concurrentBlockWrites;
 
     StreamStoreDefinition(
             Map<String, TableDefinition> streamStoreTables,
@@ -45,12 +46,14 @@ public class StreamStoreDefinition {
             String longName,
             ValueType idType,
             int inMemoryThreshold,
+            int concurrentBlockWrites,
             boolean compressStream) {
         this.streamStoreTables = streamStoreTables;
         this.shortName = shortName;
         this.longName = longName;
         this.idType = idType;
         this.inMemoryThreshold = inMemoryThreshold;
+        this.concurrentBlockWrites = concurrentBlockWrites;
         this.compressStream = compressStream;
     }
 
@@ -60,7 +63,8 @@ public class StreamStoreDefinition {
 
     public StreamStoreRenderer getRenderer(String packageName, String name) {
         String renderedLongName = Renderers.CamelCase(longName);
-        return new StreamStoreRenderer(renderedLongName, idType, packageName, name, inMemoryThreshold, compressStream);
+        return new StreamStoreRenderer(renderedLongName, idType, packageName, name, inMemoryThreshold,
+                concurrentBlockWrites, compressStream);
     }
 
     public Multimap<String, Supplier<OnCleanupTask>> getCleanupTasks(
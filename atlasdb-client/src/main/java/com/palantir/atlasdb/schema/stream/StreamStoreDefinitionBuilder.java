@@ -30,6 +30,7 @@ public class StreamStoreDefinitionBuilder {
     private Map<String, StreamTableDefinitionBuilder> streamTables =
             Maps.newHashMapWithExpectedSize(StreamTableType.values().length);
     private int inMemoryThreshold = AtlasDbConstants.DEFAULT_STREAM_IN_MEMORY_THRESHOLD;
+    private int concurrentBlockWrites = AtlasDbConstants.DEFAULT_STREAM_CONCURRENT_BLOCK_WRITES;
     private boolean compressStream;
 
     public StreamStoreDefinitionBuilder(String shortName, String longName, ValueType valueType) {
@@ -68,6 +69,11 @@ public class StreamStoreDefinitionBuilder {
         return this;
     }
 
+    public StreamStoreDefinitionBuilder concurrentBlockWrites(int concurrentBlockWrites) {
+        this.concurrentBlockWrites = concurrentBlockWrites;
+        return this;
+    }
+
     public StreamStoreDefinition build() {
         Map<String, TableDefinition> tablesToCreate = streamTables.entrySet().stream()
                 .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().build()));
@@ -75,6 +81,7 @@ public class StreamStoreDefinitionBuilder {
         Preconditions.checkArgument(valueType.getJavaClassName().equals("long"), "Stream ids must be a long");
         Preconditions.checkArgument(inMemoryThreshold <= StreamStoreDefinition.MAX_IN_MEMORY_THRESHOLD,
                 "inMemoryThreshold cannot be greater than %s", StreamStoreDefinition.MAX_IN_MEMORY_THRESHOLD);
+        Preconditions.checkArgument(concurrentBlockWrites > 0, "concurrentBlockWrites must be positive");
 
         return new StreamStoreDefinition(
                 tablesToCreate,
@@ -82,6 +89,7 @@ public class StreamStoreDefinitionBuilder {
                 longName,
                 valueType,
                 inMemoryThreshold,
+                concurrentBlockWrites,
                 compressStream);
     }
 
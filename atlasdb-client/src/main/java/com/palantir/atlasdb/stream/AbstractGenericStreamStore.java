@@ -25,6 +25,10 @@ import java.io.OutputStream;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
 import javax.annotation.CheckForNull;
@@ -41,11 +45,25 @@ import com.palantir.atlasdb.protos.generated.StreamPersistence.StreamMetadata;
 import com.palantir.atlasdb.transaction.api.Transaction;
 import com.palantir.atlasdb.transaction.api.TransactionManager;
 import com.palantir.common.base.Throwables;
+import com.palantir.common.concurrent.NamedThreadFactory;
+import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.util.ByteArrayIOStream;
 
 public abstract class AbstractGenericStreamStore<ID> implements GenericStreamStore<ID> {
     protected static final Logger log = LoggerFactory.getLogger(AbstractGenericStreamStore.class);
 
+    protected static final int DEFAULT_BLOCKS_TO_PREFETCH = 4;
+
+    private static final int MAX_PREFETCH_THREADS = 64;
+
+    /**
+     * One pool is shared by every stream read. Once all of its threads are busy, further blocks are loaded on the
+     * reading thread, as they would be without prefetching, rather than queueing behind the blocks of other streams.
+     */
+    private static final ExecutorService prefetchExecutor = PTExecutors.newThreadPoolExecutor(
+            0, MAX_PREFETCH_THREADS, 1, TimeUnit.MINUTES, new SynchronousQueue<>(),
+            new NamedThreadFactory("stream-block-prefetch", true), (load, executor) -> load.run());
+
     @CheckForNull protected final TransactionManager txnMgr;
 
     protected AbstractGenericStreamStore(TransactionManager txManager) {
@@ -118,25 +136,7 @@ public abstract class AbstractGenericStreamStore<ID> implements GenericStreamSto
     private InputStream makeStream(Transaction parent, ID id, StreamMetadata metadata) {
         long totalBlocks = getNumberOfBlocksFromMetadata(metadata);
         int blocksInMemory = getNumberOfBlocksThatFitInMemory();
-
-        BlockGetter pageRefresher = new BlockGetter() {
-            @Override
-            public void get(long firstBlock, long numBlocks, OutputStream destination) {
-                if (parent.isUncommitted()) {
-                    loadNBlocksToOutputStream(parent, id, firstBlock, numBlocks, destination);
-                } else {
-                    txnMgr.runTaskReadOnly(txn -> {
-                        loadNBlocksToOutputStream(txn, id, firstBlock, numBlocks, destination);
-                        return null;
-                    });
-                }
-            }
-
-            @Override
-            public int expectedBlockLength() {
-                return BLOCK_SIZE_IN_BYTES;
-            }
-        };
+        BlockGetter pageRefresher = createPrefetchingBlockGetter(parent, id, totalBlocks);
 
         try {
             return BlockConsumingInputStream.create(pageRefresher, totalBlocks, blocksInMemory);
@@ -145,6 +145,35 @@ public abstract class AbstractGenericStreamStore<ID> implements GenericStreamSto
         }
     }
 
+    private PrefetchingBlockGetter createPrefetchingBlockGetter(Transaction parent, ID id, long totalBlocks) {
+        // Blocks of a stored stream never change, so they may be read in a later transaction than the parent, and
+        // in parallel, each block in its own transaction.
+        BiConsumer<Long, OutputStream> singleBlockLoader = (blockId, destination) -> {
+            if (parent.isUncommitted()) {
+                loadSingleBlockToOutputStream(parent, id, blockId, destination);
+            } else {
+                txnMgr.runTaskReadOnly(txn -> {
+                    loadSingleBlockToOutputStream(txn, id, blockId, destination);
+                    return null;
+                });
+            }
+        };
+        return new PrefetchingBlockGetter(
+                singleBlockLoader,
+                BLOCK_SIZE_IN_BYTES,
+                totalBlocks,
+                getNumberOfBlocksToPrefetch(),
+                prefetchExecutor);
+    }
+
+    /**
+     * The number of blocks to load ahead of the reader, in parallel, when reading a stream that is too large to load
+     * into memory at once. Each of these holds a buffer of one block.
+     */
+    protected int getNumberOfBlocksToPrefetch() {
+        return DEFAULT_BLOCKS_TO_PREFETCH;
+    }
+
     protected int getNumberOfBlocksThatFitInMemory() {
         int inMemoryThreshold = (int) getInMemoryThreshold(); // safe; actually defined as an int in generated code.
         int blocksInMemory = inMemoryThreshold / BLOCK_SIZE_IN_BYTES;
@@ -196,23 +225,12 @@ public abstract class AbstractGenericStreamStore<ID> implements GenericStreamSto
         }
     }
 
-    private void loadNBlocksToOutputStream(
-            Transaction tx,
-            ID streamId,
-            long firstBlock,
-            long numBlocks,
-            OutputStream os) {
-        for (long i = 0; i < numBlocks; i++) {
-            loadSingleBlockToOutputStream(tx, streamId, firstBlock + i, os);
-        }
-    }
-
     // This method is overridden in generated code. Changes to this method may have unintended consequences.
     protected void tryWriteStreamToFile(Transaction transaction, ID id, StreamMetadata metadata, FileOutputStream fos)
             throws IOException {
         long numBlocks = getNumberOfBlocksFromMetadata(metadata);
-        for (long i = 0; i < numBlocks; i++) {
-            loadSingleBlockToOutputStream(transaction, id, i, fos);
+        try (PrefetchingBlockGetter blockGetter = createPrefetchingBlockGetter(transaction, id, numBlocks)) {
+            blockGetter.writeTo(fos.getChannel());
         }
         fos.close();
     }
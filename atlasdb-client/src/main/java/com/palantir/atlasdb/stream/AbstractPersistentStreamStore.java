@@ -19,15 +19,21 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.security.DigestInputStream;
 import java.security.MessageDigest;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
 
 import javax.annotation.Nullable;
 
 import com.google.common.base.Function;
 import com.google.common.base.Functions;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.common.io.ByteStreams;
@@ -41,6 +47,8 @@ import com.palantir.atlasdb.transaction.api.TransactionManager;
 import com.palantir.atlasdb.transaction.api.TransactionTask;
 import com.palantir.atlasdb.transaction.impl.TxTask;
 import com.palantir.common.base.Throwables;
+import com.palantir.common.concurrent.NamedThreadFactory;
+import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.util.Pair;
 import com.palantir.util.crypto.Sha256Hash;
 
@@ -184,6 +192,11 @@ public abstract class AbstractPersistentStreamStore extends AbstractGenericStrea
     }
 
     private void storeBlocksFromStream(@Nullable Transaction t, long id, InputStream stream) throws IOException {
+        if (t == null) {
+            storeBlocksFromStreamPipelined(id, stream);
+            return;
+        }
+
         long blockNumber = 0;
 
         while (true) {
@@ -205,6 +218,101 @@ public abstract class AbstractPersistentStreamStore extends AbstractGenericStrea
         }
     }
 
+    /**
+     * Stores the blocks of a stream in windows of {@link #getNumberOfConcurrentBlockWrites()} blocks, each block in
+     * its own transaction, while the calling thread reads (and so hashes) the next window. The last block of a window
+     * is written first, which extends the length in the stream's metadata over the whole window; the other blocks of
+     * the window then leave that length as it is, so they can be written at once without conflicting with each other,
+     * while still conflicting with a cleanup of the stream. A window is only started once every block of the one
+     * before it has been written, and failures are reported in block order.
+     */
+    private void storeBlocksFromStreamPipelined(long id, InputStream stream) throws IOException {
+        int blocksPerWindow = getNumberOfConcurrentBlockWrites();
+        Preconditions.checkState(blocksPerWindow > 0, "The number of concurrent block writes must be positive");
+        ExecutorService executor = PTExecutors.newFixedThreadPool(blocksPerWindow,
+                new NamedThreadFactory("stream-block-writer-" + id, true));
+        List<CompletableFuture<Void>> writes = ImmutableList.of();
+        boolean succeeded = false;
+        try {
+            long firstBlockNumber = 0;
+            boolean endOfStream = false;
+            while (!endOfStream) {
+                List<byte[]> blocks = Lists.newArrayListWithCapacity(blocksPerWindow);
+                while (!endOfStream && blocks.size() < blocksPerWindow) {
+                    // Not reused once written, as the key value service or a cache may keep the array it was given.
+                    byte[] bytesToStore = new byte[BLOCK_SIZE_IN_BYTES];
+                    int length = ByteStreams.read(stream, bytesToStore, 0, BLOCK_SIZE_IN_BYTES);
+                    // Store only relevant data if it only filled a partial block
+                    if (length < BLOCK_SIZE_IN_BYTES) {
+                        // This is the last block.
+                        endOfStream = true;
+                        bytesToStore = PtBytes.head(bytesToStore, length);
+                    }
+                    if (length > 0) {
+                        blocks.add(bytesToStore);
+                    }
+                }
+                awaitInOrder(writes);
+                writes = storeWindowOfBlocks(executor, id, firstBlockNumber, blocks);
+                firstBlockNumber += blocks.size();
+            }
+            awaitInOrder(writes);
+            succeeded = true;
+        } finally {
+            executor.shutdown();
+            if (!succeeded) {
+                // Don't leave writes running once the caller has been told that the stream failed.
+                writes.forEach(write -> write.handle((result, error) -> null).join());
+            }
+        }
+    }
+
+    private List<CompletableFuture<Void>> storeWindowOfBlocks(
+            ExecutorService executor,
+            long id,
+            long firstBlockNumber,
+            List<byte[]> blocks) {
+        if (blocks.isEmpty()) {
+            return ImmutableList.of();
+        }
+        int lastBlockIndex = blocks.size() - 1;
+        CompletableFuture<Void> lastBlockWrite = CompletableFuture.runAsync(
+                () -> storeBlockWithNonNullTransaction(
+                        null, id, firstBlockNumber + lastBlockIndex, blocks.get(lastBlockIndex)),
+                executor);
+        List<CompletableFuture<Void>> writes = Lists.newArrayListWithCapacity(blocks.size());
+        for (int i = 0; i < lastBlockIndex; i++) {
+            long blockNumber = firstBlockNumber + i;
+            byte[] block = blocks.get(i);
+            writes.add(lastBlockWrite.thenRunAsync(
+                    () -> storeBlockWithNonNullTransaction(null, id, blockNumber, block),
+                    executor));
+        }
+        writes.add(lastBlockWrite);
+        return writes;
+    }
+
+    private static void awaitInOrder(List<CompletableFuture<Void>> writes) {
+        for (CompletableFuture<Void> write : writes) {
+            try {
+                write.join();
+            } catch (CompletionException e) {
+                throw Throwables.throwUncheckedException(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * The number of blocks of a stream that are written at once, each in its own transaction, when storing a stream
+     * outside of a transaction. Up to twice this many blocks are held in memory while storing, since the next blocks
+     * are read while the previous ones are written. Generated stream stores return the value set in their stream
+     * store definition; the default of one writes blocks one at a time, for stores generated before their block
+     * writes could leave the stream's length as it is.
+     */
+    protected int getNumberOfConcurrentBlockWrites() {
+        return 1;
+    }
+
     protected void storeBlockWithNonNullTransaction(@Nullable Transaction t, final long id, final long blockNumber, final byte[] bytesToStore) {
         if (t != null) {
             storeBlock(t, id, blockNumber, bytesToStore);
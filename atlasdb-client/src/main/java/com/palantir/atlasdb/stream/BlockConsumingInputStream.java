@@ -16,6 +16,7 @@
 package com.palantir.atlasdb.stream;
 
 import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -134,6 +135,13 @@ public final class BlockConsumingInputStream extends InputStream {
         }
     }
 
+    @Override
+    public void close() throws IOException {
+        if (blockGetter instanceof Closeable) {
+            ((Closeable) blockGetter).close();
+        }
+    }
+
     private long blocksLeft() {
         return Math.max(0L, numBlocks - nextBlockToRead);
     }
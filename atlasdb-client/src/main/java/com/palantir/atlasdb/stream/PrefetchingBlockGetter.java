@@ -0,0 +1,172 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.stream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+import com.palantir.common.base.Throwables;
+
+/**
+ * A {@link BlockGetter} that loads blocks ahead of the reader. Whenever a block is requested, up to a fixed number of
+ * the blocks after it are loaded in parallel on the given executor, each into a buffer from a bounded pool. A buffer
+ * is returned to the pool once its block has been handed to the reader, so reading a stream of any length allocates
+ * at most one buffer per block in flight.
+ * <p>
+ * Blocks must be requested in order, as {@link BlockConsumingInputStream} does; a block that was not loaded ahead is
+ * loaded on the calling thread. Instances are not thread safe, although the single block loader must be.
+ */
+public final class PrefetchingBlockGetter implements BlockGetter, Closeable {
+    private final BiConsumer<Long, OutputStream> singleBlockLoader;
+    private final int blockSizeInBytes;
+    private final long numBlocks;
+    private final int blocksToPrefetch;
+    private final Executor executor;
+
+    private final BlockingQueue<BlockBuffer> bufferPool;
+    private final Map<Long, CompletableFuture<BlockBuffer>> pendingBlocks = Maps.newHashMap();
+    private long nextBlockToLoad;
+
+    public PrefetchingBlockGetter(
+            BiConsumer<Long, OutputStream> singleBlockLoader,
+            int blockSizeInBytes,
+            long numBlocks,
+            int blocksToPrefetch,
+            Executor executor) {
+        Preconditions.checkArgument(blocksToPrefetch >= 0, "Cannot prefetch a negative number of blocks");
+        this.singleBlockLoader = singleBlockLoader;
+        this.blockSizeInBytes = blockSizeInBytes;
+        this.numBlocks = numBlocks;
+        this.blocksToPrefetch = blocksToPrefetch;
+        this.executor = executor;
+        this.bufferPool = new ArrayBlockingQueue<>(blocksToPrefetch + 1);
+    }
+
+    @Override
+    public void get(long firstBlock, long numBlocksToGet, OutputStream destination) {
+        for (long block = firstBlock; block < firstBlock + numBlocksToGet; block++) {
+            CompletableFuture<BlockBuffer> pending = takePendingBlock(block);
+            if (pending == null) {
+                singleBlockLoader.accept(block, destination);
+                continue;
+            }
+            BlockBuffer buffer = await(pending);
+            try {
+                buffer.writeTo(destination);
+            } catch (IOException e) {
+                throw Throwables.rewrapAndThrowUncheckedException("Error writing a prefetched block.", e);
+            } finally {
+                release(buffer);
+            }
+        }
+    }
+
+    /**
+     * Writes every block of the stream to the given channel, each at its offset in the stream. The blocks are loaded
+     * in parallel, up to the prefetch limit, while earlier ones are being written.
+     */
+    public void writeTo(FileChannel channel) throws IOException {
+        for (long block = 0; block < numBlocks; block++) {
+            CompletableFuture<BlockBuffer> pending = takePendingBlock(block);
+            BlockBuffer buffer = pending == null ? load(block) : await(pending);
+            try {
+                ByteBuffer contents = buffer.asByteBuffer();
+                long position = block * blockSizeInBytes;
+                while (contents.hasRemaining()) {
+                    position += channel.write(contents, position);
+                }
+            } finally {
+                release(buffer);
+            }
+        }
+    }
+
+    @Override
+    public int expectedBlockLength() {
+        return blockSizeInBytes;
+    }
+
+    /**
+     * Stops waiting for blocks that have been loaded ahead but not read. Loads that have already started still run
+     * to completion, but their buffers are discarded.
+     */
+    @Override
+    public void close() {
+        pendingBlocks.values().forEach(pending -> pending.cancel(false));
+        pendingBlocks.clear();
+        bufferPool.clear();
+    }
+
+    private CompletableFuture<BlockBuffer> takePendingBlock(long block) {
+        if (blocksToPrefetch > 0) {
+            nextBlockToLoad = Math.max(nextBlockToLoad, block);
+            long lastBlockToLoad = Math.min(numBlocks, block + 1 + blocksToPrefetch);
+            while (nextBlockToLoad < lastBlockToLoad) {
+                long blockToLoad = nextBlockToLoad++;
+                pendingBlocks.put(blockToLoad, CompletableFuture.supplyAsync(() -> load(blockToLoad), executor));
+            }
+        }
+        return pendingBlocks.remove(block);
+    }
+
+    private BlockBuffer load(long block) {
+        BlockBuffer buffer = bufferPool.poll();
+        if (buffer == null) {
+            buffer = new BlockBuffer(blockSizeInBytes);
+        }
+        singleBlockLoader.accept(block, buffer);
+        return buffer;
+    }
+
+    private void release(BlockBuffer buffer) {
+        buffer.reset();
+        bufferPool.offer(buffer);
+    }
+
+    private static BlockBuffer await(CompletableFuture<BlockBuffer> pending) {
+        try {
+            return pending.join();
+        } catch (CompletionException e) {
+            throw Throwables.throwUncheckedException(e.getCause());
+        }
+    }
+
+    /**
+     * A buffer for one block whose backing array is kept when it is reset, and can be written out without copying.
+     */
+    private static final class BlockBuffer extends ByteArrayOutputStream {
+        BlockBuffer(int size) {
+            super(size);
+        }
+
+        ByteBuffer asByteBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.table.description;
+
+import java.util.List;
+import java.util.SortedSet;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.UnsignedBytes;
+
+public final class RowNamePartitioners {
+    private RowNamePartitioners() {
+        // Utility class
+    }
+
+    /**
+     * Returns the rows at which to split a scan of a table into roughly {@code numPartitions} ranges, in key order,
+     * as the table migrator does. The table's row partitioners share the partitions between them, and tables without
+     * any are split as if their rows started with a uniformly distributed fixed long.
+     *
+     * @param partitioners the row partitioners of the table, as returned by
+     *                     {@link NameMetadataDescription#getPartitionersForRow()}
+     */
+    public static List<byte[]> getSplitRows(List<RowNamePartitioner> partitioners, int numPartitions) {
+        SortedSet<byte[]> splitRows = Sets.newTreeSet(UnsignedBytes.lexicographicalComparator());
+        if (partitioners.isEmpty()) {
+            splitRows.addAll(new UniformRowNamePartitioner(ValueType.FIXED_LONG).getPartitions(numPartitions));
+        } else if (partitioners.size() == 1) {
+            splitRows.addAll(partitioners.get(0).getPartitions(numPartitions));
+        } else {
+            int splitPartitions = numPartitions / partitioners.size();
+            for (RowNamePartitioner partitioner : partitioners) {
+                splitRows.addAll(partitioner.getPartitions(splitPartitions));
+            }
+        }
+        return ImmutableList.copyOf(Iterables.filter(splitRows, row -> row.length > 0));
+    }
+}
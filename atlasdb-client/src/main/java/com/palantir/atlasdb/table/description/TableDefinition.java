@@ -245,6 +245,20 @@ public class TableDefinition extends AbstractDefinition {
     private Set<String> fixedColumnShortNames = Sets.newHashSet();
     private Set<String> fixedColumnLongNames = Sets.newHashSet();
     private boolean noColumns = false;
+    private boolean writeOnce = false;
+
+    /**
+     * Declares that each cell of this table is written by at most one transaction, and is never overwritten or
+     * deleted afterwards; for example, a table keyed by the hash of its values. Transactions may then serve reads of
+     * the table's cells from a cache shared across transactions.
+     */
+    public void writeOnce() {
+        writeOnce = true;
+    }
+
+    public boolean isWriteOnce() {
+        return writeOnce;
+    }
 
     public TableMetadata toTableMetadata() {
         Preconditions.checkState(!rowNameComponents.isEmpty(), "No row name components defined.");
@@ -268,7 +282,9 @@ public class TableDefinition extends AbstractDefinition {
                 negativeLookups,
                 sweepStrategy,
                 expirationStrategy,
-                appendHeavyAndReadLight);
+                appendHeavyAndReadLight,
+                false,
+                writeOnce);
     }
 
     private ColumnMetadataDescription getColumnMetadataDescription() {
@@ -43,6 +43,7 @@ public class TableMetadata implements Persistable {
     final ExpirationStrategy expirationStrategy;
     final boolean appendHeavyAndReadLight;
     final boolean nameLoggable;
+    final boolean writeOnce;
 
     public TableMetadata() {
         this(
@@ -106,6 +107,39 @@ public class TableMetadata implements Persistable {
                          ExpirationStrategy expirationStrategy,
                          boolean appendHeavyAndReadLight,
                          boolean nameLoggable) {
+        this(
+                rowMetadata,
+                columns,
+                conflictHandler,
+                cachePriority,
+                partitionStrategy,
+                rangeScanAllowed,
+                explicitCompressionBlockSizeKB,
+                negativeLookups,
+                sweepStrategy,
+                expirationStrategy,
+                appendHeavyAndReadLight,
+                nameLoggable,
+                false);
+    }
+
+    /**
+     * @param writeOnce If true, each cell of the table is written by at most one transaction and is never
+     *                  overwritten or deleted afterwards, so committed values may be cached across transactions.
+     */
+    public TableMetadata(NameMetadataDescription rowMetadata,
+                         ColumnMetadataDescription columns,
+                         ConflictHandler conflictHandler,
+                         CachePriority cachePriority,
+                         PartitionStrategy partitionStrategy,
+                         boolean rangeScanAllowed,
+                         int explicitCompressionBlockSizeKB,
+                         boolean negativeLookups,
+                         SweepStrategy sweepStrategy,
+                         ExpirationStrategy expirationStrategy,
+                         boolean appendHeavyAndReadLight,
+                         boolean nameLoggable,
+                         boolean writeOnce) {
         if (rangeScanAllowed) {
             Preconditions.checkArgument(
                     partitionStrategy == PartitionStrategy.ORDERED,
@@ -123,6 +157,7 @@ public class TableMetadata implements Persistable {
         this.expirationStrategy = expirationStrategy;
         this.appendHeavyAndReadLight = appendHeavyAndReadLight;
         this.nameLoggable = nameLoggable;
+        this.writeOnce = writeOnce;
     }
 
     public NameMetadataDescription getRowMetadata() {
@@ -177,6 +212,10 @@ public class TableMetadata implements Persistable {
         return nameLoggable;
     }
 
+    public boolean isWriteOnce() {
+        return writeOnce;
+    }
+
     @Override
     public byte[] persistToBytes() {
         return persistToProto().build().toByteArray();
@@ -210,6 +249,7 @@ public class TableMetadata implements Persistable {
         // expiration strategy doesn't need to be persisted.
         builder.setAppendHeavyAndReadLight(appendHeavyAndReadLight);
         builder.setNameLoggable(nameLoggable);
+        builder.setWriteOnce(writeOnce);
         return builder;
     }
 
@@ -246,6 +286,10 @@ public class TableMetadata implements Persistable {
         if (message.hasNameLoggable()) {
             nameLoggable = message.getNameLoggable();
         }
+        boolean writeOnce = false;
+        if (message.hasWriteOnce()) {
+            writeOnce = message.getWriteOnce();
+        }
 
         return new TableMetadata(
                 NameMetadataDescription.hydrateFromProto(message.getRowName()),
@@ -259,7 +303,8 @@ public class TableMetadata implements Persistable {
                 sweepStrategy,
                 ExpirationStrategy.NEVER,
                 appendHeavyAndReadLight,
-                nameLoggable);
+                nameLoggable,
+                writeOnce);
     }
 
     @Override
@@ -276,6 +321,7 @@ public class TableMetadata implements Persistable {
                 + ", sweepStrategy = " + sweepStrategy
                 + ", appendHeavyAndReadLight = " + appendHeavyAndReadLight
                 + ", nameLoggable = " + nameLoggable
+                + ", writeOnce = " + writeOnce
                 + "]";
     }
 
@@ -295,6 +341,7 @@ public class TableMetadata implements Persistable {
         result = prime * result + (sweepStrategy.hashCode());
         result = prime * result + (appendHeavyAndReadLight? 0 : 1);
         result = prime * result + (nameLoggable? 0 : 1);
+        result = prime * result + (writeOnce? 0 : 1);
         return result;
     }
 
@@ -354,6 +401,9 @@ public class TableMetadata implements Persistable {
         if (nameLoggable != other.nameLoggable) {
             return false;
         }
+        if (writeOnce != other.writeOnce) {
+            return false;
+        }
         return true;
     }
 
@@ -91,14 +91,16 @@ public class StreamStoreRenderer {
     private final String packageName;
     private final String schemaName;
     private final int inMemoryThreshold;
+    private final int concurrentBlockWrites;
     private final boolean clientSideCompression;
 
-    public StreamStoreRenderer(String name, ValueType streamIdType, String packageName, String schemaName, int inMemoryThreshold, boolean clientSideCompression) {
+    public StreamStoreRenderer(String name, ValueType streamIdType, String packageName, String schemaName, int inMemoryThreshold, int concurrentBlockWrites, boolean clientSideCompression) {
         this.name = name;
         this.streamIdType = streamIdType;
         this.packageName = packageName;
         this.schemaName = schemaName;
         this.inMemoryThreshold = inMemoryThreshold;
+        this.concurrentBlockWrites = concurrentBlockWrites;
         this.clientSideCompression = clientSideCompression;
     }
 
@@ -157,6 +159,8 @@ public class StreamStoreRenderer {
                     line();
                     getInMemoryThreshold();
                     line();
+                    getNumberOfConcurrentBlockWrites();
+                    line();
                     storeBlock();
                     line();
                     touchMetadataWhileStoringForConflicts();
@@ -211,6 +215,7 @@ public class StreamStoreRenderer {
             private void fields() {
                 line("public static final int BLOCK_SIZE_IN_BYTES = 1000000; // 1MB. DO NOT CHANGE THIS WITHOUT AN UPGRADE TASK");
                 line("public static final int IN_MEMORY_THRESHOLD = ", String.valueOf(inMemoryThreshold), "; // streams under this size are kept in memory when loaded");
+                line("public static final int CONCURRENT_BLOCK_WRITES = ", String.valueOf(concurrentBlockWrites), "; // blocks written at once when storing outside a transaction");
                 line("public static final String STREAM_FILE_PREFIX = \"", name, "_stream_\";");
                 line("public static final String STREAM_FILE_SUFFIX = \".tmp\";");
                 line();
@@ -260,7 +265,7 @@ public class StreamStoreRenderer {
                     line("StreamMetadata metadata = metaTable.getMetadatas(ImmutableSet.of(row)).values().iterator().next();");
                     line("Preconditions.checkState(metadata.getStatus() == Status.STORING, \"This stream is being cleaned up while storing blocks: \" + id);");
                     line("Builder builder = StreamMetadata.newBuilder(metadata);");
-                    line("builder.setLength(blockNumber * BLOCK_SIZE_IN_BYTES + 1);");
+                    line("builder.setLength(Math.max(metadata.getLength(), blockNumber * BLOCK_SIZE_IN_BYTES + 1));");
                     line("metaTable.putMetadata(row, builder.build());");
                 } line("}");
             }
@@ -314,6 +319,13 @@ public class StreamStoreRenderer {
                 } line("}");
             }
 
+            private void getNumberOfConcurrentBlockWrites() {
+                line("@Override");
+                line("protected int getNumberOfConcurrentBlockWrites() {"); {
+                    line("return CONCURRENT_BLOCK_WRITES;");
+                } line("}");
+            }
+
             private void createTempFile() {
                 line("@Override");
                 line("protected File createTempFile(", StreamId, " id) throws IOException {"); {
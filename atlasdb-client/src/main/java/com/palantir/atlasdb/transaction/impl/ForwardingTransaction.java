@@ -20,6 +20,8 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
 
 import com.google.common.collect.ForwardingObject;
 import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
@@ -84,6 +86,24 @@ public abstract class ForwardingTransaction extends ForwardingObject implements
         return delegate().getRanges(tableRef, rangeRequests);
     }
 
+    @Override
+    public Stream<RowResult<byte[]>> getRangeInParallel(TableReference tableRef,
+                                                        RangeRequest rangeRequest,
+                                                        Iterable<byte[]> splitRows,
+                                                        Executor executor,
+                                                        int concurrency) {
+        return delegate().getRangeInParallel(tableRef, rangeRequest, splitRows, executor, concurrency);
+    }
+
+    @Override
+    public Stream<RowResult<byte[]>> getRangeInParallelOrdered(TableReference tableRef,
+                                                               RangeRequest rangeRequest,
+                                                               Iterable<byte[]> splitRows,
+                                                               Executor executor,
+                                                               int concurrency) {
+        return delegate().getRangeInParallelOrdered(tableRef, rangeRequest, splitRows, executor, concurrency);
+    }
+
     @Override
     public void put(TableReference tableRef, Map<Cell, byte[]> values) {
         delegate().put(tableRef, values);
@@ -19,6 +19,8 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
 
 import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.Cell;
@@ -73,6 +75,26 @@ public class ReadTransaction extends ForwardingTransaction {
         return delegate().getRanges(tableRef, rangeRequests);
     }
 
+    @Override
+    public Stream<RowResult<byte[]>> getRangeInParallel(TableReference tableRef,
+                                                        RangeRequest rangeRequest,
+                                                        Iterable<byte[]> splitRows,
+                                                        Executor executor,
+                                                        int concurrency) {
+        checkTableName(tableRef);
+        return delegate().getRangeInParallel(tableRef, rangeRequest, splitRows, executor, concurrency);
+    }
+
+    @Override
+    public Stream<RowResult<byte[]>> getRangeInParallelOrdered(TableReference tableRef,
+                                                               RangeRequest rangeRequest,
+                                                               Iterable<byte[]> splitRows,
+                                                               Executor executor,
+                                                               int concurrency) {
+        checkTableName(tableRef);
+        return delegate().getRangeInParallelOrdered(tableRef, rangeRequest, splitRows, executor, concurrency);
+    }
+
     @Override
     public Map<byte[], BatchingVisitable<Map.Entry<Cell, byte[]>>> getRowsColumnRange(TableReference tableRef,
             Iterable<byte[]> rows, BatchColumnRangeSelection columnRangeSelection) {
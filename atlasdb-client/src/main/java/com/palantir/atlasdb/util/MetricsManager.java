@@ -25,6 +25,7 @@ import com.codahale.metrics.Gauge;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.Metric;
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 
 public class MetricsManager {
 
@@ -78,6 +79,16 @@ public class MetricsManager {
         return meter;
     }
 
+    public Timer registerTimer(Class clazz, String metricPrefix, String timerName) {
+        return registerTimer(MetricRegistry.name(clazz, metricPrefix, timerName));
+    }
+
+    private synchronized Timer registerTimer(String fullyQualifiedTimerName) {
+        Timer timer = metricRegistry.timer(fullyQualifiedTimerName);
+        registeredMetrics.add(fullyQualifiedTimerName);
+        return timer;
+    }
+
     public synchronized void deregisterMetrics() {
         registeredMetrics.forEach(metricRegistry::remove);
         registeredMetrics.clear();
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.SortedMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.Lists;
+import com.palantir.atlasdb.util.AtlasDbMetrics;
+import com.palantir.atlasdb.util.MetricsRule;
+
+public class PrimitiveTimestampCacheTest {
+    private static final long ABSENT = -2L;
+
+    @Rule
+    public MetricsRule metricsRule = new MetricsRule();
+
+    private final PrimitiveTimestampCache cache = new PrimitiveTimestampCache(100, 4);
+
+    @Test
+    public void returnsCommittedTimestampsThatWerePut() {
+        assertThat(cache.getCommitTimestampIfPresent(1L)).isNull();
+        assertThat(cache.getCommitTimestampIfPresent(1L, ABSENT)).isEqualTo(ABSENT);
+
+        cache.putAlreadyCommittedTransaction(1L, 2L);
+        cache.putAlreadyCommittedTransaction(Long.valueOf(3L), Long.valueOf(-1L));
+
+        assertThat(cache.getCommitTimestampIfPresent(1L)).isEqualTo(2L);
+        assertThat(cache.getCommitTimestampIfPresent(1L, ABSENT)).isEqualTo(2L);
+        assertThat(cache.getCommitTimestampIfPresent(3L, ABSENT)).isEqualTo(-1L);
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void doesNotCacheReservedValue() {
+        cache.putAlreadyCommittedTransaction(Long.MIN_VALUE, 1L);
+        cache.putAlreadyCommittedTransaction(1L, Long.MIN_VALUE);
+
+        assertThat(cache.getCommitTimestampIfPresent(Long.MIN_VALUE)).isNull();
+        assertThat(cache.getCommitTimestampIfPresent(1L)).isNull();
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void clearRemovesAllEntries() {
+        for (long ts = 1; ts <= 50; ts++) {
+            cache.putAlreadyCommittedTransaction(ts, ts + 1);
+        }
+
+        cache.clear();
+
+        assertThat(cache.size()).isEqualTo(0);
+        for (long ts = 1; ts <= 50; ts++) {
+            assertThat(cache.getCommitTimestampIfPresent(ts)).isNull();
+        }
+    }
+
+    @Test
+    public void evictsToStayWithinCapacityAndKeepsRemainingEntriesReadable() {
+        PrimitiveTimestampCache smallCache = new PrimitiveTimestampCache(6, 1);
+        for (long ts = 1; ts <= 1000; ts++) {
+            smallCache.putAlreadyCommittedTransaction(ts, ts + 1);
+        }
+
+        assertThat(smallCache.size()).isEqualTo(6);
+        int present = 0;
+        for (long ts = 1; ts <= 1000; ts++) {
+            Long commitTs = smallCache.getCommitTimestampIfPresent(ts);
+            if (commitTs != null) {
+                assertThat(commitTs).isEqualTo(ts + 1);
+                present++;
+            }
+        }
+        assertThat(present).isEqualTo(6);
+    }
+
+    @Test
+    public void recentlyReadEntriesSurviveEviction() {
+        PrimitiveTimestampCache smallCache = new PrimitiveTimestampCache(6, 1);
+        for (long ts = 1; ts <= 6; ts++) {
+            smallCache.putAlreadyCommittedTransaction(ts, ts + 1);
+        }
+
+        for (long ts = 7; ts <= 11; ts++) {
+            smallCache.getCommitTimestampIfPresent(1L);
+            smallCache.putAlreadyCommittedTransaction(ts, ts + 1);
+        }
+
+        assertThat(smallCache.getCommitTimestampIfPresent(1L)).isEqualTo(2L);
+    }
+
+    @Test
+    public void concurrentReadersAndWritersSeeConsistentValues() throws Exception {
+        PrimitiveTimestampCache concurrentCache = new PrimitiveTimestampCache(1000, 4);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = Lists.newArrayList();
+            for (int thread = 0; thread < 8; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (long ts = 1; ts <= 20_000; ts++) {
+                        concurrentCache.putAlreadyCommittedTransaction(ts, ts * 2);
+                        long commitTs = concurrentCache.getCommitTimestampIfPresent(ts / 2 + 1, ABSENT);
+                        assertThat(commitTs).isIn(ABSENT, (ts / 2 + 1) * 2);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(concurrentCache.size()).isLessThanOrEqualTo(1024);
+    }
+
+    @Test
+    public void cacheExposesMetrics() {
+        AtlasDbMetrics.setMetricRegistry(new MetricRegistry());
+        TimestampCache timestampCache = PrimitiveTimestampCache.create();
+
+        timestampCache.getCommitTimestampIfPresent(1L);
+        timestampCache.putAlreadyCommittedTransaction(1L, 2L);
+        timestampCache.getCommitTimestampIfPresent(1L);
+        timestampCache.getCommitTimestampIfPresent(1L, ABSENT);
+
+        SortedMap<String, Gauge> gauges = metricsRule.metrics().getGauges(
+                (name, metric) -> name.startsWith(TimestampCache.class.getName()));
+        assertThat(gauges.get(cacheMetricName("hit.count")).getValue()).isEqualTo(2L);
+        assertThat(gauges.get(cacheMetricName("miss.count")).getValue()).isEqualTo(1L);
+        assertThat(gauges.get(cacheMetricName("request.count")).getValue()).isEqualTo(3L);
+        assertThat(gauges.get(cacheMetricName("estimated.size")).getValue()).isEqualTo(1L);
+    }
+
+    @Test
+    public void onlyFirstCacheCreatedAgainstARegistryRegistersMetrics() {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        AtlasDbMetrics.setMetricRegistry(metricRegistry);
+        TimestampCache firstCache = PrimitiveTimestampCache.create();
+        TimestampCache secondCache = PrimitiveTimestampCache.create();
+
+        firstCache.putAlreadyCommittedTransaction(1L, 2L);
+        secondCache.getCommitTimestampIfPresent(1L);
+
+        SortedMap<String, Gauge> gauges = metricRegistry.getGauges(
+                (name, metric) -> name.startsWith(TimestampCache.class.getName()));
+        assertThat(gauges).hasSize(7);
+        assertThat(gauges.get(cacheMetricName("estimated.size")).getValue()).isEqualTo(1L);
+        assertThat(gauges.get(cacheMetricName("miss.count")).getValue()).isEqualTo(0L);
+    }
+
+    private static String cacheMetricName(String name) {
+        return TimestampCache.class.getName() + ".startToCommitTimestamp.cache." + name;
+    }
+}
@@ -42,10 +42,10 @@ public class TimestampCacheTest {
 
     @Test
     public void cacheExposesMetrics() throws Exception {
-        Cache<Long, Long> cache = TimestampCache.createDefaultCache();
+        Cache<Long, Long> cache = GuavaTimestampCache.createDefaultCache();
         AtlasDbMetrics.registerCache(cache, TEST_CACHE_NAME);
 
-        TimestampCache timestampCache = new TimestampCache(cache);
+        TimestampCache timestampCache = new GuavaTimestampCache(cache);
 
         SortedMap<String, Gauge> gauges = metricsRule.metrics().getGauges(startsWith(TimestampCache.class.getName()));
         assertThat(gauges.keySet(), hasItems(cacheMetricName("hit.count"), cacheMetricName("miss.ratio")));
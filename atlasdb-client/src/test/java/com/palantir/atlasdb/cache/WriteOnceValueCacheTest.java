@@ -0,0 +1,106 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.table.description.TableDefinition;
+import com.palantir.atlasdb.table.description.ValueType;
+
+public class WriteOnceValueCacheTest {
+    private static final TableReference WRITE_ONCE_TABLE = TableReference.createFromFullyQualifiedName("ns.once");
+    private static final TableReference OTHER_TABLE = TableReference.createFromFullyQualifiedName("ns.other");
+    private static final Cell CELL = Cell.create(bytes("row"), bytes("c"));
+    private static final byte[] VALUE = bytes("value");
+    private static final long COMMIT_TIMESTAMP = 10L;
+
+    private final KeyValueService kvs = new InMemoryKeyValueService(false);
+    private final WriteOnceValueCache cache = WriteOnceValueCache.create(kvs, 1024 * 1024);
+
+    @Before
+    public void setUp() {
+        kvs.createTable(WRITE_ONCE_TABLE, createTableDefinition(true).toTableMetadata().persistToBytes());
+        kvs.createTable(OTHER_TABLE, createTableDefinition(false).toTableMetadata().persistToBytes());
+    }
+
+    @Test
+    public void onlyCachesTablesDeclaredWriteOnce() {
+        assertThat(cache.isCached(WRITE_ONCE_TABLE)).isTrue();
+        assertThat(cache.isCached(OTHER_TABLE)).isFalse();
+    }
+
+    @Test
+    public void returnsValuesCommittedBeforeTheReaderStarted() {
+        cache.cacheCommittedValue(WRITE_ONCE_TABLE, CELL, VALUE, COMMIT_TIMESTAMP, COMMIT_TIMESTAMP + 1);
+
+        assertThat(cache.getVisibleValues(WRITE_ONCE_TABLE, ImmutableSet.of(CELL), COMMIT_TIMESTAMP + 1).get(CELL))
+                .isEqualTo(VALUE);
+        assertThat(cache.getVisibleValues(WRITE_ONCE_TABLE, ImmutableSet.of(CELL), COMMIT_TIMESTAMP)).isEmpty();
+    }
+
+    @Test
+    public void doesNotCacheValuesCommittedAfterTheImmutableTimestamp() {
+        cache.cacheCommittedValue(WRITE_ONCE_TABLE, CELL, VALUE, COMMIT_TIMESTAMP, COMMIT_TIMESTAMP);
+
+        assertThat(cache.getVisibleValues(WRITE_ONCE_TABLE, ImmutableSet.of(CELL), Long.MAX_VALUE)).isEmpty();
+    }
+
+    @Test
+    public void callersCannotModifyCachedValues() {
+        byte[] value = VALUE.clone();
+        cache.cacheCommittedValue(WRITE_ONCE_TABLE, CELL, value, COMMIT_TIMESTAMP, COMMIT_TIMESTAMP + 1);
+        value[0] = 0;
+        cache.getVisibleValues(WRITE_ONCE_TABLE, ImmutableSet.of(CELL), Long.MAX_VALUE).get(CELL)[1] = 0;
+
+        assertThat(cache.getVisibleValues(WRITE_ONCE_TABLE, ImmutableSet.of(CELL), Long.MAX_VALUE).get(CELL))
+                .isEqualTo(VALUE);
+    }
+
+    @Test
+    public void cachesNothingWhenDisabled() {
+        WriteOnceValueCache disabledCache = WriteOnceValueCache.create(kvs, 0);
+        disabledCache.cacheCommittedValue(WRITE_ONCE_TABLE, CELL, VALUE, COMMIT_TIMESTAMP, COMMIT_TIMESTAMP + 1);
+
+        assertThat(disabledCache.isCached(WRITE_ONCE_TABLE)).isFalse();
+        assertThat(disabledCache.getVisibleValues(WRITE_ONCE_TABLE, ImmutableSet.of(CELL), Long.MAX_VALUE)).isEmpty();
+    }
+
+    private static TableDefinition createTableDefinition(boolean writeOnce) {
+        return new TableDefinition() {{
+            rowName();
+            rowComponent("row", ValueType.STRING);
+            columns();
+            column("col", "c", ValueType.BLOB);
+            if (writeOnce) {
+                writeOnce();
+            }
+        }};
+    }
+
+    private static byte[] bytes(String string) {
+        return string.getBytes(StandardCharsets.UTF_8);
+    }
+}
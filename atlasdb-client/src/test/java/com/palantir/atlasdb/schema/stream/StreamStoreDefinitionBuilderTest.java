@@ -35,4 +35,11 @@ public class StreamStoreDefinitionBuilderTest {
                 .inMemoryThreshold(StreamStoreDefinition.MAX_IN_MEMORY_THRESHOLD)
                 .build();
     }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testNoConcurrentBlockWrites() {
+        new StreamStoreDefinitionBuilder("test", "test", ValueType.VAR_LONG)
+                .concurrentBlockWrites(0)
+                .build();
+    }
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
+import com.palantir.common.concurrent.PTExecutors;
+
+public class PrefetchingBlockGetterTest {
+    private static final int BLOCK_SIZE = 3;
+    private static final byte[] STORED = "divisible".getBytes(StandardCharsets.UTF_8);
+    private static final long NUM_BLOCKS = (STORED.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private final ExecutorService executor = PTExecutors.newCachedThreadPool();
+    private final Set<Long> loadedBlocks = Sets.newConcurrentHashSet();
+
+    private final BiConsumer<Long, OutputStream> singleBlockLoader = (block, destination) -> {
+        loadedBlocks.add(block);
+        int offset = (int) (block * BLOCK_SIZE);
+        try {
+            destination.write(STORED, offset, Math.min(BLOCK_SIZE, STORED.length - offset));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    };
+
+    @After
+    public void tearDown() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void readsAllBlocksInOrder() throws IOException {
+        try (InputStream stream = BlockConsumingInputStream.create(createGetter(2), NUM_BLOCKS, 1)) {
+            assertThat(ByteStreams.toByteArray(stream)).isEqualTo(STORED);
+        }
+    }
+
+    @Test
+    public void loadsBlocksAheadOfTheReader() {
+        PrefetchingBlockGetter getter = createGetter(2);
+
+        getter.get(0, 1, new ByteArrayOutputStream());
+
+        assertThat(loadedBlocks).contains(0L);
+        assertThat(waitForBlock(2L)).isTrue();
+    }
+
+    @Test
+    public void loadsBlocksOnTheCallingThreadWhenNotPrefetching() throws IOException {
+        PrefetchingBlockGetter getter = createGetter(0);
+        ByteArrayOutputStream destination = new ByteArrayOutputStream();
+
+        getter.get(0, 1, destination);
+
+        assertThat(destination.toByteArray()).isEqualTo("div".getBytes(StandardCharsets.UTF_8));
+        assertThat(loadedBlocks).containsOnly(0L);
+    }
+
+    @Test
+    public void writesBlocksToAFileAtTheirOffsets() throws IOException {
+        File file = tempFolder.newFile();
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            createGetter(2).writeTo(randomAccessFile.getChannel());
+        }
+
+        assertThat(Files.readAllBytes(file.toPath())).isEqualTo(STORED);
+    }
+
+    @Test
+    public void propagatesFailuresToLoadBlocks() {
+        RuntimeException failure = new RuntimeException("failed to load block");
+        PrefetchingBlockGetter getter = new PrefetchingBlockGetter(
+                (block, destination) -> {
+                    throw failure;
+                },
+                BLOCK_SIZE,
+                NUM_BLOCKS,
+                2,
+                executor);
+
+        assertThatThrownBy(() -> getter.get(0, 1, new ByteArrayOutputStream())).isEqualTo(failure);
+    }
+
+    private PrefetchingBlockGetter createGetter(int blocksToPrefetch) {
+        return new PrefetchingBlockGetter(singleBlockLoader, BLOCK_SIZE, NUM_BLOCKS, blocksToPrefetch, executor);
+    }
+
+    private boolean waitForBlock(long block) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!loadedBlocks.contains(block) && System.nanoTime() < deadline) {
+            Thread.yield();
+        }
+        return loadedBlocks.contains(block);
+    }
+}
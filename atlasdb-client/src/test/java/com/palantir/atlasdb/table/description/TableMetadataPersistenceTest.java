@@ -146,6 +146,7 @@ public class TableMetadataPersistenceTest {
             explicitCompressionBlockSizeKB(CUSTOM_COMPRESSION_BLOCK_SIZE);
             negativeLookups();
             appendHeavyAndReadLight();
+            writeOnce();
         }};
     }
 
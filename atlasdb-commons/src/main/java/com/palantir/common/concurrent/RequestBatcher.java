@@ -0,0 +1,197 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.common.concurrent;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+/**
+ * Queues requests from concurrent callers and hands them to a {@link BatchProcessor} in batches.
+ * <p>
+ * At most a fixed number of batches are processed at any time, each on a thread of the given executor. Requests
+ * that arrive while that many batches are being processed are queued, and the next batch to start takes all of them.
+ * Under low concurrency every batch contains one request and the only overhead is a thread hand-off; under high
+ * concurrency the number of batches stays roughly constant instead of growing with the number of callers.
+ * <p>
+ * The processor is expected to complete every request of a batch it is given. If it throws instead, or if the
+ * executor rejects the worker for a request, the requests are completed with the failure handler.
+ */
+@ThreadSafe
+public final class RequestBatcher<T> {
+    private static final Logger log = LoggerFactory.getLogger(RequestBatcher.class);
+
+    private final Executor executor;
+    private final int maxConcurrentBatches;
+    private final long batchWindowNanos;
+    private final BatchProcessor<T> processor;
+    private final BiConsumer<? super T, Throwable> failureHandler;
+
+    private final Queue<T> pendingRequests = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger numPendingRequests = new AtomicInteger();
+    private final AtomicInteger numActiveWorkers = new AtomicInteger();
+
+    public interface BatchProcessor<T> {
+        void processBatch(List<T> batch);
+    }
+
+    private RequestBatcher(Executor executor,
+                           int maxConcurrentBatches,
+                           long batchWindowNanos,
+                           BatchProcessor<T> processor,
+                           BiConsumer<? super T, Throwable> failureHandler) {
+        Preconditions.checkArgument(maxConcurrentBatches > 0,
+                "maxConcurrentBatches must be positive, was %s", maxConcurrentBatches);
+        Preconditions.checkArgument(batchWindowNanos >= 0,
+                "batchWindowNanos cannot be negative, was %s", batchWindowNanos);
+        this.executor = executor;
+        this.maxConcurrentBatches = maxConcurrentBatches;
+        this.batchWindowNanos = batchWindowNanos;
+        this.processor = processor;
+        this.failureHandler = failureHandler;
+    }
+
+    /**
+     * Creates a batcher which processes one batch at a time.
+     */
+    public static <T> RequestBatcher<T> create(
+            Executor executor,
+            BatchProcessor<T> processor,
+            BiConsumer<? super T, Throwable> failureHandler) {
+        return new RequestBatcher<>(executor, 1, 0, processor, failureHandler);
+    }
+
+    /**
+     * @param maxConcurrentBatches the number of batches which may be processed at once.
+     * @param batchWindowNanos how long a worker waits for more requests to join its first batch before taking it.
+     *                         A worker only waits if other requests are queued or other batches are in flight when it
+     *                         starts, so a request which arrives on its own is processed straight away.
+     */
+    public static <T> RequestBatcher<T> create(
+            Executor executor,
+            int maxConcurrentBatches,
+            long batchWindowNanos,
+            BatchProcessor<T> processor,
+            BiConsumer<? super T, Throwable> failureHandler) {
+        return new RequestBatcher<>(executor, maxConcurrentBatches, batchWindowNanos, processor, failureHandler);
+    }
+
+    /**
+     * Queues a request, to be processed in the next batch to start. This may also be called by the processor, for
+     * requests of its batch which it could not complete.
+     */
+    public void submit(T request) {
+        numPendingRequests.incrementAndGet();
+        pendingRequests.add(request);
+        startWorkerIfBelowLimit();
+    }
+
+    private void startWorkerIfBelowLimit() {
+        if (!tryStartWorker()) {
+            return;
+        }
+        try {
+            executor.execute(this::processPendingRequests);
+        } catch (Throwable t) {
+            numActiveWorkers.decrementAndGet();
+            failPendingRequests(t);
+        }
+    }
+
+    private boolean tryStartWorker() {
+        while (true) {
+            int activeWorkers = numActiveWorkers.get();
+            if (activeWorkers >= maxConcurrentBatches) {
+                return false;
+            }
+            if (numActiveWorkers.compareAndSet(activeWorkers, activeWorkers + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void processPendingRequests() {
+        boolean isWorker = true;
+        try {
+            waitForBatchWindow();
+            while (true) {
+                List<T> batch = drainPendingRequests();
+                if (!batch.isEmpty()) {
+                    processBatch(batch);
+                    continue;
+                }
+                numActiveWorkers.decrementAndGet();
+                isWorker = false;
+                // A request may have been queued after we drained but before we stopped, in which case its caller
+                // saw us as still working, so we must pick it up unless another worker has already done so.
+                if (pendingRequests.isEmpty() || !tryStartWorker()) {
+                    return;
+                }
+                isWorker = true;
+            }
+        } catch (Throwable t) {
+            // Only the failure handler can get us here. Hand the queued requests over to a new worker, so that they
+            // are not left waiting for this one.
+            if (isWorker) {
+                numActiveWorkers.decrementAndGet();
+            }
+            if (!pendingRequests.isEmpty()) {
+                startWorkerIfBelowLimit();
+            }
+            throw t;
+        }
+    }
+
+    private void waitForBatchWindow() {
+        if (batchWindowNanos > 0 && (numPendingRequests.get() > 1 || numActiveWorkers.get() > 1)) {
+            LockSupport.parkNanos(batchWindowNanos);
+        }
+    }
+
+    private List<T> drainPendingRequests() {
+        List<T> batch = Lists.newArrayList();
+        for (T request = pendingRequests.poll(); request != null; request = pendingRequests.poll()) {
+            batch.add(request);
+        }
+        numPendingRequests.addAndGet(-batch.size());
+        return batch;
+    }
+
+    private void processBatch(List<T> batch) {
+        try {
+            processor.processBatch(batch);
+        } catch (Throwable t) {
+            log.warn("Failed to process a batch of {} requests", batch.size(), t);
+            batch.forEach(request -> failureHandler.accept(request, t));
+        }
+    }
+
+    private void failPendingRequests(Throwable failure) {
+        drainPendingRequests().forEach(request -> failureHandler.accept(request, failure));
+    }
+}
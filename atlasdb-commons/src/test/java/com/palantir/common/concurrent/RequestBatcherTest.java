@@ -0,0 +1,209 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.common.concurrent;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.SettableFuture;
+
+public class RequestBatcherTest {
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final List<List<Integer>> batches = new CopyOnWriteArrayList<>();
+    private final Semaphore batchPermits = new Semaphore(0);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void processesSingleRequestsStraightAway() throws Exception {
+        RequestBatcher<Request> batcher = RequestBatcher.create(executor, this::completeBatch, Request::setException);
+
+        assertThat(submit(batcher, 1).get(1, TimeUnit.SECONDS), is(1));
+        assertThat(submit(batcher, 2).get(1, TimeUnit.SECONDS), is(2));
+        assertThat(batches, contains(ImmutableList.of(1), ImmutableList.of(2)));
+    }
+
+    @Test
+    public void batchesRequestsQueuedWhileABatchIsProcessed() throws Exception {
+        RequestBatcher<Request> batcher = RequestBatcher.create(executor, this::completeBatchWhenPermitted,
+                Request::setException);
+
+        SettableFuture<Integer> first = submit(batcher, 1);
+        waitForBatches(1);
+        List<SettableFuture<Integer>> queued = ImmutableList.of(submit(batcher, 2), submit(batcher, 3));
+        batchPermits.release(2);
+
+        assertThat(first.get(1, TimeUnit.SECONDS), is(1));
+        for (SettableFuture<Integer> future : queued) {
+            future.get(1, TimeUnit.SECONDS);
+        }
+        assertThat(batches, contains(ImmutableList.of(1), ImmutableList.of(2, 3)));
+    }
+
+    @Test
+    public void processesUpToTheMaximumNumberOfBatchesAtOnce() throws Exception {
+        RequestBatcher<Request> batcher = RequestBatcher.create(executor, 2, 0, this::completeBatchWhenPermitted,
+                Request::setException);
+
+        submit(batcher, 1);
+        waitForBatches(1);
+        submit(batcher, 2);
+        waitForBatches(2);
+        SettableFuture<Integer> third = submit(batcher, 3);
+        SettableFuture<Integer> fourth = submit(batcher, 4);
+        batchPermits.release(3);
+
+        third.get(1, TimeUnit.SECONDS);
+        fourth.get(1, TimeUnit.SECONDS);
+        assertThat(batches.size(), is(3));
+        assertThat(batches.get(2), contains(3, 4));
+    }
+
+    @Test
+    public void onlyWaitsForTheBatchWindowIfOtherRequestsArePending() throws Exception {
+        List<Runnable> heldWorkers = new CopyOnWriteArrayList<>();
+        RequestBatcher<Request> batcher = RequestBatcher.create(heldWorkers::add, 2, TimeUnit.MILLISECONDS.toNanos(100),
+                this::completeBatch, Request::setException);
+
+        SettableFuture<Integer> first = submit(batcher, 1);
+        SettableFuture<Integer> second = submit(batcher, 2);
+        heldWorkers.forEach(executor::execute);
+        first.get(1, TimeUnit.SECONDS);
+        second.get(1, TimeUnit.SECONDS);
+        assertThat(batches, contains(ImmutableList.of(1, 2)));
+
+        RequestBatcher<Request> loneBatcher = RequestBatcher.create(executor, 2, TimeUnit.MINUTES.toNanos(10),
+                this::completeBatch, Request::setException);
+        assertThat(submit(loneBatcher, 3).get(1, TimeUnit.SECONDS), is(3));
+    }
+
+    @Test
+    public void failsTheBatchIfTheProcessorThrows() throws Exception {
+        AtomicInteger numBatches = new AtomicInteger();
+        RequestBatcher<Request> batcher = RequestBatcher.create(executor, batch -> {
+            if (numBatches.getAndIncrement() == 0) {
+                throw new AssertionError("first batch fails");
+            }
+            completeBatch(batch);
+        }, Request::setException);
+
+        assertFailsWith(submit(batcher, 1), AssertionError.class);
+        assertThat(submit(batcher, 2).get(1, TimeUnit.SECONDS), is(2));
+    }
+
+    @Test
+    public void failsRequestsIfTheExecutorRejectsThem() throws Exception {
+        RequestBatcher<Request> batcher = RequestBatcher.create(
+                command -> {
+                    throw new RejectedExecutionException();
+                },
+                this::completeBatch,
+                Request::setException);
+
+        assertFailsWith(submit(batcher, 1), RejectedExecutionException.class);
+        assertFailsWith(submit(batcher, 2), RejectedExecutionException.class);
+    }
+
+    @Test
+    public void keepsProcessingAfterTheFailureHandlerThrows() throws Exception {
+        CountDownLatch failed = new CountDownLatch(1);
+        RequestBatcher<Request> batcher = RequestBatcher.create(executor, batch -> {
+            if (batch.get(0).value == 1) {
+                throw new IllegalStateException();
+            }
+            completeBatch(batch);
+        }, (request, failure) -> {
+            failed.countDown();
+            throw new IllegalArgumentException();
+        });
+
+        submit(batcher, 1);
+        failed.await(1, TimeUnit.SECONDS);
+        assertThat(submit(batcher, 2).get(1, TimeUnit.SECONDS), is(2));
+    }
+
+    private static SettableFuture<Integer> submit(RequestBatcher<Request> batcher, int value) {
+        Request request = new Request(value);
+        batcher.submit(request);
+        return request.result;
+    }
+
+    private void completeBatch(List<Request> batch) {
+        batches.add(ImmutableList.copyOf(batch.stream().map(request -> request.value).iterator()));
+        batch.forEach(request -> request.result.set(request.value));
+    }
+
+    private void completeBatchWhenPermitted(List<Request> batch) {
+        batches.add(ImmutableList.copyOf(batch.stream().map(request -> request.value).iterator()));
+        batchPermits.acquireUninterruptibly();
+        batch.forEach(request -> request.result.set(request.value));
+    }
+
+    private void waitForBatches(int numBatches) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (batches.size() < numBatches) {
+            if (System.nanoTime() > deadline) {
+                fail("Expected " + numBatches + " batches to start, but only " + batches.size() + " did");
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    private static void assertFailsWith(SettableFuture<Integer> future, Class<? extends Throwable> failureClass)
+            throws InterruptedException, TimeoutException {
+        try {
+            future.get(1, TimeUnit.SECONDS);
+            fail("Expected the request to fail");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(failureClass));
+        }
+    }
+
+    private static final class Request {
+        private final int value;
+        private final SettableFuture<Integer> result = SettableFuture.create();
+
+        Request(int value) {
+            this.value = value;
+        }
+
+        void setException(Throwable failure) {
+            result.setException(failure);
+        }
+    }
+}
@@ -15,6 +15,8 @@
  */
 package com.palantir.atlasdb.config;
 
+import java.util.Set;
+
 import javax.annotation.Nullable;
 
 import org.immutables.value.Value;
@@ -137,6 +139,17 @@ public abstract class AtlasDbConfig {
         return AtlasDbConstants.DEFAULT_ENABLE_SWEEP;
     }
 
+    /**
+     * If true, each transaction records the cells it writes in a sweep queue before writing them, and a background
+     * thread deletes the versions those writes make stale once they are older than the sweep timestamp. Unlike the
+     * background sweeper, this only examines cells that have been written, rather than scanning whole tables. The
+     * sweep pause and delete batch size settings apply to both.
+     */
+    @Value.Default
+    public boolean enableTargetedSweep() {
+        return AtlasDbConstants.DEFAULT_ENABLE_TARGETED_SWEEP;
+    }
+
     /**
      * The number of milliseconds to wait between each batch of cells
      * processed by the background sweeper.
@@ -146,6 +159,30 @@ public abstract class AtlasDbConfig {
         return AtlasDbConstants.DEFAULT_SWEEP_PAUSE_MILLIS;
     }
 
+    /**
+     * The number of tables the background sweeper sweeps at once, each on its own thread. Each thread takes its own
+     * sweep lock, so the threads may run on different nodes.
+     */
+    @Value.Default
+    public int getSweepThreads() {
+        return AtlasDbConstants.DEFAULT_SWEEP_THREADS;
+    }
+
+    /**
+     * If set, the most (cell, timestamp) pairs the background sweeper examines per second, across all its threads
+     * on a node.
+     */
+    @Nullable
+    public abstract Double getSweepMaxCellTsPairsPerSecond();
+
+    /**
+     * If set, the most bytes of row and column names of the cells the background sweeper deletes per second, across
+     * all its threads on a node. This bounds the rate at which sweep writes deletions to the key value service; the
+     * size of the deleted values is not known to sweep, and is not counted.
+     */
+    @Nullable
+    public abstract Double getSweepMaxCellNameBytesDeletedPerSecond();
+
     /**
      * The number of milliseconds to wait between retries when the background sweeper can't delete data, due to the
      * persistent lock being taken.
@@ -203,6 +240,93 @@ public abstract class AtlasDbConfig {
         return 1000;
     }
 
+    /**
+     * If true, commit timestamp lookups from concurrent transactions are coalesced into batched reads of the
+     * transactions table, with at most one such read in flight at a time. This reduces the load on the key value
+     * service when many transactions read at once, at the cost of a thread hand-off on every lookup.
+     */
+    @Value.Default
+    public boolean enableTransactionReadBatching() {
+        return false;
+    }
+
+    /**
+     * If true, commit timestamps from concurrent transactions are written to the transactions table together, with
+     * one multi-cell put unless exists per batch. This reduces the number of writes to the transactions table under
+     * write-heavy load, at the cost of up to a few hundred microseconds of extra latency for a commit that has to wait
+     * for others to join its batch. It only pays off on key value services which write a multi-cell put unless exists
+     * in one round trip, which Cassandra does not.
+     */
+    @Value.Default
+    public boolean enableTransactionCommitBatching() {
+        return false;
+    }
+
+    /**
+     * If true, the steps of a commit which do not depend on each other, such as the conflict checks for different
+     * tables or refreshing locks, run concurrently on a dedicated thread pool rather than one after another.
+     */
+    @Value.Default
+    public boolean enablePipelinedCommit() {
+        return false;
+    }
+
+    /**
+     * The approximate number of bytes of values from write once tables to cache across transactions; see
+     * {@link com.palantir.atlasdb.table.description.TableDefinition#writeOnce()}. Zero disables the cache.
+     */
+    @Value.Default
+    public long getWriteOnceValueCacheSizeBytes() {
+        return AtlasDbConstants.DEFAULT_WRITE_ONCE_VALUE_CACHE_SIZE_BYTES;
+    }
+
+    /**
+     * The fully qualified names of tables whose values are cached across transactions and dropped whenever a
+     * transaction locks their row to write to it. The tables' conflict handlers must lock rows, and the tables must
+     * only be written by transactions. This needs an embedded lock service, as the cache learns of row locks from the
+     * lock service in process, so a config which lists these tables together with a leader, timelock or remote lock
+     * block is invalid.
+     */
+    public abstract Set<String> getLockWatchedTables();
+
+    /**
+     * The approximate number of bytes of values from {@link #getLockWatchedTables() lock watched tables} to cache
+     * across transactions. Zero disables the cache.
+     */
+    @Value.Default
+    public long getLockWatchingValueCacheSizeBytes() {
+        return AtlasDbConstants.DEFAULT_LOCK_WATCHING_VALUE_CACHE_SIZE_BYTES;
+    }
+
+    /**
+     * If true, serializable transactions remember the values they read by a digest rather than in full, and compare
+     * digests of the values read again when checking for read-write conflicts at commit. This trades hashing for
+     * memory in transactions which read many or large values from serializable tables.
+     */
+    @Value.Default
+    public boolean recordSerializableReadDigests() {
+        return false;
+    }
+
+    /**
+     * The number of pages of a transactional range scan to fetch from the key value service ahead of the page being
+     * read, on a dedicated thread pool, so that fetching them overlaps resolving the commit timestamps of the page
+     * being read. Zero fetches every page only when it is needed.
+     */
+    @Value.Default
+    public int getRangeScanPagesToPrefetch() {
+        return 0;
+    }
+
+    /**
+     * The approximate number of bytes of pages each transactional range scan may buffer before it stops fetching
+     * pages ahead; see {@link #getRangeScanPagesToPrefetch()}.
+     */
+    @Value.Default
+    public long getRangeScanPrefetchMaxBufferedBytes() {
+        return AtlasDbConstants.DEFAULT_RANGE_SCAN_PREFETCH_MAX_BUFFERED_BYTES;
+    }
+
     @Value.Check
     protected final void check() {
         if (leader().isPresent()) {
@@ -219,6 +343,18 @@ public abstract class AtlasDbConfig {
 
         Preconditions.checkState(lock().isPresent() == timestamp().isPresent(),
                 "Lock and timestamp server blocks must either both be present or both be absent.");
+        Preconditions.checkState(getSweepThreads() > 0, "Sweep threads must be positive.");
+        Preconditions.checkState(getWriteOnceValueCacheSizeBytes() >= 0,
+                "Write once value cache size cannot be negative.");
+        Preconditions.checkState(getLockWatchingValueCacheSizeBytes() >= 0,
+                "Lock watching value cache size cannot be negative.");
+        Preconditions.checkState(getLockWatchedTables().isEmpty() || isLockServiceEmbedded(),
+                "Lock watched tables need an embedded lock service, so the leader, timelock, lock and timestamp"
+                        + " blocks must all be absent.");
+        Preconditions.checkState(getRangeScanPagesToPrefetch() >= 0,
+                "Range scan pages to prefetch cannot be negative.");
+        Preconditions.checkState(getRangeScanPrefetchMaxBufferedBytes() > 0,
+                "Range scan prefetch buffer size must be positive.");
         if (getSweepBatchSize() != null || getSweepCellBatchSize() != null) {
             Preconditions.checkState(
                     getSweepReadLimit() == null
@@ -235,6 +371,10 @@ public abstract class AtlasDbConfig {
         return !lock().isPresent() && !timestamp().isPresent();
     }
 
+    private boolean isLockServiceEmbedded() {
+        return !leader().isPresent() && !timelock().isPresent() && areTimeAndLockConfigsAbsent();
+    }
+
     @JsonIgnore
     public AtlasDbConfig toOfflineConfig() {
         return ImmutableAtlasDbConfig.builder()
@@ -31,6 +31,15 @@ public abstract class TimeLockClientConfig {
 
     public abstract ServerListConfig serversList();
 
+    /**
+     * If true, fresh timestamp and lock refresh requests are coalesced with those of every other client in this JVM
+     * that uses the same servers and user agent, and sent to the timelock batch endpoint.
+     */
+    @Value.Default
+    public boolean enableRequestBatching() {
+        return false;
+    }
+
     public ServerListConfig toNamespacedServerList() {
         Set<String> serversWithNamespaces = serversList()
                 .servers()
@@ -0,0 +1,323 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.factory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.palantir.atlasdb.config.ServerListConfig;
+import com.palantir.atlasdb.util.AtlasDbMetrics;
+import com.palantir.common.base.Throwables;
+import com.palantir.common.concurrent.NamedThreadFactory;
+import com.palantir.common.concurrent.PTExecutors;
+import com.palantir.common.concurrent.RequestBatcher;
+import com.palantir.lock.ForwardingRemoteLockService;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.RemoteLockService;
+import com.palantir.lock.TimeLockBatchRequest;
+import com.palantir.lock.TimeLockBatchResponse;
+import com.palantir.lock.TimeLockBatchService;
+import com.palantir.remoting2.tracing.Tracers;
+import com.palantir.timestamp.TimestampRange;
+import com.palantir.timestamp.TimestampService;
+
+/**
+ * Coalesces fresh timestamp and lock refresh requests for many timelock clients into calls to the
+ * {@link TimeLockBatchService} of one timelock cluster.
+ * <p>
+ * Requests are batched with a {@link RequestBatcher}, so at most one batch call is in flight at any time. Requests
+ * that arrive while it runs are queued, and once it completes they are all sent in a single call. Timestamp requests
+ * from the same client are merged into one request for the total number of timestamps, and the returned range is
+ * split among them in arrival order; if the server returns fewer timestamps than were requested, the requests left
+ * without any are carried over to the next batch. Refresh requests from the same client are merged into one request
+ * for the union of their tokens.
+ * <p>
+ * One instance is shared by every transaction manager in the JVM that talks to the same servers with the same user
+ * agent; see {@link #forServers}.
+ */
+@ThreadSafe
+public final class BatchingTimeLockClient {
+    private static final ConcurrentMap<ClientKey, BatchingTimeLockClient> clientsByServers = Maps.newConcurrentMap();
+
+    private final TimeLockBatchService delegate;
+    private final RequestBatcher<PendingRequest> batcher;
+
+    private final Histogram requestsPerBatch;
+    private final Histogram clientsPerBatch;
+    private final Timer waitTime;
+
+    @VisibleForTesting
+    BatchingTimeLockClient(TimeLockBatchService delegate, Executor executor, MetricRegistry metricRegistry) {
+        this.delegate = delegate;
+        this.batcher = RequestBatcher.create(executor, this::processBatch, PendingRequest::setException);
+        this.requestsPerBatch = metricRegistry.histogram(
+                MetricRegistry.name(BatchingTimeLockClient.class, "requestsPerBatch"));
+        this.clientsPerBatch = metricRegistry.histogram(
+                MetricRegistry.name(BatchingTimeLockClient.class, "clientsPerBatch"));
+        this.waitTime = metricRegistry.timer(MetricRegistry.name(BatchingTimeLockClient.class, "waitTime"));
+    }
+
+    /**
+     * Returns the batching client for the given (un-namespaced) timelock servers and user agent, creating it on first
+     * use. Clients are kept for the lifetime of the JVM, as nothing closes the services of a transaction manager, but
+     * a client holds no threads while it is idle.
+     */
+    public static BatchingTimeLockClient forServers(ServerListConfig serversList, String userAgent) {
+        return clientsByServers.computeIfAbsent(new ClientKey(serversList, userAgent), key -> {
+            TimeLockBatchService batchService = new ServiceCreator<>(TimeLockBatchService.class, key.userAgent)
+                    .apply(key.servers);
+            Executor executor = Tracers.wrap(PTExecutors.newCachedThreadPool(
+                    new NamedThreadFactory(BatchingTimeLockClient.class.getSimpleName(), true)));
+            return new BatchingTimeLockClient(batchService, executor, AtlasDbMetrics.getMetricRegistry());
+        });
+    }
+
+    /** A timestamp service for the given client whose requests are served by this batcher. */
+    public TimestampService timestampService(String client) {
+        return new TimestampService() {
+            @Override
+            public long getFreshTimestamp() {
+                return getFreshTimestamps(1).getLowerBound();
+            }
+
+            @Override
+            public TimestampRange getFreshTimestamps(int numTimestampsRequested) {
+                return getUnchecked(getFreshTimestampsAsync(client, numTimestampsRequested));
+            }
+        };
+    }
+
+    /**
+     * A lock service for the given client that refreshes tokens through this batcher, and passes every other call
+     * straight through to the given per-client lock service.
+     */
+    public RemoteLockService lockService(String client, RemoteLockService delegateLockService) {
+        return new ForwardingRemoteLockService() {
+            @Override
+            protected RemoteLockService delegate() {
+                return delegateLockService;
+            }
+
+            @Override
+            public Set<LockRefreshToken> refreshLockRefreshTokens(Iterable<LockRefreshToken> tokens) {
+                return getUnchecked(refreshLockRefreshTokensAsync(client, tokens));
+            }
+        };
+    }
+
+    public ListenableFuture<TimestampRange> getFreshTimestampsAsync(String client, int numTimestampsRequested) {
+        PendingTimestamps request = new PendingTimestamps(client, Math.max(numTimestampsRequested, 1));
+        batcher.submit(request);
+        return request.result;
+    }
+
+    public ListenableFuture<Set<LockRefreshToken>> refreshLockRefreshTokensAsync(
+            String client,
+            Iterable<LockRefreshToken> tokens) {
+        PendingRefresh request = new PendingRefresh(client, ImmutableSet.copyOf(tokens));
+        batcher.submit(request);
+        return request.result;
+    }
+
+    private static <T> T getUnchecked(ListenableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            throw Throwables.rewrapAndThrowUncheckedException(e);
+        } catch (ExecutionException e) {
+            throw Throwables.rewrapAndThrowUncheckedException(e.getCause());
+        }
+    }
+
+    private void processBatch(List<PendingRequest> batch) {
+        batch.removeIf(PendingRequest::isCancelled);
+        if (batch.isEmpty()) {
+            return;
+        }
+        long batchStartNanos = System.nanoTime();
+        Map<String, List<PendingTimestamps>> timestampRequests = Maps.newLinkedHashMap();
+        Map<String, List<PendingRefresh>> refreshRequests = Maps.newHashMap();
+        Set<String> clients = Sets.newHashSet();
+        for (PendingRequest request : batch) {
+            waitTime.update(batchStartNanos - request.createdNanos, TimeUnit.NANOSECONDS);
+            clients.add(request.client);
+            if (request instanceof PendingTimestamps) {
+                timestampRequests.computeIfAbsent(request.client, unused -> Lists.newArrayList())
+                        .add((PendingTimestamps) request);
+            } else {
+                refreshRequests.computeIfAbsent(request.client, unused -> Lists.newArrayList())
+                        .add((PendingRefresh) request);
+            }
+        }
+        requestsPerBatch.update(batch.size());
+        clientsPerBatch.update(clients.size());
+
+        TimeLockBatchResponse response;
+        try {
+            response = delegate.run(new TimeLockBatchRequest(
+                    Maps.transformValues(timestampRequests, BatchingTimeLockClient::totalTimestampsRequested),
+                    Maps.transformValues(refreshRequests, BatchingTimeLockClient::allTokens)));
+        } catch (Throwable t) {
+            batch.forEach(request -> request.setException(t));
+            return;
+        }
+
+        timestampRequests.forEach((client, requests) ->
+                distributeTimestamps(requests, response.getTimestamps().get(client)));
+        refreshRequests.forEach((client, requests) ->
+                distributeRefreshedTokens(requests, response.getRefreshedTokens().get(client)));
+    }
+
+    private void distributeTimestamps(List<PendingTimestamps> requests, TimestampRange range) {
+        if (range == null) {
+            IllegalStateException missing = new IllegalStateException("Timelock returned no timestamps for a client");
+            requests.forEach(request -> request.setException(missing));
+            return;
+        }
+        long next = range.getLowerBound();
+        for (PendingTimestamps request : requests) {
+            if (next > range.getUpperBound()) {
+                batcher.submit(request);
+                continue;
+            }
+            long upper = Math.min(range.getUpperBound(), next + request.numTimestamps - 1);
+            request.result.set(TimestampRange.createInclusiveRange(next, upper));
+            next = upper + 1;
+        }
+    }
+
+    private static void distributeRefreshedTokens(List<PendingRefresh> requests, Set<LockRefreshToken> refreshed) {
+        Set<LockRefreshToken> stillValid = (refreshed == null) ? ImmutableSet.of() : refreshed;
+        for (PendingRefresh request : requests) {
+            request.result.set(ImmutableSet.copyOf(Sets.intersection(request.tokens, stillValid)));
+        }
+    }
+
+    private static int totalTimestampsRequested(List<PendingTimestamps> requests) {
+        long total = 0;
+        for (PendingTimestamps request : requests) {
+            total += request.numTimestamps;
+        }
+        return (int) Math.min(total, Integer.MAX_VALUE);
+    }
+
+    private static Set<LockRefreshToken> allTokens(List<PendingRefresh> requests) {
+        Set<LockRefreshToken> tokens = Sets.newHashSet();
+        for (PendingRefresh request : requests) {
+            tokens.addAll(request.tokens);
+        }
+        return tokens;
+    }
+
+    private static final class ClientKey {
+        private final ServerListConfig servers;
+        private final String userAgent;
+
+        ClientKey(ServerListConfig servers, String userAgent) {
+            this.servers = servers;
+            this.userAgent = userAgent;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (other == null || getClass() != other.getClass()) {
+                return false;
+            }
+            ClientKey that = (ClientKey) other;
+            return servers.equals(that.servers) && userAgent.equals(that.userAgent);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(servers, userAgent);
+        }
+    }
+
+    private abstract static class PendingRequest {
+        private final String client;
+        private final long createdNanos = System.nanoTime();
+
+        PendingRequest(String client) {
+            this.client = client;
+        }
+
+        abstract boolean isCancelled();
+
+        abstract void setException(Throwable throwable);
+    }
+
+    private static final class PendingTimestamps extends PendingRequest {
+        private final int numTimestamps;
+        private final SettableFuture<TimestampRange> result = SettableFuture.create();
+
+        PendingTimestamps(String client, int numTimestamps) {
+            super(client);
+            this.numTimestamps = numTimestamps;
+        }
+
+        @Override
+        boolean isCancelled() {
+            return result.isCancelled();
+        }
+
+        @Override
+        void setException(Throwable throwable) {
+            result.setException(throwable);
+        }
+    }
+
+    private static final class PendingRefresh extends PendingRequest {
+        private final Set<LockRefreshToken> tokens;
+        private final SettableFuture<Set<LockRefreshToken>> result = SettableFuture.create();
+
+        PendingRefresh(String client, Set<LockRefreshToken> tokens) {
+            super(client);
+            this.tokens = tokens;
+        }
+
+        @Override
+        boolean isCancelled() {
+            return result.isCancelled();
+        }
+
+        @Override
+        void setException(Throwable throwable) {
+            result.setException(throwable);
+        }
+    }
+}
@@ -15,6 +15,7 @@
  */
 package com.palantir.atlasdb.factory;
 
+import java.io.Closeable;
 import java.util.Collection;
 import java.util.IdentityHashMap;
 import java.util.List;
@@ -100,7 +101,7 @@ public final class Leaders {
 
         PaxosAcceptor ourAcceptor = AtlasDbMetrics.instrument(
                 PaxosAcceptor.class,
-                PaxosAcceptorImpl.newAcceptor(config.acceptorLogDir().getPath()));
+                PaxosAcceptorImpl.newAcceptor(config.acceptorLogDir().getPath(), config.leaderLeaseDurationMs()));
         PaxosLearner ourLearner = AtlasDbMetrics.instrument(
                 PaxosLearner.class,
                 PaxosLearnerImpl.newLearner(config.learnerLogDir().getPath(), leadershipEventRecorder));
@@ -150,6 +151,8 @@ public final class Leaders {
                 .randomWaitBeforeProposingLeadershipMs(config.randomWaitBeforeProposingLeadershipMs())
                 .leaderPingResponseWaitMs(config.leaderPingResponseWaitMs())
                 .eventRecorder(leadershipEventRecorder)
+                .leaseDurationMs(config.leaderLeaseDurationMs())
+                .maxClockDriftMs(config.leaderLeaseMaxClockDriftMs())
                 .build();
 
         LeaderElectionService leaderElectionService = AtlasDbMetrics.instrument(
@@ -164,6 +167,7 @@ public final class Leaders {
                 .ourLearner(ourLearner)
                 .leaderElectionService(leaderElectionService)
                 .pingableLeader(pingableLeader)
+                .leaderElectionServiceCloser(paxosLeaderElectionService)
                 .build();
     }
 
@@ -209,6 +213,11 @@ public final class Leaders {
         PaxosLearner ourLearner();
         LeaderElectionService leaderElectionService();
         PingableLeader pingableLeader();
+
+        /**
+         * Stops the background work of the leader election service, once it is no longer used.
+         */
+        Closeable leaderElectionServiceCloser();
     }
 
     @Value.Immutable
@@ -17,6 +17,7 @@ package com.palantir.atlasdb.factory;
 
 import java.util.ServiceLoader;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import javax.annotation.Nullable;
 import javax.net.ssl.SSLSocketFactory;
@@ -45,6 +46,7 @@ import com.palantir.atlasdb.config.TimeLockClientConfig;
 import com.palantir.atlasdb.factory.startup.TimeLockMigrator;
 import com.palantir.atlasdb.http.UserAgents;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.impl.NamespacedKeyValueServices;
 import com.palantir.atlasdb.keyvalue.impl.ProfilingKeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.SweepStatsKeyValueService;
@@ -65,16 +67,25 @@ import com.palantir.atlasdb.sweep.ImmutableSweepBatchConfig;
 import com.palantir.atlasdb.sweep.NoOpBackgroundSweeperPerformanceLogger;
 import com.palantir.atlasdb.sweep.PersistentLockManager;
 import com.palantir.atlasdb.sweep.SweepBatchConfig;
+import com.palantir.atlasdb.sweep.SweepScheduler;
 import com.palantir.atlasdb.sweep.SweepTaskRunner;
+import com.palantir.atlasdb.sweep.TargetedSweeper;
+import com.palantir.atlasdb.sweep.queue.KvsSweepQueue;
+import com.palantir.atlasdb.sweep.queue.SweepQueueWriter;
 import com.palantir.atlasdb.table.description.Schema;
 import com.palantir.atlasdb.table.description.Schemas;
 import com.palantir.atlasdb.transaction.api.AtlasDbConstraintCheckingMode;
 import com.palantir.atlasdb.transaction.impl.ConflictDetectionManager;
 import com.palantir.atlasdb.transaction.impl.ConflictDetectionManagers;
+import com.palantir.atlasdb.transaction.impl.ImmutableTransactionManagerOptions;
+import com.palantir.atlasdb.transaction.impl.LockWatchingValueCache;
+import com.palantir.atlasdb.transaction.impl.RangeScanPrefetcher;
 import com.palantir.atlasdb.transaction.impl.SerializableTransactionManager;
 import com.palantir.atlasdb.transaction.impl.SweepStrategyManager;
 import com.palantir.atlasdb.transaction.impl.SweepStrategyManagers;
 import com.palantir.atlasdb.transaction.impl.TransactionTables;
+import com.palantir.atlasdb.transaction.service.BatchingTransactionService;
+import com.palantir.atlasdb.transaction.service.GroupCommitTransactionService;
 import com.palantir.atlasdb.transaction.service.TransactionService;
 import com.palantir.atlasdb.transaction.service.TransactionServices;
 import com.palantir.atlasdb.util.AtlasDbMetrics;
@@ -82,6 +93,7 @@ import com.palantir.leader.LeaderElectionService;
 import com.palantir.leader.proxy.AwaitingLeadershipProxy;
 import com.palantir.lock.LockClient;
 import com.palantir.lock.LockServerOptions;
+import com.palantir.lock.LockWatchService;
 import com.palantir.lock.RemoteLockService;
 import com.palantir.lock.client.LockRefreshingRemoteLockService;
 import com.palantir.lock.impl.LockServiceImpl;
@@ -199,7 +211,12 @@ public final class TransactionManagers {
 
         PersistentLockService persistentLockService = createAndRegisterPersistentLockService(kvs, env);
 
-        TransactionService transactionService = TransactionServices.createTransactionService(kvs);
+        TransactionService transactionService = config.enableTransactionCommitBatching()
+                ? GroupCommitTransactionService.create(kvs)
+                : TransactionServices.createTransactionService(kvs);
+        if (config.enableTransactionReadBatching()) {
+            transactionService = BatchingTransactionService.create(transactionService);
+        }
         ConflictDetectionManager conflictManager = ConflictDetectionManagers.create(kvs);
         SweepStrategyManager sweepStrategyManager = SweepStrategyManagers.createDefault(kvs);
 
@@ -213,6 +230,10 @@ public final class TransactionManagers {
 
         CleanupFollower follower = CleanupFollower.create(schemas);
 
+        KvsSweepQueue sweepQueue = config.enableTargetedSweep()
+                ? KvsSweepQueue.create(kvs, sweepStrategyManager)
+                : null;
+
         Cleaner cleaner = new DefaultCleanerBuilder(
                 kvs,
                 lockAndTimestampServices.lock(),
@@ -226,6 +247,7 @@ public final class TransactionManagers {
                 .setBackgroundScrubThreads(config.getBackgroundScrubThreads())
                 .setPunchIntervalMillis(config.getPunchIntervalMillis())
                 .setTransactionReadTimeout(config.getTransactionReadTimeoutMillis())
+                .setSweepQueueWriter(sweepQueue != null ? sweepQueue : SweepQueueWriter.NO_OP)
                 .buildCleaner();
 
         SerializableTransactionManager transactionManager = new SerializableTransactionManager(kvs,
@@ -237,7 +259,16 @@ public final class TransactionManagers {
                 conflictManager,
                 sweepStrategyManager,
                 cleaner,
-                allowHiddenTableAccess);
+                allowHiddenTableAccess,
+                ImmutableTransactionManagerOptions.builder()
+                        .pipelineCommits(config.enablePipelinedCommit())
+                        .writeOnceValueCacheSizeBytes(config.getWriteOnceValueCacheSizeBytes())
+                        .lockWatchingValueCache(createLockWatchingValueCache(config, lockAndTimestampServices))
+                        .recordReadDigests(config.recordSerializableReadDigests())
+                        .rangeScanPrefetcher(RangeScanPrefetcher.create(
+                                config.getRangeScanPagesToPrefetch(),
+                                config.getRangeScanPrefetchMaxBufferedBytes()))
+                        .build());
 
         PersistentLockManager persistentLockManager = new PersistentLockManager(
                 persistentLockService,
@@ -254,7 +285,53 @@ public final class TransactionManagers {
                 transactionService,
                 sweepStrategyManager,
                 cellsSweeper);
-        BackgroundSweeper backgroundSweeper = BackgroundSweeperImpl.create(
+        BackgroundSweeper backgroundSweeper = createBackgroundSweeper(
+                config,
+                transactionManager,
+                kvs,
+                sweepRunner,
+                persistentLockManager);
+        backgroundSweeper.runInBackground();
+
+        if (sweepQueue != null) {
+            TargetedSweeper targetedSweeper = TargetedSweeper.create(
+                    lockAndTimestampServices.lock(),
+                    kvs,
+                    sweepQueue,
+                    transactionService,
+                    sweepStrategyManager,
+                    cellsSweeper,
+                    transactionManager::getUnreadableTimestamp,
+                    transactionManager::getImmutableTimestamp,
+                    Suppliers.ofInstance(config.getSweepPauseMillis()),
+                    Suppliers.ofInstance(getSweepBatchConfig(config)));
+            targetedSweeper.runInBackground();
+        }
+
+        return transactionManager;
+    }
+
+    private static BackgroundSweeper createBackgroundSweeper(
+            AtlasDbConfig config,
+            SerializableTransactionManager transactionManager,
+            KeyValueService kvs,
+            SweepTaskRunner sweepRunner,
+            PersistentLockManager persistentLockManager) {
+        if (config.getSweepThreads() == 1
+                && config.getSweepMaxCellTsPairsPerSecond() == null
+                && config.getSweepMaxCellNameBytesDeletedPerSecond() == null) {
+            return BackgroundSweeperImpl.create(
+                    transactionManager,
+                    kvs,
+                    sweepRunner,
+                    Suppliers.ofInstance(config.enableSweep()),
+                    Suppliers.ofInstance(config.getSweepPauseMillis()),
+                    Suppliers.ofInstance(getSweepBatchConfig(config)),
+                    SweepTableFactory.of(),
+                    new NoOpBackgroundSweeperPerformanceLogger(),
+                    persistentLockManager);
+        }
+        return SweepScheduler.create(
                 transactionManager,
                 kvs,
                 sweepRunner,
@@ -263,10 +340,10 @@ public final class TransactionManagers {
                 Suppliers.ofInstance(getSweepBatchConfig(config)),
                 SweepTableFactory.of(),
                 new NoOpBackgroundSweeperPerformanceLogger(),
-                persistentLockManager);
-        backgroundSweeper.runInBackground();
-
-        return transactionManager;
+                persistentLockManager,
+                config.getSweepThreads(),
+                config.getSweepMaxCellTsPairsPerSecond(),
+                config.getSweepMaxCellNameBytesDeletedPerSecond());
     }
 
     private static SweepBatchConfig getSweepBatchConfig(AtlasDbConfig config) {
@@ -300,6 +377,28 @@ public final class TransactionManagers {
         }
     }
 
+    private static LockWatchingValueCache createLockWatchingValueCache(
+            AtlasDbConfig config,
+            LockAndTimestampServices lockAndTimestampServices) {
+        if (config.getLockWatchedTables().isEmpty()) {
+            return LockWatchingValueCache.disabled();
+        }
+        // The config only allows lock watched tables with an embedded lock service, but a lock service supplied in
+        // its place may still not report its row locks.
+        if (!lockAndTimestampServices.lockWatch().isPresent()) {
+            throw new IllegalStateException("Cannot cache the values of the lock watched tables "
+                    + config.getLockWatchedTables() + ", as the embedded lock service cannot report changes to their"
+                    + " row locks.");
+        }
+        Set<TableReference> tables = config.getLockWatchedTables().stream()
+                .map(TableReference::createFromFullyQualifiedName)
+                .collect(Collectors.toSet());
+        return LockWatchingValueCache.create(
+                lockAndTimestampServices.lockWatch().get(),
+                tables,
+                config.getLockWatchingValueCacheSizeBytes());
+    }
+
     private static PersistentLockService createAndRegisterPersistentLockService(KeyValueService kvs, Environment env) {
         if (!kvs.supportsCheckAndSet()) {
             return new NoOpPersistentLockService();
@@ -381,7 +480,15 @@ public final class TransactionManagers {
             TimeLockClientConfig config,
             String userAgent) {
         ServerListConfig namespacedServerListConfig = config.toNamespacedServerList();
-        return getLockAndTimestampServices(namespacedServerListConfig, userAgent);
+        LockAndTimestampServices services = getLockAndTimestampServices(namespacedServerListConfig, userAgent);
+        if (!config.enableRequestBatching()) {
+            return services;
+        }
+        BatchingTimeLockClient batchingClient = BatchingTimeLockClient.forServers(config.serversList(), userAgent);
+        return ImmutableLockAndTimestampServices.builder()
+                .lock(batchingClient.lockService(config.client(), services.lock()))
+                .time(batchingClient.timestampService(config.client()))
+                .build();
     }
 
     private static LockAndTimestampServices getLockAndTimestampServices(
@@ -451,6 +558,9 @@ public final class TransactionManagers {
         return ImmutableLockAndTimestampServices.builder()
                 .lock(lockService)
                 .time(timeService)
+                .lockWatch(lockService instanceof LockWatchService
+                        ? Optional.of((LockWatchService) lockService)
+                        : Optional.absent())
                 .build();
     }
 
@@ -458,6 +568,11 @@ public final class TransactionManagers {
     public interface LockAndTimestampServices {
         RemoteLockService lock();
         TimestampService time();
+
+        /**
+         * Present if the lock service is in process and can report changes to the row locks it holds.
+         */
+        Optional<LockWatchService> lockWatch();
     }
 
     public interface Environment {
@@ -44,6 +44,7 @@ public class AtlasDbConfigTest {
     private static final Optional<SslConfiguration> SSL_CONFIG = Optional.of(mock(SslConfiguration.class));
     private static final Optional<SslConfiguration> OTHER_SSL_CONFIG = Optional.of(mock(SslConfiguration.class));
     private static final Optional<SslConfiguration> NO_SSL_CONFIG = Optional.absent();
+    private static final String LOCK_WATCHED_TABLE = "namespace.table";
 
     @Test
     public void configWithNoLeaderOrLockIsValid() {
@@ -86,6 +87,43 @@ public class AtlasDbConfigTest {
         assertThat(config, not(nullValue()));
     }
 
+    @Test
+    public void lockWatchedTablesWithEmbeddedLockServiceAreValid() {
+        AtlasDbConfig config = ImmutableAtlasDbConfig.builder()
+                .keyValueService(KVS_CONFIG)
+                .addLockWatchedTables(LOCK_WATCHED_TABLE)
+                .build();
+        assertThat(config, not(nullValue()));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void lockWatchedTablesNotPermittedWithLeaderBlock() {
+        ImmutableAtlasDbConfig.builder()
+                .keyValueService(KVS_CONFIG)
+                .leader(LEADER_CONFIG)
+                .addLockWatchedTables(LOCK_WATCHED_TABLE)
+                .build();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void lockWatchedTablesNotPermittedWithTimelockBlock() {
+        ImmutableAtlasDbConfig.builder()
+                .keyValueService(KVS_CONFIG)
+                .timelock(TIMELOCK_CONFIG)
+                .addLockWatchedTables(LOCK_WATCHED_TABLE)
+                .build();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void lockWatchedTablesNotPermittedWithLockAndTimestampBlocks() {
+        ImmutableAtlasDbConfig.builder()
+                .keyValueService(KVS_CONFIG)
+                .lock(DEFAULT_SERVER_LIST)
+                .timestamp(DEFAULT_SERVER_LIST)
+                .addLockWatchedTables(LOCK_WATCHED_TABLE)
+                .build();
+    }
+
     @Test(expected = IllegalStateException.class)
     public void leaderBlockNotPermittedWithLockAndTimestampBlocks() {
         ImmutableAtlasDbConfig.builder()
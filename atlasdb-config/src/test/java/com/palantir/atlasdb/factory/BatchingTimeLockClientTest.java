@@ -0,0 +1,196 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.factory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.RemoteLockService;
+import com.palantir.lock.TimeLockBatchRequest;
+import com.palantir.lock.TimeLockBatchResponse;
+import com.palantir.lock.TimeLockBatchService;
+import com.palantir.timestamp.TimestampRange;
+
+public class BatchingTimeLockClientTest {
+    private static final String CLIENT_1 = "client-1";
+    private static final String CLIENT_2 = "client-2";
+
+    private static final LockRefreshToken TOKEN_1 = new LockRefreshToken(BigInteger.ONE, 1L);
+    private static final LockRefreshToken TOKEN_2 = new LockRefreshToken(BigInteger.valueOf(2), 1L);
+    private static final LockRefreshToken TOKEN_3 = new LockRefreshToken(BigInteger.valueOf(3), 1L);
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void servesSingleRequests() {
+        TimeLockBatchService delegate = mock(TimeLockBatchService.class);
+        when(delegate.run(any())).thenReturn(new TimeLockBatchResponse(
+                ImmutableMap.of(CLIENT_1, TimestampRange.createInclusiveRange(5, 5)),
+                ImmutableMap.of()));
+        BatchingTimeLockClient client = createClient(delegate);
+
+        assertThat(client.timestampService(CLIENT_1).getFreshTimestamp()).isEqualTo(5L);
+        verify(delegate).run(new TimeLockBatchRequest(ImmutableMap.of(CLIENT_1, 1), ImmutableMap.of()));
+    }
+
+    @Test
+    public void coalescesRequestsQueuedWhileABatchIsInFlight() throws Exception {
+        CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        List<TimeLockBatchRequest> batches = Lists.newCopyOnWriteArrayList();
+        FakeTimeLockBatchService delegate = new FakeTimeLockBatchService() {
+            @Override
+            public TimeLockBatchResponse run(TimeLockBatchRequest request) {
+                batches.add(request);
+                firstBatchStarted.countDown();
+                Uninterruptibles.awaitUninterruptibly(releaseFirstBatch);
+                return super.run(request);
+            }
+        };
+        BatchingTimeLockClient client = createClient(delegate);
+
+        ListenableFuture<TimestampRange> first = client.getFreshTimestampsAsync(CLIENT_1, 1);
+        assertThat(firstBatchStarted.await(10, TimeUnit.SECONDS)).isTrue();
+        ListenableFuture<TimestampRange> second = client.getFreshTimestampsAsync(CLIENT_1, 2);
+        ListenableFuture<TimestampRange> third = client.getFreshTimestampsAsync(CLIENT_1, 3);
+        ListenableFuture<TimestampRange> fourth = client.getFreshTimestampsAsync(CLIENT_2, 1);
+        ListenableFuture<Set<LockRefreshToken>> refresh = client.refreshLockRefreshTokensAsync(
+                CLIENT_2, ImmutableSet.of(TOKEN_1, TOKEN_2));
+        releaseFirstBatch.countDown();
+
+        assertRange(first.get(10, TimeUnit.SECONDS), 1, 1);
+        assertRange(second.get(10, TimeUnit.SECONDS), 2, 3);
+        assertRange(third.get(10, TimeUnit.SECONDS), 4, 6);
+        assertRange(fourth.get(10, TimeUnit.SECONDS), 7, 7);
+        assertThat(refresh.get(10, TimeUnit.SECONDS)).containsExactly(TOKEN_1);
+        assertThat(batches).hasSize(2);
+        assertThat(batches.get(1).getTimestampRequests()).isEqualTo(ImmutableMap.of(CLIENT_1, 5, CLIENT_2, 1));
+        assertThat(metricRegistry.histogram(
+                MetricRegistry.name(BatchingTimeLockClient.class, "clientsPerBatch")).getSnapshot().getMax())
+                .isEqualTo(2L);
+    }
+
+    @Test
+    public void requestsWithoutTimestampsAreCarriedOverWhenTheServerReturnsFewerThanRequested() throws Exception {
+        CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        FakeTimeLockBatchService delegate = new FakeTimeLockBatchService() {
+            @Override
+            public TimeLockBatchResponse run(TimeLockBatchRequest request) {
+                firstBatchStarted.countDown();
+                Uninterruptibles.awaitUninterruptibly(releaseFirstBatch);
+                return super.run(new TimeLockBatchRequest(
+                        ImmutableMap.of(CLIENT_1, 1),
+                        request.getLockRefreshRequests()));
+            }
+        };
+        BatchingTimeLockClient client = createClient(delegate);
+
+        ListenableFuture<TimestampRange> first = client.getFreshTimestampsAsync(CLIENT_1, 1);
+        assertThat(firstBatchStarted.await(10, TimeUnit.SECONDS)).isTrue();
+        ListenableFuture<TimestampRange> second = client.getFreshTimestampsAsync(CLIENT_1, 1);
+        ListenableFuture<TimestampRange> third = client.getFreshTimestampsAsync(CLIENT_1, 1);
+        releaseFirstBatch.countDown();
+
+        assertRange(first.get(10, TimeUnit.SECONDS), 1, 1);
+        assertRange(second.get(10, TimeUnit.SECONDS), 2, 2);
+        assertRange(third.get(10, TimeUnit.SECONDS), 3, 3);
+    }
+
+    @Test
+    public void lockServiceOnlyBatchesRefreshes() throws InterruptedException {
+        RemoteLockService lockService = mock(RemoteLockService.class);
+        BatchingTimeLockClient client = createClient(new FakeTimeLockBatchService());
+        RemoteLockService batchingLockService = client.lockService(CLIENT_1, lockService);
+
+        assertThat(batchingLockService.refreshLockRefreshTokens(ImmutableSet.of(TOKEN_1, TOKEN_3)))
+                .containsExactly(TOKEN_1);
+        batchingLockService.unlock(TOKEN_1);
+
+        verify(lockService).unlock(TOKEN_1);
+    }
+
+    @Test
+    public void propagatesFailuresToEveryRequestInTheBatch() {
+        TimeLockBatchService delegate = mock(TimeLockBatchService.class);
+        when(delegate.run(any())).thenThrow(new IllegalStateException("timelock is down"));
+        BatchingTimeLockClient client = createClient(delegate);
+
+        assertThatThrownBy(() -> client.timestampService(CLIENT_1).getFreshTimestamps(10))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("timelock is down");
+        assertThatThrownBy(() -> client.lockService(CLIENT_1, mock(RemoteLockService.class))
+                .refreshLockRefreshTokens(ImmutableSet.of(TOKEN_1)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private BatchingTimeLockClient createClient(TimeLockBatchService delegate) {
+        return new BatchingTimeLockClient(delegate, executor, metricRegistry);
+    }
+
+    private static void assertRange(TimestampRange range, long lower, long upper) {
+        assertThat(range.getLowerBound()).isEqualTo(lower);
+        assertThat(range.getUpperBound()).isEqualTo(upper);
+    }
+
+    /**
+     * Hands out consecutive timestamps across all clients, starting at 1, and treats only TOKEN_1 as valid.
+     */
+    private static class FakeTimeLockBatchService implements TimeLockBatchService {
+        private long nextTimestamp = 1;
+
+        @Override
+        public synchronized TimeLockBatchResponse run(TimeLockBatchRequest request) {
+            ImmutableMap.Builder<String, TimestampRange> timestamps = ImmutableMap.builder();
+            request.getTimestampRequests().forEach((client, number) -> {
+                timestamps.put(client, TimestampRange.createInclusiveRange(nextTimestamp, nextTimestamp + number - 1));
+                nextTimestamp += number;
+            });
+            ImmutableMap.Builder<String, Set<LockRefreshToken>> refreshed = ImmutableMap.builder();
+            request.getLockRefreshRequests().forEach((client, tokens) ->
+                    refreshed.put(client, tokens.contains(TOKEN_1) ? ImmutableSet.of(TOKEN_1) : ImmutableSet.of()));
+            return new TimeLockBatchResponse(timestamps.build(), refreshed.build());
+        }
+    }
+}
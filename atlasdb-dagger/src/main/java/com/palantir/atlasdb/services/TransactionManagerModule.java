@@ -29,6 +29,8 @@ import com.palantir.atlasdb.factory.TransactionManagers;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.transaction.api.AtlasDbConstraintCheckingMode;
 import com.palantir.atlasdb.transaction.impl.ConflictDetectionManager;
+import com.palantir.atlasdb.transaction.impl.ImmutableTransactionManagerOptions;
+import com.palantir.atlasdb.transaction.impl.RangeScanPrefetcher;
 import com.palantir.atlasdb.transaction.impl.SerializableTransactionManager;
 import com.palantir.atlasdb.transaction.impl.SweepStrategyManager;
 import com.palantir.atlasdb.transaction.service.TransactionService;
@@ -100,7 +102,15 @@ public class TransactionManagerModule {
                 conflictManager,
                 sweepStrategyManager,
                 cleaner,
-                config.allowAccessToHiddenTables());
+                config.allowAccessToHiddenTables(),
+                ImmutableTransactionManagerOptions.builder()
+                        .pipelineCommits(config.atlasDbConfig().enablePipelinedCommit())
+                        .writeOnceValueCacheSizeBytes(config.atlasDbConfig().getWriteOnceValueCacheSizeBytes())
+                        .recordReadDigests(config.atlasDbConfig().recordSerializableReadDigests())
+                        .rangeScanPrefetcher(RangeScanPrefetcher.create(
+                                config.atlasDbConfig().getRangeScanPagesToPrefetch(),
+                                config.atlasDbConfig().getRangeScanPrefetchMaxBufferedBytes()))
+                        .build());
     }
 
 }
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.dbkvs.impl;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.annotations.VisibleForTesting;
+import com.palantir.atlasdb.util.AtlasDbMetrics;
+
+/**
+ * Records the texts of the statements a query factory builds. A statement whose text has been built before can reuse
+ * the statement that the driver or the database prepared for that text, so the proportion of statements which reuse a
+ * text is an upper bound on the hit rate of those statement caches. The {@code reused} and {@code new} meters count
+ * the statements built with a text seen before and with a new text, and the count of the latter is the number of
+ * distinct statement shapes.
+ * <p>
+ * At most {@link #MAX_TRACKED_SHAPES} texts are remembered; once that many have been seen, any other text counts as
+ * new every time it is built.
+ */
+public final class StatementShapes {
+    @VisibleForTesting
+    static final int MAX_TRACKED_SHAPES = 10_000;
+
+    private final Set<String> shapes = ConcurrentHashMap.newKeySet();
+    private final Meter reusedShapes;
+    private final Meter newShapes;
+
+    public StatementShapes(MetricRegistry metricRegistry, Class<?> queryFactoryClass) {
+        this.reusedShapes = metricRegistry.meter(MetricRegistry.name(queryFactoryClass, "statementShapes", "reused"));
+        this.newShapes = metricRegistry.meter(MetricRegistry.name(queryFactoryClass, "statementShapes", "new"));
+    }
+
+    public static StatementShapes create(Class<?> queryFactoryClass) {
+        return new StatementShapes(AtlasDbMetrics.getMetricRegistry(), queryFactoryClass);
+    }
+
+    public FullQuery newQuery(String query) {
+        if (shapes.contains(query)) {
+            reusedShapes.mark();
+        } else {
+            newShapes.mark();
+            if (shapes.size() < MAX_TRACKED_SHAPES) {
+                shapes.add(query);
+            }
+        }
+        return new FullQuery(query);
+    }
+}
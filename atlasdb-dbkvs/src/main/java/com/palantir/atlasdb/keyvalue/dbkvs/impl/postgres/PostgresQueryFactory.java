@@ -19,9 +19,12 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map.Entry;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.palantir.atlasdb.encoding.PtBytes;
 import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.ColumnRangeSelection;
@@ -30,14 +33,25 @@ import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.dbkvs.PostgresDdlConfig;
 import com.palantir.atlasdb.keyvalue.dbkvs.impl.AbstractDbQueryFactory;
 import com.palantir.atlasdb.keyvalue.dbkvs.impl.FullQuery;
+import com.palantir.atlasdb.keyvalue.dbkvs.impl.StatementShapes;
 
 public class PostgresQueryFactory extends AbstractDbQueryFactory {
+    private static final int MAX_PADDED_ENTRIES = 4096;
+    private static final StatementShapes SHARED_STATEMENT_SHAPES = StatementShapes.create(PostgresQueryFactory.class);
+
     private final String tableName;
     private final PostgresDdlConfig config;
+    private final StatementShapes statementShapes;
 
     public PostgresQueryFactory(String tableName, PostgresDdlConfig config) {
+        this(tableName, config, SHARED_STATEMENT_SHAPES);
+    }
+
+    @VisibleForTesting
+    PostgresQueryFactory(String tableName, PostgresDdlConfig config, StatementShapes statementShapes) {
         this.tableName = tableName;
         this.config = config;
+        this.statementShapes = statementShapes;
     }
 
     @Override
@@ -51,11 +65,11 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
                 + "  WHERE m.row_name = ? "
                 + "    AND m.ts < ? "
                 + (columns.allColumnsSelected() ? "" :
-                    "    AND m.col_name IN " + numParams(Iterables.size(columns.getSelectedColumns())))
+                    "    AND m.col_name IN " + paddedNumParams(Iterables.size(columns.getSelectedColumns())))
                 + " GROUP BY m.row_name, m.col_name";
         query = wrapQueryWithIncludeValue("GET_LATEST_ROW", query, includeValue);
-        FullQuery fullQuery = new FullQuery(query).withArgs(row, ts);
-        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(columns.getSelectedColumns());
+        FullQuery fullQuery = statementShapes.newQuery(query).withArgs(row, ts);
+        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(padded(columns.getSelectedColumns()));
     }
 
     @Override
@@ -66,14 +80,14 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
         String query = " /* GET_LATEST_ROWS_INNER (" + tableName + ") */ "
                 + " SELECT m.row_name, m.col_name, max(m.ts) as ts "
                 + "   FROM " + prefixedTableName() + " m "
-                + "  WHERE m.row_name IN " + numParams(Iterables.size(rows))
+                + "  WHERE m.row_name IN " + paddedNumParams(Iterables.size(rows))
                 + "    AND m.ts < ? "
                 + (columns.allColumnsSelected() ? "" :
-                    "    AND m.col_name IN " + numParams(Iterables.size(columns.getSelectedColumns())))
+                    "    AND m.col_name IN " + paddedNumParams(Iterables.size(columns.getSelectedColumns())))
                 + " GROUP BY m.row_name, m.col_name ";
         query = wrapQueryWithIncludeValue("GET_LATEST_ROW", query, includeValue);
-        FullQuery fullQuery = new FullQuery(query).withArgs(rows).withArg(ts);
-        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(columns.getSelectedColumns());
+        FullQuery fullQuery = statementShapes.newQuery(query).withArgs(padded(rows)).withArg(ts);
+        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(padded(columns.getSelectedColumns()));
     }
 
     @Override
@@ -87,11 +101,11 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
                 + "  WHERE m.row_name = t.row_name "
                 + "    AND m.ts < t.ts "
                 + (columns.allColumnsSelected() ? "" :
-                    "    AND m.col_name IN " + numParams(Iterables.size(columns.getSelectedColumns())))
+                    "    AND m.col_name IN " + paddedNumParams(Iterables.size(columns.getSelectedColumns())))
                 + " GROUP BY m.row_name, m.col_name ";
         query = wrapQueryWithIncludeValue("GET_LATEST_ROW", query, includeValue);
-        FullQuery fullQuery = addRowTsArgs(new FullQuery(query), rows);
-        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(columns.getSelectedColumns());
+        FullQuery fullQuery = addRowTsArgs(statementShapes.newQuery(query), rows);
+        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(padded(columns.getSelectedColumns()));
     }
 
     @Override
@@ -105,9 +119,9 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
                 + "  WHERE m.row_name = ? "
                 + "    AND m.ts < ? "
                 + (columns.allColumnsSelected() ? "" :
-                    "    AND m.col_name IN " + numParams(Iterables.size(columns.getSelectedColumns())));
-        FullQuery fullQuery = new FullQuery(query).withArgs(row, ts);
-        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(columns.getSelectedColumns());
+                    "    AND m.col_name IN " + paddedNumParams(Iterables.size(columns.getSelectedColumns())));
+        FullQuery fullQuery = statementShapes.newQuery(query).withArgs(row, ts);
+        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(padded(columns.getSelectedColumns()));
     }
 
     @Override
@@ -118,12 +132,12 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
         String query = " /* GET_ALL_ROWS (" + tableName + ") */ "
                 + " SELECT m.row_name, m.col_name, m.ts" + (includeValue ? ", m.val " : " ")
                 + "   FROM " + prefixedTableName() + " m "
-                + "  WHERE m.row_name IN " + numParams(Iterables.size(rows))
+                + "  WHERE m.row_name IN " + paddedNumParams(Iterables.size(rows))
                 + "    AND m.ts < ? "
                 + (columns.allColumnsSelected() ? "" :
-                    "    AND m.col_name IN " + numParams(Iterables.size(columns.getSelectedColumns())));
-        FullQuery fullQuery = new FullQuery(query).withArgs(rows).withArg(ts);
-        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(columns.getSelectedColumns());
+                    "    AND m.col_name IN " + paddedNumParams(Iterables.size(columns.getSelectedColumns())));
+        FullQuery fullQuery = statementShapes.newQuery(query).withArgs(padded(rows)).withArg(ts);
+        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(padded(columns.getSelectedColumns()));
     }
 
     @Override
@@ -137,9 +151,9 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
                 + "  WHERE m.row_name = t.row_name "
                 + "    AND m.ts < t.ts "
                 + (columns.allColumnsSelected() ? "" :
-                    "    AND m.col_name IN " + numParams(Iterables.size(columns.getSelectedColumns())));
-        FullQuery fullQuery = addRowTsArgs(new FullQuery(query), rows);
-        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(columns.getSelectedColumns());
+                    "    AND m.col_name IN " + paddedNumParams(Iterables.size(columns.getSelectedColumns())));
+        FullQuery fullQuery = addRowTsArgs(statementShapes.newQuery(query), rows);
+        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(padded(columns.getSelectedColumns()));
     }
 
     @Override
@@ -153,7 +167,7 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
                 + " GROUP BY m.row_name, m.col_name "
                 + " LIMIT 1";
         query = wrapQueryWithIncludeValue("GET_LATEST_CELL", query, includeValue);
-        return new FullQuery(query).withArgs(cell.getRowName(), cell.getColumnName(), ts);
+        return statementShapes.newQuery(query).withArgs(cell.getRowName(), cell.getColumnName(), ts);
     }
 
     @Override
@@ -167,7 +181,7 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
                 + "    AND m.ts < ? "
                 + " GROUP BY m.row_name, m.col_name ";
         query = wrapQueryWithIncludeValue("GET_LATEST_CELLS", query, includeValue);
-        return addCellArgs(new FullQuery(query), cells).withArg(ts);
+        return addCellArgs(statementShapes.newQuery(query), cells).withArg(ts);
     }
 
     @Override
@@ -181,7 +195,7 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
                 + "    AND m.ts < t.ts "
                 + " GROUP BY m.row_name, m.col_name ";
         query = wrapQueryWithIncludeValue("GET_LATEST_CELLS", query, includeValue);
-        return addCellTsArgs(new FullQuery(query), cells);
+        return addCellTsArgs(statementShapes.newQuery(query), cells);
     }
 
     @Override
@@ -192,7 +206,7 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
                 + "  WHERE m.row_name = ? "
                 + "    AND m.col_name = ? "
                 + "    AND m.ts < ? ";
-        return new FullQuery(query).withArgs(cell.getRowName(), cell.getColumnName(), ts);
+        return statementShapes.newQuery(query).withArgs(cell.getRowName(), cell.getColumnName(), ts);
     }
 
     @Override
@@ -204,7 +218,7 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
                 + "  WHERE m.row_name = t.row_name "
                 + "    AND m.col_name = t.col_name "
                 + "    AND m.ts < ? ";
-        return addCellArgs(new FullQuery(query), cells).withArg(ts);
+        return addCellArgs(statementShapes.newQuery(query), cells).withArg(ts);
     }
 
     @Override
@@ -216,7 +230,7 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
                 + "  WHERE m.row_name = t.row_name "
                 + "    AND m.col_name = t.col_name "
                 + "    AND m.ts < t.ts ";
-        return addCellTsArgs(new FullQuery(query), cells);
+        return addCellTsArgs(statementShapes.newQuery(query), cells);
     }
 
     @Override
@@ -239,7 +253,7 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
                 + (bounds.isEmpty() ? "" : " WHERE  " + Joiner.on(" AND ").join(bounds))
                 + " ORDER BY m.row_name " + (range.isReverse() ? "DESC" : "ASC")
                 + " LIMIT " + maxRows;
-        return new FullQuery(query).withArgs(args);
+        return statementShapes.newQuery(query).withArgs(args);
     }
 
     @Override
@@ -247,15 +261,56 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
         return false;
     }
 
+    /**
+     * IN and VALUES lists are padded to a power of two entries, so that queries for batches of different sizes share
+     * a few statement texts, and the statements parsed and planned by the database can be reused across batches.
+     * Lists longer than {@link #MAX_PADDED_ENTRIES} are left as they are, to keep the number of parameters of
+     * a query below the limit of the database.
+     */
+    @VisibleForTesting
+    static int paddedSize(int numEntries) {
+        if (numEntries <= 1 || numEntries > MAX_PADDED_ENTRIES) {
+            return numEntries;
+        }
+        return Integer.highestOneBit(numEntries - 1) << 1;
+    }
+
     private String numParams(int numParams) {
         StringBuilder builder = new StringBuilder(2 * numParams + 1).append('(');
         Joiner.on(',').appendTo(builder, Iterables.limit(Iterables.cycle('?'), numParams));
         return builder.append(')').toString();
     }
 
+    private String paddedNumParams(int numEntries) {
+        return numParams(paddedSize(numEntries));
+    }
+
+    /**
+     * Pads the values of an IN list by repeating its last value, which leaves the result of the query unchanged.
+     */
+    private List<Object> padded(Iterable<?> values) {
+        List<Object> paddedValues = Lists.newArrayList(values);
+        int paddedSize = paddedSize(paddedValues.size());
+        while (paddedValues.size() < paddedSize) {
+            paddedValues.add(paddedValues.get(paddedValues.size() - 1));
+        }
+        return paddedValues;
+    }
+
     private String groupOfNumParams(int numParams, int numEntries) {
         String params = numParams(numParams);
-        return Joiner.on(',').join(Iterables.limit(Iterables.cycle(params), numEntries));
+        return Joiner.on(',').join(Iterables.limit(Iterables.cycle(params), paddedSize(numEntries)));
+    }
+
+    /**
+     * Pads the entries of a VALUES list with entries for the empty row name, which no row has, so that the padding
+     * matches nothing even in queries which do not group their results.
+     */
+    private FullQuery padEntries(FullQuery fullQuery, int numEntries, List<Object> paddingEntry) {
+        for (int i = numEntries; i < paddedSize(numEntries); i++) {
+            fullQuery.withArgs(paddingEntry);
+        }
+        return fullQuery;
     }
 
     private String wrapQueryWithIncludeValue(String wrappedName, String query, boolean includeValue) {
@@ -271,17 +326,21 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
     }
 
     private FullQuery addRowTsArgs(FullQuery fullQuery, Iterable<Entry<byte[], Long>> rows) {
+        int numEntries = 0;
         for (Entry<byte[], Long> entry : rows) {
             fullQuery.withArgs(entry.getKey(), entry.getValue());
+            numEntries++;
         }
-        return fullQuery;
+        return padEntries(fullQuery, numEntries, ImmutableList.of(PtBytes.EMPTY_BYTE_ARRAY, 0L));
     }
 
     private FullQuery addCellArgs(FullQuery fullQuery, Iterable<Cell> cells) {
+        int numEntries = 0;
         for (Cell cell : cells) {
             fullQuery.withArgs(cell.getRowName(), cell.getColumnName());
+            numEntries++;
         }
-        return fullQuery;
+        return padEntries(fullQuery, numEntries, ImmutableList.of(PtBytes.EMPTY_BYTE_ARRAY, PtBytes.EMPTY_BYTE_ARRAY));
     }
 
     private FullQuery addCellTsArgs(FullQuery fullQuery, Collection<Entry<Cell, Long>> cells) {
@@ -289,7 +348,8 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
             Cell cell = entry.getKey();
             fullQuery.withArgs(cell.getRowName(), cell.getColumnName(), entry.getValue());
         }
-        return fullQuery;
+        return padEntries(fullQuery, cells.size(),
+                ImmutableList.of(PtBytes.EMPTY_BYTE_ARRAY, PtBytes.EMPTY_BYTE_ARRAY, 0L));
     }
 
     private String prefixedTableName() {
@@ -304,12 +364,12 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
         String query = " /* GET_ROWS_COLUMN_RANGE_COUNT(" + tableName + ") */"
                 + " SELECT m.row_name, COUNT(m.col_name) AS column_count "
                 + "   FROM " + prefixedTableName() + " m "
-                + "  WHERE m.row_name IN " + numParams(Iterables.size(rows))
+                + "  WHERE m.row_name IN " + paddedNumParams(Iterables.size(rows))
                 + "    AND m.ts < ? "
                 + (columnRangeSelection.getStartCol().length > 0 ? " AND m.col_name >= ?" : "")
                 + (columnRangeSelection.getEndCol().length > 0 ? " AND m.col_name < ?" : "")
                 + " GROUP BY m.row_name";
-        FullQuery fullQuery = new FullQuery(query).withArgs(rows).withArg(ts);
+        FullQuery fullQuery = statementShapes.newQuery(query).withArgs(padded(rows)).withArg(ts);
         if (columnRangeSelection.getStartCol().length > 0) {
             fullQuery = fullQuery.withArg(columnRangeSelection.getStartCol());
         }
@@ -333,7 +393,7 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
                 + (columnRangeSelection.getEndCol().length > 0 ? " AND m.col_name < ?" : "")
                 + " GROUP BY m.row_name, m.col_name"
                 + " ORDER BY m.col_name ASC LIMIT " + columnRangeSelection.getBatchHint();
-        FullQuery fullQuery = new FullQuery(wrapQueryWithIncludeValue("GET_ROWS_COLUMN_RANGE", query, true))
+        FullQuery fullQuery = statementShapes.newQuery(wrapQueryWithIncludeValue("GET_ROWS_COLUMN_RANGE", query, true))
                 .withArg(row)
                 .withArg(ts);
         if (columnRangeSelection.getStartCol().length > 0) {
@@ -353,14 +413,14 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
         String query = " /* GET_ROWS_COLUMN_RANGE_FULLY_LOADED_ROW (" + tableName + ") */ "
                 + " SELECT m.row_name, m.col_name, max(m.ts) as ts"
                 + "   FROM " + prefixedTableName() + " m "
-                + "  WHERE m.row_name IN " + numParams(Iterables.size(rows))
+                + "  WHERE m.row_name IN " + paddedNumParams(Iterables.size(rows))
                 + "    AND m.ts < ? "
                 + (columnRangeSelection.getStartCol().length > 0 ? " AND m.col_name >= ?" : "")
                 + (columnRangeSelection.getEndCol().length > 0 ? " AND m.col_name < ?" : "")
                 + " GROUP BY m.row_name, m.col_name"
                 + " ORDER BY m.row_name ASC, m.col_name ASC";
         String wrappedQuery = wrapQueryWithIncludeValue("GET_ROWS_COLUMN_RANGE_FULLY_LOADED_ROW", query, true);
-        FullQuery fullQuery = new FullQuery(wrappedQuery).withArgs(rows).withArg(ts);
+        FullQuery fullQuery = statementShapes.newQuery(wrappedQuery).withArgs(padded(rows)).withArg(ts);
         if (columnRangeSelection.getStartCol().length > 0) {
             fullQuery = fullQuery.withArg(columnRangeSelection.getStartCol());
         }
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.dbkvs.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+public class StatementShapesTest {
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final StatementShapes statementShapes = new StatementShapes(metricRegistry, StatementShapesTest.class);
+
+    @Test
+    public void countsRepeatedTextsAsReused() {
+        statementShapes.newQuery("SELECT 1");
+        statementShapes.newQuery("SELECT 2");
+        statementShapes.newQuery("SELECT 1");
+
+        assertEquals(2, getMeterCount("new"));
+        assertEquals(1, getMeterCount("reused"));
+    }
+
+    @Test
+    public void stopsTrackingTextsOnceFull() {
+        for (int i = 0; i < StatementShapes.MAX_TRACKED_SHAPES; i++) {
+            statementShapes.newQuery("SELECT " + i);
+        }
+        statementShapes.newQuery("SELECT untracked");
+        statementShapes.newQuery("SELECT untracked");
+        statementShapes.newQuery("SELECT 0");
+
+        assertEquals(StatementShapes.MAX_TRACKED_SHAPES + 2, getMeterCount("new"));
+        assertEquals(1, getMeterCount("reused"));
+    }
+
+    @Test
+    public void buildsQueriesWithTheGivenText() {
+        assertEquals("SELECT 1", statementShapes.newQuery("SELECT 1").getQuery());
+    }
+
+    private long getMeterCount(String meterName) {
+        return metricRegistry.meter(MetricRegistry.name(StatementShapesTest.class, "statementShapes", meterName))
+                .getCount();
+    }
+}
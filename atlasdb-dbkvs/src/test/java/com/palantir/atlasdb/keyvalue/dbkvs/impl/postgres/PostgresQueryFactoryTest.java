@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.dbkvs.impl.postgres;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.dbkvs.ImmutablePostgresDdlConfig;
+import com.palantir.atlasdb.keyvalue.dbkvs.impl.FullQuery;
+import com.palantir.atlasdb.keyvalue.dbkvs.impl.StatementShapes;
+
+public class PostgresQueryFactoryTest {
+    private static final long TIMESTAMP = 10L;
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final PostgresQueryFactory queryFactory = new PostgresQueryFactory(
+            "table",
+            ImmutablePostgresDdlConfig.builder().build(),
+            new StatementShapes(metricRegistry, PostgresQueryFactory.class));
+
+    @Test
+    public void padsToPowersOfTwo() {
+        assertEquals(0, PostgresQueryFactory.paddedSize(0));
+        assertEquals(1, PostgresQueryFactory.paddedSize(1));
+        assertEquals(2, PostgresQueryFactory.paddedSize(2));
+        assertEquals(4, PostgresQueryFactory.paddedSize(3));
+        assertEquals(8, PostgresQueryFactory.paddedSize(5));
+        assertEquals(8, PostgresQueryFactory.paddedSize(8));
+        assertEquals(4096, PostgresQueryFactory.paddedSize(4096));
+    }
+
+    @Test
+    public void doesNotPadLongLists() {
+        assertEquals(4097, PostgresQueryFactory.paddedSize(4097));
+    }
+
+    @Test
+    public void rowQueriesForBatchesOfSimilarSizesShareTheirText() {
+        FullQuery fiveRows = queryFactory.getLatestRowsQuery(rows(5), TIMESTAMP, ColumnSelection.all(), true);
+        FullQuery eightRows = queryFactory.getLatestRowsQuery(rows(8), TIMESTAMP, ColumnSelection.all(), true);
+        FullQuery nineRows = queryFactory.getLatestRowsQuery(rows(9), TIMESTAMP, ColumnSelection.all(), true);
+
+        assertEquals(eightRows.getQuery(), fiveRows.getQuery());
+        assertNotEquals(eightRows.getQuery(), nineRows.getQuery());
+    }
+
+    @Test
+    public void paddedStatementShapesAreReused() {
+        for (int numRows = 1; numRows <= 16; numRows++) {
+            queryFactory.getLatestRowsQuery(rows(numRows), TIMESTAMP, ColumnSelection.all(), true);
+        }
+
+        // Batches of 1, 2, 3 to 4, 5 to 8 and 9 to 16 rows each share a statement text.
+        assertEquals(5, getShapeMeterCount("new"));
+        assertEquals(11, getShapeMeterCount("reused"));
+    }
+
+    @Test
+    public void unpaddedStatementShapesAreNotReused() {
+        queryFactory.getLatestRowsQuery(rows(4097), TIMESTAMP, ColumnSelection.all(), true);
+        queryFactory.getLatestRowsQuery(rows(4098), TIMESTAMP, ColumnSelection.all(), true);
+
+        assertEquals(2, getShapeMeterCount("new"));
+        assertEquals(0, getShapeMeterCount("reused"));
+    }
+
+    @Test
+    public void padsRowsWithTheLastRow() {
+        Object[] args = queryFactory.getLatestRowsQuery(rows(3), TIMESTAMP, ColumnSelection.all(), true).getArgs();
+
+        assertEquals(5, args.length);
+        assertArrayEquals(row(2), (byte[]) args[2]);
+        assertArrayEquals(row(2), (byte[]) args[3]);
+        assertEquals(TIMESTAMP, args[4]);
+    }
+
+    @Test
+    public void padsCellsWithCellsOfTheEmptyRow() {
+        List<Cell> cells = rows(3).stream()
+                .map(row -> Cell.create(row, PtBytes.toBytes("col")))
+                .collect(Collectors.toList());
+        FullQuery query = queryFactory.getLatestCellsQuery(cells, TIMESTAMP, true);
+        Object[] args = query.getArgs();
+
+        assertEquals(4, query.getQuery().split("\\(\\?,\\?\\)", -1).length - 1);
+        assertEquals(9, args.length);
+        assertArrayEquals(row(2), (byte[]) args[4]);
+        assertArrayEquals(PtBytes.EMPTY_BYTE_ARRAY, (byte[]) args[6]);
+        assertArrayEquals(PtBytes.EMPTY_BYTE_ARRAY, (byte[]) args[7]);
+        assertEquals(TIMESTAMP, args[8]);
+    }
+
+    private long getShapeMeterCount(String meterName) {
+        return metricRegistry.meter(MetricRegistry.name(PostgresQueryFactory.class, "statementShapes", meterName))
+                .getCount();
+    }
+
+    private static List<byte[]> rows(int numRows) {
+        return IntStream.range(0, numRows).mapToObj(PostgresQueryFactoryTest::row).collect(Collectors.toList());
+    }
+
+    private static byte[] row(int index) {
+        return PtBytes.toBytes("row" + index);
+    }
+}
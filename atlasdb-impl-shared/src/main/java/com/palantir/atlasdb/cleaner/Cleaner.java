@@ -16,6 +16,7 @@
 package com.palantir.atlasdb.cleaner;
 
 import java.io.Closeable;
+import java.util.Map;
 
 import com.google.common.collect.Multimap;
 import com.palantir.atlasdb.keyvalue.api.Cell;
@@ -40,6 +41,15 @@ public interface Cleaner extends Closeable {
     void queueCellsForScrubbing(Multimap<Cell, TableReference> cellToTableRefs,
                                 long scrubTimestamp);
 
+    /**
+     * @param writes Cells written by a transaction, by table
+     * @param startTimestamp The start timestamp of the transaction; at the time queueWritesForSweeping
+     *        is called, the transaction will be in the process of committing, but will not yet have
+     *        written any values
+     */
+    void queueWritesForSweeping(Map<TableReference, ? extends Map<Cell, byte[]>> writes,
+                                long startTimestamp);
+
     /**
      * @param tableRefToCell Cells to be scrubbed immediately
      * @param scrubTimestamp The start timestamp of the hard delete transaction whose
@@ -22,6 +22,7 @@ import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.sweep.queue.SweepQueueWriter;
 import com.palantir.atlasdb.transaction.service.TransactionService;
 import com.palantir.common.time.Clock;
 import com.palantir.lock.LockClient;
@@ -43,6 +44,7 @@ public class DefaultCleanerBuilder {
     private int backgroundScrubReadThreads = AtlasDbConstants.DEFAULT_BACKGROUND_SCRUB_READ_THREADS;
     private long backgroundScrubFrequencyMillis = AtlasDbConstants.DEFAULT_BACKGROUND_SCRUB_FREQUENCY_MILLIS;
     private int backgroundScrubBatchSize = AtlasDbConstants.DEFAULT_BACKGROUND_SCRUB_BATCH_SIZE;
+    private SweepQueueWriter sweepQueueWriter = SweepQueueWriter.NO_OP;
 
     public DefaultCleanerBuilder(KeyValueService keyValueService,
                                  RemoteLockService lockService,
@@ -93,6 +95,11 @@ public class DefaultCleanerBuilder {
         return this;
     }
 
+    public DefaultCleanerBuilder setSweepQueueWriter(SweepQueueWriter sweepQueueWriter) {
+        this.sweepQueueWriter = sweepQueueWriter;
+        return this;
+    }
+
     private Puncher buildPuncher() {
         KeyValueServicePuncherStore keyValuePuncherStore = KeyValueServicePuncherStore.create(keyValueService);
         PuncherStore cachingPuncherStore = CachingPuncherStore.create(
@@ -132,6 +139,7 @@ public class DefaultCleanerBuilder {
         return new SimpleCleaner(
                 scrubber,
                 puncher,
+                sweepQueueWriter,
                 Suppliers.ofInstance(transactionReadTimeout));
     }
 }
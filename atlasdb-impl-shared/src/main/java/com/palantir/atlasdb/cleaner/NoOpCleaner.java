@@ -15,6 +15,8 @@
  */
 package com.palantir.atlasdb.cleaner;
 
+import java.util.Map;
+
 import com.google.common.collect.Multimap;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
@@ -29,6 +31,12 @@ public final class NoOpCleaner implements Cleaner {
         throw new UnsupportedOperationException("This cleaner does not support scrubbing");
     }
 
+    @Override
+    public void queueWritesForSweeping(Map<TableReference, ? extends Map<Cell, byte[]>> writes,
+                                       long startTimestamp) {
+        // Do nothing
+    }
+
     @Override
     public void scrubImmediately(TransactionManager txManager,
                                  Multimap<TableReference, Cell> tableRefToCell,
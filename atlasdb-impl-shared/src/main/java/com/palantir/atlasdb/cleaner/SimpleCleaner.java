@@ -15,6 +15,8 @@
  */
 package com.palantir.atlasdb.cleaner;
 
+import java.util.Map;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -22,6 +24,7 @@ import com.google.common.base.Supplier;
 import com.google.common.collect.Multimap;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.sweep.queue.SweepQueueWriter;
 import com.palantir.atlasdb.transaction.api.TransactionManager;
 
 /**
@@ -34,13 +37,22 @@ public class SimpleCleaner implements Cleaner {
 
     private final Scrubber scrubber;
     private final Puncher puncher;
+    private final SweepQueueWriter sweepQueueWriter;
     private final Supplier<Long> transactionReadTimeoutMillisSupplier;
 
     public SimpleCleaner(Scrubber scrubber,
                          Puncher puncher,
                          Supplier<Long> transactionReadTimeoutMillisSupplier) {
+        this(scrubber, puncher, SweepQueueWriter.NO_OP, transactionReadTimeoutMillisSupplier);
+    }
+
+    public SimpleCleaner(Scrubber scrubber,
+                         Puncher puncher,
+                         SweepQueueWriter sweepQueueWriter,
+                         Supplier<Long> transactionReadTimeoutMillisSupplier) {
         this.scrubber = scrubber;
         this.puncher = puncher;
+        this.sweepQueueWriter = sweepQueueWriter;
         this.transactionReadTimeoutMillisSupplier = transactionReadTimeoutMillisSupplier;
     }
 
@@ -50,6 +62,12 @@ public class SimpleCleaner implements Cleaner {
         scrubber.queueCellsForScrubbing(cellToTableRefs, scrubTimestamp);
     }
 
+    @Override
+    public void queueWritesForSweeping(Map<TableReference, ? extends Map<Cell, byte[]>> writes,
+                                       long startTimestamp) {
+        sweepQueueWriter.enqueue(writes, startTimestamp);
+    }
+
     @Override
     public void scrubImmediately(TransactionManager txManager,
                                  Multimap<TableReference, Cell> tableRefToCell,
@@ -18,7 +18,10 @@ package com.palantir.atlasdb.sweep;
 import java.util.Optional;
 import java.util.OptionalLong;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import javax.annotation.Nullable;
 
@@ -29,6 +32,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Stopwatch;
 import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableSet;
 import com.palantir.atlasdb.encoding.PtBytes;
 import com.palantir.atlasdb.keyvalue.api.InsufficientConsistencyException;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
@@ -67,8 +71,13 @@ public final class BackgroundSweeperImpl implements BackgroundSweeper {
     private final SweepMetrics sweepMetrics;
     private final PersistentLockManager persistentLockManager;
     private final Clock wallClock;
+    private final int workerId;
+    private final int numWorkers;
+    private final ConcurrentMap<TableReference, Double> batchSizeMultipliers;
+    private final SweepThrottle sweepThrottle;
 
-    private volatile double batchSizeMultiplier = 1.0;
+    // Only accessed by the thread running this sweeper.
+    @Nullable private TableReference lastTableSwept;
 
     private Thread daemon;
 
@@ -88,6 +97,36 @@ public final class BackgroundSweeperImpl implements BackgroundSweeper {
             SweepMetrics sweepMetrics,
             PersistentLockManager persistentLockManager,
             Clock wallClock) {
+        this(txManager, lockService, kvs, sweepProgressStore, sweepPriorityStore, nextTableToSweepProvider,
+                sweepRunner, isSweepEnabled, sweepPauseMillis, sweepBatchConfig, sweepPerfLogger, sweepMetrics,
+                persistentLockManager, wallClock, 0, 1, new ConcurrentHashMap<>(),
+                SweepThrottle.unlimited(sweepMetrics));
+    }
+
+    /**
+     * Creates one of the workers of a {@link SweepScheduler}. Each worker takes its own sweep lock, and claims the
+     * table it sweeps in its own row of the sweep progress table, so that no two workers sweep the same table even
+     * if they run on different nodes. The workers of a node share the per-table batch sizes and the throttle.
+     */
+    BackgroundSweeperImpl(
+            TransactionManager txManager,
+            RemoteLockService lockService,
+            KeyValueService kvs,
+            SweepProgressStore sweepProgressStore,
+            SweepPriorityStore sweepPriorityStore,
+            NextTableToSweepProvider nextTableToSweepProvider,
+            SweepTaskRunner sweepRunner,
+            Supplier<Boolean> isSweepEnabled,
+            Supplier<Long> sweepPauseMillis,
+            Supplier<SweepBatchConfig> sweepBatchConfig,
+            BackgroundSweeperPerformanceLogger sweepPerfLogger,
+            SweepMetrics sweepMetrics,
+            PersistentLockManager persistentLockManager,
+            Clock wallClock,
+            int workerId,
+            int numWorkers,
+            ConcurrentMap<TableReference, Double> batchSizeMultipliers,
+            SweepThrottle sweepThrottle) {
         this.txManager = txManager;
         this.lockService = lockService;
         this.kvs = kvs;
@@ -102,6 +141,10 @@ public final class BackgroundSweeperImpl implements BackgroundSweeper {
         this.sweepMetrics = sweepMetrics;
         this.persistentLockManager = persistentLockManager;
         this.wallClock = wallClock;
+        this.workerId = workerId;
+        this.numWorkers = numWorkers;
+        this.batchSizeMultipliers = batchSizeMultipliers;
+        this.sweepThrottle = sweepThrottle;
     }
 
     public static BackgroundSweeperImpl create(
@@ -142,6 +185,10 @@ public final class BackgroundSweeperImpl implements BackgroundSweeper {
         daemon.setDaemon(true);
         daemon.setName("BackgroundSweeper");
         daemon.start();
+        addPersistentLockManagerShutdownHook(persistentLockManager);
+    }
+
+    static void addPersistentLockManagerShutdownHook(PersistentLockManager persistentLockManager) {
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             log.info("Shutting down persistent lock manager");
             try {
@@ -194,16 +241,21 @@ public final class BackgroundSweeperImpl implements BackgroundSweeper {
             sweepMetrics.sweepError();
             if (checkAndRepairTableDrop()) {
                 log.error("The table being swept by the background sweeper was dropped, moving on...");
-            } else {
-                SweepBatchConfig lastBatchConfig = getAdjustedBatchConfig();
-                log.error("The background sweep job failed unexpectedly with batch config {}"
-                        + ". Attempting to continue with a lower batch size...", lastBatchConfig, e);
+            } else if (lastTableSwept != null) {
+                SweepBatchConfig lastBatchConfig = getAdjustedBatchConfig(lastTableSwept);
+                log.error("The background sweep job failed unexpectedly on {} with batch config {}"
+                        + ". Attempting to continue with a lower batch size...", lastTableSwept, lastBatchConfig, e);
                 // Cut batch size in half, always sweep at least one row (we round down).
-                batchSizeMultiplier = Math.max(batchSizeMultiplier / 2, 1.5 / lastBatchConfig.candidateBatchSize());
+                batchSizeMultipliers.compute(lastTableSwept, (tableRef, multiplier) -> Math.max(
+                        (multiplier == null ? 1.0 : multiplier) / 2, 1.5 / lastBatchConfig.candidateBatchSize()));
+            } else {
+                log.error("The background sweep job failed unexpectedly before choosing a table to sweep.", e);
             }
         }
         if (sweptSuccessfully) {
-            batchSizeMultiplier = Math.min(1.0, batchSizeMultiplier * 1.01);
+            // Each table recovers its own batch size, so a table that needs small batches does not slow down others.
+            batchSizeMultipliers.computeIfPresent(lastTableSwept,
+                    (tableRef, multiplier) -> Math.min(1.0, multiplier * 1.01));
             return sweepPauseMillis.get();
         } else {
             return 20 * (1000 + sweepPauseMillis.get());
@@ -212,6 +264,7 @@ public final class BackgroundSweeperImpl implements BackgroundSweeper {
 
     @VisibleForTesting
     boolean runOnce() {
+        lastTableSwept = null;
         Optional<TableToSweep> tableToSweep = getTableToSweep();
         if (!tableToSweep.isPresent()) {
             // Don't change this log statement. It's parsed by test automation code.
@@ -227,7 +280,8 @@ public final class BackgroundSweeperImpl implements BackgroundSweeper {
         Stopwatch watch = Stopwatch.createStarted();
         TableReference tableRef = tableToSweep.getTableRef();
         byte[] startRow = tableToSweep.getStartRow();
-        SweepBatchConfig batchConfig = getAdjustedBatchConfig();
+        lastTableSwept = tableRef;
+        SweepBatchConfig batchConfig = getAdjustedBatchConfig(tableRef);
         try {
             SweepResults results = sweepRunner.run(
                     tableRef,
@@ -246,6 +300,7 @@ public final class BackgroundSweeperImpl implements BackgroundSweeper {
                             .elapsedMillis(elapsedMillis)
                             .build());
             saveSweepResults(tableToSweep, results);
+            sweepThrottle.acquire(results);
         } catch (RuntimeException e) {
             // Error logged at a higher log level above.
             log.debug("Failed to sweep {} with batch config {} starting from row {}",
@@ -256,17 +311,18 @@ public final class BackgroundSweeperImpl implements BackgroundSweeper {
         }
     }
 
-    private SweepBatchConfig getAdjustedBatchConfig() {
+    private SweepBatchConfig getAdjustedBatchConfig(TableReference tableRef) {
         SweepBatchConfig baseConfig = sweepBatchConfig.get();
+        double multiplier = batchSizeMultipliers.getOrDefault(tableRef, 1.0);
         return ImmutableSweepBatchConfig.builder()
-                .maxCellTsPairsToExamine(adjustBatchParameter(baseConfig.maxCellTsPairsToExamine()))
-                .candidateBatchSize(adjustBatchParameter(baseConfig.candidateBatchSize()))
-                .deleteBatchSize(adjustBatchParameter(baseConfig.deleteBatchSize()))
+                .maxCellTsPairsToExamine(adjustBatchParameter(multiplier, baseConfig.maxCellTsPairsToExamine()))
+                .candidateBatchSize(adjustBatchParameter(multiplier, baseConfig.candidateBatchSize()))
+                .deleteBatchSize(adjustBatchParameter(multiplier, baseConfig.deleteBatchSize()))
                 .build();
     }
 
-    private int adjustBatchParameter(int parameterValue) {
-        return Math.max(1, (int) (batchSizeMultiplier * parameterValue));
+    private static int adjustBatchParameter(double multiplier, int parameterValue) {
+        return Math.max(1, (int) (multiplier * parameterValue));
     }
 
     private static String startRowToHex(@Nullable byte[] row) {
@@ -315,23 +371,58 @@ public final class BackgroundSweeperImpl implements BackgroundSweeper {
         return txManager.runTaskWithRetry(new TransactionTask<Optional<TableToSweep>, RuntimeException>() {
             @Override
             public Optional<TableToSweep> execute(Transaction tx) {
-                Optional<SweepProgress> progress = sweepProgressStore.loadProgress(tx);
+                Optional<SweepProgress> progress = sweepProgressStore.loadProgress(tx, workerId);
                 if (progress.isPresent()) {
-                    return Optional.of(new TableToSweep(progress.get().tableRef(), progress.get()));
+                    return Optional.of(new TableToSweep(
+                            progress.get().tableRef(),
+                            isClaimWithoutProgress(progress.get()) ? null : progress.get()));
+                } else if (numWorkers == 1) {
+                    return chooseTableToSweep(tx, ImmutableSet.of());
                 } else {
-                    Optional<TableReference> nextTable = nextTableToSweepProvider.chooseNextTableToSweep(
-                            tx, sweepRunner.getConservativeSweepTimestamp());
-                    if (nextTable.isPresent()) {
-                        log.debug("Now starting to sweep {}.", nextTable);
-                        return Optional.of(new TableToSweep(nextTable.get(), null));
-                    } else {
-                        return Optional.empty();
-                    }
+                    // The progress rows of the other workers are their claims. Reading them all and writing our own
+                    // claim in one transaction, on a table with serializable conflict handling, means that of two
+                    // workers choosing at once, one retries and sees the other's claim. Claims left by workers that
+                    // no longer exist, because the number of workers was reduced, are ignored.
+                    Set<TableReference> claimedTables = sweepProgressStore.loadAllProgress(tx).entrySet().stream()
+                            .filter(entry -> entry.getKey() < numWorkers && entry.getKey() != workerId)
+                            .map(entry -> entry.getValue().tableRef())
+                            .collect(Collectors.toSet());
+                    Optional<TableToSweep> tableToSweep = chooseTableToSweep(tx, claimedTables);
+                    tableToSweep.ifPresent(table -> sweepProgressStore.saveProgress(
+                            tx, workerId, claimWithoutProgress(table.getTableRef())));
+                    return tableToSweep;
                 }
             }
         });
     }
 
+    private Optional<TableToSweep> chooseTableToSweep(Transaction tx, Set<TableReference> tablesToExclude) {
+        Optional<TableReference> nextTable = nextTableToSweepProvider.chooseNextTableToSweep(
+                tx, sweepRunner.getConservativeSweepTimestamp(), tablesToExclude);
+        if (nextTable.isPresent()) {
+            log.debug("Now starting to sweep {}.", nextTable);
+            return Optional.of(new TableToSweep(nextTable.get(), null));
+        } else {
+            return Optional.empty();
+        }
+    }
+
+    // A worker claims a table before its first batch by saving progress that starts from the beginning of the table;
+    // the progress saved after a batch always has a start row.
+    private static SweepProgress claimWithoutProgress(TableReference tableRef) {
+        return ImmutableSweepProgress.builder()
+                .tableRef(tableRef)
+                .staleValuesDeleted(0L)
+                .cellTsPairsExamined(0L)
+                .minimumSweptTimestamp(Long.MAX_VALUE)
+                .startRow(PtBytes.EMPTY_BYTE_ARRAY)
+                .build();
+    }
+
+    private static boolean isClaimWithoutProgress(SweepProgress progress) {
+        return progress.startRow().length == 0;
+    }
+
     private void saveSweepResults(TableToSweep tableToSweep, SweepResults currentIteration) {
         long staleValuesDeleted = tableToSweep.getStaleValuesDeletedPreviously()
                 + currentIteration.getStaleValuesDeleted();
@@ -352,7 +443,7 @@ public final class BackgroundSweeperImpl implements BackgroundSweeper {
             performInternalCompactionIfNecessary(tableToSweep.getTableRef(), cumulativeResults);
             log.debug("Finished sweeping {}, examined {} unique cells, deleted {} stale values.",
                     tableToSweep.getTableRef(), cellsExamined, staleValuesDeleted);
-            sweepProgressStore.clearProgress();
+            sweepProgressStore.clearProgress(workerId);
         }
     }
 
@@ -391,7 +482,7 @@ public final class BackgroundSweeperImpl implements BackgroundSweeper {
                     .startRow(results.getNextStartRow().get())
                     .minimumSweptTimestamp(results.getSweptTimestamp())
                     .build();
-            sweepProgressStore.saveProgress(tx, newProgress);
+            sweepProgressStore.saveProgress(tx, workerId, newProgress);
             return null;
         });
     }
@@ -422,11 +513,12 @@ public final class BackgroundSweeperImpl implements BackgroundSweeper {
     private boolean checkAndRepairTableDrop() {
         try {
             Set<TableReference> tables = kvs.getAllTableNames();
-            Optional<SweepProgress> progress = txManager.runTaskReadOnly(sweepProgressStore::loadProgress);
+            Optional<SweepProgress> progress = txManager.runTaskReadOnly(
+                    tx -> sweepProgressStore.loadProgress(tx, workerId));
             if (!progress.isPresent() || tables.contains(progress.get().tableRef())) {
                 return false;
             } else {
-                sweepProgressStore.clearProgress();
+                sweepProgressStore.clearProgress(workerId);
                 return true;
             }
         } catch (RuntimeException e) {
@@ -438,7 +530,8 @@ public final class BackgroundSweeperImpl implements BackgroundSweeper {
 
     @VisibleForTesting
     SweepLocks createSweepLocks() {
-        return new SweepLocks(lockService);
+        // The first worker takes the lock a lone background sweeper takes, so that it never runs alongside one.
+        return workerId == 0 ? new SweepLocks(lockService) : new SweepLocks(lockService, "atlas sweep " + workerId);
     }
 
     @Override
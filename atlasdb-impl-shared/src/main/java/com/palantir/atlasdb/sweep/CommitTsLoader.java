@@ -23,7 +23,6 @@ import com.palantir.atlasdb.transaction.api.TransactionFailedRetriableException;
 import com.palantir.atlasdb.transaction.impl.TransactionConstants;
 import com.palantir.atlasdb.transaction.service.TransactionService;
 
-import gnu.trove.TDecorators;
 import gnu.trove.map.TLongLongMap;
 import gnu.trove.map.hash.TLongLongHashMap;
 import gnu.trove.set.TLongSet;
@@ -40,11 +39,9 @@ public final class CommitTsLoader {
     }
 
     public static CommitTsLoader create(TransactionService transactionService, TLongSet startTssToWarmingCache) {
-        TLongLongMap cache = new TLongLongHashMap();
-        if (!startTssToWarmingCache.isEmpty()) {
-            // Ideally TransactionService should work with primitive collections to avoid GC overhead..
-            cache.putAll(transactionService.get(TDecorators.wrap(startTssToWarmingCache)));
-        }
+        TLongLongMap cache = startTssToWarmingCache.isEmpty()
+                ? new TLongLongHashMap()
+                : transactionService.get(startTssToWarmingCache);
         return new CommitTsLoader(cache, transactionService);
     }
 
@@ -42,6 +42,9 @@ public class PersistentLockManager {
     @VisibleForTesting
     PersistentLockId lockId;
 
+    // The threads of a parallel background sweep share one lock, which is released when the last of them is done.
+    private int holders = 0;
+
     private boolean isShutDown = false;
 
     public PersistentLockManager(PersistentLockService persistentLockService, long persistentLockRetryWaitMillis) {
@@ -56,7 +59,7 @@ public class PersistentLockManager {
         log.info("Shutting down...");
         isShutDown = true;
         if (lockId != null) {
-            releasePersistentLock();
+            releaseBackupLock();
         }
         log.info("Shutdown completed!");
     }
@@ -68,11 +71,17 @@ public class PersistentLockManager {
             return;
         }
 
+        if (holders > 0) {
+            holders++;
+            return;
+        }
+
         Preconditions.checkState(lockId == null, "Acquiring a lock is unsupported when we've already acquired a lock");
 
         while (true) {
             try {
                 lockId = persistentLockService.acquireBackupLock("Sweep");
+                holders = 1;
                 log.info("Successfully acquired persistent lock for sweep: {}", lockId);
                 return;
             } catch (CheckAndSetException e) {
@@ -88,11 +97,19 @@ public class PersistentLockManager {
             log.info("Called releasePersistentLock, but no lock has been taken! Returning.");
             return;
         }
+        if (holders > 1) {
+            holders--;
+            return;
+        }
+        releaseBackupLock();
+    }
 
+    private void releaseBackupLock() {
         log.info("Releasing persistent lock {}", lockId);
         try {
             persistentLockService.releaseBackupLock(lockId);
             lockId = null;
+            holders = 0;
         } catch (CheckAndSetException e) {
             log.error("Failed to release persistent lock {}. "
                     + "Either the lock was already released, or communications with the database failed.", lockId, e);
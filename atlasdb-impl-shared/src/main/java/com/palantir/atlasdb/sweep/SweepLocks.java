@@ -29,11 +29,17 @@ import com.palantir.lock.StringLockDescriptor;
 
 class SweepLocks implements AutoCloseable {
     private final RemoteLockService lockService;
+    private final String lockName;
 
     private LockRefreshToken token = null;
 
     SweepLocks(RemoteLockService lockService) {
+        this(lockService, "atlas sweep");
+    }
+
+    SweepLocks(RemoteLockService lockService, String lockName) {
         this.lockService = lockService;
+        this.lockName = lockName;
     }
 
     void lockOrRefresh() throws InterruptedException {
@@ -43,7 +49,7 @@ class SweepLocks implements AutoCloseable {
                 token = null;
             }
         } else {
-            LockDescriptor lock = StringLockDescriptor.of("atlas sweep");
+            LockDescriptor lock = StringLockDescriptor.of(lockName);
             LockRequest request = LockRequest.builder(
                     ImmutableSortedMap.of(lock, LockMode.WRITE)).doNotBlock().build();
             token = lockService.lock(LockClient.ANONYMOUS.getClientId(), request);
@@ -32,6 +32,7 @@ class SweepMetrics {
     private final MeterMetric cellsSweptMeter = new MeterMetric("cellsSwept");
     private final MeterMetric cellsDeletedMeter = new MeterMetric("cellsDeleted");
     private final MeterMetric sweepErrorMeter = new MeterMetric("sweepError");
+    private final MeterMetric throttledMillisMeter = new MeterMetric("throttledMillis");
 
     private class TableSpecificHistogramMetric {
         private final String name;
@@ -80,4 +81,8 @@ class SweepMetrics {
     void sweepError() {
         sweepErrorMeter.update(1);
     }
+
+    void throttled(long millis) {
+        throttledMillisMeter.update(millis);
+    }
 }
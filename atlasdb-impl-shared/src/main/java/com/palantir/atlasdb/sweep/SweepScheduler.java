@@ -0,0 +1,158 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.schema.generated.SweepTableFactory;
+import com.palantir.atlasdb.sweep.priority.NextTableToSweepProvider;
+import com.palantir.atlasdb.sweep.priority.NextTableToSweepProviderImpl;
+import com.palantir.atlasdb.sweep.priority.SweepPriorityStore;
+import com.palantir.atlasdb.sweep.progress.SweepProgressStore;
+import com.palantir.atlasdb.transaction.api.LockAwareTransactionManager;
+import com.palantir.common.base.Throwables;
+
+/**
+ * A background sweeper that runs several {@link BackgroundSweeperImpl} workers at once, each on a different table.
+ * <p>
+ * Each worker takes a sweep lock of its own, so the workers may run on different nodes, and claims the table it sweeps
+ * in its own row of the sweep progress table, so that no two of them sweep the same table. On restart a worker resumes
+ * the table it claimed. Batch sizes are adapted separately for each table, and the rate at which the workers of a node
+ * examine cells and delete cell names may be limited.
+ */
+public final class SweepScheduler implements BackgroundSweeper {
+    private static final Logger log = LoggerFactory.getLogger(SweepScheduler.class);
+
+    private final List<BackgroundSweeperImpl> workers;
+    private final PersistentLockManager persistentLockManager;
+
+    private Thread daemon;
+
+    private SweepScheduler(List<BackgroundSweeperImpl> workers, PersistentLockManager persistentLockManager) {
+        this.workers = workers;
+        this.persistentLockManager = persistentLockManager;
+    }
+
+    public static SweepScheduler create(
+            LockAwareTransactionManager txManager,
+            KeyValueService kvs,
+            SweepTaskRunner sweepRunner,
+            Supplier<Boolean> isSweepEnabled,
+            Supplier<Long> sweepPauseMillis,
+            Supplier<SweepBatchConfig> sweepBatchConfig,
+            SweepTableFactory tableFactory,
+            BackgroundSweeperPerformanceLogger sweepPerfLogger,
+            PersistentLockManager persistentLockManager,
+            int numWorkers,
+            @Nullable Double maxCellTsPairsPerSecond,
+            @Nullable Double maxCellNameBytesDeletedPerSecond) {
+        Preconditions.checkArgument(numWorkers > 0, "The number of sweep workers must be positive");
+        SweepMetrics sweepMetrics = new SweepMetrics();
+        SweepProgressStore sweepProgressStore = new SweepProgressStore(kvs, tableFactory);
+        SweepPriorityStore sweepPriorityStore = new SweepPriorityStore(tableFactory);
+        NextTableToSweepProvider nextTableToSweepProvider = new NextTableToSweepProviderImpl(kvs, sweepPriorityStore);
+        ConcurrentMap<TableReference, Double> batchSizeMultipliers = new ConcurrentHashMap<>();
+        SweepThrottle sweepThrottle = SweepThrottle.create(
+                Optional.ofNullable(maxCellTsPairsPerSecond),
+                Optional.ofNullable(maxCellNameBytesDeletedPerSecond),
+                sweepMetrics);
+        List<BackgroundSweeperImpl> workers = Lists.newArrayListWithCapacity(numWorkers);
+        for (int workerId = 0; workerId < numWorkers; workerId++) {
+            workers.add(new BackgroundSweeperImpl(
+                    txManager,
+                    txManager.getLockService(),
+                    kvs,
+                    sweepProgressStore,
+                    sweepPriorityStore,
+                    nextTableToSweepProvider,
+                    sweepRunner,
+                    isSweepEnabled,
+                    sweepPauseMillis,
+                    sweepBatchConfig,
+                    sweepPerfLogger,
+                    sweepMetrics,
+                    persistentLockManager,
+                    System::currentTimeMillis,
+                    workerId,
+                    numWorkers,
+                    batchSizeMultipliers,
+                    sweepThrottle));
+        }
+        return new SweepScheduler(ImmutableList.copyOf(workers), persistentLockManager);
+    }
+
+    @Override
+    public synchronized void runInBackground() {
+        Preconditions.checkState(daemon == null);
+        daemon = new Thread(this);
+        daemon.setDaemon(true);
+        daemon.setName("BackgroundSweeper-0");
+        daemon.start();
+        BackgroundSweeperImpl.addPersistentLockManagerShutdownHook(persistentLockManager);
+    }
+
+    /**
+     * Runs the first worker on the calling thread and the others on threads of their own, until interrupted.
+     */
+    @Override
+    public void run() {
+        List<Thread> otherWorkers = Lists.newArrayListWithCapacity(workers.size() - 1);
+        for (int workerId = 1; workerId < workers.size(); workerId++) {
+            BackgroundSweeperImpl worker = workers.get(workerId);
+            Thread thread = new Thread(worker);
+            thread.setDaemon(true);
+            thread.setName("BackgroundSweeper-" + workerId);
+            thread.start();
+            otherWorkers.add(thread);
+        }
+        try {
+            workers.get(0).run();
+        } finally {
+            otherWorkers.forEach(Thread::interrupt);
+            otherWorkers.forEach(Uninterruptibles::joinUninterruptibly);
+        }
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        if (daemon == null) {
+            return;
+        }
+        log.debug("Signalling background sweep workers to shut down.");
+        daemon.interrupt();
+        try {
+            daemon.join();
+            daemon = null;
+        } catch (InterruptedException e) {
+            throw Throwables.rewrapAndThrowUncheckedException(e);
+        }
+    }
+}
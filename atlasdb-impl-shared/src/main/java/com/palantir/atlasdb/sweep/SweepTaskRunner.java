@@ -169,10 +169,12 @@ public class SweepTaskRunner {
                         candidates, batchConfig, sweepableCellFilter, limit);
             long totalCellTsPairsExamined = 0;
             long totalCellTsPairsDeleted = 0;
+            long totalCellNameBytesDeleted = 0;
             byte[] lastRow = startRow;
             while (batchesToSweep.hasNext()) {
                 BatchOfCellsToSweep batch = batchesToSweep.next();
                 totalCellTsPairsDeleted += sweepBatch(tableRef, batch.cells(), runType);
+                totalCellNameBytesDeleted += getCellNameBytes(batch.cells());
                 totalCellTsPairsExamined = batch.numCellTsPairsExaminedSoFar();
                 lastRow = batch.lastCellExamined().getRowName();
             }
@@ -181,6 +183,7 @@ public class SweepTaskRunner {
                     .nextStartRow(Arrays.equals(startRow, lastRow) ? Optional.absent() : Optional.of(lastRow))
                     .cellTsPairsExamined(totalCellTsPairsExamined)
                     .staleValuesDeleted(totalCellTsPairsDeleted)
+                    .cellNameBytesDeleted(totalCellNameBytesDeleted)
                     .sweptTimestamp(sweepTs)
                     .build();
         }
@@ -214,4 +217,13 @@ public class SweepTaskRunner {
         return startTimestampsToSweepPerCell.size();
     }
 
+    private static long getCellNameBytes(List<CellToSweep> batch) {
+        long bytes = 0;
+        for (CellToSweep cell : batch) {
+            long cellNameBytes = cell.cell().getRowName().length + cell.cell().getColumnName().length;
+            bytes += cellNameBytes * cell.sortedTimestamps().size();
+        }
+        return bytes;
+    }
+
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.palantir.atlasdb.keyvalue.api.SweepResults;
+
+/**
+ * Limits the aggregate rate at which the workers of a background sweep on one node examine (cell, timestamp) pairs
+ * and delete cell names, measured in bytes of row and column name; sweep never reads values, so their size is not
+ * counted. The work of each batch is paid for after the batch has run, so a worker that exceeds the rate
+ * waits before starting its next batch.
+ */
+final class SweepThrottle {
+    private final Optional<RateLimiter> cellTsPairsLimiter;
+    private final Optional<RateLimiter> cellNameBytesLimiter;
+    private final SweepMetrics sweepMetrics;
+
+    private SweepThrottle(
+            Optional<RateLimiter> cellTsPairsLimiter,
+            Optional<RateLimiter> cellNameBytesLimiter,
+            SweepMetrics sweepMetrics) {
+        this.cellTsPairsLimiter = cellTsPairsLimiter;
+        this.cellNameBytesLimiter = cellNameBytesLimiter;
+        this.sweepMetrics = sweepMetrics;
+    }
+
+    static SweepThrottle create(
+            Optional<Double> maxCellTsPairsPerSecond,
+            Optional<Double> maxCellNameBytesDeletedPerSecond,
+            SweepMetrics sweepMetrics) {
+        return new SweepThrottle(
+                maxCellTsPairsPerSecond.map(RateLimiter::create),
+                maxCellNameBytesDeletedPerSecond.map(RateLimiter::create),
+                sweepMetrics);
+    }
+
+    static SweepThrottle unlimited(SweepMetrics sweepMetrics) {
+        return new SweepThrottle(Optional.empty(), Optional.empty(), sweepMetrics);
+    }
+
+    void acquire(SweepResults batchResults) {
+        if (!cellTsPairsLimiter.isPresent() && !cellNameBytesLimiter.isPresent()) {
+            return;
+        }
+        long startNanos = System.nanoTime();
+        cellTsPairsLimiter.ifPresent(limiter -> acquire(limiter, batchResults.getCellTsPairsExamined()));
+        cellNameBytesLimiter.ifPresent(limiter -> acquire(limiter, batchResults.getCellNameBytesDeleted()));
+        long throttledMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        if (throttledMillis > 0) {
+            sweepMetrics.throttled(throttledMillis);
+        }
+    }
+
+    private static void acquire(RateLimiter limiter, long permits) {
+        if (permits > 0) {
+            limiter.acquire((int) Math.min(permits, Integer.MAX_VALUE));
+        }
+    }
+}
@@ -0,0 +1,345 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Longs;
+import com.palantir.atlasdb.keyvalue.api.CandidateCellForSweeping;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ImmutableCandidateCellForSweeping;
+import com.palantir.atlasdb.keyvalue.api.InsufficientConsistencyException;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.SweepStrategy;
+import com.palantir.atlasdb.sweep.queue.KvsSweepQueue;
+import com.palantir.atlasdb.sweep.queue.SweepQueueEntry;
+import com.palantir.atlasdb.sweep.queue.SweepQueueProgressStore;
+import com.palantir.atlasdb.transaction.impl.SweepStrategyManager;
+import com.palantir.atlasdb.transaction.service.TransactionService;
+import com.palantir.atlasdb.util.MetricsManager;
+import com.palantir.common.base.Throwables;
+import com.palantir.lock.RemoteLockService;
+
+import gnu.trove.TDecorators;
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
+
+/**
+ * Sweeps the cells recorded in the sweep queue by {@link KvsSweepQueue}, instead of scanning whole tables for
+ * candidates as {@link BackgroundSweeperImpl} does.
+ * <p>
+ * Each shard of the queue is consumed in start timestamp order. An entry is swept once the transaction that wrote it
+ * has committed (or been rolled back) before the conservative sweep timestamp: every older version of its cell is then
+ * stale, so we load the cell's timestamps below the sweep timestamp and delete them using the same rules as
+ * {@link SweepTaskRunner}. Swept entries are deleted from the queue, and the last swept start timestamp of each shard
+ * is saved so that later reads do not have to skip over their tombstones.
+ * <p>
+ * A transaction whose locks time out may still be queueing its writes after we have moved past its start timestamp.
+ * Those entries are never read, and the values they describe are left for the background sweeper.
+ */
+public final class TargetedSweeper implements BackgroundSweeper {
+    private static final Logger log = LoggerFactory.getLogger(TargetedSweeper.class);
+
+    private final RemoteLockService lockService;
+    private final KeyValueService kvs;
+    private final KvsSweepQueue sweepQueue;
+    private final SweepQueueProgressStore progressStore;
+    private final TransactionService transactionService;
+    private final SweepStrategyManager sweepStrategyManager;
+    private final CellsSweeper cellsSweeper;
+    private final LongSupplier unreadableTimestampSupplier;
+    private final LongSupplier immutableTimestampSupplier;
+    private final Supplier<Long> sweepPauseMillis;
+    private final Supplier<SweepBatchConfig> sweepBatchConfig;
+
+    private final MetricsManager metricsManager = new MetricsManager();
+    private final Meter entriesSwept;
+    private final Meter staleValuesDeleted;
+    private final Meter sweepErrors;
+    private final AtomicLongArray shardProgress = new AtomicLongArray(KvsSweepQueue.NUM_SHARDS);
+
+    private Thread daemon;
+
+    @VisibleForTesting
+    TargetedSweeper(
+            RemoteLockService lockService,
+            KeyValueService kvs,
+            KvsSweepQueue sweepQueue,
+            SweepQueueProgressStore progressStore,
+            TransactionService transactionService,
+            SweepStrategyManager sweepStrategyManager,
+            CellsSweeper cellsSweeper,
+            LongSupplier unreadableTimestampSupplier,
+            LongSupplier immutableTimestampSupplier,
+            Supplier<Long> sweepPauseMillis,
+            Supplier<SweepBatchConfig> sweepBatchConfig) {
+        this.lockService = lockService;
+        this.kvs = kvs;
+        this.sweepQueue = sweepQueue;
+        this.progressStore = progressStore;
+        this.transactionService = transactionService;
+        this.sweepStrategyManager = sweepStrategyManager;
+        this.cellsSweeper = cellsSweeper;
+        this.unreadableTimestampSupplier = unreadableTimestampSupplier;
+        this.immutableTimestampSupplier = immutableTimestampSupplier;
+        this.sweepPauseMillis = sweepPauseMillis;
+        this.sweepBatchConfig = sweepBatchConfig;
+        this.entriesSwept = metricsManager.registerMeter(TargetedSweeper.class, null, "entriesSwept");
+        this.staleValuesDeleted = metricsManager.registerMeter(TargetedSweeper.class, null, "staleValuesDeleted");
+        this.sweepErrors = metricsManager.registerMeter(TargetedSweeper.class, null, "sweepError");
+        for (int shard = 0; shard < KvsSweepQueue.NUM_SHARDS; shard++) {
+            int shardToReport = shard;
+            shardProgress.set(shard, SweepQueueProgressStore.INITIAL_PROGRESS);
+            metricsManager.registerMetric(TargetedSweeper.class, "shard" + shard, "lastSweptTimestamp",
+                    (Gauge<Long>) () -> shardProgress.get(shardToReport));
+        }
+    }
+
+    public static TargetedSweeper create(
+            RemoteLockService lockService,
+            KeyValueService kvs,
+            KvsSweepQueue sweepQueue,
+            TransactionService transactionService,
+            SweepStrategyManager sweepStrategyManager,
+            CellsSweeper cellsSweeper,
+            LongSupplier unreadableTimestampSupplier,
+            LongSupplier immutableTimestampSupplier,
+            Supplier<Long> sweepPauseMillis,
+            Supplier<SweepBatchConfig> sweepBatchConfig) {
+        return new TargetedSweeper(
+                lockService,
+                kvs,
+                sweepQueue,
+                SweepQueueProgressStore.create(kvs),
+                transactionService,
+                sweepStrategyManager,
+                cellsSweeper,
+                unreadableTimestampSupplier,
+                immutableTimestampSupplier,
+                sweepPauseMillis,
+                sweepBatchConfig);
+    }
+
+    @Override
+    public synchronized void runInBackground() {
+        Preconditions.checkState(daemon == null);
+        daemon = new Thread(this);
+        daemon.setDaemon(true);
+        daemon.setName("TargetedSweeper");
+        daemon.start();
+    }
+
+    @Override
+    public void run() {
+        try (SweepLocks locks = new SweepLocks(lockService, "atlas targeted sweep")) {
+            // Wait a while before starting so short lived clis don't try to sweep.
+            Thread.sleep(20 * (1000 + sweepPauseMillis.get()));
+            log.debug("Starting targeted sweeper.");
+            while (true) {
+                long millisToSleep = grabLocksAndRun(locks);
+                Thread.sleep(millisToSleep);
+            }
+        } catch (InterruptedException e) {
+            log.debug("Shutting down targeted sweeper.");
+        }
+    }
+
+    // Returns milliseconds to sleep
+    private long grabLocksAndRun(SweepLocks locks) throws InterruptedException {
+        boolean moreToSweep = false;
+        try {
+            locks.lockOrRefresh();
+            if (locks.haveLocks()) {
+                moreToSweep = sweepEachShardOnce();
+            } else {
+                log.debug("Skipping targeted sweep because it is running elsewhere.");
+            }
+        } catch (InsufficientConsistencyException e) {
+            log.warn("Could not run targeted sweep because not all nodes of the database are online.", e);
+        } catch (RuntimeException e) {
+            sweepErrors.mark();
+            log.error("The targeted sweep job failed unexpectedly. It will be retried.", e);
+        }
+        return moreToSweep ? sweepPauseMillis.get() : 20 * (1000 + sweepPauseMillis.get());
+    }
+
+    /**
+     * Sweeps one batch of entries from each shard, without taking the sweep lock. Returns true if any shard had a full
+     * batch of entries to sweep, and so may have more.
+     */
+    public boolean sweepEachShardOnce() {
+        int maxEntries = sweepBatchConfig.get().deleteBatchSize();
+        boolean moreToSweep = false;
+        for (int shard = 0; shard < KvsSweepQueue.NUM_SHARDS; shard++) {
+            moreToSweep |= sweepNextBatch(shard, maxEntries) >= maxEntries;
+        }
+        return moreToSweep;
+    }
+
+    /**
+     * Sweeps the next batch of entries of the given shard, and returns how many entries were swept.
+     */
+    @VisibleForTesting
+    int sweepNextBatch(int shard, int maxEntries) {
+        long sweepTs = Sweeper.CONSERVATIVE.getSweepTimestampSupplier().getSweepTimestamp(
+                unreadableTimestampSupplier, immutableTimestampSupplier);
+        long progress = progressStore.getProgress(shard);
+        List<SweepQueueEntry> entries = getEntriesCommittedBefore(
+                sweepQueue.getEntries(shard, progress + 1, sweepTs, maxEntries),
+                sweepTs);
+        if (entries.isEmpty()) {
+            return 0;
+        }
+
+        SetMultimap<TableReference, Cell> cellsByTable = LinkedHashMultimap.create();
+        for (SweepQueueEntry entry : entries) {
+            cellsByTable.put(entry.tableRef(), entry.cell());
+        }
+        int deleteBatchSize = sweepBatchConfig.get().deleteBatchSize();
+        for (Map.Entry<TableReference, Collection<Cell>> tableCells : cellsByTable.asMap().entrySet()) {
+            sweepCells(tableCells.getKey(), tableCells.getValue(), deleteBatchSize);
+        }
+
+        sweepQueue.delete(entries);
+        long lastSweptTimestamp = Iterables.getLast(entries).startTimestamp();
+        progressStore.updateProgress(shard, progress, lastSweptTimestamp);
+        shardProgress.set(shard, lastSweptTimestamp);
+        entriesSwept.mark(entries.size());
+        log.debug("Targeted sweep swept {} entries of shard {} up to start timestamp {}.",
+                entries.size(), shard, lastSweptTimestamp);
+        return entries.size();
+    }
+
+    // Returns the longest prefix of the entries whose transactions committed, or were rolled back, before the sweep
+    // timestamp. The entries of a later transaction cannot be swept yet, and nor can anything after them, since we
+    // only keep track of how far through each shard we have got.
+    private List<SweepQueueEntry> getEntriesCommittedBefore(List<SweepQueueEntry> entries, long sweepTs) {
+        TLongSet startTimestamps = new TLongHashSet();
+        for (SweepQueueEntry entry : entries) {
+            startTimestamps.add(entry.startTimestamp());
+        }
+        CommitTsLoader commitTss = CommitTsLoader.create(transactionService, startTimestamps);
+        for (int i = 0; i < entries.size(); i++) {
+            if (commitTss.load(entries.get(i).startTimestamp()) >= sweepTs) {
+                return entries.subList(0, i);
+            }
+        }
+        return entries;
+    }
+
+    private void sweepCells(TableReference tableRef, Collection<Cell> cells, int deleteBatchSize) {
+        if (kvs.getMetadataForTable(tableRef).length == 0) {
+            log.debug("Targeted sweep skipped {} cells of table {}, which no longer exists.", cells.size(), tableRef);
+            return;
+        }
+        SweepStrategy sweepStrategy = sweepStrategyManager.get().getOrDefault(tableRef, SweepStrategy.CONSERVATIVE);
+        Optional<Sweeper> sweeper = Sweeper.of(sweepStrategy);
+        if (!sweeper.isPresent()) {
+            return;
+        }
+        long sweepTs = sweeper.get().getSweepTimestampSupplier().getSweepTimestamp(
+                unreadableTimestampSupplier, immutableTimestampSupplier);
+        SweepableCellFilter sweepableCellFilter = new SweepableCellFilter(transactionService, sweeper.get(), sweepTs);
+        for (List<Cell> batch : Iterables.partition(cells, deleteBatchSize)) {
+            List<CandidateCellForSweeping> candidates = getCandidates(tableRef, batch, sweeper.get(), sweepTs);
+            sweepBatch(tableRef, sweepableCellFilter.getCellsToSweep(candidates).cells());
+        }
+    }
+
+    private List<CandidateCellForSweeping> getCandidates(
+            TableReference tableRef,
+            List<Cell> cells,
+            Sweeper sweeper,
+            long sweepTs) {
+        Multimap<Cell, Long> timestamps = kvs.getAllTimestamps(tableRef, ImmutableSet.copyOf(cells), sweepTs);
+        Map<Cell, Value> latestValues = sweeper.shouldSweepLastCommitted()
+                ? kvs.get(tableRef, Maps.asMap(ImmutableSet.copyOf(cells), unused -> sweepTs))
+                : ImmutableMap.of();
+        Set<Long> timestampsToIgnore = ImmutableSet.copyOf(Longs.asList(sweeper.getTimestampsToIgnore()));
+        List<CandidateCellForSweeping> candidates = Lists.newArrayListWithCapacity(cells.size());
+        long numExamined = 0;
+        for (Cell cell : cells) {
+            long[] sortedTimestamps = Longs.toArray(Sets.difference(
+                    ImmutableSet.copyOf(timestamps.get(cell)), timestampsToIgnore));
+            Arrays.sort(sortedTimestamps);
+            numExamined += sortedTimestamps.length;
+            Value latestValue = latestValues.get(cell);
+            candidates.add(ImmutableCandidateCellForSweeping.builder()
+                    .cell(cell)
+                    .sortedTimestamps(sortedTimestamps)
+                    .isLatestValueEmpty(latestValue != null && latestValue.getContents().length == 0)
+                    .numCellsTsPairsExamined(numExamined)
+                    .build());
+        }
+        return candidates;
+    }
+
+    private void sweepBatch(TableReference tableRef, List<CellToSweep> batch) {
+        Multimap<Cell, Long> startTimestampsToSweepPerCell = ArrayListMultimap.create();
+        List<Cell> sentinels = Lists.newArrayList();
+        for (CellToSweep cell : batch) {
+            startTimestampsToSweepPerCell.putAll(cell.cell(), TDecorators.wrap(cell.sortedTimestamps()));
+            if (cell.needsSentinel()) {
+                sentinels.add(cell.cell());
+            }
+        }
+        cellsSweeper.sweepCells(tableRef, startTimestampsToSweepPerCell, sentinels);
+        staleValuesDeleted.mark(startTimestampsToSweepPerCell.size());
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        metricsManager.deregisterMetrics();
+        if (daemon == null) {
+            return;
+        }
+        log.debug("Signalling targeted sweeper to shut down.");
+        daemon.interrupt();
+        try {
+            daemon.join();
+            daemon = null;
+        } catch (InterruptedException e) {
+            throw Throwables.rewrapAndThrowUncheckedException(e);
+        }
+    }
+}
@@ -16,10 +16,23 @@
 package com.palantir.atlasdb.sweep.priority;
 
 import java.util.Optional;
+import java.util.Set;
 
+import com.google.common.collect.ImmutableSet;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.transaction.api.Transaction;
 
 public interface NextTableToSweepProvider {
-    Optional<TableReference> chooseNextTableToSweep(Transaction tx, long conservativeSweepTs);
+    default Optional<TableReference> chooseNextTableToSweep(Transaction tx, long conservativeSweepTs) {
+        return chooseNextTableToSweep(tx, conservativeSweepTs, ImmutableSet.of());
+    }
+
+    /**
+     * Chooses the next table to sweep from all tables other than the given ones, which are usually those being swept
+     * by other sweep workers.
+     */
+    Optional<TableReference> chooseNextTableToSweep(
+            Transaction tx,
+            long conservativeSweepTs,
+            Set<TableReference> tablesToExclude);
 }
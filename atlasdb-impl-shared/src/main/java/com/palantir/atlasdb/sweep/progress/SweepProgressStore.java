@@ -15,7 +15,9 @@
  */
 package com.palantir.atlasdb.sweep.progress;
 
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
@@ -37,15 +39,36 @@ public class SweepProgressStore {
     }
 
     public Optional<SweepProgress> loadProgress(Transaction tx)  {
+        return loadProgress(tx, 0);
+    }
+
+    /**
+     * Loads the progress of the given sweep worker. Each worker of a parallel sweep keeps its progress in its own row.
+     */
+    public Optional<SweepProgress> loadProgress(Transaction tx, int workerId)  {
         SweepProgressTable progressTable = tableFactory.getSweepProgressTable(tx);
         Optional<SweepProgressRowResult> result = Optional.ofNullable(
-                progressTable.getRow(SweepProgressRow.of(0)).orNull());
+                progressTable.getRow(SweepProgressRow.of(workerId)).orNull());
         return result.map(SweepProgressStore::hydrateProgress);
     }
 
+    /**
+     * Loads the progress of every sweep worker that is part way through a table, keyed by worker id.
+     */
+    public Map<Integer, SweepProgress> loadAllProgress(Transaction tx) {
+        return tableFactory.getSweepProgressTable(tx).getAllRowsUnordered().immutableCopy().stream()
+                .collect(Collectors.toMap(
+                        rr -> (int) rr.getRowName().getDummy(),
+                        SweepProgressStore::hydrateProgress));
+    }
+
     public void saveProgress(Transaction tx, SweepProgress progress) {
+        saveProgress(tx, 0, progress);
+    }
+
+    public void saveProgress(Transaction tx, int workerId, SweepProgress progress) {
         SweepProgressTable progressTable = tableFactory.getSweepProgressTable(tx);
-        SweepProgressRow row = SweepProgressRow.of(0);
+        SweepProgressRow row = SweepProgressRow.of(workerId);
         progressTable.putFullTableName(row, progress.tableRef().getQualifiedName());
         progressTable.putStartRow(row, progress.startRow());
         progressTable.putCellsDeleted(row, progress.staleValuesDeleted());
@@ -64,6 +87,15 @@ public class SweepProgressStore {
         kvs.deleteRange(tableFactory.getSweepProgressTable(null).getTableRef(), RangeRequest.all());
     }
 
+    /**
+     * Remove the progress of the given sweep worker, leaving that of other workers in place.
+     */
+    public void clearProgress(int workerId) {
+        kvs.deleteRange(
+                tableFactory.getSweepProgressTable(null).getTableRef(),
+                RangeRequest.builder().prefixRange(SweepProgressRow.of(workerId).persistToBytes()).build());
+    }
+
     private static SweepProgress hydrateProgress(SweepProgressTable.SweepProgressRowResult rr) {
         return ImmutableSweepProgress.builder()
                 .tableRef(TableReference.createUnsafe(rr.getFullTableName()))
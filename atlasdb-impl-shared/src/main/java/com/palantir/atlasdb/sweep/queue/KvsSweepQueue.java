@@ -0,0 +1,167 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep.queue;
+
+import java.util.List;
+import java.util.Map;
+
+import com.codahale.metrics.Meter;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.SweepStrategy;
+import com.palantir.atlasdb.ptobject.EncodingUtils;
+import com.palantir.atlasdb.transaction.impl.SweepStrategyManager;
+import com.palantir.atlasdb.util.MetricsManager;
+import com.palantir.common.base.ClosableIterator;
+
+/**
+ * A sweep queue kept in the {@link AtlasDbConstants#SWEEP_QUEUE_TABLE}, recording which cells each transaction
+ * writes so that targeted sweep can find stale versions without scanning whole tables.
+ * <p>
+ * Writes are spread over {@link #NUM_SHARDS} shards by hashing their table and cell. Each row holds the writes of one
+ * transaction to one shard, and its name is the shard number followed by the transaction's start timestamp, so the
+ * entries of a shard can be read in start timestamp order with a single range scan. The table and cell of an entry
+ * are stored in its value, since together they may be longer than a column name may be. Writes to hidden tables and
+ * to tables that are never swept are not queued.
+ */
+public final class KvsSweepQueue implements SweepQueueWriter {
+    public static final int NUM_SHARDS = 16;
+
+    private static final int ROW_BATCH_HINT = 100;
+
+    private final KeyValueService kvs;
+    private final SweepStrategyManager sweepStrategyManager;
+    private final Meter entriesEnqueued;
+
+    private KvsSweepQueue(KeyValueService kvs, SweepStrategyManager sweepStrategyManager) {
+        this.kvs = kvs;
+        this.sweepStrategyManager = sweepStrategyManager;
+        this.entriesEnqueued = new MetricsManager().registerMeter(KvsSweepQueue.class, null, "entriesEnqueued");
+    }
+
+    public static KvsSweepQueue create(KeyValueService kvs, SweepStrategyManager sweepStrategyManager) {
+        kvs.createTable(AtlasDbConstants.SWEEP_QUEUE_TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+        return new KvsSweepQueue(kvs, sweepStrategyManager);
+    }
+
+    @Override
+    public void enqueue(Map<TableReference, ? extends Map<Cell, byte[]>> writes, long startTimestamp) {
+        Map<TableReference, SweepStrategy> sweepStrategies = sweepStrategyManager.get();
+        Map<Cell, byte[]> entries = Maps.newHashMap();
+        // Columns only need to be unique within a row, and so within the writes of this transaction.
+        long nextColumn = 0;
+        for (Map.Entry<TableReference, ? extends Map<Cell, byte[]>> tableWrites : writes.entrySet()) {
+            TableReference tableRef = tableWrites.getKey();
+            if (AtlasDbConstants.hiddenTables.contains(tableRef)
+                    || sweepStrategies.getOrDefault(tableRef, SweepStrategy.CONSERVATIVE) == SweepStrategy.NOTHING) {
+                continue;
+            }
+            for (Cell cell : tableWrites.getValue().keySet()) {
+                Cell queueCell = Cell.create(
+                        rowName(getShard(tableRef, cell), startTimestamp),
+                        EncodingUtils.encodeVarLong(nextColumn++));
+                entries.put(queueCell, EncodingUtils.add(
+                        EncodingUtils.encodeVarString(tableRef.getQualifiedName()),
+                        EncodingUtils.encodeSizedBytes(cell.getRowName()),
+                        cell.getColumnName()));
+            }
+        }
+        if (!entries.isEmpty()) {
+            kvs.put(AtlasDbConstants.SWEEP_QUEUE_TABLE, entries, startTimestamp);
+            entriesEnqueued.mark(entries.size());
+        }
+    }
+
+    /**
+     * Returns the entries of the given shard whose start timestamps are in the given range, in start timestamp order.
+     * Reading stops at the end of the first transaction that brings the number of entries to at least maxEntries, so
+     * the result holds either all or none of the entries of any one transaction.
+     */
+    public List<SweepQueueEntry> getEntries(
+            int shard,
+            long minStartTimestampInclusive,
+            long maxStartTimestampExclusive,
+            int maxEntries) {
+        if (minStartTimestampInclusive >= maxStartTimestampExclusive) {
+            return ImmutableList.of();
+        }
+        RangeRequest range = RangeRequest.builder()
+                .startRowInclusive(rowName(shard, minStartTimestampInclusive))
+                .endRowExclusive(rowName(shard, maxStartTimestampExclusive))
+                .batchHint(Math.max(1, Math.min(maxEntries, ROW_BATCH_HINT)))
+                .build();
+        List<SweepQueueEntry> entries = Lists.newArrayList();
+        try (ClosableIterator<RowResult<Value>> rows = kvs.getRange(
+                AtlasDbConstants.SWEEP_QUEUE_TABLE, range, Long.MAX_VALUE)) {
+            while (entries.size() < maxEntries && rows.hasNext()) {
+                RowResult<Value> row = rows.next();
+                long startTimestamp = PtBytes.toLong(row.getRowName(), 1);
+                for (Map.Entry<Cell, Value> entry : row.getCells()) {
+                    entries.add(decodeEntry(startTimestamp, entry.getKey(), entry.getValue().getContents()));
+                }
+            }
+        }
+        return entries;
+    }
+
+    public void delete(Iterable<SweepQueueEntry> entries) {
+        Multimap<Cell, Long> queueCells = HashMultimap.create();
+        for (SweepQueueEntry entry : entries) {
+            queueCells.put(entry.queueCell(), entry.startTimestamp());
+        }
+        if (!queueCells.isEmpty()) {
+            kvs.delete(AtlasDbConstants.SWEEP_QUEUE_TABLE, queueCells);
+        }
+    }
+
+    /**
+     * Returns the shard that writes to the given cell are queued in.
+     */
+    public static int getShard(TableReference tableRef, Cell cell) {
+        return Math.floorMod(31 * tableRef.hashCode() + cell.hashCode(), NUM_SHARDS);
+    }
+
+    private static byte[] rowName(int shard, long startTimestamp) {
+        return EncodingUtils.add(new byte[] {(byte) shard}, PtBytes.toBytes(startTimestamp));
+    }
+
+    private static SweepQueueEntry decodeEntry(long startTimestamp, Cell queueCell, byte[] contents) {
+        String tableName = EncodingUtils.decodeVarString(contents, 0);
+        int offset = EncodingUtils.sizeOfVarString(tableName);
+        byte[] rowName = EncodingUtils.decodeSizedBytes(contents, offset);
+        offset += EncodingUtils.sizeOfSizedBytes(rowName);
+        byte[] columnName = EncodingUtils.getBytesFromOffsetToEnd(contents, offset);
+        return ImmutableSweepQueueEntry.builder()
+                .startTimestamp(startTimestamp)
+                .tableRef(TableReference.isFullyQualifiedName(tableName)
+                        ? TableReference.createFromFullyQualifiedName(tableName)
+                        : TableReference.createWithEmptyNamespace(tableName))
+                .cell(Cell.create(rowName, columnName))
+                .queueCell(queueCell)
+                .build();
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep.queue;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.Value;
+
+/**
+ * Stores, for each shard of the sweep queue, the start timestamp up to which it has been swept.
+ * <p>
+ * The progress of a shard is written at its own value as the timestamp, so it only ever moves forward, and the
+ * previous version is deleted once the new one is written. Only one targeted sweeper should update a shard at once.
+ */
+public final class SweepQueueProgressStore {
+    public static final long INITIAL_PROGRESS = -1L;
+
+    private static final byte[] COLUMN = PtBytes.toBytes("p");
+
+    private final KeyValueService kvs;
+
+    private SweepQueueProgressStore(KeyValueService kvs) {
+        this.kvs = kvs;
+    }
+
+    public static SweepQueueProgressStore create(KeyValueService kvs) {
+        kvs.createTable(AtlasDbConstants.SWEEP_QUEUE_PROGRESS_TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+        return new SweepQueueProgressStore(kvs);
+    }
+
+    /**
+     * Returns the greatest start timestamp the shard has been swept up to, or {@link #INITIAL_PROGRESS} if it has
+     * never been swept.
+     */
+    public long getProgress(int shard) {
+        Cell cell = cellForShard(shard);
+        Value value = kvs.get(AtlasDbConstants.SWEEP_QUEUE_PROGRESS_TABLE, ImmutableMap.of(cell, Long.MAX_VALUE))
+                .get(cell);
+        return value == null ? INITIAL_PROGRESS : PtBytes.toLong(value.getContents());
+    }
+
+    public void updateProgress(int shard, long previousProgress, long newProgress) {
+        Preconditions.checkArgument(newProgress > previousProgress,
+                "Progress of shard %s cannot move back from %s to %s", shard, previousProgress, newProgress);
+        Cell cell = cellForShard(shard);
+        kvs.put(AtlasDbConstants.SWEEP_QUEUE_PROGRESS_TABLE,
+                ImmutableMap.of(cell, PtBytes.toBytes(newProgress)),
+                newProgress);
+        if (previousProgress != INITIAL_PROGRESS) {
+            kvs.delete(AtlasDbConstants.SWEEP_QUEUE_PROGRESS_TABLE, ImmutableMultimap.of(cell, previousProgress));
+        }
+    }
+
+    private static Cell cellForShard(int shard) {
+        return Cell.create(new byte[] {(byte) shard}, COLUMN);
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep.queue;
+
+import java.util.Map;
+
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+
+public interface SweepQueueWriter {
+    SweepQueueWriter NO_OP = (writes, startTimestamp) -> { };
+
+    /**
+     * Records the cells written by the transaction with the given start timestamp, so that the versions they
+     * overwrite can later be swept. This must be called before the transaction writes its values.
+     */
+    void enqueue(Map<TableReference, ? extends Map<Cell, byte[]>> writes, long startTimestamp);
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Supplier;
+import com.palantir.common.base.Throwables;
+
+/**
+ * A step of the commit protocol which does not depend on the steps the committing thread runs before it next needs
+ * the step's result. With an executor the step starts straight away on another thread; without one it runs lazily on
+ * the first call to {@link #get()}, so the steps happen in exactly the order of the non-pipelined protocol.
+ */
+final class CommitStage<T> implements Supplier<T> {
+    private final Callable<T> task;
+    @Nullable
+    private Future<T> future;
+    private volatile long taskNanos;
+    private long waitNanos;
+    private boolean done;
+    private T result;
+
+    private CommitStage(Callable<T> task) {
+        this.task = task;
+    }
+
+    static <T> CommitStage<T> start(@Nullable ExecutorService executor, Callable<T> task) {
+        CommitStage<T> stage = new CommitStage<>(task);
+        if (executor != null) {
+            stage.future = executor.submit(stage::runTimed);
+        }
+        return stage;
+    }
+
+    static CommitStage<Void> start(@Nullable ExecutorService executor, Runnable task) {
+        return start(executor, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    @Override
+    public T get() {
+        if (!done) {
+            result = future == null ? runInline() : await();
+            done = true;
+        }
+        return result;
+    }
+
+    /**
+     * Waits for a stage which was started on an executor to finish, ignoring its result and any failure, so that it
+     * does not outlive a commit which has already failed for another reason. A stage which runs lazily is not run.
+     */
+    void awaitQuietly() {
+        if (future == null || done) {
+            return;
+        }
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | CancellationException e) {
+            // The commit is already failing, and this failure would only hide the one that made it fail.
+        }
+    }
+
+    /**
+     * How long the stage ran while the committing thread was doing something else, once {@link #get()} has returned.
+     */
+    long getOverlappedNanos() {
+        return Math.max(0, taskNanos - waitNanos);
+    }
+
+    private T runInline() {
+        try {
+            return task.call();
+        } catch (Exception e) {
+            throw Throwables.throwUncheckedException(e);
+        }
+    }
+
+    private T await() {
+        long start = System.nanoTime();
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            throw Throwables.throwUncheckedException(e);
+        } catch (ExecutionException e) {
+            throw Throwables.throwUncheckedException(e.getCause());
+        } finally {
+            waitNanos = System.nanoTime() - start;
+        }
+    }
+
+    private T runTimed() throws Exception {
+        long start = System.nanoTime();
+        try {
+            return task.call();
+        } finally {
+            taskNanos = System.nanoTime() - start;
+        }
+    }
+}
@@ -0,0 +1,362 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Ints;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.impl.Cells;
+import com.palantir.atlasdb.util.AtlasDbMetrics;
+import com.palantir.lock.AtlasRowLockDescriptor;
+import com.palantir.lock.LockDescriptor;
+import com.palantir.lock.LockWatchEvent;
+import com.palantir.lock.LockWatchEvents;
+import com.palantir.lock.LockWatchRequest;
+import com.palantir.lock.LockWatchService;
+
+/**
+ * Cache of the committed values of a fixed set of tables, shared by all the transactions of a transaction manager,
+ * which watches the write locks on the rows of those tables through a {@link LockWatchService} to learn when a
+ * cached value may have been overwritten. Only tables whose conflict handler locks rows may be cached this way, as a
+ * transaction which writes to such a row holds its write lock from before it gets its commit timestamp until after it
+ * has committed.
+ * <p>
+ * Each transaction notes the last lock change the cache has seen before it fetches its start timestamp, and values
+ * it reads are only cached if their row has neither been locked at, nor changed since, that point. Any write which
+ * committed after such a read must then have locked the row later, so a cached value is used by a transaction only
+ * if no change to its row has been seen since it was cached, and the cache has caught up with the lock service after
+ * the transaction's start timestamp was fetched.
+ * <p>
+ * Values are only invalidated by row locks, so a cached table must only be written by transactions, and not be
+ * truncated or written to directly through the key value service. The cache is bounded by the approximate number of
+ * bytes of the cells and values it holds.
+ */
+@ThreadSafe
+public final class LockWatchingValueCache {
+    private static final Logger log = LoggerFactory.getLogger(LockWatchingValueCache.class);
+    private static final LockWatchingValueCache DISABLED = new LockWatchingValueCache(null, ImmutableSet.of(), null);
+    private static final int MAX_TRACKED_ROWS = 100_000;
+
+    @Nullable
+    private final LockWatchService lockWatchService;
+    private final ImmutableSet<TableReference> watchedTables;
+    private final ImmutableSet<String> watchedTableNames;
+    @Nullable
+    private final Cache<CellReference, CachedValue> values;
+    private final ConcurrentMap<LockDescriptor, RowState> rowStates = Maps.newConcurrentMap();
+    private volatile KnownVersion knownVersion = new KnownVersion(null, 0L);
+
+    private final Object updateLock = new Object();
+    private final AtomicLong requestedUpdates = new AtomicLong();
+    @GuardedBy("updateLock")
+    private long lastCoveredUpdate = 0L;
+    @GuardedBy("updateLock")
+    private boolean lastUpdateSucceeded = false;
+
+    public static LockWatchingValueCache create(LockWatchService lockWatchService,
+                                                Set<TableReference> watchedTables,
+                                                long maxSizeInBytes) {
+        Preconditions.checkArgument(maxSizeInBytes >= 0, "maxSizeInBytes cannot be negative, was %s", maxSizeInBytes);
+        if (maxSizeInBytes == 0 || watchedTables.isEmpty()) {
+            return DISABLED;
+        }
+        LockWatchingValueCache valueCache = new LockWatchingValueCache(
+                lockWatchService, watchedTables, createCache(maxSizeInBytes));
+        AtlasDbMetrics.registerCache(valueCache.values, MetricRegistry.name(LockWatchingValueCache.class, "values"));
+        return valueCache;
+    }
+
+    public static LockWatchingValueCache disabled() {
+        return DISABLED;
+    }
+
+    private LockWatchingValueCache(@Nullable LockWatchService lockWatchService,
+                                   Set<TableReference> watchedTables,
+                                   @Nullable Cache<CellReference, CachedValue> values) {
+        this.lockWatchService = lockWatchService;
+        this.watchedTables = ImmutableSet.copyOf(watchedTables);
+        this.watchedTableNames = ImmutableSet.copyOf(
+                Iterables.transform(watchedTables, TableReference::getQualifiedName));
+        this.values = values;
+    }
+
+    private static Cache<CellReference, CachedValue> createCache(long maxSizeInBytes) {
+        return CacheBuilder.newBuilder()
+                .maximumWeight(maxSizeInBytes)
+                .<CellReference, CachedValue>weigher((cellReference, cachedValue) -> Ints.saturatedCast(
+                        Cells.getApproxSizeOfCell(cellReference.cell) + cachedValue.contents.length))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Starts the cache's view for a new transaction. This must be called before the transaction's start timestamp
+     * is fetched.
+     */
+    public TransactionValues startTransaction() {
+        return new TransactionValues(knownVersion);
+    }
+
+    public void clear() {
+        if (values != null) {
+            synchronized (this) {
+                KnownVersion current = knownVersion;
+                knownVersion = new KnownVersion(current.logId, current.version);
+                values.invalidateAll();
+            }
+        }
+    }
+
+    /**
+     * Brings the cache up to date with the lock service, with a call to the lock service which started after this
+     * method was called. Returns false if the lock service could not be reached.
+     */
+    private boolean update() {
+        long ticket = requestedUpdates.incrementAndGet();
+        synchronized (updateLock) {
+            if (lastCoveredUpdate >= ticket) {
+                return lastUpdateSucceeded;
+            }
+            long coveredUpdate = requestedUpdates.get();
+            KnownVersion current = knownVersion;
+            LockWatchRequest request = current.logId == null
+                    ? LockWatchRequest.startWatching(watchedTableNames)
+                    : new LockWatchRequest(watchedTableNames, current.logId, current.version);
+            try {
+                apply(lockWatchService.getLockWatchEvents(request));
+                lastUpdateSucceeded = true;
+            } catch (RuntimeException e) {
+                log.warn("Failed to fetch changes to the locks of cached tables; not reading them from the cache.", e);
+                lastUpdateSucceeded = false;
+            }
+            lastCoveredUpdate = coveredUpdate;
+            return lastUpdateSucceeded;
+        }
+    }
+
+    private synchronized void apply(LockWatchEvents events) {
+        if (events.isSnapshot()) {
+            // Replacing the known version first means that lookups which see any of the changes below fail.
+            knownVersion = new KnownVersion(events.getLogId(), events.getVersion());
+            values.invalidateAll();
+            rowStates.clear();
+            for (LockDescriptor descriptor : events.getLockedDescriptors()) {
+                rowStates.put(descriptor, new RowState(events.getVersion(), true));
+            }
+            return;
+        }
+        for (LockWatchEvent event : events.getEvents()) {
+            rowStates.put(event.getDescriptor(), new RowState(event.getVersion(), event.isLocked()));
+        }
+        if (rowStates.size() > MAX_TRACKED_ROWS) {
+            knownVersion = new KnownVersion(events.getLogId(), events.getVersion());
+            values.invalidateAll();
+            rowStates.values().removeIf(rowState -> !rowState.locked);
+        } else {
+            knownVersion = knownVersion.advanceTo(events.getVersion());
+        }
+    }
+
+    private synchronized void cacheValue(KnownVersion readVersion,
+                                         TableReference tableRef,
+                                         Cell cell,
+                                         byte[] contents,
+                                         long commitTimestamp) {
+        if (readVersion.logId == null || !knownVersion.isSameEpoch(readVersion)) {
+            return;
+        }
+        RowState rowState = rowStates.get(getRowDescriptor(tableRef, cell));
+        if (rowState != null && (rowState.locked || rowState.version > readVersion.version)) {
+            return;
+        }
+        values.put(new CellReference(tableRef, cell),
+                new CachedValue(contents.clone(), commitTimestamp, readVersion));
+    }
+
+    @Nullable
+    private byte[] getValue(TableReference tableRef, Cell cell, long startTimestamp) {
+        CachedValue cachedValue = values.getIfPresent(new CellReference(tableRef, cell));
+        if (cachedValue == null || cachedValue.commitTimestamp >= startTimestamp) {
+            return null;
+        }
+        RowState rowState = rowStates.get(getRowDescriptor(tableRef, cell));
+        if (rowState != null && rowState.version > cachedValue.readVersion.version) {
+            return null;
+        }
+        // Checked last, so that a row state which was replaced by a snapshot is not trusted.
+        if (!knownVersion.isSameEpoch(cachedValue.readVersion)) {
+            return null;
+        }
+        return cachedValue.contents.clone();
+    }
+
+    private static LockDescriptor getRowDescriptor(TableReference tableRef, Cell cell) {
+        return AtlasRowLockDescriptor.of(tableRef.getQualifiedName(), cell.getRowName());
+    }
+
+    /**
+     * The values of the cache visible to one transaction.
+     */
+    public final class TransactionValues {
+        private final KnownVersion readVersion;
+        private volatile Boolean upToDate;
+
+        private TransactionValues(KnownVersion readVersion) {
+            this.readVersion = readVersion;
+        }
+
+        /**
+         * Returns whether values of the given table are cached; this is false for every table if the cache is
+         * disabled.
+         */
+        public boolean isCached(TableReference tableRef) {
+            return values != null && watchedTables.contains(tableRef);
+        }
+
+        /**
+         * Returns the cached values of the given cells which are visible to the transaction, which must already have
+         * fetched its start timestamp. The first call brings the cache up to date with the lock service.
+         */
+        public Map<Cell, byte[]> getVisibleValues(TableReference tableRef, Iterable<Cell> cells, long startTimestamp) {
+            Map<Cell, byte[]> result = Maps.newHashMap();
+            if (!isCached(tableRef) || !isUpToDate()) {
+                return result;
+            }
+            for (Cell cell : cells) {
+                byte[] contents = getValue(tableRef, cell, startTimestamp);
+                if (contents != null) {
+                    result.put(cell, contents);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Caches a committed value that the transaction has read from the key value service.
+         */
+        public void cacheCommittedValue(TableReference tableRef, Cell cell, byte[] contents, long commitTimestamp) {
+            if (isCached(tableRef)) {
+                cacheValue(readVersion, tableRef, cell, contents, commitTimestamp);
+            }
+        }
+
+        private boolean isUpToDate() {
+            if (upToDate == null) {
+                upToDate = update();
+            }
+            return upToDate;
+        }
+    }
+
+    /**
+     * The last lock change the cache has seen. A new instance with a fresh epoch replaces the old one whenever cached
+     * values are dropped wholesale, which invalidates every value cached before.
+     */
+    private static final class KnownVersion {
+        @Nullable
+        private final UUID logId;
+        private final long version;
+        private final Object epoch;
+
+        KnownVersion(@Nullable UUID logId, long version) {
+            this(logId, version, new Object());
+        }
+
+        private KnownVersion(@Nullable UUID logId, long version, Object epoch) {
+            this.logId = logId;
+            this.version = version;
+            this.epoch = epoch;
+        }
+
+        KnownVersion advanceTo(long newVersion) {
+            return new KnownVersion(logId, newVersion, epoch);
+        }
+
+        boolean isSameEpoch(KnownVersion other) {
+            return epoch == other.epoch;
+        }
+    }
+
+    private static final class RowState {
+        private final long version;
+        private final boolean locked;
+
+        RowState(long version, boolean locked) {
+            this.version = version;
+            this.locked = locked;
+        }
+    }
+
+    private static final class CellReference {
+        private final TableReference tableRef;
+        private final Cell cell;
+
+        CellReference(TableReference tableRef, Cell cell) {
+            this.tableRef = tableRef;
+            this.cell = cell;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (other == null || getClass() != other.getClass()) {
+                return false;
+            }
+            CellReference that = (CellReference) other;
+            return tableRef.equals(that.tableRef) && cell.equals(that.cell);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(tableRef, cell);
+        }
+    }
+
+    private static final class CachedValue {
+        private final byte[] contents;
+        private final long commitTimestamp;
+        private final KnownVersion readVersion;
+
+        CachedValue(byte[] contents, long commitTimestamp, KnownVersion readVersion) {
+            this.contents = contents;
+            this.commitTimestamp = commitTimestamp;
+            this.readVersion = readVersion;
+        }
+    }
+}
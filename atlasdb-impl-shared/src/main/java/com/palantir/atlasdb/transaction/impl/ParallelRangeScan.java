@@ -0,0 +1,261 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.common.base.BatchingVisitable;
+import com.palantir.common.base.BatchingVisitables;
+import com.palantir.common.base.ClosableIterator;
+import com.palantir.common.base.Throwables;
+
+/**
+ * Scans a number of disjoint ranges, given in key order, by visiting each of them on a task of its own, with at most
+ * a fixed number of tasks running at once. Each task hands the batches it visits to the consuming thread through a
+ * bounded queue, and blocks while that queue is full, so a scan buffers at most a few batches per running task.
+ * <p>
+ * The rows are returned either in the order the tasks produce them, or in key order, in which case the rows of each
+ * range are returned once those of the ranges before it have been, and ranges are only started while they are
+ * among the first ones not yet returned. Closing the scan stops all the tasks at their next batch.
+ */
+final class ParallelRangeScan<T> extends AbstractIterator<T> implements ClosableIterator<T> {
+    private static final int BATCHES_BUFFERED_PER_RANGE = 2;
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    private final List<RangeRequest> ranges;
+    private final Function<RangeRequest, BatchingVisitable<T>> visitableFactory;
+    private final Executor executor;
+    private final int concurrency;
+    private final boolean ordered;
+    private final List<BlockingQueue<Batch<T>>> queues;
+
+    @GuardedBy("this")
+    private int nextRangeToStart = 0;
+    @GuardedBy("this")
+    private int runningRanges = 0;
+    private volatile int currentRange = 0;
+    private int finishedRanges = 0;
+    private Iterator<T> currentBatch = Collections.emptyIterator();
+    private volatile boolean closed = false;
+
+    private ParallelRangeScan(List<RangeRequest> ranges,
+                              Function<RangeRequest, BatchingVisitable<T>> visitableFactory,
+                              Executor executor,
+                              int concurrency,
+                              boolean ordered) {
+        Preconditions.checkArgument(concurrency > 0, "concurrency must be positive, was %s", concurrency);
+        this.ranges = ImmutableList.copyOf(ranges);
+        this.visitableFactory = visitableFactory;
+        this.executor = executor;
+        this.concurrency = concurrency;
+        this.ordered = ordered;
+        if (ordered) {
+            ImmutableList.Builder<BlockingQueue<Batch<T>>> builder = ImmutableList.builder();
+            for (int i = 0; i < ranges.size(); i++) {
+                builder.add(new ArrayBlockingQueue<>(BATCHES_BUFFERED_PER_RANGE));
+            }
+            this.queues = builder.build();
+        } else {
+            BlockingQueue<Batch<T>> sharedQueue = new ArrayBlockingQueue<>(BATCHES_BUFFERED_PER_RANGE * concurrency);
+            this.queues = Collections.nCopies(ranges.size(), sharedQueue);
+        }
+    }
+
+    /**
+     * Returns the rows of all the ranges in key order, provided {@code ranges} are in key order.
+     */
+    static <T> Stream<T> ordered(List<RangeRequest> ranges,
+                                 Function<RangeRequest, BatchingVisitable<T>> visitableFactory,
+                                 Executor executor,
+                                 int concurrency) {
+        return new ParallelRangeScan<>(ranges, visitableFactory, executor, concurrency, true).stream();
+    }
+
+    /**
+     * Returns the rows of all the ranges, as soon as they are visited.
+     */
+    static <T> Stream<T> unordered(List<RangeRequest> ranges,
+                                   Function<RangeRequest, BatchingVisitable<T>> visitableFactory,
+                                   Executor executor,
+                                   int concurrency) {
+        return new ParallelRangeScan<>(ranges, visitableFactory, executor, concurrency, false).stream();
+    }
+
+    private Stream<T> stream() {
+        int characteristics = ordered ? Spliterator.ORDERED | Spliterator.NONNULL : Spliterator.NONNULL;
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, characteristics), false)
+                .onClose(this::close);
+    }
+
+    @Override
+    protected T computeNext() {
+        while (!currentBatch.hasNext()) {
+            if (closed || finishedRanges == ranges.size()) {
+                return endOfData();
+            }
+            try {
+                startRanges();
+            } catch (RejectedExecutionException e) {
+                close();
+                throw e;
+            }
+            Batch<T> batch = take();
+            if (batch.failure != null) {
+                close();
+                throw Throwables.rewrapAndThrowUncheckedException(batch.failure);
+            }
+            if (batch.rows == null) {
+                finishedRanges++;
+                currentRange++;
+            } else {
+                currentBatch = batch.rows.iterator();
+            }
+        }
+        return currentBatch.next();
+    }
+
+    private Batch<T> take() {
+        BlockingQueue<Batch<T>> queue = queues.get(ordered ? currentRange : 0);
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            close();
+            throw Throwables.throwUncheckedException(e);
+        }
+    }
+
+    /**
+     * Throws if the executor rejects a range. Neither that range nor the ones claimed after it will produce any
+     * batches, so the caller must fail the scan itself, rather than wait for a failure to come through the queues.
+     */
+    private void startRanges() {
+        for (int range : claimRangesToStart()) {
+            executor.execute(() -> visitRange(range));
+        }
+    }
+
+    private synchronized List<Integer> claimRangesToStart() {
+        List<Integer> rangesToStart = new ArrayList<>();
+        while (nextRangeToStart < ranges.size()
+                && runningRanges < concurrency
+                && (!ordered || nextRangeToStart < currentRange + concurrency)) {
+            rangesToStart.add(nextRangeToStart++);
+            runningRanges++;
+        }
+        return rangesToStart;
+    }
+
+    private void visitRange(int range) {
+        BlockingQueue<Batch<T>> queue = queues.get(range);
+        Batch<T> last;
+        try {
+            RangeRequest request = ranges.get(range);
+            int batchHint = request.getBatchHint() != null
+                    ? request.getBatchHint()
+                    : BatchingVisitables.DEFAULT_BATCH_SIZE;
+            visitableFactory.apply(request).batchAccept(batchHint, rows -> offer(queue, Batch.of(rows)));
+            last = Batch.end();
+        } catch (Throwable t) {
+            last = Batch.failed(t);
+        }
+        synchronized (this) {
+            runningRanges--;
+        }
+        try {
+            if (!closed) {
+                startRanges();
+            }
+        } catch (RejectedExecutionException e) {
+            // The consumer reaches this range before any range we failed to start, so failing it fails the scan.
+            last = Batch.failed(e);
+        }
+        offer(queue, last);
+    }
+
+    /**
+     * Waits for space in the queue while the scan is open, returning false if the scan was closed first.
+     */
+    private boolean offer(BlockingQueue<Batch<T>> queue, Batch<T> batch) {
+        try {
+            while (!closed) {
+                if (queue.offer(batch, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            synchronized (this) {
+                nextRangeToStart = ranges.size();
+            }
+            for (BlockingQueue<Batch<T>> queue : queues) {
+                queue.clear();
+            }
+        }
+    }
+
+    private static final class Batch<T> {
+        @Nullable
+        final List<T> rows;
+        @Nullable
+        final Throwable failure;
+
+        private Batch(@Nullable List<T> rows, @Nullable Throwable failure) {
+            this.rows = rows;
+            this.failure = failure;
+        }
+
+        static <T> Batch<T> of(List<T> rows) {
+            return new Batch<>(ImmutableList.copyOf(rows), null);
+        }
+
+        static <T> Batch<T> end() {
+            return new Batch<>(null, null);
+        }
+
+        static <T> Batch<T> failed(Throwable failure) {
+            return new Batch<>(null, failure);
+        }
+    }
+}
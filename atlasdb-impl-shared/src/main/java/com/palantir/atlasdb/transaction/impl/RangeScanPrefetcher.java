@@ -0,0 +1,261 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.collect.AbstractIterator;
+import com.palantir.common.base.ClosableIterator;
+import com.palantir.common.base.Throwables;
+import com.palantir.common.concurrent.NamedThreadFactory;
+import com.palantir.common.concurrent.PTExecutors;
+import com.palantir.remoting2.tracing.Tracers;
+
+/**
+ * Fetches the pages of transactional range scans ahead of the thread consuming them, so that fetching the next page
+ * from the key value service overlaps post-filtering the current one. The pages of one scan are still fetched one at
+ * a time and in order, as each page starts after the last row of the page before it. A scan keeps at most a fixed
+ * number of pages buffered, and stops fetching ahead while the pages it has buffered exceed a number of bytes.
+ */
+@ThreadSafe
+public final class RangeScanPrefetcher {
+    private static final RangeScanPrefetcher DISABLED = new RangeScanPrefetcher(null, 0, 0L);
+
+    @Nullable
+    private final ExecutorService executor;
+    private final int pagesToPrefetch;
+    private final long maxBufferedBytes;
+
+    /**
+     * @param pagesToPrefetch The number of pages each scan may fetch ahead of the page being consumed, or zero to
+     *                        fetch every page only when it is needed.
+     * @param maxBufferedBytes The approximate number of bytes of fetched pages each scan may buffer before it stops
+     *                         fetching ahead.
+     */
+    public static RangeScanPrefetcher create(int pagesToPrefetch, long maxBufferedBytes) {
+        Preconditions.checkArgument(pagesToPrefetch >= 0,
+                "pagesToPrefetch cannot be negative, was %s", pagesToPrefetch);
+        Preconditions.checkArgument(maxBufferedBytes > 0,
+                "maxBufferedBytes must be positive, was %s", maxBufferedBytes);
+        if (pagesToPrefetch == 0) {
+            return DISABLED;
+        }
+        return new RangeScanPrefetcher(
+                Tracers.wrap(PTExecutors.newCachedThreadPool(new NamedThreadFactory("atlas-range-prefetch", true))),
+                pagesToPrefetch,
+                maxBufferedBytes);
+    }
+
+    public static RangeScanPrefetcher disabled() {
+        return DISABLED;
+    }
+
+    private RangeScanPrefetcher(@Nullable ExecutorService executor, int pagesToPrefetch, long maxBufferedBytes) {
+        this.executor = executor;
+        this.pagesToPrefetch = pagesToPrefetch;
+        this.maxBufferedBytes = maxBufferedBytes;
+    }
+
+    boolean isEnabled() {
+        return executor != null;
+    }
+
+    /**
+     * Returns the pages returned by {@code pageFetcher}, up to the first empty page, fetched ahead on another thread.
+     * The fetcher is only ever called by one thread at a time. Once the returned iterator is closed, no more pages
+     * are fetched and {@code onClose} runs, after the fetch in progress, if any, has returned.
+     */
+    <T> ClosableIterator<List<T>> prefetch(Supplier<List<T>> pageFetcher,
+                                           ToLongFunction<? super T> sizer,
+                                           Runnable onClose) {
+        Preconditions.checkState(isEnabled(), "Range scan prefetching is disabled.");
+        return new PrefetchingIterator<>(executor, pageFetcher, sizer, onClose, pagesToPrefetch, maxBufferedBytes);
+    }
+
+    public void close() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private static final class PrefetchingIterator<T> extends AbstractIterator<List<T>>
+            implements ClosableIterator<List<T>> {
+        private final Executor executor;
+        private final Supplier<List<T>> pageFetcher;
+        private final ToLongFunction<? super T> sizer;
+        private final Runnable onClose;
+        private final int maxBufferedPages;
+        private final long maxBufferedBytes;
+
+        private final Lock lock = new ReentrantLock();
+        private final Condition pageFetched = lock.newCondition();
+        @GuardedBy("lock")
+        private final Deque<Page<T>> pages = new ArrayDeque<>();
+        @GuardedBy("lock")
+        private long bufferedBytes = 0L;
+        @GuardedBy("lock")
+        private boolean fetching = false;
+        @GuardedBy("lock")
+        private boolean exhausted = false;
+        @GuardedBy("lock")
+        private boolean closed = false;
+        @GuardedBy("lock")
+        private Throwable failure = null;
+
+        PrefetchingIterator(Executor executor,
+                            Supplier<List<T>> pageFetcher,
+                            ToLongFunction<? super T> sizer,
+                            Runnable onClose,
+                            int maxBufferedPages,
+                            long maxBufferedBytes) {
+            this.executor = executor;
+            this.pageFetcher = pageFetcher;
+            this.sizer = sizer;
+            this.onClose = onClose;
+            this.maxBufferedPages = maxBufferedPages;
+            this.maxBufferedBytes = maxBufferedBytes;
+        }
+
+        @Override
+        protected List<T> computeNext() {
+            lock.lock();
+            try {
+                fetchAheadIfPossible();
+                while (pages.isEmpty() && fetching && !closed) {
+                    pageFetched.await();
+                }
+                if (closed) {
+                    return endOfData();
+                }
+                if (!pages.isEmpty()) {
+                    Page<T> page = pages.poll();
+                    bufferedBytes -= page.sizeInBytes;
+                    fetchAheadIfPossible();
+                    return page.rows;
+                }
+                if (failure != null) {
+                    throw Throwables.rewrapAndThrowUncheckedException(failure);
+                }
+                return endOfData();
+            } catch (InterruptedException e) {
+                throw Throwables.throwUncheckedException(e);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @GuardedBy("lock")
+        private void fetchAheadIfPossible() {
+            if (fetching || exhausted || closed || failure != null) {
+                return;
+            }
+            if (pages.size() >= maxBufferedPages || (!pages.isEmpty() && bufferedBytes >= maxBufferedBytes)) {
+                return;
+            }
+            fetching = true;
+            try {
+                executor.execute(this::fetchPage);
+            } catch (RejectedExecutionException e) {
+                fetching = false;
+                failure = e;
+            }
+        }
+
+        private void fetchPage() {
+            List<T> rows = null;
+            Throwable error = null;
+            try {
+                rows = pageFetcher.get();
+            } catch (Throwable t) {
+                error = t;
+            }
+            lock.lock();
+            try {
+                fetching = false;
+                if (closed) {
+                    onClose.run();
+                    return;
+                }
+                if (error != null) {
+                    failure = error;
+                } else if (rows.isEmpty()) {
+                    exhausted = true;
+                } else {
+                    Page<T> page = new Page<>(rows, sizeOf(rows));
+                    pages.add(page);
+                    bufferedBytes += page.sizeInBytes;
+                    fetchAheadIfPossible();
+                }
+                pageFetched.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private long sizeOf(List<T> rows) {
+            long size = 0L;
+            for (T row : rows) {
+                size += sizer.applyAsLong(row);
+            }
+            return size;
+        }
+
+        @Override
+        public void close() {
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                pages.clear();
+                bufferedBytes = 0L;
+                if (!fetching) {
+                    // Otherwise the fetch in progress closes the scan once it returns.
+                    onClose.run();
+                }
+                pageFetched.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static final class Page<T> {
+        final List<T> rows;
+        final long sizeInBytes;
+
+        Page(List<T> rows, long sizeInBytes) {
+            this.rows = rows;
+            this.sizeInBytes = sizeInBytes;
+        }
+    }
+}
@@ -45,6 +45,8 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.Sets;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
 import com.google.common.primitives.UnsignedBytes;
 import com.palantir.atlasdb.cache.TimestampCache;
 import com.palantir.atlasdb.cleaner.Cleaner;
@@ -76,6 +78,13 @@ import com.palantir.lock.RemoteLockService;
 import com.palantir.timestamp.TimestampService;
 import com.palantir.util.Pair;
 
+import gnu.trove.TLongCollection;
+import gnu.trove.iterator.TLongIterator;
+import gnu.trove.map.TLongLongMap;
+import gnu.trove.map.hash.TLongLongHashMap;
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
+
 /**
  * This class will track all reads to verify that there are no read-write conflicts at commit time.
  * A read-write conflict is one where the value we read at our startTs is different than the value at our
@@ -85,11 +94,16 @@ import com.palantir.util.Pair;
  * If every table was marked as Serializable then we wouldn't need to also do write write conflict checking.
  * However, it is very common that we will be running in a mixed mode so this implementation does the standard
  * write/write conflict checking as well as preventing read/write conflicts to attain serializability.
+ * <p>
+ * When recording read digests, any value read that is longer than a SHA-256 digest is remembered only by its digest,
+ * and the values read again at commit time are compared by digest too.
  */
 public class SerializableTransaction extends SnapshotTransaction {
     private static final Logger log = LoggerFactory.getLogger(SerializableTransaction.class);
 
     private static final int BATCH_SIZE = 1000;
+    private static final HashFunction READ_DIGEST_FUNCTION = Hashing.sha256();
+    private static final int READ_DIGEST_LENGTH = READ_DIGEST_FUNCTION.bits() / Byte.SIZE;
 
     final ConcurrentMap<TableReference, ConcurrentNavigableMap<Cell, byte[]>> readsByTable = Maps.newConcurrentMap();
     final ConcurrentMap<TableReference, ConcurrentMap<RangeRequest, byte[]>> rangeEndByTable = Maps.newConcurrentMap();
@@ -97,6 +111,7 @@ public class SerializableTransaction extends SnapshotTransaction {
             columnRangeEndsByTable = Maps.newConcurrentMap();
     final ConcurrentMap<TableReference, Set<Cell>> cellsRead = Maps.newConcurrentMap();
     final ConcurrentMap<TableReference, Set<RowRead>> rowsRead = Maps.newConcurrentMap();
+    final boolean recordReadDigests;
 
     public SerializableTransaction(KeyValueService keyValueService,
                                    RemoteLockService lockService,
@@ -113,6 +128,28 @@ public class SerializableTransaction extends SnapshotTransaction {
                                    TransactionReadSentinelBehavior readSentinelBehavior,
                                    boolean allowHiddenTableAccess,
                                    TimestampCache timestampCache) {
+        this(keyValueService, lockService, timestampService, transactionService, cleaner, startTimeStamp,
+                conflictDetectionManager, sweepStrategyManager, immutableTimestamp, tokensValidForCommit,
+                constraintCheckingMode, transactionTimeoutMillis, readSentinelBehavior, allowHiddenTableAccess,
+                timestampCache, TransactionOptions.defaults());
+    }
+
+    public SerializableTransaction(KeyValueService keyValueService,
+                                   RemoteLockService lockService,
+                                   TimestampService timestampService,
+                                   TransactionService transactionService,
+                                   Cleaner cleaner,
+                                   Supplier<Long> startTimeStamp,
+                                   ConflictDetectionManager conflictDetectionManager,
+                                   SweepStrategyManager sweepStrategyManager,
+                                   long immutableTimestamp,
+                                   Iterable<LockRefreshToken> tokensValidForCommit,
+                                   AtlasDbConstraintCheckingMode constraintCheckingMode,
+                                   Long transactionTimeoutMillis,
+                                   TransactionReadSentinelBehavior readSentinelBehavior,
+                                   boolean allowHiddenTableAccess,
+                                   TimestampCache timestampCache,
+                                   TransactionOptions options) {
         super(keyValueService,
               lockService,
               timestampService,
@@ -127,7 +164,9 @@ public class SerializableTransaction extends SnapshotTransaction {
               transactionTimeoutMillis,
               readSentinelBehavior,
               allowHiddenTableAccess,
-              timestampCache);
+              timestampCache,
+              options);
+        this.recordReadDigests = options.recordReadDigests();
     }
 
     @Override
@@ -324,11 +363,26 @@ public class SerializableTransaction extends SnapshotTransaction {
         return map;
     }
 
+    /**
+     * Returns what is remembered of a value read: the value itself, or its digest if recording read digests and the
+     * value is longer than the digest. A digest cannot equal a short value stored as is without finding a preimage.
+     */
+    private byte[] toReadRecord(byte[] value) {
+        if (!recordReadDigests || value.length <= READ_DIGEST_LENGTH) {
+            return value;
+        }
+        return READ_DIGEST_FUNCTION.hashBytes(value).asBytes();
+    }
+
+    private Map<Cell, byte[]> toReadRecords(Map<Cell, byte[]> values) {
+        return recordReadDigests ? Maps.transformValues(values, this::toReadRecord) : values;
+    }
+
     private void markCellsRead(TableReference table, Set<Cell> searched, Map<Cell, byte[]> result) {
         if (!isSerializableTable(table)) {
             return;
         }
-        getReadsForTable(table).putAll(transformGetsForTesting(result));
+        getReadsForTable(table).putAll(toReadRecords(transformGetsForTesting(result)));
         Set<Cell> cellsForTable = cellsRead.get(table);
         if (cellsForTable == null) {
             cellsRead.putIfAbsent(table, Sets.newConcurrentHashSet());
@@ -345,7 +399,7 @@ public class SerializableTransaction extends SnapshotTransaction {
         for (RowResult<byte[]> row : result) {
             Map<Cell, byte[]> map = Maps2.fromEntries(row.getCells());
             map = transformGetsForTesting(map);
-            reads.putAll(map);
+            reads.putAll(toReadRecords(map));
         }
         setRangeEnd(table, range, Iterables.getLast(result).getRowName());
     }
@@ -361,7 +415,7 @@ public class SerializableTransaction extends SnapshotTransaction {
         ConcurrentNavigableMap<Cell, byte[]> reads = getReadsForTable(table);
         Map<Cell, byte[]> map = Maps2.fromEntries(result);
         map = transformGetsForTesting(map);
-        reads.putAll(map);
+        reads.putAll(toReadRecords(map));
         setColumnRangeEnd(table, row, range, Iterables.getLast(result).getKey().getColumnName());
     }
 
@@ -387,7 +441,7 @@ public class SerializableTransaction extends SnapshotTransaction {
         for (RowResult<byte[]> row : result) {
             Map<Cell, byte[]> map = Maps2.fromEntries(row.getCells());
             map = transformGetsForTesting(map);
-            reads.putAll(map);
+            reads.putAll(toReadRecords(map));
         }
         Set<RowRead> rowReads = rowsRead.get(table);
         if (rowReads == null) {
@@ -423,28 +477,33 @@ public class SerializableTransaction extends SnapshotTransaction {
     @Override
     protected void throwIfReadWriteConflictForSerializable(long commitTimestamp) {
         Transaction ro = getReadOnlyTransaction(commitTimestamp);
-        verifyRanges(ro);
-        verifyColumnRanges(ro);
-        verifyCells(ro);
-        verifyRows(ro);
+        // Each range, and the reads of each table, are verified independently of the others.
+        List<Runnable> checks = Lists.newArrayList();
+        addRangeChecks(ro, checks);
+        addColumnRangeChecks(ro, checks);
+        addCellChecks(ro, checks);
+        addRowChecks(ro, checks);
+        runIndependentChecks(checks);
     }
 
-    private void verifyRows(Transaction ro) {
+    private void addRowChecks(Transaction ro, List<Runnable> checks) {
         for (Map.Entry<TableReference, Set<RowRead>> tableAndRowsEntry : rowsRead.entrySet()) {
             TableReference table = tableAndRowsEntry.getKey();
             Set<RowRead> rows = tableAndRowsEntry.getValue();
+            checks.add(() -> verifyRows(ro, table, rows));
+        }
+    }
 
-            ConcurrentNavigableMap<Cell, byte[]> readsForTable = getReadsForTable(table);
-            Multimap<ColumnSelection, byte[]> rowsReadByColumns = Multimaps.newSortedSetMultimap(
-                    Maps.newHashMap(),
-                    () -> Sets.newTreeSet(UnsignedBytes.lexicographicalComparator()));
-            for (RowRead r : rows) {
-                rowsReadByColumns.putAll(r.cols, r.rows);
-            }
-            for (ColumnSelection cols : rowsReadByColumns.keySet()) {
-                verifyColumns(ro, table, readsForTable, rowsReadByColumns, cols);
-            }
-
+    private void verifyRows(Transaction ro, TableReference table, Set<RowRead> rows) {
+        ConcurrentNavigableMap<Cell, byte[]> readsForTable = getReadsForTable(table);
+        Multimap<ColumnSelection, byte[]> rowsReadByColumns = Multimaps.newSortedSetMultimap(
+                Maps.newHashMap(),
+                () -> Sets.newTreeSet(UnsignedBytes.lexicographicalComparator()));
+        for (RowRead r : rows) {
+            rowsReadByColumns.putAll(r.cols, r.rows);
+        }
+        for (ColumnSelection cols : rowsReadByColumns.keySet()) {
+            verifyColumns(ro, table, readsForTable, rowsReadByColumns, cols);
         }
     }
 
@@ -486,7 +545,7 @@ public class SerializableTransaction extends SnapshotTransaction {
                             System.currentTimeMillis() - timeCreated);
                 }
 
-                Map<Cell, byte[]> currentCells = Maps2.fromEntries(currentRow.getCells());
+                Map<Cell, byte[]> currentCells = toReadRecords(Maps2.fromEntries(currentRow.getCells()));
                 if (writesByTable.get(table) != null) {
                     // We don't want to verify any reads that we wrote to cause
                     // we will just read our own values.
@@ -521,35 +580,37 @@ public class SerializableTransaction extends SnapshotTransaction {
         return true;
     }
 
-    private void verifyCells(Transaction readOnlyTransaction) {
+    private void addCellChecks(Transaction readOnlyTransaction, List<Runnable> checks) {
         for (Entry<TableReference, Set<Cell>> tableAndCellsEntry : cellsRead.entrySet()) {
             TableReference table = tableAndCellsEntry.getKey();
             Set<Cell> cells = tableAndCellsEntry.getValue();
-
-            final ConcurrentNavigableMap<Cell, byte[]> readsForTable = getReadsForTable(table);
-            for (Iterable<Cell> batch : Iterables.partition(cells, BATCH_SIZE)) {
-                // We don't want to verify any reads that we wrote to cause we will just read our own values.
-                // NB: If the value has changed between read and write, our normal SI checking handles this case
-                Iterable<Cell> batchWithoutWrites = writesByTable.get(table) != null
-                        ? Iterables.filter(batch, Predicates.not(Predicates.in(writesByTable.get(table).keySet())))
-                        : batch;
-                ImmutableSet<Cell> batchWithoutWritesSet = ImmutableSet.copyOf(batchWithoutWrites);
-                Map<Cell, byte[]> currentBatch = readOnlyTransaction.get(table, batchWithoutWritesSet);
-                ImmutableMap<Cell, byte[]> originalReads = Maps.toMap(
-                        Sets.intersection(batchWithoutWritesSet, readsForTable.keySet()),
-                        Functions.forMap(readsForTable));
-                if (!areMapsEqual(currentBatch, originalReads)) {
-                    throw TransactionSerializableConflictException.create(
-                            table,
-                            getTimestamp(),
-                            System.currentTimeMillis() - timeCreated);
-                }
+            checks.add(() -> verifyCells(readOnlyTransaction, table, cells));
+        }
+    }
+
+    private void verifyCells(Transaction readOnlyTransaction, TableReference table, Set<Cell> cells) {
+        final ConcurrentNavigableMap<Cell, byte[]> readsForTable = getReadsForTable(table);
+        for (Iterable<Cell> batch : Iterables.partition(cells, BATCH_SIZE)) {
+            // We don't want to verify any reads that we wrote to cause we will just read our own values.
+            // NB: If the value has changed between read and write, our normal SI checking handles this case
+            Iterable<Cell> batchWithoutWrites = writesByTable.get(table) != null
+                    ? Iterables.filter(batch, Predicates.not(Predicates.in(writesByTable.get(table).keySet())))
+                    : batch;
+            ImmutableSet<Cell> batchWithoutWritesSet = ImmutableSet.copyOf(batchWithoutWrites);
+            Map<Cell, byte[]> currentBatch = toReadRecords(readOnlyTransaction.get(table, batchWithoutWritesSet));
+            ImmutableMap<Cell, byte[]> originalReads = Maps.toMap(
+                    Sets.intersection(batchWithoutWritesSet, readsForTable.keySet()),
+                    Functions.forMap(readsForTable));
+            if (!areMapsEqual(currentBatch, originalReads)) {
+                throw TransactionSerializableConflictException.create(
+                        table,
+                        getTimestamp(),
+                        System.currentTimeMillis() - timeCreated);
             }
         }
     }
 
-    private void verifyRanges(Transaction readOnlyTransaction) {
-        // verify each set of reads to ensure they are the same.
+    private void addRangeChecks(Transaction readOnlyTransaction, List<Runnable> checks) {
         for (Entry<TableReference, ConcurrentMap<RangeRequest, byte[]>> tableAndRange : rangeEndByTable.entrySet()) {
             TableReference table = tableAndRange.getKey();
             Map<RangeRequest, byte[]> rangeEnds = tableAndRange.getValue();
@@ -557,26 +618,34 @@ public class SerializableTransaction extends SnapshotTransaction {
             for (Entry<RangeRequest, byte[]> rangeAndRangeEndEntry : rangeEnds.entrySet()) {
                 RangeRequest range = rangeAndRangeEndEntry.getKey();
                 byte[] rangeEnd = rangeAndRangeEndEntry.getValue();
+                checks.add(() -> verifyRange(readOnlyTransaction, table, range, rangeEnd));
+            }
+        }
+    }
 
-                if (rangeEnd.length != 0 && !RangeRequests.isTerminalRow(range.isReverse(), rangeEnd)) {
-                    range = range.getBuilder()
-                            .endRowExclusive(RangeRequests.getNextStartRow(range.isReverse(), rangeEnd))
-                            .build();
-                }
+    private void verifyRange(Transaction readOnlyTransaction,
+                             TableReference table,
+                             RangeRequest rangeRead,
+                             byte[] rangeEnd) {
+        // verify each set of reads to ensure they are the same.
+        RangeRequest range = rangeRead;
+        if (rangeEnd.length != 0 && !RangeRequests.isTerminalRow(range.isReverse(), rangeEnd)) {
+            range = range.getBuilder()
+                    .endRowExclusive(RangeRequests.getNextStartRow(range.isReverse(), rangeEnd))
+                    .build();
+        }
 
-                ConcurrentNavigableMap<Cell, byte[]> writes = writesByTable.get(table);
-                BatchingVisitableView<RowResult<byte[]>> bv = BatchingVisitableView.of(
-                        readOnlyTransaction.getRange(table, range));
-                NavigableMap<Cell, ByteBuffer> readsInRange = Maps.transformValues(
-                        getReadsInRange(table, range),
-                        ByteBuffer::wrap);
-                if (!bv.transformBatch(input -> filterWritesFromRows(input, writes)).isEqual(readsInRange.entrySet())) {
-                    throw TransactionSerializableConflictException.create(
-                            table,
-                            getTimestamp(),
-                            System.currentTimeMillis() - timeCreated);
-                }
-            }
+        ConcurrentNavigableMap<Cell, byte[]> writes = writesByTable.get(table);
+        BatchingVisitableView<RowResult<byte[]>> bv = BatchingVisitableView.of(
+                readOnlyTransaction.getRange(table, range));
+        NavigableMap<Cell, ByteBuffer> readsInRange = Maps.transformValues(
+                getReadsInRange(table, range),
+                ByteBuffer::wrap);
+        if (!bv.transformBatch(input -> filterWritesFromRows(input, writes)).isEqual(readsInRange.entrySet())) {
+            throw TransactionSerializableConflictException.create(
+                    table,
+                    getTimestamp(),
+                    System.currentTimeMillis() - timeCreated);
         }
     }
 
@@ -605,56 +674,61 @@ public class SerializableTransaction extends SnapshotTransaction {
         return reads;
     }
 
-    private void verifyColumnRanges(Transaction readOnlyTransaction) {
-        // verify each set of reads to ensure they are the same.
+    private void addColumnRangeChecks(Transaction readOnlyTransaction, List<Runnable> checks) {
         for (Entry<TableReference,
                 ConcurrentMap<byte[], ConcurrentMap<BatchColumnRangeSelection, byte[]>>> tableAndRange :
                 columnRangeEndsByTable.entrySet()) {
             TableReference table = tableAndRange.getKey();
             Map<byte[], ConcurrentMap<BatchColumnRangeSelection, byte[]>> columnRangeEnds = tableAndRange.getValue();
+            checks.add(() -> verifyColumnRanges(readOnlyTransaction, table, columnRangeEnds));
+        }
+    }
 
-            Map<Cell, byte[]> writes = writesByTable.get(table);
-            Map<BatchColumnRangeSelection, List<byte[]>> rangesToRows = Maps.newHashMap();
-            for (Entry<byte[], ConcurrentMap<BatchColumnRangeSelection, byte[]>> rowAndRangeEnds :
-                    columnRangeEnds.entrySet()) {
-                byte[] row = rowAndRangeEnds.getKey();
-                Map<BatchColumnRangeSelection, byte[]> rangeEnds = columnRangeEnds.get(row);
-
-                for (Entry<BatchColumnRangeSelection, byte[]> e : rangeEnds.entrySet()) {
-                    BatchColumnRangeSelection range = e.getKey();
-                    byte[] rangeEnd = e.getValue();
-                    if (rangeEnd.length != 0 && !RangeRequests.isTerminalRow(false, rangeEnd)) {
-                        range = BatchColumnRangeSelection.create(
-                                range.getStartCol(),
-                                RangeRequests.getNextStartRow(false, rangeEnd),
-                                range.getBatchHint());
-                    }
-                    if (rangesToRows.get(range) != null) {
-                        rangesToRows.get(range).add(row);
-                    } else {
-                        rangesToRows.put(range, ImmutableList.of(row));
-                    }
+    private void verifyColumnRanges(Transaction readOnlyTransaction,
+                                    TableReference table,
+                                    Map<byte[], ConcurrentMap<BatchColumnRangeSelection, byte[]>> columnRangeEnds) {
+        // verify each set of reads to ensure they are the same.
+        Map<Cell, byte[]> writes = writesByTable.get(table);
+        Map<BatchColumnRangeSelection, List<byte[]>> rangesToRows = Maps.newHashMap();
+        for (Entry<byte[], ConcurrentMap<BatchColumnRangeSelection, byte[]>> rowAndRangeEnds :
+                columnRangeEnds.entrySet()) {
+            byte[] row = rowAndRangeEnds.getKey();
+            Map<BatchColumnRangeSelection, byte[]> rangeEnds = columnRangeEnds.get(row);
+
+            for (Entry<BatchColumnRangeSelection, byte[]> e : rangeEnds.entrySet()) {
+                BatchColumnRangeSelection range = e.getKey();
+                byte[] rangeEnd = e.getValue();
+                if (rangeEnd.length != 0 && !RangeRequests.isTerminalRow(false, rangeEnd)) {
+                    range = BatchColumnRangeSelection.create(
+                            range.getStartCol(),
+                            RangeRequests.getNextStartRow(false, rangeEnd),
+                            range.getBatchHint());
+                }
+                if (rangesToRows.get(range) != null) {
+                    rangesToRows.get(range).add(row);
+                } else {
+                    rangesToRows.put(range, ImmutableList.of(row));
                 }
             }
-            for (Entry<BatchColumnRangeSelection, List<byte[]>> e : rangesToRows.entrySet()) {
-                BatchColumnRangeSelection range = e.getKey();
-                List<byte[]> rows = e.getValue();
-                Map<byte[], BatchingVisitable<Map.Entry<Cell, byte[]>>> result =
-                        readOnlyTransaction.getRowsColumnRange(table, rows, range);
-                for (Entry<byte[], BatchingVisitable<Map.Entry<Cell, byte[]>>> res : result.entrySet()) {
-                    byte[] row = res.getKey();
-                    BatchingVisitableView<Entry<Cell, byte[]>> bv = BatchingVisitableView.of(res.getValue());
-                    NavigableMap<Cell, ByteBuffer> readsInRange = Maps.transformValues(
-                            getReadsInColumnRange(table, row, range),
-                            input -> ByteBuffer.wrap(input));
-                    boolean isEqual = bv.transformBatch(input -> filterWritesFromCells(input, writes))
-                            .isEqual(readsInRange.entrySet());
-                    if (!isEqual) {
-                        throw TransactionSerializableConflictException.create(
-                                table,
-                                getTimestamp(),
-                                System.currentTimeMillis() - timeCreated);
-                    }
+        }
+        for (Entry<BatchColumnRangeSelection, List<byte[]>> e : rangesToRows.entrySet()) {
+            BatchColumnRangeSelection range = e.getKey();
+            List<byte[]> rows = e.getValue();
+            Map<byte[], BatchingVisitable<Map.Entry<Cell, byte[]>>> result =
+                    readOnlyTransaction.getRowsColumnRange(table, rows, range);
+            for (Entry<byte[], BatchingVisitable<Map.Entry<Cell, byte[]>>> res : result.entrySet()) {
+                byte[] row = res.getKey();
+                BatchingVisitableView<Entry<Cell, byte[]>> bv = BatchingVisitableView.of(res.getValue());
+                NavigableMap<Cell, ByteBuffer> readsInRange = Maps.transformValues(
+                        getReadsInColumnRange(table, row, range),
+                        input -> ByteBuffer.wrap(input));
+                boolean isEqual = bv.transformBatch(input -> filterWritesFromCells(input, writes))
+                        .isEqual(readsInRange.entrySet());
+                if (!isEqual) {
+                    throw TransactionSerializableConflictException.create(
+                            table,
+                            getTimestamp(),
+                            System.currentTimeMillis() - timeCreated);
                 }
             }
         }
@@ -668,7 +742,9 @@ public class SerializableTransaction extends SnapshotTransaction {
             // NB: We filter our write set out here because our normal SI
             // checking handles this case to ensure the value hasn't changed.
             if (writes == null || !writes.containsKey(cell.getKey())) {
-                cellsWithoutWrites.add(Maps.immutableEntry(cell.getKey(), ByteBuffer.wrap(cell.getValue())));
+                cellsWithoutWrites.add(Maps.immutableEntry(
+                        cell.getKey(),
+                        ByteBuffer.wrap(toReadRecord(cell.getValue()))));
             }
         }
         return cellsWithoutWrites;
@@ -724,14 +800,15 @@ public class SerializableTransaction extends SnapshotTransaction {
                 allowHiddenTableAccess,
                 timestampValidationReadCache) {
             @Override
-            protected Map<Long, Long> getCommitTimestamps(TableReference tableRef,
-                                                          Iterable<Long> startTimestamps,
-                                                          boolean waitForCommitterToComplete) {
-                Set<Long> beforeStart = Sets.newHashSet();
-                Set<Long> afterStart = Sets.newHashSet();
+            protected TLongLongMap getCommitTimestamps(TableReference tableRef,
+                                                       TLongCollection startTimestamps,
+                                                       boolean waitForCommitterToComplete) {
+                TLongSet beforeStart = new TLongHashSet();
+                TLongSet afterStart = new TLongHashSet();
                 boolean containsMyStart = false;
                 long myStart = SerializableTransaction.this.getTimestamp();
-                for (long startTs : startTimestamps) {
+                for (TLongIterator iter = startTimestamps.iterator(); iter.hasNext();) {
+                    long startTs = iter.next();
                     if (startTs == myStart) {
                         containsMyStart = true;
                     } else if (startTs < myStart) {
@@ -740,12 +817,12 @@ public class SerializableTransaction extends SnapshotTransaction {
                         afterStart.add(startTs);
                     }
                 }
-                Map<Long, Long> ret = Maps.newHashMap();
+                TLongLongMap ret = new TLongLongHashMap();
                 if (!afterStart.isEmpty()) {
                     // We do not block when waiting for results that were written after our
                     // start timestamp.  If we block here it may lead to deadlock if two transactions
                     // (or a cycle of any length) have all written their data and all doing checks before committing.
-                    Map<Long, Long> afterResults = super.getCommitTimestamps(tableRef, afterStart, false);
+                    TLongLongMap afterResults = super.getCommitTimestamps(tableRef, afterStart, false);
                     if (!afterResults.keySet().containsAll(afterStart)) {
                         // If we do not get back all these results we may be in the deadlock case so we should just
                         // fail out early.  It may be the case that abort more transactions than needed to break the
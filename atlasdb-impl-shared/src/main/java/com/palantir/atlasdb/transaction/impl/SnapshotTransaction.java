@@ -28,9 +28,13 @@ import java.util.SortedMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 
 import javax.annotation.Nullable;
 
@@ -72,6 +76,7 @@ import com.google.common.primitives.UnsignedBytes;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.AtlasDbPerformanceConstants;
 import com.palantir.atlasdb.cache.TimestampCache;
+import com.palantir.atlasdb.cache.WriteOnceValueCache;
 import com.palantir.atlasdb.cleaner.Cleaner;
 import com.palantir.atlasdb.cleaner.NoOpCleaner;
 import com.palantir.atlasdb.encoding.PtBytes;
@@ -130,6 +135,15 @@ import com.palantir.timestamp.TimestampService;
 import com.palantir.util.AssertUtils;
 import com.palantir.util.paging.TokenBackedBasicResultsPage;
 
+import gnu.trove.TLongCollection;
+import gnu.trove.iterator.TLongIterator;
+import gnu.trove.iterator.TLongLongIterator;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.TLongLongMap;
+import gnu.trove.map.hash.TLongLongHashMap;
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
+
 /**
  * This implements snapshot isolation for transactions.
  * <p>
@@ -151,6 +165,7 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
     private static final Logger constraintLogger = LoggerFactory.getLogger("dualschema.constraints");
 
     private static final int BATCH_SIZE_GET_FIRST_PAGE = 1000;
+    private static final long NOT_IN_CACHE = Long.MIN_VALUE;
 
     private enum State {
         UNCOMMITTED,
@@ -190,9 +205,15 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
     protected final Long transactionReadTimeoutMillis;
     private final TransactionReadSentinelBehavior readSentinelBehavior;
     private volatile long commitTsForScrubbing = TransactionConstants.FAILED_COMMIT_TS;
+    private long commitNanosOverlapped = 0;
     protected final boolean allowHiddenTableAccess;
     protected final Stopwatch transactionTimer = Stopwatch.createStarted();
     protected final TimestampCache timestampValidationReadCache;
+    @Nullable
+    private final ExecutorService commitExecutor;
+    protected final WriteOnceValueCache writeOnceValueCache;
+    protected final LockWatchingValueCache.TransactionValues lockWatchingValues;
+    private final RangeScanPrefetcher rangeScanPrefetcher;
 
     private final MetricRegistry metricRegistry = AtlasDbMetrics.getMetricRegistry();
     private final Timer.Context transactionTimerContext = getTimer("transactionMillis").time();
@@ -218,6 +239,28 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
                                TransactionReadSentinelBehavior readSentinelBehavior,
                                boolean allowHiddenTableAccess,
                                TimestampCache timestampValidationReadCache) {
+        this(keyValueService, lockService, timestampService, transactionService, cleaner, startTimeStamp,
+                conflictDetectionManager, sweepStrategyManager, immutableTimestamp, tokensValidForCommit,
+                constraintCheckingMode, transactionTimeoutMillis, readSentinelBehavior, allowHiddenTableAccess,
+                timestampValidationReadCache, TransactionOptions.defaults());
+    }
+
+    /* package */ SnapshotTransaction(KeyValueService keyValueService,
+                               RemoteLockService lockService,
+                               TimestampService timestampService,
+                               TransactionService transactionService,
+                               Cleaner cleaner,
+                               Supplier<Long> startTimeStamp,
+                               ConflictDetectionManager conflictDetectionManager,
+                               SweepStrategyManager sweepStrategyManager,
+                               long immutableTimestamp,
+                               Iterable<LockRefreshToken> tokensValidForCommit,
+                               AtlasDbConstraintCheckingMode constraintCheckingMode,
+                               Long transactionTimeoutMillis,
+                               TransactionReadSentinelBehavior readSentinelBehavior,
+                               boolean allowHiddenTableAccess,
+                               TimestampCache timestampValidationReadCache,
+                               TransactionOptions options) {
         this.keyValueService = keyValueService;
         this.timestampService = timestampService;
         this.defaultTransactionService = transactionService;
@@ -233,6 +276,10 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         this.readSentinelBehavior = readSentinelBehavior;
         this.allowHiddenTableAccess = allowHiddenTableAccess;
         this.timestampValidationReadCache = timestampValidationReadCache;
+        this.commitExecutor = options.commitExecutor().orElse(null);
+        this.writeOnceValueCache = options.writeOnceValueCache();
+        this.lockWatchingValues = options.lockWatchingValueCache().startTransaction();
+        this.rangeScanPrefetcher = options.rangeScanPrefetcher();
     }
 
     // TEST ONLY
@@ -261,6 +308,10 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         this.readSentinelBehavior = readSentinelBehavior;
         this.allowHiddenTableAccess = false;
         this.timestampValidationReadCache = timestampValidationReadCache;
+        this.commitExecutor = null;
+        this.writeOnceValueCache = WriteOnceValueCache.disabled();
+        this.lockWatchingValues = LockWatchingValueCache.disabled().startTransaction();
+        this.rangeScanPrefetcher = RangeScanPrefetcher.disabled();
     }
 
     /**
@@ -301,6 +352,10 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         this.readSentinelBehavior = readSentinelBehavior;
         this.allowHiddenTableAccess = allowHiddenTableAccess;
         this.timestampValidationReadCache = timestampValidationReadCache;
+        this.commitExecutor = null;
+        this.writeOnceValueCache = WriteOnceValueCache.disabled();
+        this.lockWatchingValues = LockWatchingValueCache.disabled().startTransaction();
+        this.rangeScanPrefetcher = RangeScanPrefetcher.disabled();
     }
 
     @Override
@@ -607,12 +662,37 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
      */
     private Map<Cell, byte[]> getFromKeyValueService(TableReference tableRef, Set<Cell> cells) {
         Map<Cell, byte[]> result = Maps.newHashMap();
-        Map<Cell, Long> toRead = Cells.constantValueMap(cells, getStartTimestamp());
+        Set<Cell> cellsToRead = cells;
+        if (writeOnceValueCache.isCached(tableRef)) {
+            result.putAll(writeOnceValueCache.getVisibleValues(tableRef, cells, getStartTimestamp()));
+        } else if (isLockWatched(tableRef)) {
+            result.putAll(lockWatchingValues.getVisibleValues(tableRef, cells, getStartTimestamp()));
+        }
+        if (!result.isEmpty()) {
+            if (result.size() == cells.size()) {
+                return result;
+            }
+            cellsToRead = Sets.difference(cells, result.keySet());
+        }
+        Map<Cell, Long> toRead = Cells.constantValueMap(cellsToRead, getStartTimestamp());
         Map<Cell, Value> rawResults = keyValueService.get(tableRef, toRead);
         getWithPostFiltering(tableRef, rawResults, result, Value.GET_VALUE);
         return result;
     }
 
+    /**
+     * Values of a table can only be cached by watching its row locks if every transaction that writes to it locks the
+     * rows it writes.
+     */
+    private boolean isLockWatched(TableReference tableRef) {
+        if (!lockWatchingValues.isCached(tableRef)) {
+            return false;
+        }
+        ConflictHandler conflictHandler = getConflictHandlerForTable(tableRef);
+        return conflictHandler != ConflictHandler.IGNORE_ALL
+                && conflictHandler != ConflictHandler.RETRY_ON_WRITE_WRITE_CELL;
+    }
+
     private static byte[] getNextStartRowName(
             RangeRequest range,
             TokenBackedBasicResultsPage<RowResult<Value>, byte[]> prePostFilter) {
@@ -756,6 +836,36 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         };
     }
 
+    @Override
+    public Stream<RowResult<byte[]>> getRangeInParallel(TableReference tableRef,
+                                                        RangeRequest rangeRequest,
+                                                        Iterable<byte[]> splitRows,
+                                                        Executor executor,
+                                                        int concurrency) {
+        checkGetPreconditions(tableRef);
+        // Each split range goes through getRange, so that it is post-filtered, merged with the local writes and,
+        // for serializable transactions, recorded as read, on the task scanning it.
+        return ParallelRangeScan.unordered(
+                RangeRequests.split(rangeRequest, splitRows),
+                range -> getRange(tableRef, range),
+                executor,
+                concurrency);
+    }
+
+    @Override
+    public Stream<RowResult<byte[]>> getRangeInParallelOrdered(TableReference tableRef,
+                                                               RangeRequest rangeRequest,
+                                                               Iterable<byte[]> splitRows,
+                                                               Executor executor,
+                                                               int concurrency) {
+        checkGetPreconditions(tableRef);
+        return ParallelRangeScan.ordered(
+                RangeRequests.split(rangeRequest, splitRows),
+                range -> getRange(tableRef, range),
+                executor,
+                concurrency);
+    }
+
     private <K extends Exception> boolean getBatchingVisitableFromIterator(
             TableReference tableRef,
             RangeRequest range,
@@ -824,6 +934,9 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
                 new RowRangeBatchProvider(keyValueService, tableRef, range, getStartTimestamp());
         BatchSizeIncreasingIterator<RowResult<Value>> results =
                 new BatchSizeIncreasingIterator<>(batchProvider, preFilterBatchSize, null);
+        if (rangeScanPrefetcher.isEnabled()) {
+            return prefetchingPostFilterIterator(tableRef, results, transformer);
+        }
         Iterator<Iterator<RowResult<T>>> batchedPostFiltered = new AbstractIterator<Iterator<RowResult<T>>>() {
             @Override
             protected Iterator<RowResult<T>> computeNext() {
@@ -852,6 +965,56 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         };
     }
 
+    private <T> ClosableIterator<RowResult<T>> prefetchingPostFilterIterator(
+            TableReference tableRef,
+            BatchSizeIncreasingIterator<RowResult<Value>> results,
+            Function<Value, T> transformer) {
+        // Only the thread fetching pages uses the batch iterator, so it is told how many rows of the pages it fetched
+        // were not deleted just before it picks the size of the next page.
+        AtomicInteger numRowsNotDeleted = new AtomicInteger();
+        ClosableIterator<List<RowResult<Value>>> pages = rangeScanPrefetcher.prefetch(
+                () -> {
+                    results.markNumResultsNotDeleted(numRowsNotDeleted.getAndSet(0));
+                    return results.getBatch();
+                },
+                SnapshotTransaction::getApproxSizeOfRow,
+                results::close);
+        Iterator<Iterator<RowResult<T>>> batchedPostFiltered = new AbstractIterator<Iterator<RowResult<T>>>() {
+            @Override
+            protected Iterator<RowResult<T>> computeNext() {
+                boolean hasNext = pages.hasNext();
+                validateExternalAndCommitLocksIfNecessary(tableRef);
+                if (!hasNext) {
+                    return endOfData();
+                }
+                SortedMap<Cell, T> postFilter = postFilterRows(tableRef, pages.next(), transformer);
+                numRowsNotDeleted.addAndGet(Cells.getRows(postFilter.keySet()).size());
+                return Cells.createRowView(postFilter.entrySet());
+            }
+        };
+
+        final Iterator<RowResult<T>> rows = Iterators.concat(batchedPostFiltered);
+        return new ForwardingClosableIterator<RowResult<T>>() {
+            @Override
+            protected ClosableIterator<RowResult<T>> delegate() {
+                return ClosableIterators.wrap(rows);
+            }
+
+            @Override
+            public void close() {
+                pages.close();
+            }
+        };
+    }
+
+    private static long getApproxSizeOfRow(RowResult<Value> row) {
+        long size = row.getRowName().length;
+        for (Map.Entry<byte[], Value> column : row.getColumns().entrySet()) {
+            size += column.getKey().length + column.getValue().getContents().length;
+        }
+        return size;
+    }
+
     private ConcurrentNavigableMap<Cell, byte[]> getLocalWrites(TableReference tableRef) {
         ConcurrentNavigableMap<Cell, byte[]> writes = writesByTable.get(tableRef);
         if (writes == null) {
@@ -974,8 +1137,10 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
                                                               Map<Cell, Value> rawResults,
                                                               @Output Map<Cell, T> results,
                                                               Function<Value, T> transformer) {
-        Set<Long> startTimestampsForValues = getStartTimestampsForValues(rawResults.values());
-        Map<Long, Long> commitTimestamps = getCommitTimestamps(tableRef, startTimestampsForValues, true);
+        TLongSet startTimestampsForValues = getStartTimestampsForValues(rawResults.values());
+        TLongLongMap commitTimestamps = getCommitTimestamps(tableRef, startTimestampsForValues, true);
+        boolean cacheValues = writeOnceValueCache.isCached(tableRef);
+        boolean cacheLockWatchedValues = !cacheValues && isLockWatched(tableRef);
         Map<Cell, Long> keysToReload = Maps.newHashMapWithExpectedSize(0);
         Map<Cell, Long> keysToDelete = Maps.newHashMapWithExpectedSize(0);
         for (Map.Entry<Cell, Value> e :  rawResults.entrySet()) {
@@ -998,8 +1163,9 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
                         throw new IllegalStateException("Invalid read sentinel behavior " + getReadSentinelBehavior());
                 }
             } else {
-                Long theirCommitTimestamp = commitTimestamps.get(value.getTimestamp());
-                if (theirCommitTimestamp == null || theirCommitTimestamp == TransactionConstants.FAILED_COMMIT_TS) {
+                long theirCommitTimestamp = commitTimestamps.get(value.getTimestamp());
+                if (!commitTimestamps.containsKey(value.getTimestamp())
+                        || theirCommitTimestamp == TransactionConstants.FAILED_COMMIT_TS) {
                     keysToReload.put(key, value.getTimestamp());
                     if (shouldDeleteAndRollback()) {
                         // This is from a failed transaction so we can roll it back and then reload it.
@@ -1015,6 +1181,13 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
                     // The value has a commit timestamp less than our start timestamp, and is visible and valid.
                     if (value.getContents().length != 0) {
                         results.put(key, transformer.apply(value));
+                        if (cacheValues) {
+                            writeOnceValueCache.cacheCommittedValue(
+                                    tableRef, key, value.getContents(), theirCommitTimestamp, immutableTimestamp);
+                        } else if (cacheLockWatchedValues) {
+                            lockWatchingValues.cacheCommittedValue(
+                                    tableRef, key, value.getContents(), theirCommitTimestamp);
+                        }
                     }
                 }
             }
@@ -1234,6 +1407,9 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
             throwIfConflictOnCommit(commitLocksToken, transactionService);
             long millisCheckingForConflicts = TimeUnit.NANOSECONDS.toMillis(conflictsTimer.stop());
             Timer.Context writesTimer = getTimer("commitWrite").time();
+            // Queue our writes for targeted sweep before making them, so that every value we write is in the queue
+            // whether or not we go on to commit.
+            cleaner.queueWritesForSweeping(writesByTable, getStartTimestamp());
             keyValueService.multiPut(writesByTable, getStartTimestamp());
             long millisForWrites = TimeUnit.NANOSECONDS.toMillis(writesTimer.stop());
 
@@ -1244,24 +1420,42 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
             long commitTimestamp = timestampService.getFreshTimestamp();
             commitTsForScrubbing = commitTimestamp;
 
-            // punch on commit so that if hard delete is the only thing happening on a system,
-            // we won't block forever waiting for the unreadable timestamp to advance past the
-            // scrub timestamp (same as the hard delete transaction's start timestamp)
-            Timer.Context punchTimer = getTimer("millisForPunch").time();
-            cleaner.punch(commitTimestamp);
-            long millisForPunch = TimeUnit.NANOSECONDS.toMillis(punchTimer.stop());
-
             throwIfReadWriteConflictForSerializable(commitTimestamp);
 
-            // Verify that our locks are still valid before we actually commit;
-            // this check is required by the transaction protocol for correctness
-            throwIfExternalAndCommitLocksNotValid(commitLocksToken);
-
-            Timer.Context commitTsTimer = getTimer("commitPutCommitTs").time();
-            putCommitTimestamp(commitTimestamp, commitLocksToken, transactionService);
-            long millisForCommitTs = TimeUnit.NANOSECONDS.toMillis(commitTsTimer.stop());
+            // The lock refresh has to start after everything we checked for conflicts has been read, so that it
+            // sees our locks as they are when we commit. Punching does not touch our locks, so the two can overlap.
+            CommitStage<Set<LockRefreshToken>> refreshBeforeCommit =
+                    CommitStage.start(commitExecutor, () -> refreshExternalAndCommitLocks(commitLocksToken));
+            long millisForPunch;
+            try {
+                // punch on commit so that if hard delete is the only thing happening on a system,
+                // we won't block forever waiting for the unreadable timestamp to advance past the
+                // scrub timestamp (same as the hard delete transaction's start timestamp)
+                Timer.Context punchTimer = getTimer("millisForPunch").time();
+                cleaner.punch(commitTimestamp);
+                millisForPunch = TimeUnit.NANOSECONDS.toMillis(punchTimer.stop());
+
+                // Verify that our locks are still valid before we actually commit;
+                // this check is required by the transaction protocol for correctness
+                throwIfLocksExpired(commitLocksToken, await(refreshBeforeCommit));
+            } finally {
+                refreshBeforeCommit.awaitQuietly();
+            }
 
-            Set<LockRefreshToken> expiredLocks = refreshExternalAndCommitLocks(commitLocksToken);
+            // Nothing depends on the refresh after committing, so it can run alongside the commit timestamp write.
+            CommitStage<Set<LockRefreshToken>> refreshAfterCommit =
+                    CommitStage.start(commitExecutor, () -> refreshExternalAndCommitLocks(commitLocksToken));
+            long millisForCommitTs;
+            Set<LockRefreshToken> expiredLocks;
+            try {
+                Timer.Context commitTsTimer = getTimer("commitPutCommitTs").time();
+                putCommitTimestamp(commitTimestamp, commitLocksToken, transactionService);
+                millisForCommitTs = TimeUnit.NANOSECONDS.toMillis(commitTsTimer.stop());
+
+                expiredLocks = await(refreshAfterCommit);
+            } finally {
+                refreshAfterCommit.awaitQuietly();
+            }
             if (!expiredLocks.isEmpty()) {
                 final String baseMsg = "This isn't a bug but it should happen very infrequently. "
                         + "Required locks are no longer valid but we have already committed successfully. ";
@@ -1273,14 +1467,18 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
             getTimer("commitTotalTimeSinceTxCreation").update(millisSinceCreation, TimeUnit.MILLISECONDS);
             Histogram byteSizeTx = getHistogram("byteSizeTx");
             byteSizeTx.update(byteCount.get());
+            if (commitExecutor != null) {
+                getTimer("commitPipeliningSaved").update(commitNanosOverlapped, TimeUnit.NANOSECONDS);
+            }
             if (perfLogger.isDebugEnabled()) {
                 perfLogger.debug("Committed {} bytes with locks, start ts {}, commit ts {}, "
                         + "acquiring locks took {} ms, checking for conflicts took {} ms, "
                         + "writing took {} ms, punch took {} ms, putCommitTs took {} ms, "
-                        + "total time since tx creation {} ms, tables: {}.",
+                        + "pipelining saved {} ms, total time since tx creation {} ms, tables: {}.",
                         byteCount.get(), getStartTimestamp(),
                         commitTimestamp, millisForLocks, millisCheckingForConflicts, millisForWrites,
-                        millisForPunch, millisForCommitTs, millisSinceCreation, writesByTable.keySet());
+                        millisForPunch, millisForCommitTs, TimeUnit.NANOSECONDS.toMillis(commitNanosOverlapped),
+                        millisSinceCreation, writesByTable.keySet());
             }
         } finally {
             lockService.unlock(commitLocksToken);
@@ -1316,7 +1514,11 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
     }
 
     private void throwIfExternalAndCommitLocksNotValid(@Nullable LockRefreshToken commitLocksToken) {
-        Set<LockRefreshToken> expiredLocks = refreshExternalAndCommitLocks(commitLocksToken);
+        throwIfLocksExpired(commitLocksToken, refreshExternalAndCommitLocks(commitLocksToken));
+    }
+
+    private void throwIfLocksExpired(@Nullable LockRefreshToken commitLocksToken,
+                                     Set<LockRefreshToken> expiredLocks) {
         if (!expiredLocks.isEmpty()) {
             final String baseMsg = "Required locks are no longer valid. ";
             String expiredLocksErrorString = getExpiredLocksErrorString(commitLocksToken, expiredLocks);
@@ -1351,17 +1553,49 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
      */
     protected void throwIfConflictOnCommit(LockRefreshToken commitLocksToken, TransactionService transactionService)
             throws TransactionConflictException {
+        // Tables are checked independently of each other.
+        List<Runnable> tableChecks = Lists.newArrayList();
         for (Entry<TableReference, ConcurrentNavigableMap<Cell, byte[]>> write : writesByTable.entrySet()) {
             ConflictHandler conflictHandler = getConflictHandlerForTable(write.getKey());
-            throwIfWriteAlreadyCommitted(
+            tableChecks.add(() -> throwIfWriteAlreadyCommitted(
                     write.getKey(),
                     write.getValue(),
                     conflictHandler,
                     commitLocksToken,
-                    transactionService);
+                    transactionService));
+        }
+        runIndependentChecks(tableChecks);
+    }
+
+    /**
+     * Runs checks of the commit protocol which do not depend on each other. With a commit executor all but the last
+     * run on other threads while the last runs on this one; otherwise they run one after another on this thread.
+     * Either way, no check is still running when this returns or throws.
+     */
+    protected final void runIndependentChecks(List<Runnable> checks) {
+        List<CommitStage<Void>> otherChecks = Lists.newArrayList();
+        try {
+            for (int i = 0; i < checks.size(); i++) {
+                if (commitExecutor != null && i < checks.size() - 1) {
+                    otherChecks.add(CommitStage.start(commitExecutor, checks.get(i)));
+                } else {
+                    checks.get(i).run();
+                }
+            }
+            for (CommitStage<Void> check : otherChecks) {
+                await(check);
+            }
+        } finally {
+            otherChecks.forEach(CommitStage::awaitQuietly);
         }
     }
 
+    private <T> T await(CommitStage<T> stage) {
+        T result = stage.get();
+        commitNanosOverlapped += stage.getOverlappedNanos();
+        return result;
+    }
+
     protected void throwIfWriteAlreadyCommitted(TableReference tableRef,
                                                 Map<Cell, byte[]> writes,
                                                 ConflictHandler conflictHandler,
@@ -1473,7 +1707,9 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
                                                                   @Output Set<CellConflict> dominatingWrites,
                                                                   TransactionService transactionService) {
         Map<Cell, Long> rawResults = keyValueService.getLatestTimestamps(tableRef, keysToLoad);
-        Map<Long, Long> commitTimestamps = getCommitTimestamps(tableRef, rawResults.values(), false);
+        TLongSet startTimestamps = new TLongHashSet(rawResults.size());
+        rawResults.values().forEach(startTimestamps::add);
+        TLongLongMap commitTimestamps = getCommitTimestamps(tableRef, startTimestamps, false);
         Map<Cell, Long> keysToDelete = Maps.newHashMapWithExpectedSize(0);
 
         for (Map.Entry<Cell, Long> e : rawResults.entrySet()) {
@@ -1482,8 +1718,8 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
             AssertUtils.assertAndLog(theirStartTimestamp != getStartTimestamp(),
                     "Timestamp reuse is bad:%d", getStartTimestamp());
 
-            Long theirCommitTimestamp = commitTimestamps.get(theirStartTimestamp);
-            if (theirCommitTimestamp == null
+            long theirCommitTimestamp = commitTimestamps.get(theirStartTimestamp);
+            if (!commitTimestamps.containsKey(theirStartTimestamp)
                     || theirCommitTimestamp == TransactionConstants.FAILED_COMMIT_TS) {
                 // The value has no commit timestamp or was explicitly rolled back.
                 // This means the value is garbage from a transaction which didn't commit.
@@ -1529,10 +1765,10 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
     private boolean rollbackFailedTransactions(
             TableReference tableRef,
             Map<Cell, Long> keysToDelete,
-            Map<Long, Long> commitTimestamps,
+            TLongLongMap commitTimestamps,
             TransactionService transactionService) {
         for (long startTs : Sets.newHashSet(keysToDelete.values())) {
-            if (commitTimestamps.get(startTs) == null) {
+            if (!commitTimestamps.containsKey(startTs)) {
                 log.warn("Rolling back transaction: {}", startTs);
                 if (!rollbackOtherTransaction(startTs, transactionService)) {
                     return false;
@@ -1637,10 +1873,11 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
      * the committing transaction is either complete or it has failed and we are allowed to roll
      * it back.
      */
-    private void waitForCommitToComplete(Iterable<Long> startTimestamps) {
+    private void waitForCommitToComplete(TLongCollection startTimestamps) {
         boolean isEmpty = true;
         Builder<LockDescriptor, LockMode> builder = ImmutableSortedMap.naturalOrder();
-        for (long start : startTimestamps) {
+        for (TLongIterator iter = startTimestamps.iterator(); iter.hasNext();) {
+            long start = iter.next();
             if (start < immutableTimestamp) {
                 // We don't need to block in this case because this transaction is already complete
                 continue;
@@ -1672,8 +1909,8 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
     /// Commit timestamp management
     ///////////////////////////////////////////////////////////////////////////
 
-    private Set<Long> getStartTimestampsForValues(Iterable<Value> values) {
-        Set<Long> results = Sets.newHashSet();
+    private TLongSet getStartTimestampsForValues(Iterable<Value> values) {
+        TLongSet results = new TLongHashSet();
         for (Value v : values) {
             results.add(v.getTimestamp());
         }
@@ -1685,17 +1922,18 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
      * committed, then it will be missing from the map.  This method will block until the
      * transactions for these start timestamps are complete.
      */
-    protected Map<Long, Long> getCommitTimestamps(@Nullable TableReference tableRef,
-                                                  Iterable<Long> startTimestamps,
-                                                  boolean waitForCommitterToComplete) {
-        if (Iterables.isEmpty(startTimestamps)) {
-            return ImmutableMap.of();
+    protected TLongLongMap getCommitTimestamps(@Nullable TableReference tableRef,
+                                               TLongCollection startTimestamps,
+                                               boolean waitForCommitterToComplete) {
+        TLongLongMap result = new TLongLongHashMap(startTimestamps.size());
+        if (startTimestamps.isEmpty()) {
+            return result;
         }
-        Map<Long, Long> result = Maps.newHashMap();
-        Set<Long> gets = Sets.newHashSet();
-        for (long startTs : startTimestamps) {
-            Long cached = timestampValidationReadCache.getCommitTimestampIfPresent(startTs);
-            if (cached != null) {
+        TLongSet gets = new TLongHashSet();
+        for (TLongIterator iter = startTimestamps.iterator(); iter.hasNext();) {
+            long startTs = iter.next();
+            long cached = timestampValidationReadCache.getCommitTimestampIfPresent(startTs, NOT_IN_CACHE);
+            if (cached != NOT_IN_CACHE) {
                 result.put(startTs, cached);
             } else {
                 gets.add(startTs);
@@ -1717,14 +1955,13 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
 
         log.trace("Getting commit timestamps for {} start timestamps in response to read from table {}",
                 gets.size(), tableRef);
-        Map<Long, Long> rawResults = defaultTransactionService.get(gets);
-        for (Map.Entry<Long, Long> e : rawResults.entrySet()) {
-            if (e.getValue() != null) {
-                long startTs = e.getKey();
-                long commitTs = e.getValue();
-                result.put(startTs, commitTs);
-                timestampValidationReadCache.putAlreadyCommittedTransaction(startTs, commitTs);
-            }
+        TLongLongMap rawResults = defaultTransactionService.get(gets);
+        for (TLongLongIterator iter = rawResults.iterator(); iter.hasNext();) {
+            iter.advance();
+            long startTs = iter.key();
+            long commitTs = iter.value();
+            result.put(startTs, commitTs);
+            timestampValidationReadCache.putAlreadyCommittedTransaction(startTs, commitTs);
         }
         return result;
     }
@@ -1787,7 +2024,10 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
     }
 
     private boolean wasCommitSuccessful(long commitTs) throws Exception {
-        Map<Long, Long> commitTimestamps = getCommitTimestamps(null, Collections.singleton(getStartTimestamp()), false);
+        TLongLongMap commitTimestamps = getCommitTimestamps(
+                null, new TLongArrayList(new long[] {getStartTimestamp()}), false);
+        Validate.isTrue(commitTimestamps.containsKey(getStartTimestamp()),
+                "No commit value for startTs " + getStartTimestamp());
         long storedCommit = commitTimestamps.get(getStartTimestamp());
         if (storedCommit != commitTs && storedCommit != TransactionConstants.FAILED_COMMIT_TS) {
             Validate.isTrue(false, "Commit value is wrong. startTs " + getStartTimestamp() + "  commitTs: " + commitTs);
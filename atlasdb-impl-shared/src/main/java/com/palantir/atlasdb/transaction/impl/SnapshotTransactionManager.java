@@ -16,6 +16,9 @@
 package com.palantir.atlasdb.transaction.impl;
 
 import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nullable;
@@ -27,6 +30,7 @@ import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.Iterables;
+import com.palantir.atlasdb.cache.WriteOnceValueCache;
 import com.palantir.atlasdb.cleaner.Cleaner;
 import com.palantir.atlasdb.cleaner.NoOpCleaner;
 import com.palantir.atlasdb.keyvalue.api.ClusterAvailabilityStatus;
@@ -41,6 +45,8 @@ import com.palantir.atlasdb.transaction.api.TransactionReadSentinelBehavior;
 import com.palantir.atlasdb.transaction.api.TransactionTask;
 import com.palantir.atlasdb.transaction.service.TransactionService;
 import com.palantir.common.base.Throwables;
+import com.palantir.common.concurrent.NamedThreadFactory;
+import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.lock.AtlasTimestampLockDescriptor;
 import com.palantir.lock.HeldLocksToken;
 import com.palantir.lock.LockClient;
@@ -49,10 +55,12 @@ import com.palantir.lock.LockMode;
 import com.palantir.lock.LockRefreshToken;
 import com.palantir.lock.LockRequest;
 import com.palantir.lock.RemoteLockService;
+import com.palantir.remoting2.tracing.Tracers;
 import com.palantir.timestamp.TimestampService;
 
 /* package */ class SnapshotTransactionManager extends AbstractLockAwareTransactionManager {
     private static final int NUM_RETRIES = 10;
+    private static final int MAX_COMMIT_PIPELINE_THREADS = 64;
 
     final KeyValueService keyValueService;
     final TransactionService transactionService;
@@ -65,6 +73,7 @@ import com.palantir.timestamp.TimestampService;
     final AtomicLong recentImmutableTs = new AtomicLong(-1L);
     final Cleaner cleaner;
     final boolean allowHiddenTableAccess;
+    final TransactionOptions transactionOptions;
 
     protected SnapshotTransactionManager(
             KeyValueService keyValueService,
@@ -91,6 +100,23 @@ import com.palantir.timestamp.TimestampService;
             SweepStrategyManager sweepStrategyManager,
             Cleaner cleaner,
             boolean allowHiddenTableAccess) {
+        this(keyValueService, timestampService, lockClient, lockService, transactionService,
+                constraintModeSupplier, conflictDetectionManager, sweepStrategyManager, cleaner,
+                allowHiddenTableAccess, TransactionManagerOptions.defaults());
+    }
+
+    protected SnapshotTransactionManager(
+            KeyValueService keyValueService,
+            TimestampService timestampService,
+            LockClient lockClient,
+            RemoteLockService lockService,
+            TransactionService transactionService,
+            Supplier<AtlasDbConstraintCheckingMode> constraintModeSupplier,
+            ConflictDetectionManager conflictDetectionManager,
+            SweepStrategyManager sweepStrategyManager,
+            Cleaner cleaner,
+            boolean allowHiddenTableAccess,
+            TransactionManagerOptions options) {
         Preconditions.checkArgument(lockClient != LockClient.ANONYMOUS);
         this.keyValueService = keyValueService;
         this.timestampService = timestampService;
@@ -102,6 +128,35 @@ import com.palantir.timestamp.TimestampService;
         this.constraintModeSupplier = constraintModeSupplier;
         this.cleaner = cleaner;
         this.allowHiddenTableAccess = allowHiddenTableAccess;
+        this.transactionOptions = createTransactionOptions(keyValueService, options);
+    }
+
+    private static TransactionOptions createTransactionOptions(
+            KeyValueService keyValueService,
+            TransactionManagerOptions options) {
+        WriteOnceValueCache writeOnceValueCache =
+                WriteOnceValueCache.create(keyValueService, options.writeOnceValueCacheSizeBytes());
+        ImmutableTransactionOptions.Builder transactionOptions = ImmutableTransactionOptions.builder()
+                .writeOnceValueCache(writeOnceValueCache)
+                .lockWatchingValueCache(options.lockWatchingValueCache())
+                .recordReadDigests(options.recordReadDigests())
+                .rangeScanPrefetcher(options.rangeScanPrefetcher());
+        if (options.pipelineCommits()) {
+            transactionOptions.commitExecutor(createCommitExecutor());
+        }
+        return transactionOptions.build();
+    }
+
+    /**
+     * One pool is shared by every transaction of this manager. Once all of its threads are busy, further steps run
+     * on the committing thread, exactly as they would without pipelining, rather than queueing behind other commits.
+     * Unlike {@link java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy} this also holds once the pool is shut
+     * down, so a commit which is still running never waits for a step that was silently dropped.
+     */
+    private static ExecutorService createCommitExecutor() {
+        return Tracers.wrap(PTExecutors.newThreadPoolExecutor(0, MAX_COMMIT_PIPELINE_THREADS,
+                1, TimeUnit.MINUTES, new SynchronousQueue<>(),
+                new NamedThreadFactory("atlas-commit-pipeline", true), (step, executor) -> step.run()));
     }
 
     @Override
@@ -192,7 +247,8 @@ import com.palantir.timestamp.TimestampService;
                 cleaner.getTransactionReadTimeoutMillis(),
                 TransactionReadSentinelBehavior.THROW_EXCEPTION,
                 allowHiddenTableAccess,
-                timestampValidationReadCache);
+                timestampValidationReadCache,
+                transactionOptions);
     }
 
     @Override
@@ -214,7 +270,8 @@ import com.palantir.timestamp.TimestampService;
                 cleaner.getTransactionReadTimeoutMillis(),
                 TransactionReadSentinelBehavior.THROW_EXCEPTION,
                 allowHiddenTableAccess,
-                timestampValidationReadCache);
+                timestampValidationReadCache,
+                transactionOptions);
         return runTaskThrowOnConflict(task, new ReadTransaction(transaction, sweepStrategyManager));
     }
 
@@ -223,6 +280,8 @@ import com.palantir.timestamp.TimestampService;
         super.close();
         cleaner.close();
         keyValueService.close();
+        transactionOptions.commitExecutor().ifPresent(ExecutorService::shutdown);
+        transactionOptions.rangeScanPrefetcher().close();
     }
 
     private Supplier<Long> getStartTimestampSupplier() {
@@ -236,6 +295,13 @@ import com.palantir.timestamp.TimestampService;
         });
     }
 
+    @Override
+    public void clearTimestampCache() {
+        super.clearTimestampCache();
+        transactionOptions.writeOnceValueCache().clear();
+        transactionOptions.lockWatchingValueCache().clear();
+    }
+
     @Override
     public RemoteLockService getLockService() {
         return lockService;
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import org.immutables.value.Value;
+
+/**
+ * Optional behaviour of the transactions of a transaction manager, all of which is off by default.
+ */
+@Value.Immutable
+public interface TransactionManagerOptions {
+
+    /**
+     * If true, the independent steps of each commit run concurrently on a bounded thread pool shared by all
+     * transactions of the transaction manager.
+     */
+    @Value.Default
+    default boolean pipelineCommits() {
+        return false;
+    }
+
+    /**
+     * The approximate number of bytes of values of write once tables to cache across transactions, or zero to read
+     * them from the key value service every time.
+     */
+    @Value.Default
+    default long writeOnceValueCacheSizeBytes() {
+        return 0L;
+    }
+
+    /**
+     * Cache of values of tables whose row locks are watched, shared by the transactions of the transaction manager.
+     */
+    @Value.Default
+    default LockWatchingValueCache lockWatchingValueCache() {
+        return LockWatchingValueCache.disabled();
+    }
+
+    /**
+     * If true, serializable transactions remember the values they read by their digest rather than in full, and
+     * compare digests when checking for read-write conflicts.
+     */
+    @Value.Default
+    default boolean recordReadDigests() {
+        return false;
+    }
+
+    /**
+     * Fetches the pages of range scans ahead of post-filtering them. The transaction manager closes it when it is
+     * closed.
+     */
+    @Value.Default
+    default RangeScanPrefetcher rangeScanPrefetcher() {
+        return RangeScanPrefetcher.disabled();
+    }
+
+    static TransactionManagerOptions defaults() {
+        return ImmutableTransactionManagerOptions.builder().build();
+    }
+}
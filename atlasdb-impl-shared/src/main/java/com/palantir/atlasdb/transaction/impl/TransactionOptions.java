@@ -0,0 +1,75 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+
+import org.immutables.value.Value;
+
+import com.palantir.atlasdb.cache.WriteOnceValueCache;
+
+/**
+ * Optional behaviour of a single {@link SnapshotTransaction}, usually shared with the other transactions of the
+ * transaction manager that created it. Everything is off by default.
+ */
+@Value.Immutable
+public interface TransactionOptions {
+
+    /**
+     * If present, the steps of the commit protocol which do not depend on each other are run concurrently on this
+     * executor; otherwise the commit runs entirely on the calling thread.
+     */
+    Optional<ExecutorService> commitExecutor();
+
+    /**
+     * Cache of values of write once tables.
+     */
+    @Value.Default
+    default WriteOnceValueCache writeOnceValueCache() {
+        return WriteOnceValueCache.disabled();
+    }
+
+    /**
+     * Cache of values of tables whose row locks are watched. The transaction must be created before its start
+     * timestamp is fetched.
+     */
+    @Value.Default
+    default LockWatchingValueCache lockWatchingValueCache() {
+        return LockWatchingValueCache.disabled();
+    }
+
+    /**
+     * If true, a {@link SerializableTransaction} remembers the values it reads for verification by their digest
+     * rather than in full, once they are longer than the digest.
+     */
+    @Value.Default
+    default boolean recordReadDigests() {
+        return false;
+    }
+
+    /**
+     * Fetches the pages of range scans ahead of post-filtering them.
+     */
+    @Value.Default
+    default RangeScanPrefetcher rangeScanPrefetcher() {
+        return RangeScanPrefetcher.disabled();
+    }
+
+    static TransactionOptions defaults() {
+        return ImmutableTransactionOptions.builder().build();
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.util.AtlasDbMetrics;
+import com.palantir.common.base.Throwables;
+import com.palantir.common.concurrent.NamedThreadFactory;
+import com.palantir.common.concurrent.PTExecutors;
+import com.palantir.common.concurrent.RequestBatcher;
+import com.palantir.remoting2.tracing.Tracers;
+
+import gnu.trove.TLongCollection;
+import gnu.trove.map.TLongLongMap;
+import gnu.trove.map.hash.TLongLongHashMap;
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
+
+/**
+ * A {@link TransactionService} that coalesces commit timestamp lookups from concurrent callers.
+ * <p>
+ * Lookups are batched with a {@link RequestBatcher}, so at most one read against the delegate is in flight at any
+ * time. Lookups that arrive while it runs are queued, and once it completes they are all served by a single read for
+ * the union of their start timestamps, so each distinct start timestamp is only read once per batch. Batches are
+ * read with the delegate's primitive {@link #get(TLongCollection)}, so start and commit timestamps are only boxed
+ * for callers of the boxed methods.
+ * <p>
+ * Writes are passed straight through to the delegate.
+ */
+@ThreadSafe
+public final class BatchingTransactionService implements TransactionService {
+    private final TransactionService delegate;
+    private final RequestBatcher<PendingLookup> batcher;
+
+    private final Histogram batchSize;
+    private final Histogram lookupsPerBatch;
+    private final Timer waitTime;
+
+    @VisibleForTesting
+    BatchingTransactionService(TransactionService delegate, Executor executor, MetricRegistry metricRegistry) {
+        this.delegate = delegate;
+        this.batcher = RequestBatcher.create(executor, this::processBatch,
+                (lookup, failure) -> lookup.result.setException(failure));
+        this.batchSize = metricRegistry.histogram(
+                MetricRegistry.name(BatchingTransactionService.class, "batchSize"));
+        this.lookupsPerBatch = metricRegistry.histogram(
+                MetricRegistry.name(BatchingTransactionService.class, "lookupsPerBatch"));
+        this.waitTime = metricRegistry.timer(MetricRegistry.name(BatchingTransactionService.class, "waitTime"));
+    }
+
+    public static BatchingTransactionService create(TransactionService delegate) {
+        Executor executor = Tracers.wrap(PTExecutors.newCachedThreadPool(
+                new NamedThreadFactory(BatchingTransactionService.class.getSimpleName(), true)));
+        return new BatchingTransactionService(delegate, executor, AtlasDbMetrics.getMetricRegistry());
+    }
+
+    @CheckForNull
+    @Override
+    public Long get(long startTimestamp) {
+        TLongLongMap commitTimestamps = get(new TLongHashSet(new long[] {startTimestamp}));
+        return commitTimestamps.containsKey(startTimestamp) ? commitTimestamps.get(startTimestamp) : null;
+    }
+
+    @Override
+    public Map<Long, Long> get(Iterable<Long> startTimestamps) {
+        return await(getAsync(startTimestamps));
+    }
+
+    @Override
+    public TLongLongMap get(TLongCollection startTimestamps) {
+        return await(getAsync(startTimestamps));
+    }
+
+    /**
+     * Asynchronous version of {@link #get(Iterable)}. The returned future completes once the batch this lookup was
+     * added to has been read, and contains an entry for every requested start timestamp that has been committed or
+     * rolled back.
+     */
+    public ListenableFuture<Map<Long, Long>> getAsync(Iterable<Long> startTimestamps) {
+        TLongSet uniqueStartTimestamps = new TLongHashSet();
+        for (Long startTimestamp : startTimestamps) {
+            uniqueStartTimestamps.add(startTimestamp);
+        }
+        return Futures.transform(getAsync(uniqueStartTimestamps), BatchingTransactionService::toBoxedMap);
+    }
+
+    /**
+     * Primitive version of {@link #getAsync(Iterable)}. The map in the returned future belongs to the caller.
+     */
+    public ListenableFuture<TLongLongMap> getAsync(TLongCollection startTimestamps) {
+        if (startTimestamps.isEmpty()) {
+            return Futures.immediateFuture(new TLongLongHashMap());
+        }
+        PendingLookup lookup = new PendingLookup(new TLongHashSet(startTimestamps));
+        batcher.submit(lookup);
+        return lookup.result;
+    }
+
+    private static <T> T await(ListenableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            throw Throwables.rewrapAndThrowUncheckedException(e);
+        } catch (ExecutionException e) {
+            throw Throwables.rewrapAndThrowUncheckedException(e.getCause());
+        }
+    }
+
+    @Override
+    public void putUnlessExists(long startTimestamp, long commitTimestamp) throws KeyAlreadyExistsException {
+        delegate.putUnlessExists(startTimestamp, commitTimestamp);
+    }
+
+    private void processBatch(List<PendingLookup> batch) {
+        batch.removeIf(lookup -> lookup.result.isCancelled());
+        if (batch.isEmpty()) {
+            return;
+        }
+        long batchStartNanos = System.nanoTime();
+        TLongSet startTimestamps;
+        if (batch.size() == 1) {
+            startTimestamps = batch.get(0).startTimestamps;
+        } else {
+            startTimestamps = new TLongHashSet();
+            for (PendingLookup lookup : batch) {
+                startTimestamps.addAll(lookup.startTimestamps);
+            }
+        }
+        for (PendingLookup lookup : batch) {
+            waitTime.update(batchStartNanos - lookup.createdNanos, TimeUnit.NANOSECONDS);
+        }
+        batchSize.update(startTimestamps.size());
+        lookupsPerBatch.update(batch.size());
+
+        TLongLongMap commitTimestamps;
+        try {
+            commitTimestamps = delegate.get(startTimestamps);
+        } catch (Throwable t) {
+            batch.forEach(lookup -> lookup.result.setException(t));
+            return;
+        }
+        for (PendingLookup lookup : batch) {
+            lookup.result.set(filterToRequested(commitTimestamps, lookup.startTimestamps));
+        }
+    }
+
+    private static TLongLongMap filterToRequested(TLongLongMap commitTimestamps, TLongSet startTimestamps) {
+        TLongLongMap result = new TLongLongHashMap(startTimestamps.size());
+        startTimestamps.forEach(startTimestamp -> {
+            if (commitTimestamps.containsKey(startTimestamp)) {
+                result.put(startTimestamp, commitTimestamps.get(startTimestamp));
+            }
+            return true;
+        });
+        return result;
+    }
+
+    private static Map<Long, Long> toBoxedMap(TLongLongMap commitTimestamps) {
+        Map<Long, Long> result = Maps.newHashMapWithExpectedSize(commitTimestamps.size());
+        commitTimestamps.forEachEntry((startTimestamp, commitTimestamp) -> {
+            result.put(startTimestamp, commitTimestamp);
+            return true;
+        });
+        return result;
+    }
+
+    private static final class PendingLookup {
+        private final TLongSet startTimestamps;
+        private final SettableFuture<TLongLongMap> result = SettableFuture.create();
+        private final long createdNanos = System.nanoTime();
+
+        PendingLookup(TLongSet startTimestamps) {
+            this.startTimestamps = startTimestamps;
+        }
+    }
+}
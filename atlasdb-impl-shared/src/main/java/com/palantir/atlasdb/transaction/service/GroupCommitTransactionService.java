@@ -0,0 +1,234 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Collections2;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.SettableFuture;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.transaction.impl.TransactionConstants;
+import com.palantir.atlasdb.util.AtlasDbMetrics;
+import com.palantir.common.base.Throwables;
+import com.palantir.common.concurrent.NamedThreadFactory;
+import com.palantir.common.concurrent.PTExecutors;
+import com.palantir.common.concurrent.RequestBatcher;
+import com.palantir.remoting2.tracing.Tracers;
+
+import gnu.trove.TLongCollection;
+import gnu.trove.map.TLongLongMap;
+
+/**
+ * A {@link TransactionService} that group-commits commit timestamps from concurrent callers.
+ * <p>
+ * Commits are batched with a {@link RequestBatcher}, with up to a fixed number of writes to the transactions table
+ * in flight at any time. Commits that arrive while that many writes run are queued for the next one. A write only
+ * waits briefly for more commits to join it if others are already queued or being written, so a commit that arrives
+ * on its own is written straight away. Each batch is written with a single multi-cell
+ * {@link KeyValueService#putUnlessExists}.
+ * <p>
+ * This reduces the number of writes to the transactions table, which only helps if the key value service writes a
+ * multi-cell put unless exists in one round trip. Cassandra checks and sets each cell in turn, so there batching
+ * at most saves a client checkout per commit.
+ * <p>
+ * If that write fails because some start timestamp already has a commit timestamp, key value services differ in
+ * which of the other cells they have written, so the batch is resolved by reading back every start timestamp in it:
+ * callers whose commit timestamp was written succeed, callers whose start timestamp has another commit timestamp
+ * get a {@link KeyAlreadyExistsException}, and callers whose start timestamp is still empty are written one by one.
+ * <p>
+ * Reads are passed straight through to the delegate.
+ */
+@ThreadSafe
+public final class GroupCommitTransactionService implements TransactionService {
+    private static final int DEFAULT_MAX_CONCURRENT_BATCHES = 4;
+    private static final long DEFAULT_BATCH_WINDOW_MICROS = 200;
+
+    private final KeyValueService keyValueService;
+    private final TransactionService delegate;
+    private final RequestBatcher<PendingCommit> batcher;
+
+    private final Histogram commitsPerBatch;
+    private final Meter batchesWithExistingKeys;
+    private final Timer waitTime;
+
+    /**
+     * @param delegate A transaction service over the same key value service, used for reads and for the commits of
+     *                 a batch which have to be written one by one.
+     */
+    @VisibleForTesting
+    GroupCommitTransactionService(KeyValueService keyValueService,
+                                  TransactionService delegate,
+                                  Executor executor,
+                                  int maxConcurrentBatches,
+                                  long batchWindowNanos,
+                                  MetricRegistry metricRegistry) {
+        this.keyValueService = keyValueService;
+        this.delegate = delegate;
+        this.batcher = RequestBatcher.create(executor, maxConcurrentBatches, batchWindowNanos, this::processBatch,
+                (commit, failure) -> commit.result.setException(failure));
+        this.commitsPerBatch = metricRegistry.histogram(
+                MetricRegistry.name(GroupCommitTransactionService.class, "commitsPerBatch"));
+        this.batchesWithExistingKeys = metricRegistry.meter(
+                MetricRegistry.name(GroupCommitTransactionService.class, "batchesWithExistingKeys"));
+        this.waitTime = metricRegistry.timer(MetricRegistry.name(GroupCommitTransactionService.class, "waitTime"));
+    }
+
+    public static GroupCommitTransactionService create(KeyValueService keyValueService) {
+        Executor executor = Tracers.wrap(PTExecutors.newCachedThreadPool(
+                new NamedThreadFactory(GroupCommitTransactionService.class.getSimpleName(), true)));
+        return new GroupCommitTransactionService(
+                keyValueService,
+                new SimpleTransactionService(keyValueService),
+                executor,
+                DEFAULT_MAX_CONCURRENT_BATCHES,
+                TimeUnit.MICROSECONDS.toNanos(DEFAULT_BATCH_WINDOW_MICROS),
+                AtlasDbMetrics.getMetricRegistry());
+    }
+
+    @CheckForNull
+    @Override
+    public Long get(long startTimestamp) {
+        return delegate.get(startTimestamp);
+    }
+
+    @Override
+    public Map<Long, Long> get(Iterable<Long> startTimestamps) {
+        return delegate.get(startTimestamps);
+    }
+
+    @Override
+    public TLongLongMap get(TLongCollection startTimestamps) {
+        return delegate.get(startTimestamps);
+    }
+
+    /**
+     * Blocks until the batch containing this commit has been written. As with any other transaction service, a
+     * {@link RuntimeException} other than {@link KeyAlreadyExistsException} means the commit timestamp may or may not
+     * have been written.
+     */
+    @Override
+    public void putUnlessExists(long startTimestamp, long commitTimestamp) throws KeyAlreadyExistsException {
+        PendingCommit commit = new PendingCommit(startTimestamp, commitTimestamp);
+        batcher.submit(commit);
+        try {
+            commit.result.get();
+        } catch (InterruptedException e) {
+            throw Throwables.rewrapAndThrowUncheckedException(e);
+        } catch (ExecutionException e) {
+            throw Throwables.rewrapAndThrowUncheckedException(e.getCause());
+        }
+    }
+
+    private void processBatch(List<PendingCommit> batch) {
+        long batchStartNanos = System.nanoTime();
+        for (PendingCommit commit : batch) {
+            waitTime.update(batchStartNanos - commit.createdNanos, TimeUnit.NANOSECONDS);
+        }
+        commitsPerBatch.update(batch.size());
+
+        if (batch.size() == 1) {
+            commitIndividually(batch.get(0));
+            return;
+        }
+
+        // A start timestamp is normally committed once, but a retried commit could be batched with the original.
+        Map<Long, PendingCommit> commitsByStartTs = Maps.newHashMapWithExpectedSize(batch.size());
+        List<PendingCommit> duplicates = Lists.newArrayList();
+        Map<Cell, byte[]> values = Maps.newHashMapWithExpectedSize(batch.size());
+        for (PendingCommit commit : batch) {
+            if (commitsByStartTs.putIfAbsent(commit.startTimestamp, commit) != null) {
+                duplicates.add(commit);
+            } else {
+                values.put(SimpleTransactionService.getTransactionCell(commit.startTimestamp),
+                        TransactionConstants.getValueForTimestamp(commit.commitTimestamp));
+            }
+        }
+
+        try {
+            keyValueService.putUnlessExists(TransactionConstants.TRANSACTION_TABLE, values);
+            commitsByStartTs.values().forEach(commit -> commit.result.set(null));
+        } catch (KeyAlreadyExistsException e) {
+            batchesWithExistingKeys.mark();
+            resolveIndividually(commitsByStartTs.values());
+        } catch (Throwable t) {
+            commitsByStartTs.values().forEach(commit -> commit.result.setException(t));
+        }
+        if (!duplicates.isEmpty()) {
+            resolveIndividually(duplicates);
+        }
+    }
+
+    private void resolveIndividually(Collection<PendingCommit> commits) {
+        Map<Long, Long> existingCommitTimestamps;
+        try {
+            existingCommitTimestamps = delegate.get(Collections2.transform(commits, commit -> commit.startTimestamp));
+        } catch (Throwable t) {
+            commits.forEach(commit -> commit.result.setException(t));
+            return;
+        }
+        for (PendingCommit commit : commits) {
+            Long existing = existingCommitTimestamps.get(commit.startTimestamp);
+            if (existing == null) {
+                commitIndividually(commit);
+            } else if (existing == commit.commitTimestamp) {
+                commit.result.set(null);
+            } else {
+                commit.result.setException(new KeyAlreadyExistsException(
+                        "Start timestamp " + commit.startTimestamp + " already has commit timestamp " + existing,
+                        ImmutableList.of(SimpleTransactionService.getTransactionCell(commit.startTimestamp))));
+            }
+        }
+    }
+
+    private void commitIndividually(PendingCommit commit) {
+        try {
+            delegate.putUnlessExists(commit.startTimestamp, commit.commitTimestamp);
+            commit.result.set(null);
+        } catch (Throwable t) {
+            commit.result.setException(t);
+        }
+    }
+
+    private static final class PendingCommit {
+        private final long startTimestamp;
+        private final long commitTimestamp;
+        private final SettableFuture<Void> result = SettableFuture.create();
+        private final long createdNanos = System.nanoTime();
+
+        PendingCommit(long startTimestamp, long commitTimestamp) {
+            this.startTimestamp = startTimestamp;
+            this.commitTimestamp = commitTimestamp;
+        }
+    }
+}
@@ -24,6 +24,11 @@ import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.transaction.impl.TransactionConstants;
 
+import gnu.trove.TLongCollection;
+import gnu.trove.iterator.TLongIterator;
+import gnu.trove.map.TLongLongMap;
+import gnu.trove.map.hash.TLongLongHashMap;
+
 public final class SimpleTransactionService implements TransactionService {
     private final KeyValueService keyValueService;
 
@@ -73,6 +78,24 @@ public final class SimpleTransactionService implements TransactionService {
         return result;
     }
 
+    @Override
+    public TLongLongMap get(TLongCollection startTimestamps) {
+        Map<Cell, Long> startTsMap = Maps.newHashMapWithExpectedSize(startTimestamps.size());
+        for (TLongIterator iter = startTimestamps.iterator(); iter.hasNext();) {
+            // MAX_TIMESTAMP boxes to a cached Long, so only the cells are allocated per start timestamp.
+            startTsMap.put(getTransactionCell(iter.next()), MAX_TIMESTAMP);
+        }
+
+        Map<Cell, Value> rawResults = keyValueService.get(
+                TransactionConstants.TRANSACTION_TABLE, startTsMap);
+        TLongLongMap result = new TLongLongHashMap(rawResults.size());
+        for (Map.Entry<Cell, Value> e : rawResults.entrySet()) {
+            result.put(TransactionConstants.getTimestampForValue(e.getKey().getRowName()),
+                    TransactionConstants.getTimestampForValue(e.getValue().getContents()));
+        }
+        return result;
+    }
+
     @Override
     public void putUnlessExists(long startTimestamp, long commitTimestamp) {
         Cell key = getTransactionCell(startTimestamp);
@@ -82,7 +105,7 @@ public final class SimpleTransactionService implements TransactionService {
                 ImmutableMap.of(key, value));
     }
 
-    private Cell getTransactionCell(long startTimestamp) {
+    static Cell getTransactionCell(long startTimestamp) {
         return Cell.create(
                 TransactionConstants.getValueForTimestamp(startTimestamp),
                 TransactionConstants.COMMIT_TS_COLUMN);
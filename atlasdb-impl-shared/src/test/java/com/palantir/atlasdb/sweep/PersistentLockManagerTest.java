@@ -68,10 +68,18 @@ public class PersistentLockManagerTest {
         verify(mockPls, times(2)).acquireBackupLock("Sweep");
     }
 
-    @Test(expected = IllegalStateException.class)
-    public void callingAcquireTwiceFails() {
+    @Test
+    public void concurrentHoldersShareTheLockUntilTheLastReleases() {
         manager.acquirePersistentLockWithRetry();
         manager.acquirePersistentLockWithRetry();
+        verify(mockPls, times(1)).acquireBackupLock(anyString());
+
+        manager.releasePersistentLock();
+        verify(mockPls, never()).releaseBackupLock(any());
+
+        manager.releasePersistentLock();
+        assertThat(manager.lockId, nullValue());
+        verify(mockPls, times(1)).releaseBackupLock(mockLockId);
     }
 
     @Test
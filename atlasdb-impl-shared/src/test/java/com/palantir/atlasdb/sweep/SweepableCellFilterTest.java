@@ -16,7 +16,7 @@
 package com.palantir.atlasdb.sweep;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.Matchers.anyCollection;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -26,7 +26,6 @@ import java.util.List;
 import org.junit.Test;
 
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.palantir.atlasdb.keyvalue.api.CandidateCellForSweeping;
 import com.palantir.atlasdb.keyvalue.api.Cell;
@@ -34,7 +33,9 @@ import com.palantir.atlasdb.keyvalue.api.ImmutableCandidateCellForSweeping;
 import com.palantir.atlasdb.transaction.impl.TransactionConstants;
 import com.palantir.atlasdb.transaction.service.TransactionService;
 
+import gnu.trove.TLongCollection;
 import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.hash.TLongLongHashMap;
 
 public class SweepableCellFilterTest {
     private static final long LOW_START_TS = 6L;
@@ -99,8 +100,8 @@ public class SweepableCellFilterTest {
                     .isLatestValueEmpty(false)
                     .numCellsTsPairsExamined(0L)
                     .build());
-        when(mockTransactionService.get(anyCollection()))
-                .thenReturn(ImmutableMap.of(LOW_START_TS, TransactionConstants.FAILED_COMMIT_TS));
+        when(mockTransactionService.get(any(TLongCollection.class))).thenReturn(new TLongLongHashMap(
+                new long[] {LOW_START_TS}, new long[] {TransactionConstants.FAILED_COMMIT_TS}));
         SweepableCellFilter filter = new SweepableCellFilter(
                 mockTransactionService, Sweeper.CONSERVATIVE, HIGH_START_TS);
         List<CellToSweep> cells = filter.getCellsToSweep(candidate).cells();
@@ -118,8 +119,8 @@ public class SweepableCellFilterTest {
                     .isLatestValueEmpty(true)
                     .numCellsTsPairsExamined(0)
                     .build());
-        when(mockTransactionService.get(anyCollection()))
-                .thenReturn(ImmutableMap.of(LOW_START_TS, LOW_COMMIT_TS));
+        when(mockTransactionService.get(any(TLongCollection.class))).thenReturn(new TLongLongHashMap(
+                new long[] {LOW_START_TS}, new long[] {LOW_COMMIT_TS}));
         SweepableCellFilter filter = new SweepableCellFilter(
                 mockTransactionService, Sweeper.THOROUGH, HIGH_START_TS);
         List<CellToSweep> cells = filter.getCellsToSweep(candidate).cells();
@@ -136,10 +137,8 @@ public class SweepableCellFilterTest {
                     .isLatestValueEmpty(false)
                     .numCellsTsPairsExamined(0)
                     .build());
-        when(mockTransactionService.get(anyCollection()))
-                .thenReturn(ImmutableMap.of(
-                        LOW_START_TS, LOW_COMMIT_TS,
-                        HIGH_START_TS, HIGH_COMMIT_TS));
+        when(mockTransactionService.get(any(TLongCollection.class))).thenReturn(new TLongLongHashMap(
+                new long[] {LOW_START_TS, HIGH_START_TS}, new long[] {LOW_COMMIT_TS, HIGH_COMMIT_TS}));
         return ret;
     }
 }
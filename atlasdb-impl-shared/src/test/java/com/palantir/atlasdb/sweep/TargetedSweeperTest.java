@@ -0,0 +1,153 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.Namespace;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.sweep.queue.KvsSweepQueue;
+import com.palantir.atlasdb.sweep.queue.SweepQueueProgressStore;
+import com.palantir.atlasdb.transaction.impl.SweepStrategyManager;
+import com.palantir.atlasdb.transaction.impl.SweepStrategyManagers;
+import com.palantir.atlasdb.transaction.impl.TransactionTables;
+import com.palantir.atlasdb.transaction.service.TransactionService;
+import com.palantir.atlasdb.transaction.service.TransactionServices;
+import com.palantir.lock.RemoteLockService;
+
+public class TargetedSweeperTest {
+    private static final TableReference TABLE = TableReference.create(Namespace.create("ns"), "table");
+    private static final Cell CELL = Cell.create(PtBytes.toBytes("row"), PtBytes.toBytes("col"));
+    private static final int BATCH_SIZE = 100;
+
+    private final KeyValueService kvs = new InMemoryKeyValueService(false);
+    private final AtomicLong sweepTimestamp = new AtomicLong();
+
+    private TransactionService transactionService;
+    private KvsSweepQueue sweepQueue;
+    private SweepQueueProgressStore progressStore;
+    private TargetedSweeper sweeper;
+
+    @Before
+    public void setUp() {
+        TransactionTables.createTables(kvs);
+        kvs.createTable(TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+        transactionService = TransactionServices.createTransactionService(kvs);
+        SweepStrategyManager sweepStrategyManager = SweepStrategyManagers.createDefault(kvs);
+        sweepQueue = KvsSweepQueue.create(kvs, sweepStrategyManager);
+        progressStore = SweepQueueProgressStore.create(kvs);
+        sweeper = new TargetedSweeper(
+                mock(RemoteLockService.class),
+                kvs,
+                sweepQueue,
+                progressStore,
+                transactionService,
+                sweepStrategyManager,
+                new CellsSweeper(null, kvs, mock(PersistentLockManager.class), ImmutableList.of()),
+                sweepTimestamp::get,
+                sweepTimestamp::get,
+                Suppliers.ofInstance(0L),
+                Suppliers.ofInstance(ImmutableSweepBatchConfig.builder()
+                        .maxCellTsPairsToExamine(BATCH_SIZE)
+                        .candidateBatchSize(BATCH_SIZE)
+                        .deleteBatchSize(BATCH_SIZE)
+                        .build()));
+    }
+
+    @After
+    public void tearDown() {
+        sweeper.shutdown();
+    }
+
+    @Test
+    public void sweepsOverwrittenVersionsOnceTheirOverwriteIsCommittedBeforeTheSweepTimestamp() {
+        commitWrite(10L, 15L, "first");
+        commitWrite(20L, 25L, "second");
+        sweepTimestamp.set(30L);
+
+        sweeper.sweepEachShardOnce();
+
+        assertThat(getTimestamps()).containsOnly(Value.INVALID_VALUE_TIMESTAMP, 20L);
+        assertQueueIsEmpty();
+    }
+
+    @Test
+    public void doesNotSweepPastATransactionCommittedAfterTheSweepTimestamp() {
+        commitWrite(10L, 15L, "first");
+        commitWrite(20L, 35L, "second");
+        sweepTimestamp.set(30L);
+
+        sweeper.sweepEachShardOnce();
+
+        assertThat(getTimestamps()).containsOnly(10L, 20L);
+        assertThat(progressStore.getProgress(KvsSweepQueue.getShard(TABLE, CELL))).isEqualTo(10L);
+
+        sweepTimestamp.set(40L);
+        sweeper.sweepEachShardOnce();
+
+        assertThat(getTimestamps()).containsOnly(Value.INVALID_VALUE_TIMESTAMP, 20L);
+        assertThat(progressStore.getProgress(KvsSweepQueue.getShard(TABLE, CELL))).isEqualTo(20L);
+        assertQueueIsEmpty();
+    }
+
+    @Test
+    public void deletesValuesOfTransactionsThatNeverCommitted() {
+        commitWrite(10L, 15L, "first");
+        sweepQueue.enqueue(ImmutableMap.of(TABLE, ImmutableMap.of(CELL, PtBytes.toBytes("uncommitted"))), 20L);
+        kvs.put(TABLE, ImmutableMap.of(CELL, PtBytes.toBytes("uncommitted")), 20L);
+        sweepTimestamp.set(30L);
+
+        sweeper.sweepEachShardOnce();
+
+        assertThat(getTimestamps()).containsOnly(10L);
+        assertQueueIsEmpty();
+    }
+
+    private void commitWrite(long startTs, long commitTs, String value) {
+        ImmutableMap<Cell, byte[]> write = ImmutableMap.of(CELL, PtBytes.toBytes(value));
+        sweepQueue.enqueue(ImmutableMap.of(TABLE, write), startTs);
+        kvs.put(TABLE, write, startTs);
+        transactionService.putUnlessExists(startTs, commitTs);
+    }
+
+    private Collection<Long> getTimestamps() {
+        return kvs.getAllTimestamps(TABLE, ImmutableSet.of(CELL), Long.MAX_VALUE).get(CELL);
+    }
+
+    private void assertQueueIsEmpty() {
+        for (int shard = 0; shard < KvsSweepQueue.NUM_SHARDS; shard++) {
+            assertThat(sweepQueue.getEntries(shard, 0L, Long.MAX_VALUE, BATCH_SIZE)).isEmpty();
+        }
+    }
+}
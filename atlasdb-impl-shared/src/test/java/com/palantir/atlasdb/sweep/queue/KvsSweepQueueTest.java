@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep.queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.Namespace;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.transaction.impl.SweepStrategyManagers;
+import com.palantir.atlasdb.transaction.impl.TransactionConstants;
+
+public class KvsSweepQueueTest {
+    private static final TableReference TABLE = TableReference.create(Namespace.create("ns"), "table");
+    private static final Cell CELL = Cell.create(PtBytes.toBytes("row"), PtBytes.toBytes("col"));
+    private static final byte[] VALUE = PtBytes.toBytes("value");
+
+    private final KeyValueService kvs = new InMemoryKeyValueService(false);
+    private final KvsSweepQueue sweepQueue = KvsSweepQueue.create(kvs, SweepStrategyManagers.createDefault(kvs));
+    private final int shard = KvsSweepQueue.getShard(TABLE, CELL);
+
+    @Test
+    public void entriesAreReadBackInStartTimestampOrder() {
+        sweepQueue.enqueue(ImmutableMap.of(TABLE, ImmutableMap.of(CELL, VALUE)), 20L);
+        sweepQueue.enqueue(ImmutableMap.of(TABLE, ImmutableMap.of(CELL, VALUE)), 10L);
+
+        List<SweepQueueEntry> entries = sweepQueue.getEntries(shard, 0L, 100L, 10);
+
+        assertThat(entries).extracting(SweepQueueEntry::startTimestamp).containsExactly(10L, 20L);
+        assertThat(entries).extracting(SweepQueueEntry::tableRef).containsOnly(TABLE);
+        assertThat(entries).extracting(SweepQueueEntry::cell).containsOnly(CELL);
+    }
+
+    @Test
+    public void onlyEntriesInTheRequestedRangeAreRead() {
+        sweepQueue.enqueue(ImmutableMap.of(TABLE, ImmutableMap.of(CELL, VALUE)), 10L);
+        sweepQueue.enqueue(ImmutableMap.of(TABLE, ImmutableMap.of(CELL, VALUE)), 20L);
+        sweepQueue.enqueue(ImmutableMap.of(TABLE, ImmutableMap.of(CELL, VALUE)), 30L);
+
+        assertThat(sweepQueue.getEntries(shard, 11L, 30L, 10))
+                .extracting(SweepQueueEntry::startTimestamp)
+                .containsExactly(20L);
+    }
+
+    @Test
+    public void readsWholeTransactionsEvenIfThatExceedsTheLimit() {
+        ImmutableMap.Builder<Cell, byte[]> writes = ImmutableMap.builder();
+        for (int i = 0; i < 100; i++) {
+            writes.put(Cell.create(PtBytes.toBytes("row" + i), PtBytes.toBytes("col")), VALUE);
+        }
+        sweepQueue.enqueue(ImmutableMap.of(TABLE, writes.build()), 10L);
+        sweepQueue.enqueue(ImmutableMap.of(TABLE, writes.build()), 20L);
+
+        int entriesInFirstTransaction = 0;
+        for (int i = 0; i < KvsSweepQueue.NUM_SHARDS; i++) {
+            List<SweepQueueEntry> entries = sweepQueue.getEntries(i, 0L, 100L, 1);
+            assertThat(entries.stream().allMatch(entry -> entry.startTimestamp() == 10L)).isTrue();
+            entriesInFirstTransaction += entries.size();
+        }
+        assertThat(entriesInFirstTransaction).isEqualTo(100);
+    }
+
+    @Test
+    public void deletedEntriesAreNotReadAgain() {
+        sweepQueue.enqueue(ImmutableMap.of(TABLE, ImmutableMap.of(CELL, VALUE)), 10L);
+        sweepQueue.enqueue(ImmutableMap.of(TABLE, ImmutableMap.of(CELL, VALUE)), 20L);
+
+        sweepQueue.delete(sweepQueue.getEntries(shard, 0L, 15L, 10));
+
+        assertThat(sweepQueue.getEntries(shard, 0L, 100L, 10))
+                .extracting(SweepQueueEntry::startTimestamp)
+                .containsExactly(20L);
+    }
+
+    @Test
+    public void writesToHiddenTablesAreNotQueued() {
+        sweepQueue.enqueue(ImmutableMap.of(TransactionConstants.TRANSACTION_TABLE, ImmutableMap.of(CELL, VALUE)), 10L);
+
+        for (int i = 0; i < KvsSweepQueue.NUM_SHARDS; i++) {
+            assertThat(sweepQueue.getEntries(i, 0L, 100L, 10)).isEmpty();
+        }
+    }
+}
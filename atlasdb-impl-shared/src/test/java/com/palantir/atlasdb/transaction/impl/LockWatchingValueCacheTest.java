@@ -0,0 +1,149 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.lock.AtlasRowLockDescriptor;
+import com.palantir.lock.LockClient;
+import com.palantir.lock.LockMode;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.LockRequest;
+import com.palantir.lock.impl.LockServiceImpl;
+
+public class LockWatchingValueCacheTest {
+    private static final TableReference TABLE = TableReference.createFromFullyQualifiedName("ns.watched");
+    private static final TableReference OTHER_TABLE = TableReference.createFromFullyQualifiedName("ns.unwatched");
+    private static final Cell CELL = Cell.create(bytes("row"), bytes("col"));
+    private static final Set<Cell> CELLS = ImmutableSet.of(CELL);
+    private static final byte[] VALUE = bytes("value");
+    private static final long COMMIT_TS = 10L;
+    private static final long LATER_START_TS = 20L;
+
+    private final LockServiceImpl lockService = LockServiceImpl.create();
+    private final LockWatchingValueCache cache =
+            LockWatchingValueCache.create(lockService, ImmutableSet.of(TABLE), 1024 * 1024);
+
+    @Before
+    public void setUp() {
+        // Nothing read by the first transaction is cached, as it starts before the cache has seen any lock changes.
+        startTransaction();
+    }
+
+    @After
+    public void tearDown() {
+        lockService.close();
+    }
+
+    @Test
+    public void laterTransactionsReadCachedValues() {
+        cacheValue(startTransaction());
+
+        assertThat(startTransaction().getVisibleValues(TABLE, CELLS, LATER_START_TS).get(CELL)).isEqualTo(VALUE);
+    }
+
+    @Test
+    public void valuesCommittedAfterATransactionStartedAreNotVisibleToIt() {
+        cacheValue(startTransaction());
+
+        assertThat(startTransaction().getVisibleValues(TABLE, CELLS, COMMIT_TS)).isEmpty();
+    }
+
+    @Test
+    public void valuesAreDroppedWhenTheirRowIsLocked() throws InterruptedException {
+        cacheValue(startTransaction());
+
+        LockRefreshToken token = lockRow();
+        assertThat(startTransaction().getVisibleValues(TABLE, CELLS, LATER_START_TS)).isEmpty();
+
+        lockService.unlock(token);
+        assertThat(startTransaction().getVisibleValues(TABLE, CELLS, LATER_START_TS)).isEmpty();
+    }
+
+    @Test
+    public void valuesOfLockedRowsAreNotCached() throws InterruptedException {
+        lockRow();
+
+        cacheValue(startTransaction());
+
+        assertThat(startTransaction().getVisibleValues(TABLE, CELLS, LATER_START_TS)).isEmpty();
+    }
+
+    @Test
+    public void valuesReadBeforeTheirRowWasLockedAreNotCached() throws InterruptedException {
+        LockWatchingValueCache.TransactionValues transaction = startTransaction();
+        lockService.unlock(lockRow());
+        startTransaction();
+
+        cacheValue(transaction);
+
+        assertThat(startTransaction().getVisibleValues(TABLE, CELLS, LATER_START_TS)).isEmpty();
+    }
+
+    @Test
+    public void onlyWatchedTablesAreCached() {
+        LockWatchingValueCache.TransactionValues transaction = startTransaction();
+
+        assertThat(transaction.isCached(TABLE)).isTrue();
+        assertThat(transaction.isCached(OTHER_TABLE)).isFalse();
+    }
+
+    @Test
+    public void clearDropsCachedValues() {
+        cacheValue(startTransaction());
+
+        cache.clear();
+
+        assertThat(startTransaction().getVisibleValues(TABLE, CELLS, LATER_START_TS)).isEmpty();
+    }
+
+    /**
+     * Starts a transaction, and reads from the cache as it would once it has its start timestamp.
+     */
+    private LockWatchingValueCache.TransactionValues startTransaction() {
+        LockWatchingValueCache.TransactionValues transaction = cache.startTransaction();
+        transaction.getVisibleValues(TABLE, ImmutableSet.of(), LATER_START_TS);
+        return transaction;
+    }
+
+    private static void cacheValue(LockWatchingValueCache.TransactionValues transaction) {
+        transaction.cacheCommittedValue(TABLE, CELL, VALUE, COMMIT_TS);
+    }
+
+    private LockRefreshToken lockRow() throws InterruptedException {
+        return lockService.lock(
+                LockClient.ANONYMOUS.getClientId(),
+                LockRequest.builder(ImmutableSortedMap.of(
+                        AtlasRowLockDescriptor.of(TABLE.getQualifiedName(), CELL.getRowName()), LockMode.WRITE))
+                        .doNotBlock()
+                        .build());
+    }
+
+    private static byte[] bytes(String string) {
+        return string.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.common.base.BatchingVisitable;
+import com.palantir.common.base.BatchingVisitableFromIterable;
+
+public class ParallelRangeScanTest {
+    private static final int NUM_RANGES = 10;
+    private static final int ROWS_PER_RANGE = 25;
+    private static final int CONCURRENCY = 3;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(CONCURRENCY);
+    private final AtomicInteger rangesStarted = new AtomicInteger();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void returnsTheRowsOfAllRangesInKeyOrderWhenOrdered() {
+        try (Stream<Integer> rows = ParallelRangeScan.ordered(ranges(), this::rowsOf, executor, CONCURRENCY)) {
+            assertThat(rows.collect(Collectors.toList())).isEqualTo(allRows());
+        }
+    }
+
+    @Test
+    public void returnsTheRowsOfAllRangesWhenUnordered() {
+        try (Stream<Integer> rows = ParallelRangeScan.unordered(ranges(), this::rowsOf, executor, CONCURRENCY)) {
+            assertThat(rows.collect(Collectors.toList())).containsOnlyElementsOf(allRows()).hasSize(allRows().size());
+        }
+    }
+
+    @Test
+    public void rethrowsFailuresToScanARange() {
+        Function<RangeRequest, BatchingVisitable<Integer>> failingFactory = range -> {
+            if (rangeIndex(range) == 3) {
+                throw new IllegalStateException("failed to scan");
+            }
+            return rowsOf(range);
+        };
+
+        try (Stream<Integer> rows = ParallelRangeScan.ordered(ranges(), failingFactory, executor, CONCURRENCY)) {
+            assertThatThrownBy(() -> rows.collect(Collectors.toList()))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessage("failed to scan");
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void failsTheScanIfTheExecutorRejectsARangeWhileTheQueueIsFull() {
+        AtomicInteger rowsVisited = new AtomicInteger();
+        AtomicInteger rangesSubmitted = new AtomicInteger();
+        Executor rejectingExecutor = command -> {
+            if (rangesSubmitted.getAndIncrement() == 0) {
+                executor.execute(command);
+                return;
+            }
+            // The first range has more batches than the queue holds, so it stops visiting rows once the queue is full.
+            int visited;
+            do {
+                visited = rowsVisited.get();
+                Uninterruptibles.sleepUninterruptibly(100, TimeUnit.MILLISECONDS);
+            } while (visited == 0 || rowsVisited.get() != visited);
+            throw new RejectedExecutionException();
+        };
+        Function<RangeRequest, BatchingVisitable<Integer>> countingFactory =
+                range -> BatchingVisitableFromIterable.create(Iterables.transform(allRowsOf(range), row -> {
+                    rowsVisited.incrementAndGet();
+                    return row;
+                }));
+
+        try (Stream<Integer> rows = ParallelRangeScan.unordered(ranges(), countingFactory, rejectingExecutor, 2)) {
+            assertThatThrownBy(() -> rows.collect(Collectors.toList()))
+                    .isInstanceOf(RejectedExecutionException.class);
+        }
+    }
+
+    @Test
+    public void startsNoMoreRangesOnceClosed() {
+        Stream<Integer> rows = ParallelRangeScan.ordered(ranges(), this::rowsOf, executor, CONCURRENCY);
+        assertThat(rows.iterator().next()).isEqualTo(0);
+
+        rows.close();
+
+        assertThat(rangesStarted.get()).isLessThanOrEqualTo(CONCURRENCY);
+    }
+
+    private static List<RangeRequest> ranges() {
+        return IntStream.range(0, NUM_RANGES)
+                .mapToObj(i -> RangeRequest.builder()
+                        .startRowInclusive(PtBytes.toBytes(i))
+                        .endRowExclusive(PtBytes.toBytes(i + 1))
+                        .batchHint(4)
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    private static List<Integer> allRows() {
+        return IntStream.range(0, NUM_RANGES * ROWS_PER_RANGE).boxed().collect(Collectors.toList());
+    }
+
+    private BatchingVisitable<Integer> rowsOf(RangeRequest range) {
+        rangesStarted.incrementAndGet();
+        return BatchingVisitableFromIterable.create(allRowsOf(range));
+    }
+
+    private static List<Integer> allRowsOf(RangeRequest range) {
+        int first = rangeIndex(range) * ROWS_PER_RANGE;
+        return IntStream.range(first, first + ROWS_PER_RANGE).boxed().collect(Collectors.toList());
+    }
+
+    private static int rangeIndex(RangeRequest range) {
+        return (int) PtBytes.toLong(range.getStartInclusive());
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.palantir.common.base.ClosableIterator;
+
+public class RangeScanPrefetcherTest {
+    private static final int NUM_PAGES = 10;
+
+    private final AtomicInteger pagesFetched = new AtomicInteger();
+    private final AtomicBoolean scanClosed = new AtomicBoolean();
+
+    private RangeScanPrefetcher prefetcher;
+
+    @After
+    public void tearDown() {
+        if (prefetcher != null) {
+            prefetcher.close();
+        }
+    }
+
+    @Test
+    public void returnsAllPagesInOrder() {
+        ClosableIterator<List<Integer>> pages = prefetch(2, Long.MAX_VALUE);
+
+        List<List<Integer>> result = Lists.newArrayList(pages);
+
+        assertThat(result).hasSize(NUM_PAGES);
+        for (int i = 0; i < NUM_PAGES; i++) {
+            assertThat(result.get(i)).containsExactly(i);
+        }
+    }
+
+    @Test
+    public void fetchesAtMostTheConfiguredNumberOfPagesAhead() {
+        ClosableIterator<List<Integer>> pages = prefetch(3, Long.MAX_VALUE);
+
+        pages.next();
+        waitForFetches(4);
+
+        assertThat(pagesFetched.get()).isEqualTo(4);
+    }
+
+    @Test
+    public void stopsFetchingAheadOnceBufferedPagesReachTheByteLimit() {
+        ClosableIterator<List<Integer>> pages = prefetch(3, 1L);
+
+        pages.next();
+        waitForFetches(2);
+
+        assertThat(pagesFetched.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void closesTheScanWhenClosed() {
+        ClosableIterator<List<Integer>> pages = prefetch(1, Long.MAX_VALUE);
+        pages.next();
+
+        pages.close();
+
+        waitForClose();
+        assertThat(pages.hasNext()).isFalse();
+    }
+
+    @Test
+    public void closesTheScanOnlyOnceTheFetchInProgressHasReturned() {
+        CountDownLatch secondFetchStarted = new CountDownLatch(1);
+        CountDownLatch secondFetchCanReturn = new CountDownLatch(1);
+        prefetcher = RangeScanPrefetcher.create(1, Long.MAX_VALUE);
+        ClosableIterator<List<Integer>> pages = prefetcher.prefetch(
+                () -> {
+                    int page = pagesFetched.getAndIncrement();
+                    if (page > 0) {
+                        secondFetchStarted.countDown();
+                        Uninterruptibles.awaitUninterruptibly(secondFetchCanReturn);
+                    }
+                    return ImmutableList.of(page);
+                },
+                page -> 1L,
+                () -> scanClosed.set(true));
+        pages.next();
+        Uninterruptibles.awaitUninterruptibly(secondFetchStarted);
+
+        pages.close();
+        assertThat(scanClosed.get()).isFalse();
+
+        secondFetchCanReturn.countDown();
+        waitForClose();
+        assertThat(pagesFetched.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void rethrowsFailuresToFetch() {
+        prefetcher = RangeScanPrefetcher.create(1, Long.MAX_VALUE);
+        ClosableIterator<List<Integer>> pages = prefetcher.prefetch(
+                () -> {
+                    throw new IllegalStateException("failed to fetch");
+                },
+                page -> 1L,
+                () -> scanClosed.set(true));
+
+        assertThatThrownBy(pages::hasNext)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("failed to fetch");
+    }
+
+    private ClosableIterator<List<Integer>> prefetch(int pagesToPrefetch, long maxBufferedBytes) {
+        prefetcher = RangeScanPrefetcher.create(pagesToPrefetch, maxBufferedBytes);
+        return prefetcher.prefetch(
+                () -> {
+                    int page = pagesFetched.getAndIncrement();
+                    return page < NUM_PAGES ? ImmutableList.of(page) : ImmutableList.of();
+                },
+                page -> 1L,
+                () -> scanClosed.set(true));
+    }
+
+    private void waitForFetches(int expectedFetches) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (pagesFetched.get() < expectedFetches && System.nanoTime() < deadline) {
+            Uninterruptibles.sleepUninterruptibly(10, TimeUnit.MILLISECONDS);
+        }
+        // Give any fetches beyond the expected ones a chance to happen.
+        Uninterruptibles.sleepUninterruptibly(100, TimeUnit.MILLISECONDS);
+    }
+
+    private void waitForClose() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!scanClosed.get() && System.nanoTime() < deadline) {
+            Uninterruptibles.sleepUninterruptibly(10, TimeUnit.MILLISECONDS);
+        }
+        assertThat(scanClosed.get()).isTrue();
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.Matchers;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Longs;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import gnu.trove.TLongCollection;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.TLongLongMap;
+import gnu.trove.map.hash.TLongLongHashMap;
+
+public class BatchingTransactionServiceTest {
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void returnsOnlyRequestedCommitTimestamps() {
+        TransactionService delegate = mock(TransactionService.class);
+        when(delegate.get(Matchers.any(TLongCollection.class))).thenReturn(commitTimestamps(1L, 2L, 3L, -1L));
+        BatchingTransactionService service = createService(delegate);
+
+        assertThat(service.get(ImmutableList.of(1L, 1L, 4L))).isEqualTo(ImmutableMap.of(1L, 2L));
+        assertThat(service.get(3L)).isEqualTo(-1L);
+        assertThat(service.get(4L)).isNull();
+    }
+
+    @Test
+    public void doesNotReadForEmptyLookups() {
+        TransactionService delegate = mock(TransactionService.class);
+        BatchingTransactionService service = createService(delegate);
+
+        assertThat(service.get(ImmutableList.of())).isEmpty();
+
+        verifyNoMoreInteractions(delegate);
+    }
+
+    @Test
+    public void coalescesLookupsQueuedWhileAReadIsInFlight() throws Exception {
+        CountDownLatch firstReadStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstRead = new CountDownLatch(1);
+        List<Set<Long>> reads = Lists.newCopyOnWriteArrayList();
+        TransactionService delegate = new FakeTransactionService() {
+            @Override
+            public TLongLongMap get(TLongCollection startTimestamps) {
+                reads.add(ImmutableSet.copyOf(Longs.asList(startTimestamps.toArray())));
+                firstReadStarted.countDown();
+                Uninterruptibles.awaitUninterruptibly(releaseFirstRead);
+                return super.get(startTimestamps);
+            }
+        };
+        BatchingTransactionService service = createService(delegate);
+
+        ListenableFuture<Map<Long, Long>> first = service.getAsync(ImmutableList.of(1L));
+        assertThat(firstReadStarted.await(10, TimeUnit.SECONDS)).isTrue();
+        ListenableFuture<Map<Long, Long>> second = service.getAsync(ImmutableList.of(2L, 3L));
+        ListenableFuture<Map<Long, Long>> third = service.getAsync(ImmutableList.of(3L, 4L));
+        releaseFirstRead.countDown();
+
+        assertThat(first.get(10, TimeUnit.SECONDS)).isEqualTo(ImmutableMap.of(1L, 2L));
+        assertThat(second.get(10, TimeUnit.SECONDS)).isEqualTo(ImmutableMap.of(2L, 4L, 3L, 6L));
+        assertThat(third.get(10, TimeUnit.SECONDS)).isEqualTo(ImmutableMap.of(3L, 6L, 4L, 8L));
+        assertThat(reads).containsExactly(ImmutableSet.of(1L), ImmutableSet.of(2L, 3L, 4L));
+        assertThat(metricRegistry.histogram(
+                MetricRegistry.name(BatchingTransactionService.class, "lookupsPerBatch")).getSnapshot().getMax())
+                .isEqualTo(2L);
+    }
+
+    @Test
+    public void servesPrimitiveLookupsFromTheSameBatches() throws Exception {
+        CountDownLatch firstReadStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstRead = new CountDownLatch(1);
+        TransactionService delegate = new FakeTransactionService() {
+            @Override
+            public TLongLongMap get(TLongCollection startTimestamps) {
+                firstReadStarted.countDown();
+                Uninterruptibles.awaitUninterruptibly(releaseFirstRead);
+                return super.get(startTimestamps);
+            }
+        };
+        BatchingTransactionService service = createService(delegate);
+
+        ListenableFuture<Map<Long, Long>> first = service.getAsync(ImmutableList.of(1L));
+        assertThat(firstReadStarted.await(10, TimeUnit.SECONDS)).isTrue();
+        ListenableFuture<TLongLongMap> primitive = service.getAsync(new TLongArrayList(new long[] {2L, 3L}));
+        ListenableFuture<Map<Long, Long>> boxed = service.getAsync(ImmutableList.of(3L));
+        releaseFirstRead.countDown();
+
+        assertThat(first.get(10, TimeUnit.SECONDS)).isEqualTo(ImmutableMap.of(1L, 2L));
+        assertThat(primitive.get(10, TimeUnit.SECONDS)).isEqualTo(commitTimestamps(2L, 4L, 3L, 6L));
+        assertThat(boxed.get(10, TimeUnit.SECONDS)).isEqualTo(ImmutableMap.of(3L, 6L));
+        assertThat(service.get(new TLongArrayList(new long[] {4L}))).isEqualTo(commitTimestamps(4L, 8L));
+    }
+
+    @Test
+    public void propagatesFailuresToEveryLookupInTheBatch() {
+        TransactionService delegate = mock(TransactionService.class);
+        when(delegate.get(Matchers.any(TLongCollection.class))).thenThrow(new IllegalStateException("kvs is down"));
+        BatchingTransactionService service = createService(delegate);
+
+        assertThatThrownBy(() -> service.get(ImmutableList.of(1L)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("kvs is down");
+        assertThatThrownBy(() -> service.get(2L))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void passesWritesThrough() {
+        TransactionService delegate = mock(TransactionService.class);
+        BatchingTransactionService service = createService(delegate);
+
+        service.putUnlessExists(1L, 2L);
+
+        verify(delegate).putUnlessExists(1L, 2L);
+    }
+
+    private BatchingTransactionService createService(TransactionService delegate) {
+        return new BatchingTransactionService(delegate, executor, metricRegistry);
+    }
+
+    private static TLongLongMap commitTimestamps(long... startAndCommitTimestamps) {
+        TLongLongMap result = new TLongLongHashMap();
+        for (int i = 0; i < startAndCommitTimestamps.length; i += 2) {
+            result.put(startAndCommitTimestamps[i], startAndCommitTimestamps[i + 1]);
+        }
+        return result;
+    }
+
+    /**
+     * Every start timestamp ts has been committed at 2 * ts.
+     */
+    private static class FakeTransactionService implements TransactionService {
+        @Override
+        public Long get(long startTimestamp) {
+            return 2 * startTimestamp;
+        }
+
+        @Override
+        public Map<Long, Long> get(Iterable<Long> startTimestamps) {
+            ImmutableMap.Builder<Long, Long> result = ImmutableMap.builder();
+            for (Long startTimestamp : startTimestamps) {
+                result.put(startTimestamp, 2 * startTimestamp);
+            }
+            return result.build();
+        }
+
+        @Override
+        public void putUnlessExists(long startTimestamp, long commitTimestamp) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.impl.ForwardingKeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.transaction.impl.TransactionTables;
+
+public class GroupCommitTransactionServiceTest {
+    private static final int MAX_CONCURRENT_BATCHES = 4;
+    private static final long BATCH_WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final ExecutorService committers = Executors.newCachedThreadPool();
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    // Batch workers are held here until released, so that commits can be queued before any batch is taken.
+    private final List<Runnable> heldWorkers = Lists.newCopyOnWriteArrayList();
+    private final Executor holdingExecutor = heldWorkers::add;
+
+    private volatile CountDownLatch writesStarted = new CountDownLatch(0);
+    private volatile CountDownLatch releaseWrites = new CountDownLatch(0);
+
+    private final KeyValueService memoryKvs = new InMemoryKeyValueService(false);
+    private final List<Set<Cell>> writes = Lists.newCopyOnWriteArrayList();
+    private final KeyValueService kvs = new ForwardingKeyValueService() {
+        @Override
+        protected KeyValueService delegate() {
+            return memoryKvs;
+        }
+
+        @Override
+        public void putUnlessExists(TableReference tableRef, Map<Cell, byte[]> values) {
+            writes.add(ImmutableSet.copyOf(values.keySet()));
+            writesStarted.countDown();
+            Uninterruptibles.awaitUninterruptibly(releaseWrites);
+            super.putUnlessExists(tableRef, values);
+        }
+    };
+    private final TransactionService simpleService = new SimpleTransactionService(kvs);
+
+    @Before
+    public void setUp() {
+        TransactionTables.createTables(memoryKvs);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        committers.shutdownNow();
+    }
+
+    @Test
+    public void writesConcurrentCommitsTogether() throws Exception {
+        GroupCommitTransactionService service = createService(holdingExecutor, BATCH_WINDOW_NANOS);
+
+        List<Future<?>> commits = ImmutableList.of(
+                commitAsync(service, 1L, 2L),
+                commitAsync(service, 3L, 4L),
+                commitAsync(service, 5L, 6L));
+        releaseHeldWorkers(3);
+        for (Future<?> commit : commits) {
+            commit.get(10, TimeUnit.SECONDS);
+        }
+
+        assertThat(writes).containsExactly(cells(1L, 3L, 5L));
+        assertThat(service.get(ImmutableList.of(1L, 3L, 5L))).isEqualTo(ImmutableMap.of(1L, 2L, 3L, 4L, 5L, 6L));
+        assertThat(metricRegistry.histogram(
+                MetricRegistry.name(GroupCommitTransactionService.class, "commitsPerBatch")).getSnapshot().getMax())
+                .isEqualTo(3L);
+    }
+
+    @Test
+    public void onlyFailsTheCommitsWhoseStartTimestampsAlreadyExist() throws Exception {
+        simpleService.putUnlessExists(3L, 4L);
+        GroupCommitTransactionService service = createService(holdingExecutor, BATCH_WINDOW_NANOS);
+
+        Future<?> alreadyCommitted = commitAsync(service, 3L, 7L);
+        Future<?> fresh = commitAsync(service, 5L, 6L);
+        Future<?> retried = commitAsync(service, 3L, 4L);
+        releaseHeldWorkers(3);
+
+        assertThatThrownBy(() -> alreadyCommitted.get(10, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(KeyAlreadyExistsException.class);
+        fresh.get(10, TimeUnit.SECONDS);
+        retried.get(10, TimeUnit.SECONDS);
+        assertThat(service.get(ImmutableList.of(3L, 5L))).isEqualTo(ImmutableMap.of(3L, 4L, 5L, 6L));
+        assertThat(metricRegistry.meter(
+                MetricRegistry.name(GroupCommitTransactionService.class, "batchesWithExistingKeys")).getCount())
+                .isEqualTo(1L);
+    }
+
+    @Test
+    public void writesSeveralBatchesConcurrently() throws Exception {
+        GroupCommitTransactionService service = createService(executor, 0);
+        writesStarted = new CountDownLatch(2);
+        releaseWrites = new CountDownLatch(1);
+
+        Future<?> first = commitAsync(service, 1L, 2L);
+        awaitWrites(1);
+        Future<?> second = commitAsync(service, 3L, 4L);
+        assertThat(writesStarted.await(10, TimeUnit.SECONDS)).isTrue();
+        releaseWrites.countDown();
+
+        first.get(10, TimeUnit.SECONDS);
+        second.get(10, TimeUnit.SECONDS);
+        assertThat(service.get(ImmutableList.of(1L, 3L))).isEqualTo(ImmutableMap.of(1L, 2L, 3L, 4L));
+    }
+
+    @Test
+    public void doesNotWaitForTheBatchWindowIfNoOtherCommitsArePending() throws Exception {
+        GroupCommitTransactionService service = createService(executor, TimeUnit.MINUTES.toNanos(10));
+
+        commitAsync(service, 1L, 2L).get(10, TimeUnit.SECONDS);
+        assertThat(service.get(1L)).isEqualTo(2L);
+    }
+
+    @Test
+    public void singleCommitsPropagateExistingKeys() {
+        GroupCommitTransactionService service = createService(executor, 0);
+        service.putUnlessExists(1L, 2L);
+
+        assertThatThrownBy(() -> service.putUnlessExists(1L, 3L)).isInstanceOf(KeyAlreadyExistsException.class);
+        assertThat(service.get(1L)).isEqualTo(2L);
+    }
+
+    private GroupCommitTransactionService createService(Executor batchExecutor, long batchWindowNanos) {
+        return new GroupCommitTransactionService(
+                kvs, simpleService, batchExecutor, MAX_CONCURRENT_BATCHES, batchWindowNanos, metricRegistry);
+    }
+
+    private void awaitWrites(int expectedWrites) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (writes.size() < expectedWrites) {
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private void releaseHeldWorkers(int expectedWorkers) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (heldWorkers.size() < expectedWorkers) {
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.sleep(1);
+        }
+        heldWorkers.forEach(executor::execute);
+    }
+
+    private Future<?> commitAsync(TransactionService service, long startTimestamp, long commitTimestamp) {
+        return committers.submit(() -> service.putUnlessExists(startTimestamp, commitTimestamp));
+    }
+
+    private static Set<Cell> cells(Long... startTimestamps) {
+        ImmutableSet.Builder<Cell> cells = ImmutableSet.builder();
+        for (Long startTimestamp : startTimestamps) {
+            cells.add(SimpleTransactionService.getTransactionCell(startTimestamp));
+        }
+        return cells.build();
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.transaction.impl.TransactionConstants;
+import com.palantir.atlasdb.transaction.impl.TransactionTables;
+
+import gnu.trove.map.TLongLongMap;
+import gnu.trove.map.hash.TLongLongHashMap;
+import gnu.trove.set.hash.TLongHashSet;
+
+public class SimpleTransactionServiceTest {
+    private final KeyValueService kvs = new InMemoryKeyValueService(false);
+    private final TransactionService service = new SimpleTransactionService(kvs);
+
+    @Before
+    public void setUp() {
+        TransactionTables.createTables(kvs);
+        service.putUnlessExists(1L, 2L);
+        service.putUnlessExists(3L, TransactionConstants.FAILED_COMMIT_TS);
+    }
+
+    @Test
+    public void primitiveGetReturnsTheSameCommitTimestampsAsBoxedGet() {
+        TLongLongMap commitTimestamps = service.get(new TLongHashSet(new long[] {1L, 3L, 5L}));
+
+        assertThat(commitTimestamps).isEqualTo(new TLongLongHashMap(
+                new long[] {1L, 3L}, new long[] {2L, TransactionConstants.FAILED_COMMIT_TS}));
+        assertThat(service.get(ImmutableList.of(1L, 3L, 5L)))
+                .isEqualTo(ImmutableMap.of(1L, 2L, 3L, TransactionConstants.FAILED_COMMIT_TS));
+    }
+
+    @Test
+    public void primitiveGetOfNoStartTimestampsIsEmpty() {
+        assertThat(service.get(new TLongHashSet()).isEmpty()).isTrue();
+    }
+}
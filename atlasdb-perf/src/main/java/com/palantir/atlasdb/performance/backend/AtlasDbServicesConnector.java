@@ -17,6 +17,7 @@
 package com.palantir.atlasdb.performance.backend;
 
 import java.io.Closeable;
+import java.util.function.UnaryOperator;
 
 import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
@@ -40,6 +41,13 @@ public class AtlasDbServicesConnector implements Closeable {
     private AtlasDbServices services;
 
     public AtlasDbServices connect() {
+        return connect(UnaryOperator.identity());
+    }
+
+    /**
+     * Connects with an AtlasDB config adjusted by {@code configCustomizer}, for benchmarks of optional features.
+     */
+    public AtlasDbServices connect(UnaryOperator<ImmutableAtlasDbConfig.Builder> configCustomizer) {
         if (services != null) {
             throw new IllegalStateException("connect() has already been called");
         }
@@ -50,8 +58,8 @@ public class AtlasDbServicesConnector implements Closeable {
         services = DaggerAtlasDbServices.builder()
                 .servicesConfigModule(
                         ServicesConfigModule.create(
-                                ImmutableAtlasDbConfig.builder()
-                                        .keyValueService(config)
+                                configCustomizer.apply(ImmutableAtlasDbConfig.builder()
+                                        .keyValueService(config))
                                         .build()))
                 .build();
         return services;
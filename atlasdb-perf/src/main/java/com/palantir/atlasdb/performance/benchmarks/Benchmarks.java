@@ -67,6 +67,27 @@ public final class Benchmarks {
         kvs.createTable(tableRef, tableDef.toTableMetadata().persistToBytes());
     }
 
+    /**
+     * Creates a table whose metadata declares it write once, so that transactions may cache its values.
+     */
+    public static void createWriteOnceTable(KeyValueService kvs,
+            TableReference tableRef,
+            String rowComponent,
+            String columnName) {
+        TableDefinition tableDef = new TableDefinition() {
+            {
+                rowName();
+                rowComponent(rowComponent, ValueType.STRING);
+                columns();
+                column(columnName, columnName, ValueType.BLOB);
+                conflictHandler(ConflictHandler.IGNORE_ALL);
+                sweepStrategy(TableMetadataPersistence.SweepStrategy.NOTHING);
+                writeOnce();
+            }
+        };
+        kvs.createTable(tableRef, tableDef.toTableMetadata().persistToBytes());
+    }
+
     public static void createTableWithStreaming(KeyValueService kvs,
             TableReference tableRef,
             String rowComponent,
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Lists;
+import com.palantir.lock.LockMode;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.LockRequest;
+import com.palantir.lock.SimpleTimeDuration;
+import com.palantir.lock.StringLockDescriptor;
+import com.palantir.lock.impl.LockServiceImpl;
+
+/**
+ * Measures how quickly an in-process {@link LockServiceImpl} refreshes batches of tokens, as transactions and
+ * timelock clients do, with different numbers of tokens outstanding. Every token holds a read lock on the same
+ * descriptor, so the numbers reflect token bookkeeping and expiry rather than the locks themselves. These do not need
+ * a key value service.
+ */
+@State(Scope.Benchmark)
+public class LockRefreshBenchmarks {
+    private static final String CLIENT = "lock-refresh-benchmark-client";
+    private static final int REFRESH_BATCH_SIZE = 1_000;
+
+    @Param({"10000", "100000", "1000000"})
+    private int outstandingTokens;
+
+    private LockServiceImpl lockService;
+    private List<List<LockRefreshToken>> batches;
+
+    @State(Scope.Thread)
+    public static class NextBatch {
+        private int index;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws InterruptedException {
+        lockService = LockServiceImpl.create();
+        LockRequest request = LockRequest.builder(
+                ImmutableSortedMap.of(StringLockDescriptor.of("lock-refresh-benchmark"), LockMode.READ))
+                .timeoutAfter(SimpleTimeDuration.of(10, TimeUnit.MINUTES))
+                .doNotBlock()
+                .build();
+        List<LockRefreshToken> tokens = Lists.newArrayListWithCapacity(outstandingTokens);
+        for (int i = 0; i < outstandingTokens; i++) {
+            tokens.add(lockService.lock(CLIENT, request));
+        }
+        batches = Lists.partition(tokens, REFRESH_BATCH_SIZE);
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() {
+        lockService.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 5, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 30, timeUnit = TimeUnit.SECONDS)
+    public Set<LockRefreshToken> singleThreadRefresh(NextBatch nextBatch) {
+        return refreshNextBatch(nextBatch);
+    }
+
+    @Benchmark
+    @Threads(8)
+    @Warmup(time = 5, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 30, timeUnit = TimeUnit.SECONDS)
+    public Set<LockRefreshToken> manyThreadsRefresh(NextBatch nextBatch) {
+        return refreshNextBatch(nextBatch);
+    }
+
+    private Set<LockRefreshToken> refreshNextBatch(NextBatch nextBatch) {
+        List<LockRefreshToken> batch = batches.get(nextBatch.index);
+        nextBatch.index = (nextBatch.index + 1) % batches.size();
+        return lockService.refreshLockRefreshTokens(batch);
+    }
+}
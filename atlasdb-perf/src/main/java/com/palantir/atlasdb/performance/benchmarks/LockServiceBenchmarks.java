@@ -0,0 +1,102 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableSortedMap;
+import com.palantir.lock.LockMode;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.LockRequest;
+import com.palantir.lock.StringLockDescriptor;
+import com.palantir.lock.impl.LockServiceImpl;
+
+/**
+ * Measures lock/unlock throughput of an in-process {@link LockServiceImpl} for uncontended write locks, as taken at
+ * commit time. Each benchmark thread locks its own descriptor, so the numbers reflect the lock server's bookkeeping
+ * rather than waiting on other holders. These do not need a key value service.
+ */
+@State(Scope.Benchmark)
+public class LockServiceBenchmarks {
+    private static final String CLIENT = "lock-benchmark-client";
+    private static final AtomicLong nextVersionId = new AtomicLong();
+
+    private LockServiceImpl lockService;
+
+    @State(Scope.Thread)
+    public static class ThreadLock {
+        private LockRequest request;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            request = LockRequest.builder(ImmutableSortedMap.of(
+                    StringLockDescriptor.of(UUID.randomUUID().toString()), LockMode.WRITE))
+                    .withLockedInVersionId(nextVersionId.incrementAndGet())
+                    .build();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        lockService = LockServiceImpl.create();
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() {
+        lockService.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public boolean singleThreadLockAndUnlock(ThreadLock threadLock) throws InterruptedException {
+        return lockAndUnlock(threadLock);
+    }
+
+    @Benchmark
+    @Threads(4)
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public boolean fourThreadsLockAndUnlock(ThreadLock threadLock) throws InterruptedException {
+        return lockAndUnlock(threadLock);
+    }
+
+    @Benchmark
+    @Threads(16)
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public boolean manyThreadsLockAndUnlock(ThreadLock threadLock) throws InterruptedException {
+        return lockAndUnlock(threadLock);
+    }
+
+    private boolean lockAndUnlock(ThreadLock threadLock) throws InterruptedException {
+        LockRefreshToken token = lockService.lock(CLIENT, threadLock.request);
+        return lockService.unlock(token);
+    }
+}
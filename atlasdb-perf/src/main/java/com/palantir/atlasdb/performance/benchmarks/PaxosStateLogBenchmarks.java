@@ -0,0 +1,138 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.palantir.paxos.PaxosStateLog;
+import com.palantir.paxos.PaxosStateLogImpl;
+import com.palantir.paxos.PaxosValue;
+import com.palantir.paxos.SegmentedPaxosStateLog;
+
+/**
+ * Compares the file-per-round {@link PaxosStateLogImpl} with the {@link SegmentedPaxosStateLog}. These do not need a
+ * key value service, and write to a temporary directory on the local disk.
+ */
+@State(Scope.Benchmark)
+public class PaxosStateLogBenchmarks {
+    private static final int INITIAL_ROUNDS = 10_000;
+    private static final byte[] DATA = new byte[8];
+
+    public enum Implementation {
+        FILE_PER_ROUND {
+            @Override
+            PaxosStateLog<PaxosValue> create(String path) {
+                return new PaxosStateLogImpl<>(path);
+            }
+        },
+        SEGMENTED {
+            @Override
+            PaxosStateLog<PaxosValue> create(String path) {
+                return SegmentedPaxosStateLog.create(path);
+            }
+        };
+
+        abstract PaxosStateLog<PaxosValue> create(String path);
+    }
+
+    @Param
+    private Implementation implementation;
+
+    private File dir;
+    private PaxosStateLog<PaxosValue> log;
+    private final AtomicLong nextSeq = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("paxos-state-log-benchmark").toFile();
+        log = implementation.create(dir.getPath());
+        for (long seq = 0; seq < INITIAL_ROUNDS; seq++) {
+            log.writeRound(seq, round(seq));
+        }
+        nextSeq.set(INITIAL_ROUNDS);
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public long singleThreadWriteRound() {
+        return writeNextRound();
+    }
+
+    @Benchmark
+    @Threads(16)
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public long manyThreadsWriteRound() {
+        return writeNextRound();
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public byte[] readRound() throws IOException {
+        return log.readRound(nextSeq.get() - 1);
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public long getGreatestLogEntry() {
+        return log.getGreatestLogEntry();
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public PaxosStateLog<PaxosValue> reopenLog() {
+        return implementation.create(dir.getPath());
+    }
+
+    private long writeNextRound() {
+        long seq = nextSeq.getAndIncrement();
+        log.writeRound(seq, round(seq));
+        return seq;
+    }
+
+    private static PaxosValue round(long seq) {
+        return new PaxosValue("leader", seq, DATA);
+    }
+}
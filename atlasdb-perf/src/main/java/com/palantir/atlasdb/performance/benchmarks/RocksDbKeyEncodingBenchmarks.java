@@ -0,0 +1,165 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Ints;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.keyvalue.rocksdb.impl.ImmutableWriteOpts;
+import com.palantir.atlasdb.keyvalue.rocksdb.impl.RocksDbKeyValueService;
+import com.palantir.common.base.ClosableIterator;
+
+/**
+ * Compares the Java comparators of the older RocksDB key encoding with the bytewise encoding, which RocksDB orders
+ * natively. These run against an embedded RocksDB in a temporary directory rather than a dockerized database.
+ */
+@State(Scope.Benchmark)
+public class RocksDbKeyEncodingBenchmarks {
+    private static final TableReference TABLE = TableReference.createFromFullyQualifiedName("perf.rocksdb");
+    private static final int NUM_ROWS = 100_000;
+    private static final int NUM_VERSIONS = 4;
+    private static final int ROWS_PER_BATCH = 1_000;
+    private static final byte[] COLUMN = "c".getBytes();
+
+    @Param({"atlasdb-v2", "atlasdb-v3"})
+    private String comparator;
+
+    private File dir;
+    private RocksDbKeyValueService kvs;
+    private final Random random = new Random(0);
+    private long nextTimestamp;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("rocksdb-key-encoding-benchmark").toFile();
+        kvs = RocksDbKeyValueService.create(dir.getPath(),
+                ImmutableMap.of(),
+                ImmutableMap.of(),
+                ImmutableWriteOpts.builder().fsyncPut(false).fsyncCommit(false).build(),
+                comparator);
+        kvs.createTable(TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+
+        for (long ts = 1; ts <= NUM_VERSIONS; ts++) {
+            for (int start = 0; start < NUM_ROWS; start += ROWS_PER_BATCH) {
+                kvs.put(TABLE, randomBatch(start), ts);
+            }
+        }
+        nextTimestamp = NUM_VERSIONS + 1;
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() throws IOException {
+        kvs.close();
+        FileUtils.deleteDirectory(dir);
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 5, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 30, timeUnit = TimeUnit.SECONDS)
+    public int fullRangeScan() {
+        int rows = 0;
+        try (ClosableIterator<RowResult<Value>> it =
+                kvs.getRange(TABLE, RangeRequest.all(), Long.MAX_VALUE)) {
+            while (it.hasNext()) {
+                it.next();
+                rows++;
+            }
+        }
+        Preconditions.checkState(rows == NUM_ROWS, "Expected %s rows but saw %s", NUM_ROWS, rows);
+        return rows;
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 5, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 30, timeUnit = TimeUnit.SECONDS)
+    public int rangeScanAtOlderTimestamp() {
+        int rows = 0;
+        try (ClosableIterator<RowResult<Value>> it =
+                kvs.getRange(TABLE, RangeRequest.all(), NUM_VERSIONS / 2 + 1)) {
+            while (it.hasNext()) {
+                it.next();
+                rows++;
+            }
+        }
+        Preconditions.checkState(rows == NUM_ROWS, "Expected %s rows but saw %s", NUM_ROWS, rows);
+        return rows;
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 5, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 30, timeUnit = TimeUnit.SECONDS)
+    public Map<Cell, Value> getBatchOfCells() {
+        Map<Cell, Long> request = Maps.newHashMapWithExpectedSize(ROWS_PER_BATCH);
+        int startRow = random.nextInt(NUM_ROWS - 2 * ROWS_PER_BATCH);
+        for (int row = startRow; row < startRow + 2 * ROWS_PER_BATCH; row += 2) {
+            request.put(Cell.create(Ints.toByteArray(row), COLUMN), Long.MAX_VALUE);
+        }
+        Map<Cell, Value> result = kvs.get(TABLE, request);
+        Preconditions.checkState(result.size() == ROWS_PER_BATCH, "Expected %s cells but saw %s",
+                ROWS_PER_BATCH, result.size());
+        return result;
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 5, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 30, timeUnit = TimeUnit.SECONDS)
+    public long overwriteBatchAndCompact() {
+        long ts = nextTimestamp++;
+        kvs.put(TABLE, randomBatch(random.nextInt(NUM_ROWS - ROWS_PER_BATCH)), ts);
+        kvs.forceCompaction(TABLE);
+        return ts;
+    }
+
+    private Map<Cell, byte[]> randomBatch(int startRow) {
+        Map<Cell, byte[]> values = Maps.newHashMapWithExpectedSize(ROWS_PER_BATCH);
+        for (int row = startRow; row < startRow + ROWS_PER_BATCH; row++) {
+            byte[] value = new byte[16];
+            random.nextBytes(value);
+            values.put(Cell.create(Ints.toByteArray(row), COLUMN), value);
+        }
+        return values;
+    }
+}
@@ -21,6 +21,8 @@ import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertThat;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -34,6 +36,7 @@ import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.Threads;
 import org.openjdk.jmh.annotations.Warmup;
 
+import com.google.common.io.ByteStreams;
 import com.palantir.atlasdb.performance.benchmarks.table.StreamingTable;
 import com.palantir.atlasdb.performance.schema.generated.StreamTestTableFactory;
 import com.palantir.atlasdb.performance.schema.generated.ValueStreamStore;
@@ -93,4 +96,46 @@ public class StreamStoreBenchmarks {
             assertArrayEquals(table.getVeryLargeStreamFirstBytes(), firstBytes);
         }
     }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 30, timeUnit = TimeUnit.SECONDS)
+    public long readVeryLargeStreamFully(StreamingTable table) throws IOException {
+        long id = table.getVeryLargeStreamId();
+        TransactionManager transactionManager = table.getTransactionManager();
+        StreamTestTableFactory tables = StreamTestTableFactory.of();
+        ValueStreamStore store = ValueStreamStore.of(transactionManager, tables);
+        try (InputStream inputStream = transactionManager.runTaskThrowOnConflict(txn -> store.loadStream(txn, id))) {
+            return ByteStreams.copy(inputStream, ByteStreams.nullOutputStream());
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 30, timeUnit = TimeUnit.SECONDS)
+    public long loadVeryLargeStreamAsFile(StreamingTable table) {
+        long id = table.getVeryLargeStreamId();
+        TransactionManager transactionManager = table.getTransactionManager();
+        StreamTestTableFactory tables = StreamTestTableFactory.of();
+        ValueStreamStore store = ValueStreamStore.of(transactionManager, tables);
+        File file = transactionManager.runTaskReadOnly(txn -> store.loadStreamAsFile(txn, id));
+        try {
+            return file.length();
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 30, timeUnit = TimeUnit.SECONDS)
+    public long storeVeryLargeStream(StreamingTable table) {
+        TransactionManager transactionManager = table.getTransactionManager();
+        StreamTestTableFactory tables = StreamTestTableFactory.of();
+        ValueStreamStore store = ValueStreamStore.of(transactionManager, tables);
+        return store.storeStream(new ByteArrayInputStream(table.getVeryLargeStreamData())).getLhSide();
+    }
 }
@@ -105,4 +105,31 @@ public class SweepBenchmarks {
     public Object multipleSweepRun(RegeneratingTable.SweepBatchNonUniformMultipleSeparateRegeneratingTable table) {
         return runMultiSweep(table);
     }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 10, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 60, timeUnit = TimeUnit.SECONDS)
+    public Object fullTableSweepRun(RegeneratingTable.TargetedSweepRegeneratingTable table) {
+        int cells = RegeneratingTable.TargetedSweepRegeneratingTable.TARGETED_SWEEP_BULK_CELLS
+                + RegeneratingTable.SWEEP_BATCH_SIZE;
+        SweepBatchConfig batchConfig = ImmutableSweepBatchConfig.builder()
+                .deleteBatchSize(DELETED_COUNT * RegeneratingTable.SWEEP_BATCH_SIZE)
+                .candidateBatchSize(RegeneratingTable.SWEEP_DUPLICATES * cells + 1)
+                .maxCellTsPairsToExamine(RegeneratingTable.SWEEP_DUPLICATES * cells)
+                .build();
+        SweepResults sweepResults = table.getSweepTaskRunner()
+                .run(table.getTableRef(), batchConfig, PtBytes.EMPTY_BYTE_ARRAY);
+        assertThat(sweepResults.getStaleValuesDeleted(),
+                is((long) DELETED_COUNT * RegeneratingTable.SWEEP_BATCH_SIZE));
+        return sweepResults;
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 10, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 60, timeUnit = TimeUnit.SECONDS)
+    public Object targetedSweepRun(RegeneratingTable.TargetedSweepRegeneratingTable table) {
+        return table.getTargetedSweeper().sweepEachShardOnce();
+    }
 }
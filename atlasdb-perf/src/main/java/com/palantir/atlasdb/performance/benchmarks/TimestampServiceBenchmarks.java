@@ -23,7 +23,9 @@ import org.openjdk.jmh.annotations.Threads;
 import org.openjdk.jmh.annotations.Warmup;
 import org.openjdk.jmh.infra.Blackhole;
 
+import com.palantir.atlasdb.performance.benchmarks.endpoint.LeaderElectionServiceEndpoint;
 import com.palantir.atlasdb.performance.benchmarks.endpoint.TimestampServiceEndpoint;
+import com.palantir.leader.LeaderElectionService.StillLeadingStatus;
 import com.palantir.timestamp.TimestampRange;
 
 public class TimestampServiceBenchmarks {
@@ -67,4 +69,24 @@ public class TimestampServiceBenchmarks {
     public TimestampRange manyThreadsGetBatchOfTimestamps(TimestampServiceEndpoint timestampService) {
         return timestampService.getFreshTimestamps(500);
     }
+
+    /**
+     * A timelock server checks that it is still the leader before serving each timestamp request. Comparing the
+     * lease durations shows how much of the request latency the leader lease saves.
+     */
+    @Benchmark
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS)
+    @Threads(4)
+    public StillLeadingStatus fewThreadsCheckLeadership(LeaderElectionServiceEndpoint leaderElectionService) {
+        return leaderElectionService.isStillLeading();
+    }
+
+    @Benchmark
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS)
+    @Threads(64)
+    public StillLeadingStatus manyThreadsCheckLeadership(LeaderElectionServiceEndpoint leaderElectionService) {
+        return leaderElectionService.isStillLeading();
+    }
 }
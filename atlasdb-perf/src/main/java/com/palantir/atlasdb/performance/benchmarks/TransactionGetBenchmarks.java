@@ -116,6 +116,14 @@ public class TransactionGetBenchmarks {
         return getCellsInner(table);
     }
 
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public Object getCellsWriteOnce(ConsecutiveNarrowTable.WriteOnceNarrowTable table) {
+        return getCellsInner(table);
+    }
+
     @Benchmark
     @Threads(1)
     @Warmup(time = 2, timeUnit = TimeUnit.SECONDS)
@@ -167,6 +175,14 @@ public class TransactionGetBenchmarks {
         return getSingleCellInner(table);
     }
 
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public Object getSingleCellWriteOnce(ConsecutiveNarrowTable.WriteOnceNarrowTable table) {
+        return getSingleCellInner(table);
+    }
+
     @Benchmark
     @Threads(1)
     @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.performance.benchmarks.table.ConsecutiveNarrowTable;
+import com.palantir.common.base.BatchingVisitables;
+
+/**
+ * Long transactional range scans, which read many pages from the key value service, with and without fetching
+ * pages ahead of post-filtering.
+ */
+@State(Scope.Benchmark)
+public class TransactionGetRangeBenchmarks {
+
+    private static final int BATCH_HINT = 1000;
+
+    private long scanInner(ConsecutiveNarrowTable table, int numRows) {
+        return table.getTransactionManager().runTaskThrowOnConflict(txn -> {
+            RangeRequest request = Iterables.getOnlyElement(table.getRangeRequests(1, numRows))
+                    .getBuilder()
+                    .batchHint(BATCH_HINT)
+                    .build();
+            long count = BatchingVisitables.count(txn.getRange(table.getTableRef(), request));
+            Preconditions.checkState(count == numRows, "Expected %s rows, found %s rows", numRows, count);
+            return count;
+        });
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 5, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 30, timeUnit = TimeUnit.SECONDS)
+    public Object scanRange(ConsecutiveNarrowTable.CleanNarrowTable table) {
+        return scanInner(table, 100 * BATCH_HINT);
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 5, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 30, timeUnit = TimeUnit.SECONDS)
+    public Object scanRangePrefetching(ConsecutiveNarrowTable.PrefetchingCleanNarrowTable table) {
+        return scanInner(table, 100 * BATCH_HINT);
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 10, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 60, timeUnit = TimeUnit.SECONDS)
+    public Object scanRangeDirty(ConsecutiveNarrowTable.DirtyNarrowTable table) {
+        return scanInner(table, table.getNumRows() / 2);
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 10, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 60, timeUnit = TimeUnit.SECONDS)
+    public Object scanRangeDirtyPrefetching(ConsecutiveNarrowTable.PrefetchingDirtyNarrowTable table) {
+        return scanInner(table, table.getNumRows() / 2);
+    }
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks.endpoint;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.net.HostAndPort;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.palantir.common.concurrent.PTExecutors;
+import com.palantir.leader.LeaderElectionService.LeadershipToken;
+import com.palantir.leader.LeaderElectionService.StillLeadingStatus;
+import com.palantir.leader.PaxosLeaderElectionService;
+import com.palantir.leader.PaxosLeaderElectionServiceBuilder;
+import com.palantir.leader.PingableLeader;
+import com.palantir.paxos.BooleanPaxosResponse;
+import com.palantir.paxos.PaxosAcceptor;
+import com.palantir.paxos.PaxosAcceptorImpl;
+import com.palantir.paxos.PaxosLearner;
+import com.palantir.paxos.PaxosLearnerImpl;
+import com.palantir.paxos.PaxosPromise;
+import com.palantir.paxos.PaxosProposal;
+import com.palantir.paxos.PaxosProposalId;
+import com.palantir.paxos.PaxosProposerImpl;
+
+/**
+ * A leader of three in-process paxos nodes, as a timelock server checks its leadership before serving each request.
+ * Each call to an acceptor is delayed to stand in for a network round trip.
+ */
+@State(Scope.Benchmark)
+public class LeaderElectionServiceEndpoint {
+    private static final int NUM_NODES = 3;
+    private static final int QUORUM_SIZE = 2;
+
+    @Param({"0", "1000"})
+    private long leaseDurationMs;
+
+    @Param("1")
+    private long acceptorLatencyMs;
+
+    private File dir;
+    private ExecutorService executor;
+    private PaxosLeaderElectionService leader;
+    private LeadershipToken token;
+
+    public StillLeadingStatus isStillLeading() {
+        return leader.isStillLeading(token);
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, InterruptedException {
+        dir = Files.createTempDirectory("leader-election-benchmark").toFile();
+        executor = PTExecutors.newCachedThreadPool();
+        List<PaxosAcceptor> acceptors = Lists.newArrayList();
+        List<PaxosLearner> learners = Lists.newArrayList();
+        for (int i = 0; i < NUM_NODES; i++) {
+            acceptors.add(new DelayedAcceptor(PaxosAcceptorImpl.newAcceptor(
+                    new File(dir, "acceptor" + i).getPath(), leaseDurationMs)));
+            learners.add(PaxosLearnerImpl.newLearner(new File(dir, "learner" + i).getPath()));
+        }
+        leader = new PaxosLeaderElectionServiceBuilder()
+                .proposer(PaxosProposerImpl.newProposer(
+                        learners.get(0),
+                        ImmutableList.copyOf(acceptors),
+                        ImmutableList.copyOf(learners),
+                        QUORUM_SIZE,
+                        UUID.randomUUID(),
+                        executor))
+                .knowledge(learners.get(0))
+                .potentialLeadersToHosts(ImmutableMap.<PingableLeader, HostAndPort>of())
+                .acceptors(acceptors)
+                .learners(learners)
+                .executor(executor)
+                .pingRateMs(0L)
+                .randomWaitBeforeProposingLeadershipMs(0L)
+                .leaderPingResponseWaitMs(0L)
+                .leaseDurationMs(leaseDurationMs)
+                .maxClockDriftMs(leaseDurationMs / 10)
+                .build();
+        // New acceptors wait out one lease before letting anyone become leader.
+        Thread.sleep(leaseDurationMs);
+        token = leader.blockOnBecomingLeader();
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() throws IOException {
+        leader.close();
+        executor.shutdownNow();
+        FileUtils.deleteDirectory(dir);
+    }
+
+    private final class DelayedAcceptor implements PaxosAcceptor {
+        private final PaxosAcceptor delegate;
+
+        DelayedAcceptor(PaxosAcceptor delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public PaxosPromise prepare(long seq, PaxosProposalId pid) {
+            delay();
+            return delegate.prepare(seq, pid);
+        }
+
+        @Override
+        public BooleanPaxosResponse accept(long seq, PaxosProposal proposal) {
+            delay();
+            return delegate.accept(seq, proposal);
+        }
+
+        @Override
+        public long getLatestSequencePreparedOrAccepted() {
+            delay();
+            return delegate.getLatestSequencePreparedOrAccepted();
+        }
+
+        private void delay() {
+            Uninterruptibles.sleepUninterruptibly(acceptorLatencyMs, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -33,6 +33,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.google.common.primitives.Ints;
+import com.palantir.atlasdb.config.ImmutableAtlasDbConfig;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
@@ -54,6 +55,7 @@ public abstract class ConsecutiveNarrowTable {
     private static final int REGENERATING_NUM_ROWS = 500;
     private static final List<byte[]> ROW_LIST = populateRowNames();
     private static final int DEFAULT_NUM_ROWS = 10_000;
+    private static final int RANGE_SCAN_PAGES_TO_PREFETCH = 2;
 
     private Random random = new Random(Tables.RANDOM_SEED);
     private AtlasDbServicesConnector connector;
@@ -93,13 +95,21 @@ public abstract class ConsecutiveNarrowTable {
     @Setup(Level.Trial)
     public void setup(AtlasDbServicesConnector conn) {
         this.connector = conn;
-        services = conn.connect();
+        services = conn.connect(this::configure);
         if (!services.getKeyValueService().getAllTableNames().contains(getTableRef())) {
-            Benchmarks.createTable(getKvs(), getTableRef(), Tables.ROW_COMPONENT, Tables.COLUMN_NAME);
+            createTable();
             setupData();
         }
     }
 
+    protected ImmutableAtlasDbConfig.Builder configure(ImmutableAtlasDbConfig.Builder config) {
+        return config;
+    }
+
+    protected void createTable() {
+        Benchmarks.createTable(getKvs(), getTableRef(), Tables.ROW_COMPONENT, Tables.COLUMN_NAME);
+    }
+
     @TearDown(Level.Trial)
     public void cleanup() throws Exception {
         this.connector.close();
@@ -123,6 +133,17 @@ public abstract class ConsecutiveNarrowTable {
         }
     }
 
+    /**
+     * The clean table, read through a transaction manager which fetches pages of range scans ahead.
+     */
+    @State(Scope.Benchmark)
+    public static class PrefetchingCleanNarrowTable extends CleanNarrowTable {
+        @Override
+        protected ImmutableAtlasDbConfig.Builder configure(ImmutableAtlasDbConfig.Builder config) {
+            return config.rangeScanPagesToPrefetch(RANGE_SCAN_PAGES_TO_PREFETCH);
+        }
+    }
+
     @State(Scope.Benchmark)
     public static class RegeneratingCleanNarrowTable extends CleanNarrowTable {
         @TearDown(Level.Invocation)
@@ -148,6 +169,33 @@ public abstract class ConsecutiveNarrowTable {
         }
     }
 
+    /**
+     * A clean table that is declared write once, and small enough that all its values fit in the write once value
+     * cache of the transaction manager.
+     */
+    @State(Scope.Benchmark)
+    public static class WriteOnceNarrowTable extends ConsecutiveNarrowTable {
+        @Override
+        public TableReference getTableRef() {
+            return TableReference.createFromFullyQualifiedName("performance.persistent_table_write_once");
+        }
+
+        @Override
+        public int getNumRows() {
+            return DEFAULT_NUM_ROWS;
+        }
+
+        @Override
+        protected void createTable() {
+            Benchmarks.createWriteOnceTable(getKvs(), getTableRef(), Tables.ROW_COMPONENT, Tables.COLUMN_NAME);
+        }
+
+        @Override
+        protected void setupData() {
+            storeDataInTable(this, 0);
+        }
+    }
+
     @State(Scope.Benchmark)
     public static class DirtyNarrowTable extends ConsecutiveNarrowTable {
         @Override
@@ -166,6 +214,17 @@ public abstract class ConsecutiveNarrowTable {
         }
     }
 
+    /**
+     * The dirty table, read through a transaction manager which fetches pages of range scans ahead.
+     */
+    @State(Scope.Benchmark)
+    public static class PrefetchingDirtyNarrowTable extends DirtyNarrowTable {
+        @Override
+        protected ImmutableAtlasDbConfig.Builder configure(ImmutableAtlasDbConfig.Builder config) {
+            return config.rangeScanPagesToPrefetch(RANGE_SCAN_PAGES_TO_PREFETCH);
+        }
+    }
+
     public static int rowNumber(byte[] row) {
         return Ints.fromByteArray(row);
     }
@@ -25,9 +25,14 @@ import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.TearDown;
 
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
+import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
@@ -35,8 +40,14 @@ import com.palantir.atlasdb.performance.backend.AtlasDbServicesConnector;
 import com.palantir.atlasdb.performance.benchmarks.Benchmarks;
 import com.palantir.atlasdb.protos.generated.TableMetadataPersistence;
 import com.palantir.atlasdb.services.AtlasDbServices;
+import com.palantir.atlasdb.sweep.CellsSweeper;
+import com.palantir.atlasdb.sweep.ImmutableSweepBatchConfig;
 import com.palantir.atlasdb.sweep.SweepTaskRunner;
+import com.palantir.atlasdb.sweep.TargetedSweeper;
+import com.palantir.atlasdb.sweep.queue.KvsSweepQueue;
 import com.palantir.atlasdb.transaction.api.TransactionManager;
+import com.palantir.atlasdb.transaction.impl.SweepStrategyManager;
+import com.palantir.atlasdb.transaction.impl.SweepStrategyManagers;
 
 /**
  * State class for creating a single Atlas table with one wide row.
@@ -46,7 +57,7 @@ public abstract class RegeneratingTable<T> {
 
     private static final int BATCH_SIZE = 250;
     public static final int SWEEP_DUPLICATES = 10;
-    private static final int SWEEP_BATCH_SIZE = 10;
+    public static final int SWEEP_BATCH_SIZE = 10;
 
     protected Random random = new Random(Tables.RANDOM_SEED);
 
@@ -69,6 +80,10 @@ public abstract class RegeneratingTable<T> {
         return services.getSweepTaskRunner();
     }
 
+    protected AtlasDbServices getServices() {
+        return services;
+    }
+
     @Setup(Level.Trial)
     public void setup(AtlasDbServicesConnector conn) {
         this.connector = conn;
@@ -228,4 +243,71 @@ public abstract class RegeneratingTable<T> {
             populateTable(SWEEP_BATCH_SIZE, 1, SWEEP_DUPLICATES);
         }
     }
+
+    /**
+     * A table with {@link #TARGETED_SWEEP_BULK_CELLS} cells that have nothing to sweep and {@link #SWEEP_BATCH_SIZE}
+     * cells written {@link #SWEEP_DUPLICATES} times, where only the latter writes are in the sweep queue.
+     */
+    @State(Scope.Benchmark)
+    public static class TargetedSweepRegeneratingTable extends SweepRegeneratingTable {
+        public static final int TARGETED_SWEEP_BULK_CELLS = 10_000;
+
+        private KvsSweepQueue sweepQueue;
+        private TargetedSweeper targetedSweeper;
+
+        public TargetedSweeper getTargetedSweeper() {
+            return targetedSweeper;
+        }
+
+        @Override
+        protected void setupTable() {
+            super.setupTable();
+            SweepStrategyManager sweepStrategyManager = SweepStrategyManagers.createDefault(getKvs());
+            sweepQueue = KvsSweepQueue.create(getKvs(), sweepStrategyManager);
+            TransactionManager txManager = getServices().getTransactionManager();
+            // The benchmark table is swept thoroughly, so the immutable timestamp alone bounds what may be swept.
+            targetedSweeper = TargetedSweeper.create(
+                    getServices().getLockService(),
+                    getKvs(),
+                    sweepQueue,
+                    getServices().getTransactionService(),
+                    sweepStrategyManager,
+                    new CellsSweeper(txManager, getKvs(), ImmutableList.of()),
+                    txManager::getImmutableTimestamp,
+                    txManager::getImmutableTimestamp,
+                    Suppliers.ofInstance(0L),
+                    Suppliers.ofInstance(ImmutableSweepBatchConfig.builder()
+                            .maxCellTsPairsToExamine(SWEEP_DUPLICATES * SWEEP_BATCH_SIZE)
+                            .candidateBatchSize(SWEEP_DUPLICATES * SWEEP_BATCH_SIZE)
+                            .deleteBatchSize(SWEEP_DUPLICATES * SWEEP_BATCH_SIZE)
+                            .build()));
+        }
+
+        @Override
+        public void setupTableData() {
+            getKvs().truncateTables(ImmutableSet.of(
+                    getTableRef(),
+                    AtlasDbConstants.SWEEP_QUEUE_TABLE,
+                    AtlasDbConstants.SWEEP_QUEUE_PROGRESS_TABLE));
+            Map<Cell, byte[]> bulk = Tables.generateRandomBatch(random, TARGETED_SWEEP_BULK_CELLS);
+            getTransactionManager().runTaskThrowOnConflict(txn -> {
+                txn.put(getTableRef(), bulk);
+                return null;
+            });
+            Map<Cell, byte[]> batch = Tables.generateRandomBatch(random, SWEEP_BATCH_SIZE);
+            for (int j = 0; j < SWEEP_DUPLICATES; j++) {
+                getTransactionManager().runTaskThrowOnConflict(txn -> {
+                    txn.put(getTableRef(), batch);
+                    sweepQueue.enqueue(ImmutableMap.of(getTableRef(), batch), txn.getTimestamp());
+                    return null;
+                });
+            }
+        }
+
+        @Override
+        public void cleanup() throws Exception {
+            targetedSweeper.shutdown();
+            super.cleanup();
+        }
+    }
 }
@@ -55,6 +55,7 @@ public class StreamingTable {
     private long veryLargeStreamId;
     private byte[] largeStreamFirstBytes;
     private byte[] veryLargeStreamFirstBytes;
+    private byte[] veryLargeStreamData;
 
     public long getSmallStreamId() {
         return smallStreamId;
@@ -76,6 +77,10 @@ public class StreamingTable {
         return veryLargeStreamFirstBytes;
     }
 
+    public byte[] getVeryLargeStreamData() {
+        return veryLargeStreamData;
+    }
+
     public TransactionManager getTransactionManager() {
         return services.getTransactionManager();
     }
@@ -120,6 +125,7 @@ public class StreamingTable {
         random.nextBytes(bigRandomData);
         veryLargeStreamId = storeStreamForRow(bigRandomData, "row3");
         veryLargeStreamFirstBytes = Arrays.copyOf(bigRandomData, 16);
+        veryLargeStreamData = bigRandomData;
     }
 
     private Long storeStreamForRow(byte[] data, String rowName) {
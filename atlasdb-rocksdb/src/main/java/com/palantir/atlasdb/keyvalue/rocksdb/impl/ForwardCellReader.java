@@ -0,0 +1,128 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.rocksdb.impl;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+
+import org.rocksdb.RocksIterator;
+
+import com.google.common.collect.Multimap;
+import com.google.common.primitives.UnsignedBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.common.annotation.Output;
+import com.palantir.util.Pair;
+
+/**
+ * Looks up cells and rows through a single RocksDB iterator. Lookups must be made in ascending key order; the reader
+ * then only seeks when the iterator is not already positioned at the first key at or after the one being looked up,
+ * which lets runs of missing or adjacent keys be answered without going back through JNI.
+ */
+class ForwardCellReader {
+    private static final Comparator<byte[]> NAME_COMPARATOR = UnsignedBytes.lexicographicalComparator();
+
+    private final RocksIterator iter;
+    private final RocksKeyEncoding encoding;
+    private boolean positioned = false;
+
+    ForwardCellReader(RocksIterator iter, RocksKeyEncoding encoding) {
+        this.iter = iter;
+        this.encoding = encoding;
+    }
+
+    void getRow(byte[] row,
+                ColumnSelection columnSelection,
+                long timestamp,
+                @Output Map<Cell, Value> results) {
+        Pair<Cell, Long> cellAndTs = positioned ? current() : null;
+        if (!positioned || (cellAndTs != null && NAME_COMPARATOR.compare(cellAndTs.lhSide.getRowName(), row) <= 0)) {
+            cellAndTs = seek(encoding.getKey(row, timestamp - 1));
+        }
+        byte[] col = null;
+        for (; cellAndTs != null; cellAndTs = next()) {
+            if (!Arrays.equals(row, cellAndTs.lhSide.getRowName())) {
+                return;
+            }
+            if (cellAndTs.rhSide >= timestamp ||
+                    !columnSelection.contains(cellAndTs.lhSide.getColumnName()) ||
+                    Arrays.equals(col, cellAndTs.lhSide.getColumnName())) {
+                continue;
+            }
+            col = cellAndTs.lhSide.getColumnName();
+            results.put(cellAndTs.lhSide, Value.create(iter.value(), cellAndTs.rhSide));
+        }
+    }
+
+    Value getCell(Cell cell, long timestamp) {
+        Pair<Cell, Long> cellAndTs = seekLatestBefore(cell, timestamp);
+        if (cellAndTs != null && cellAndTs.lhSide.equals(cell)) {
+            return Value.create(iter.value(), cellAndTs.rhSide);
+        }
+        return null;
+    }
+
+    Long getTimestamp(Cell cell, long timestamp) {
+        Pair<Cell, Long> cellAndTs = seekLatestBefore(cell, timestamp);
+        if (cellAndTs != null && cellAndTs.lhSide.equals(cell)) {
+            return cellAndTs.rhSide;
+        }
+        return null;
+    }
+
+    void getTimestamps(Cell cell, long timestamp, @Output Multimap<Cell, Long> results) {
+        for (Pair<Cell, Long> cellAndTs = seekLatestBefore(cell, timestamp); cellAndTs != null; cellAndTs = next()) {
+            if (!cell.equals(cellAndTs.lhSide)) {
+                return;
+            }
+            results.put(cellAndTs.lhSide, cellAndTs.rhSide);
+        }
+    }
+
+    /**
+     * Returns the first entry at or after the given cell whose timestamp is less than the given timestamp.
+     */
+    private Pair<Cell, Long> seekLatestBefore(Cell cell, long timestamp) {
+        if (positioned) {
+            Pair<Cell, Long> cellAndTs = current();
+            if (cellAndTs == null) {
+                return null;
+            }
+            int cmp = cellAndTs.lhSide.compareTo(cell);
+            if (cmp > 0 || (cmp == 0 && cellAndTs.rhSide < timestamp)) {
+                return cellAndTs;
+            }
+        }
+        return seek(encoding.getKey(cell, timestamp - 1));
+    }
+
+    private Pair<Cell, Long> seek(byte[] key) {
+        iter.seek(key);
+        positioned = true;
+        return current();
+    }
+
+    private Pair<Cell, Long> next() {
+        iter.next();
+        return current();
+    }
+
+    private Pair<Cell, Long> current() {
+        return iter.isValid() ? encoding.parseCellAndTs(iter.key()) : null;
+    }
+}
@@ -28,8 +28,12 @@ import com.palantir.util.Pair;
 
 public class HistoryRangeIterator extends RangeIterator<Set<Value>> {
 
-    HistoryRangeIterator(ColumnFamily table, RocksIterator it, RangeRequest range, long maxTimestamp) {
-        super(table, it, range, maxTimestamp);
+    HistoryRangeIterator(ColumnFamily table,
+            RocksIterator it,
+            RocksKeyEncoding encoding,
+            RangeRequest range,
+            long maxTimestamp) {
+        super(table, it, encoding, range, maxTimestamp);
     }
 
     @Override
@@ -40,7 +44,7 @@ public class HistoryRangeIterator extends RangeIterator<Set<Value>> {
             ret.add(Value.create(it.value(), cellAndInitialTs.rhSide));
         }
         for (it.next(); it.isValid(); it.next()) {
-            Pair<Cell, Long> cellAndTs = RocksDbKeyValueServices.parseCellAndTs(it.key());
+            Pair<Cell, Long> cellAndTs = encoding.parseCellAndTs(it.key());
             if (!cellAndTs.lhSide.equals(cell)) {
                 break;
             }
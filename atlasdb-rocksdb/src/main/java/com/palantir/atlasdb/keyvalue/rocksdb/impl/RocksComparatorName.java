@@ -19,18 +19,37 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonValue;
 
 public enum RocksComparatorName {
-    V1("atlasdb"),
-    V2("atlasdb-v2");
+    V1("atlasdb", RocksKeyEncoding.ROW_SIZE_SUFFIXED),
+    V2("atlasdb-v2", RocksKeyEncoding.ROW_SIZE_SUFFIXED),
+    /**
+     * Uses RocksDB's built-in bytewise comparator, so comparisons never call back into Java.
+     */
+    V3("atlasdb-v3", RocksKeyEncoding.BYTEWISE);
 
     private final String comparatorName;
+    private final RocksKeyEncoding keyEncoding;
 
-    @JsonCreator
-    private RocksComparatorName(String comparatorName) {
+    private RocksComparatorName(String comparatorName, RocksKeyEncoding keyEncoding) {
         this.comparatorName = comparatorName;
+        this.keyEncoding = keyEncoding;
+    }
+
+    @JsonCreator
+    public static RocksComparatorName fromComparatorName(String comparatorName) {
+        for (RocksComparatorName name : values()) {
+            if (name.comparatorName.equals(comparatorName)) {
+                return name;
+            }
+        }
+        throw new IllegalArgumentException("Unknown comparator " + comparatorName);
     }
 
     @JsonValue
     public String getComparatorName() {
         return comparatorName;
     }
+
+    public RocksKeyEncoding getKeyEncoding() {
+        return keyEncoding;
+    }
 }
@@ -61,7 +61,9 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
+import com.google.common.collect.Ordering;
 import com.google.common.collect.Sets;
+import com.google.common.primitives.UnsignedBytes;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.CandidateCellForSweeping;
@@ -95,9 +97,12 @@ public class RocksDbKeyValueService implements KeyValueService {
     private static final String LOCK_FILE_PREFIX = ".pt_kv_lock";
     final RocksDB db;
     final ColumnFamilyMap columnFamilies;
+    final RocksKeyEncoding keyEncoding;
     private final FileLock lock;
     private final RandomAccessFile lockFile;
-    private final WriteOpts writeOptions;
+    private final WriteOptions putWriteOptions;
+    private final WriteOptions commitWriteOptions;
+    private final WriteOptions syncWriteOptions;
     private final MutuallyExclusiveSetLock<Cell> lockSet = MutuallyExclusiveSetLock.<Cell>create(false);
     private volatile boolean closed = false;
 
@@ -118,19 +123,24 @@ public class RocksDbKeyValueService implements KeyValueService {
         setReflectionOpts(dbOpts, dbOptions);
         ColumnFamilyOptions cfMetadataOpts = new ColumnFamilyOptions();
         setReflectionOpts(cfMetadataOpts, cfOptions);
+        RocksComparatorName comparatorName = RocksComparatorName.fromComparatorName(comparator);
         ColumnFamilyOptions cfCommonOpts;
-        switch (comparator) {
-        case "atlasdb-v2":
+        switch (comparatorName) {
+        case V3:
+            // RocksDB's default bytewise comparator
+            cfCommonOpts = new ColumnFamilyOptions();
+            break;
+        case V2:
             cfCommonOpts = new ColumnFamilyOptions().setComparator(RocksComparator.INSTANCE);
             break;
-        case "atlasdb":
+        case V1:
             cfCommonOpts = new ColumnFamilyOptions().setComparator(RocksOldComparator.INSTANCE);
             break;
         default:
             throw new IllegalArgumentException("Unknown comparator " + comparator);
         }
         setReflectionOpts(cfCommonOpts, cfOptions);
-        return create(dataDir, dbOpts, cfMetadataOpts, cfCommonOpts, writeOpts);
+        return create(dataDir, dbOpts, cfMetadataOpts, cfCommonOpts, writeOpts, comparatorName.getKeyEncoding());
     }
 
     private static void setReflectionOpts(Object opts,
@@ -168,8 +178,26 @@ public class RocksDbKeyValueService implements KeyValueService {
                                                 ColumnFamilyOptions cfMetadataOptions,
                                                 ColumnFamilyOptions cfCommonOptions,
                                                 WriteOpts writeOptions) {
+        return create(dataDir,
+                dbOptions,
+                cfMetadataOptions,
+                cfCommonOptions,
+                writeOptions,
+                RocksKeyEncoding.ROW_SIZE_SUFFIXED);
+    }
+
+    /**
+     * The comparator in cfCommonOptions must order keys in the given encoding.
+     */
+    public static RocksDbKeyValueService create(String dataDir,
+                                                DBOptions dbOptions,
+                                                ColumnFamilyOptions cfMetadataOptions,
+                                                ColumnFamilyOptions cfCommonOptions,
+                                                WriteOpts writeOptions,
+                                                RocksKeyEncoding keyEncoding) {
         try {
-            RocksDbKeyValueService kvs = lockAndCreateDb(new File(dataDir), dbOptions, cfMetadataOptions, cfCommonOptions, writeOptions);
+            RocksDbKeyValueService kvs = lockAndCreateDb(
+                    new File(dataDir), dbOptions, cfMetadataOptions, cfCommonOptions, writeOptions, keyEncoding);
             registerMBean(kvs);
             return kvs;
         } catch (Exception e) {
@@ -193,7 +221,9 @@ public class RocksDbKeyValueService implements KeyValueService {
                                                           final DBOptions dbOptions,
                                                           final ColumnFamilyOptions cfMetadataOptions,
                                                           final ColumnFamilyOptions cfCommonOptions,
-                                                          final WriteOpts writeOpts) throws IOException, RocksDBException {
+                                                          final WriteOpts writeOpts,
+                                                          final RocksKeyEncoding keyEncoding)
+            throws IOException, RocksDBException {
         TempFileUtils.mkdirsWithRetry(dbDir);
         Preconditions.checkArgument(dbDir.exists() && dbDir.isDirectory(), "DB file must be a directory: " + dbDir);
         final RandomAccessFile randomAccessFile =
@@ -236,7 +266,8 @@ public class RocksDbKeyValueService implements KeyValueService {
                 }
             }, db);
             columnFamilies.initialize(cfDescriptors, cfHandles);
-            RocksDbKeyValueService ret = new RocksDbKeyValueService(db, columnFamilies, lock, randomAccessFile, writeOpts);
+            RocksDbKeyValueService ret = new RocksDbKeyValueService(
+                    db, columnFamilies, keyEncoding, lock, randomAccessFile, writeOpts);
             ret.createTable(METADATA_TABLE_NAME, AtlasDbConstants.EMPTY_TABLE_METADATA);
             success = true;
             return ret;
@@ -261,14 +292,19 @@ public class RocksDbKeyValueService implements KeyValueService {
 
     private RocksDbKeyValueService(RocksDB db,
                                    ColumnFamilyMap columnFamilies,
+                                   RocksKeyEncoding keyEncoding,
                                    FileLock lock,
                                    RandomAccessFile file,
                                    WriteOpts writeOptions) {
         this.db = db;
         this.columnFamilies = columnFamilies;
+        this.keyEncoding = keyEncoding;
         this.lock = lock;
         this.lockFile = file;
-        this.writeOptions = writeOptions;
+        // WriteOptions are only read by RocksDB, so each is shared by all writes until the database is closed.
+        this.putWriteOptions = new WriteOptions().setSync(writeOptions.fsyncPut());
+        this.commitWriteOptions = new WriteOptions().setSync(writeOptions.fsyncCommit());
+        this.syncWriteOptions = new WriteOptions().setSync(true);
     }
 
     @Override
@@ -276,6 +312,9 @@ public class RocksDbKeyValueService implements KeyValueService {
         if (!closed) {
             try {
                 getDb().close();
+                putWriteOptions.dispose();
+                commitWriteOptions.dispose();
+                syncWriteOptions.dispose();
                 lock.release();
                 lockFile.close();
             } catch (IOException e) {
@@ -300,8 +339,9 @@ public class RocksDbKeyValueService implements KeyValueService {
                 ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName())) {
             Map<Cell, Value> results = Maps.newHashMap();
             RocksIterator iter = d.register(getDb().newIterator(table.getHandle()));
-            for (byte[] row : rows) {
-                RocksDbKeyValueServices.getRow(iter, row, columnSelection, timestamp, results);
+            ForwardCellReader reader = new ForwardCellReader(iter, keyEncoding);
+            for (byte[] row : sortedRows(rows)) {
+                reader.getRow(row, columnSelection, timestamp, results);
             }
             return results;
         }
@@ -314,8 +354,9 @@ public class RocksDbKeyValueService implements KeyValueService {
                 ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName())) {
             Map<Cell, Value> results = Maps.newHashMap();
             RocksIterator iter = d.register(getDb().newIterator(table.getHandle()));
-            for (Entry<Cell, Long> entry : timestampByCell.entrySet()) {
-                Value value = RocksDbKeyValueServices.getCell(iter, entry.getKey(), entry.getValue());
+            ForwardCellReader reader = new ForwardCellReader(iter, keyEncoding);
+            for (Entry<Cell, Long> entry : sortedByCell(timestampByCell)) {
+                Value value = reader.getCell(entry.getKey(), entry.getValue());
                 if (value != null) {
                     results.put(entry.getKey(), value);
                 }
@@ -331,8 +372,9 @@ public class RocksDbKeyValueService implements KeyValueService {
                 ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName())) {
             Map<Cell, Long> results = Maps.newHashMap();
             RocksIterator iter = d.register(getDb().newIterator(table.getHandle()));
-            for (Entry<Cell, Long> entry : timestampByCell.entrySet()) {
-                Long ts = RocksDbKeyValueServices.getTimestamp(iter, entry.getKey(), entry.getValue());
+            ForwardCellReader reader = new ForwardCellReader(iter, keyEncoding);
+            for (Entry<Cell, Long> entry : sortedByCell(timestampByCell)) {
+                Long ts = reader.getTimestamp(entry.getKey(), entry.getValue());
                 if (ts != null) {
                     results.put(entry.getKey(), ts);
                 }
@@ -345,13 +387,12 @@ public class RocksDbKeyValueService implements KeyValueService {
     public void put(TableReference tableRef, Map<Cell, byte[]> values, long timestamp) {
         try (Disposer d = new Disposer();
                 ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName())) {
-            WriteOptions options = d.register(new WriteOptions().setSync(writeOptions.fsyncPut()));
             WriteBatch batch = d.register(new WriteBatch());
             for (Entry<Cell, byte[]> entry : values.entrySet()) {
-                byte[] key = RocksDbKeyValueServices.getKey(entry.getKey(), timestamp);
+                byte[] key = keyEncoding.getKey(entry.getKey(), timestamp);
                 batch.put(table.getHandle(), key, entry.getValue());
             }
-            getDb().write(options, batch);
+            getDb().write(putWriteOptions, batch);
         } catch (RocksDBException e) {
             throw Throwables.propagate(e);
         }
@@ -365,16 +406,15 @@ public class RocksDbKeyValueService implements KeyValueService {
                 cfs.put(tableRef.getQualifiedName(), columnFamilies.get(tableRef.getQualifiedName()));
             }
             try (Disposer d = new Disposer()) {
-                WriteOptions options = d.register(new WriteOptions().setSync(writeOptions.fsyncPut()));
                 WriteBatch batch = d.register(new WriteBatch());
                 for (Entry<TableReference, ? extends Map<Cell, byte[]>> entry : valuesByTable.entrySet()) {
                     ColumnFamilyHandle table = cfs.get(entry.getKey().getQualifiedName()).getHandle();
                     for (Entry<Cell, byte[]> subEntry : entry.getValue().entrySet()) {
-                        byte[] key = RocksDbKeyValueServices.getKey(subEntry.getKey(), timestamp);
+                        byte[] key = keyEncoding.getKey(subEntry.getKey(), timestamp);
                         batch.put(table, key, subEntry.getValue());
                     }
                 }
-                getDb().write(options, batch);
+                getDb().write(putWriteOptions, batch);
             } catch (RocksDBException e) {
                 throw Throwables.propagate(e);
             }
@@ -389,14 +429,13 @@ public class RocksDbKeyValueService implements KeyValueService {
     public void putWithTimestamps(TableReference tableRef, Multimap<Cell, Value> cellValues) {
         try (Disposer d = new Disposer();
                 ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName())) {
-            WriteOptions options = d.register(new WriteOptions().setSync(writeOptions.fsyncPut()));
             WriteBatch batch = d.register(new WriteBatch());
             for (Entry<Cell, Value> entry : cellValues.entries()) {
                 Value value = entry.getValue();
-                byte[] key = RocksDbKeyValueServices.getKey(entry.getKey(), value.getTimestamp());
+                byte[] key = keyEncoding.getKey(entry.getKey(), value.getTimestamp());
                 batch.put(table.getHandle(), key, value.getContents());
             }
-            getDb().write(options, batch);
+            getDb().write(putWriteOptions, batch);
         } catch (RocksDBException e) {
             throw Throwables.propagate(e);
         }
@@ -409,18 +448,17 @@ public class RocksDbKeyValueService implements KeyValueService {
         try (Disposer d = new Disposer();
                 ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName())) {
             Set<Cell> alreadyExists = Sets.newHashSetWithExpectedSize(0);
-            WriteOptions options = d.register(new WriteOptions().setSync(writeOptions.fsyncCommit()));
             WriteBatch batch = d.register(new WriteBatch());
             RocksIterator iter = d.register(getDb().newIterator(table.getHandle()));
             for (Entry<Cell, byte[]> entry : values.entrySet()) {
-                byte[] key = RocksDbKeyValueServices.getKey(entry.getKey(), PUT_UNLESS_EXISTS_TS);
+                byte[] key = keyEncoding.getKey(entry.getKey(), PUT_UNLESS_EXISTS_TS);
                 if (RocksDbKeyValueServices.keyExists(iter, key)) {
                     alreadyExists.add(entry.getKey());
                 } else {
                     batch.put(table.getHandle(), key, entry.getValue());
                 }
             }
-            getDb().write(options, batch);
+            getDb().write(commitWriteOptions, batch);
             if (!alreadyExists.isEmpty()) {
                 throw new KeyAlreadyExistsException("key already exists", alreadyExists);
             }
@@ -445,13 +483,12 @@ public class RocksDbKeyValueService implements KeyValueService {
     public void delete(TableReference tableRef, Multimap<Cell, Long> keys) {
         try (Disposer d = new Disposer();
                 ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName())) {
-            WriteOptions options = d.register(new WriteOptions().setSync(writeOptions.fsyncPut()));
             WriteBatch batch = d.register(new WriteBatch());
             for (Entry<Cell, Long> entry : keys.entries()) {
-                byte[] key = RocksDbKeyValueServices.getKey(entry.getKey(), entry.getValue());
+                byte[] key = keyEncoding.getKey(entry.getKey(), entry.getValue());
                 batch.remove(table.getHandle(), key);
             }
-            getDb().write(options, batch);
+            getDb().write(putWriteOptions, batch);
         } catch (RocksDBException e) {
             throw Throwables.propagate(e);
         }
@@ -500,7 +537,7 @@ public class RocksDbKeyValueService implements KeyValueService {
                                                        long timestamp) {
         ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName());
         RocksIterator iter = getDb().newIterator(table.getHandle());
-        return new ValueRangeIterator(table, iter, rangeRequest, timestamp);
+        return new ValueRangeIterator(table, iter, keyEncoding, rangeRequest, timestamp);
     }
 
     @Override
@@ -509,7 +546,7 @@ public class RocksDbKeyValueService implements KeyValueService {
                                                                        long timestamp) {
         ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName());
         RocksIterator iter = getDb().newIterator(table.getHandle());
-        return new TimestampRangeIterator(table, iter, rangeRequest, timestamp);
+        return new TimestampRangeIterator(table, iter, keyEncoding, rangeRequest, timestamp);
     }
 
     @Override
@@ -611,10 +648,8 @@ public class RocksDbKeyValueService implements KeyValueService {
 
     @Override
     public void putMetadataForTable(TableReference tableRef, byte[] metadata) {
-        try (Disposer d = new Disposer();
-                ColumnFamily metadataTable = columnFamilies.get(METADATA_TABLE_NAME.getQualifiedName())) {
-            WriteOptions options = d.register(new WriteOptions().setSync(true));
-            getDb().put(metadataTable.getHandle(), options, tableRef.getQualifiedName().getBytes(Charsets.UTF_8), metadata);
+        try (ColumnFamily metadataTable = columnFamilies.get(METADATA_TABLE_NAME.getQualifiedName())) {
+            getDb().put(metadataTable.getHandle(), syncWriteOptions, tableRef.getQualifiedName().getBytes(Charsets.UTF_8), metadata);
         } catch (RocksDBException e) {
             throw Throwables.propagate(e);
         }
@@ -624,12 +659,11 @@ public class RocksDbKeyValueService implements KeyValueService {
     public void putMetadataForTables(Map<TableReference, byte[]> tableRefToMetadata) {
         try (Disposer d = new Disposer();
                 ColumnFamily metadataTable = columnFamilies.get(METADATA_TABLE_NAME.getQualifiedName())) {
-            WriteOptions options = d.register(new WriteOptions().setSync(true));
             WriteBatch batch = d.register(new WriteBatch());
             for (Entry<TableReference, byte[]> entry : tableRefToMetadata.entrySet()) {
                 batch.put(metadataTable.getHandle(), entry.getKey().getQualifiedName().getBytes(Charsets.UTF_8), entry.getValue());
             }
-            getDb().write(options, batch);
+            getDb().write(syncWriteOptions, batch);
         } catch (RocksDBException e) {
             throw Throwables.propagate(e);
         }
@@ -641,13 +675,12 @@ public class RocksDbKeyValueService implements KeyValueService {
         try (ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName())) {
             byte[] val = new byte[0];
             try (Disposer d = new Disposer()) {
-                WriteOptions options = d.register(new WriteOptions().setSync(true));
                 WriteBatch batch = d.register(new WriteBatch());
                 for (Cell cell : cells) {
-                    byte[] key = RocksDbKeyValueServices.getKey(cell, Value.INVALID_VALUE_TIMESTAMP);
+                    byte[] key = keyEncoding.getKey(cell, Value.INVALID_VALUE_TIMESTAMP);
                     batch.put(table.getHandle(), key, val);
                 }
-                getDb().write(options, batch);
+                getDb().write(syncWriteOptions, batch);
             } catch (RocksDBException e) {
                 throw Throwables.propagate(e);
             }
@@ -662,8 +695,9 @@ public class RocksDbKeyValueService implements KeyValueService {
             Multimap<Cell, Long> results = ArrayListMultimap.create();
             RocksIterator iter = getDb().newIterator(table.getHandle());
             try {
-                for (Cell cell : cells) {
-                    RocksDbKeyValueServices.getTimestamps(iter, cell, timestamp, results);
+                ForwardCellReader reader = new ForwardCellReader(iter, keyEncoding);
+                for (Cell cell : Ordering.natural().sortedCopy(cells)) {
+                    reader.getTimestamps(cell, timestamp, results);
                 }
             } finally {
                 iter.dispose();
@@ -677,11 +711,34 @@ public class RocksDbKeyValueService implements KeyValueService {
         // nothing
     }
 
+    /**
+     * Compacts the whole table, blocking until the compaction is done, as the forceCompaction operation of the
+     * RocksDB MBean does. Background sweep calls {@link #compactInternally} after every table it sweeps, so this is
+     * kept separate for callers that want a full compaction, such as benchmarks.
+     */
+    public void forceCompaction(TableReference tableRef) {
+        try (ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName())) {
+            getDb().compactRange(table.getHandle());
+        } catch (RocksDBException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
     @Override
     public ClusterAvailabilityStatus getClusterAvailabilityStatus() {
         throw new UnsupportedOperationException("getClusterAvailabilityStatus has not been implemented for RockDb KVS");
     }
 
+    private static List<byte[]> sortedRows(Iterable<byte[]> rows) {
+        return Ordering.from(UnsignedBytes.lexicographicalComparator()).sortedCopy(rows);
+    }
+
+    private static <T> List<Entry<Cell, T>> sortedByCell(Map<Cell, T> valuesByCell) {
+        List<Entry<Cell, T>> entries = Lists.newArrayList(valuesByCell.entrySet());
+        entries.sort(Entry.comparingByKey());
+        return entries;
+    }
+
     private RocksDB getDb() {
         if (closed) {
             throw new IllegalStateException("Database has been closed.");
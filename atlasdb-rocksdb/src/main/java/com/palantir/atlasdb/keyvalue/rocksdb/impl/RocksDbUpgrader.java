@@ -25,10 +25,12 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Optional;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.config.LeaderConfig;
+import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.rocksdb.impl.ColumnFamilyMap.ColumnFamily;
 import com.palantir.atlasdb.rocksdb.RocksDbAtlasDbFactory;
 import com.palantir.atlasdb.rocksdb.RocksDbKeyValueServiceConfig;
+import com.palantir.util.Pair;
 
 public class RocksDbUpgrader {
     private static final ObjectMapper MAPPER = new ObjectMapper();
@@ -70,7 +72,7 @@ public class RocksDbUpgrader {
             iter.seekToFirst();
             long count = 0;
             while (iter.isValid()) {
-                byte[] key = iter.key();
+                byte[] key = transcodeKey(iter.key(), oldKvs.keyEncoding, newKvs.keyEncoding);
                 byte[] value = iter.value();
                 newKvs.db.put(newHandle, opts, key, value);
                 iter.next();
@@ -86,6 +88,14 @@ public class RocksDbUpgrader {
         System.out.println("Finished migration of all tables.");
     }
 
+    private static byte[] transcodeKey(byte[] key, RocksKeyEncoding oldEncoding, RocksKeyEncoding newEncoding) {
+        if (oldEncoding == newEncoding) {
+            return key;
+        }
+        Pair<Cell, Long> cellAndTs = oldEncoding.parseCellAndTs(key);
+        return newEncoding.getKey(cellAndTs.lhSide, cellAndTs.rhSide);
+    }
+
     private static void help() {
         System.out.println("RocksDbUpgrader");
         System.out.println();
@@ -106,5 +116,9 @@ public class RocksDbUpgrader {
         System.out.println("  new-settings.json");
         System.out.println("    Configuration for your new rocksdb database. The");
         System.out.println("    format is the same as for old-settings.json");
+        System.out.println();
+        System.out.println("  To move onto RocksDB's built-in bytewise comparator, set");
+        System.out.println("      \"comparator\": \"atlasdb-v3\"");
+        System.out.println("  in new-settings.json; keys are re-encoded as they are copied.");
     }
 }
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.rocksdb.impl;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import org.apache.commons.lang.ArrayUtils;
+
+import com.google.common.base.Preconditions;
+import com.google.common.primitives.Longs;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.ptobject.EncodingUtils;
+import com.palantir.util.Pair;
+
+/**
+ * How a cell and timestamp are laid out in a RocksDB key. Each {@link RocksComparatorName} uses one encoding.
+ */
+public enum RocksKeyEncoding {
+    /**
+     * Row, column, big-endian timestamp and finally the reversed var-long length of the row. Keys must be ordered by
+     * a Java comparator such as {@link RocksComparator}, which RocksDB calls over JNI for every comparison.
+     */
+    ROW_SIZE_SUFFIXED {
+        @Override
+        byte[] getKey(byte[] row, byte[] col, long timeStamp) {
+            Preconditions.checkArgument(EncodingUtils.sizeOfVarLong(row.length) <= 2);
+            byte[] rowSize = EncodingUtils.encodeVarLong(row.length);
+            ArrayUtils.reverse(rowSize);
+
+            byte[] key = new byte[row.length + col.length + 8 + rowSize.length];
+            ByteBuffer.wrap(key).order(ByteOrder.BIG_ENDIAN)
+                    .put(row)
+                    .put(col)
+                    .putLong(timeStamp)
+                    .put(rowSize);
+            return key;
+        }
+
+        @Override
+        Pair<Cell, Long> parseCellAndTs(byte[] key) {
+            byte[] rowSizeBytes = new byte[2];
+            rowSizeBytes[0] = key[key.length - 1];
+            rowSizeBytes[1] = key[key.length - 2];
+
+            int rowSize = (int) EncodingUtils.decodeVarLong(rowSizeBytes);
+            int colEnd = key.length - 8 - EncodingUtils.sizeOfVarLong(rowSize);
+
+            byte[] rowName = Arrays.copyOf(key, rowSize);
+            byte[] colName = Arrays.copyOfRange(key, rowSize, colEnd);
+            long ts = readLong(key, colEnd);
+
+            return Pair.create(Cell.create(rowName, colName), ts);
+        }
+    },
+
+    /**
+     * Escaped row, escaped column, then the timestamp with every bit but the sign bit flipped. Under RocksDB's
+     * built-in bytewise comparator this sorts by row, then column, then descending timestamp, so no Java comparator
+     * is needed.
+     * <p>
+     * Rows and columns are escaped by replacing each 0x00 byte with 0x00 0xFF and terminating them with 0x00 0x01,
+     * which keeps a name that is a prefix of another sorting first.
+     */
+    BYTEWISE {
+        @Override
+        byte[] getKey(byte[] row, byte[] col, long timeStamp) {
+            byte[] key = new byte[escapedSize(row) + escapedSize(col) + 8];
+            int pos = writeEscaped(row, key, 0);
+            pos = writeEscaped(col, key, pos);
+            writeLong(key, pos, timeStamp ^ Long.MAX_VALUE);
+            return key;
+        }
+
+        @Override
+        Pair<Cell, Long> parseCellAndTs(byte[] key) {
+            int rowEnd = findTerminator(key, 0);
+            int colStart = rowEnd + 2;
+            int colEnd = findTerminator(key, colStart);
+            int tsStart = colEnd + 2;
+            Preconditions.checkArgument(tsStart + 8 == key.length, "Malformed key of length %s", key.length);
+
+            byte[] rowName = unescape(key, 0, rowEnd);
+            byte[] colName = unescape(key, colStart, colEnd);
+            long ts = readLong(key, tsStart) ^ Long.MAX_VALUE;
+
+            return Pair.create(Cell.create(rowName, colName), ts);
+        }
+    };
+
+    private static final byte ESCAPE = 0x00;
+    private static final byte ESCAPED_ZERO = (byte) 0xFF;
+    private static final byte TERMINATOR = 0x01;
+
+    abstract byte[] getKey(byte[] row, byte[] col, long timeStamp);
+
+    abstract Pair<Cell, Long> parseCellAndTs(byte[] key);
+
+    byte[] getKey(byte[] row, long timeStamp) {
+        // Sorts before every cell in the row at or below the timestamp, since column names are never empty.
+        return getKey(row, new byte[1], timeStamp);
+    }
+
+    byte[] getKey(Cell cell, long timeStamp) {
+        return getKey(cell.getRowName(), cell.getColumnName(), timeStamp);
+    }
+
+    private static int escapedSize(byte[] name) {
+        int size = name.length + 2;
+        for (byte b : name) {
+            if (b == ESCAPE) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    private static int writeEscaped(byte[] name, byte[] key, int pos) {
+        for (byte b : name) {
+            key[pos++] = b;
+            if (b == ESCAPE) {
+                key[pos++] = ESCAPED_ZERO;
+            }
+        }
+        key[pos++] = ESCAPE;
+        key[pos++] = TERMINATOR;
+        return pos;
+    }
+
+    private static int findTerminator(byte[] key, int start) {
+        for (int i = start; i < key.length - 1; i++) {
+            if (key[i] == ESCAPE) {
+                if (key[i + 1] == TERMINATOR) {
+                    return i;
+                }
+                i++;
+            }
+        }
+        throw new IllegalArgumentException("Malformed key of length " + key.length);
+    }
+
+    private static byte[] unescape(byte[] key, int start, int end) {
+        int size = end - start;
+        for (int i = start; i < end; i++) {
+            if (key[i] == ESCAPE) {
+                size--;
+                i++;
+            }
+        }
+        byte[] name = new byte[size];
+        int pos = 0;
+        for (int i = start; i < end; i++) {
+            name[pos++] = key[i];
+            if (key[i] == ESCAPE) {
+                i++;
+            }
+        }
+        return name;
+    }
+
+    private static void writeLong(byte[] key, int pos, long value) {
+        for (int i = 7; i >= 0; i--) {
+            key[pos + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    private static long readLong(byte[] key, int pos) {
+        return Longs.fromBytes(
+                key[pos + 0],
+                key[pos + 1],
+                key[pos + 2],
+                key[pos + 3],
+                key[pos + 4],
+                key[pos + 5],
+                key[pos + 6],
+                key[pos + 7]);
+    }
+}
@@ -31,6 +31,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import com.google.common.base.Function;
+import com.google.common.base.Strings;
 import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -74,7 +75,20 @@ public abstract class AbstractSerializableTransactionTest extends AbstractTransa
                 Suppliers.ofInstance(AtlasDbConstraintCheckingMode.FULL_CONSTRAINT_CHECKING_THROWS_EXCEPTIONS),
                 conflictDetectionManager,
                 SweepStrategyManagers.createDefault(keyValueService),
-                NoOpCleaner.INSTANCE);
+                NoOpCleaner.INSTANCE,
+                false,
+                ImmutableTransactionManagerOptions.builder()
+                        .recordReadDigests(recordReadDigests())
+                        .rangeScanPrefetcher(rangeScanPrefetcher())
+                        .build());
+    }
+
+    protected boolean recordReadDigests() {
+        return false;
+    }
+
+    protected RangeScanPrefetcher rangeScanPrefetcher() {
+        return RangeScanPrefetcher.disabled();
     }
 
     @Override
@@ -99,7 +113,8 @@ public abstract class AbstractSerializableTransactionTest extends AbstractTransa
                 null,
                 TransactionReadSentinelBehavior.THROW_EXCEPTION,
                 true,
-                timestampCache) {
+                timestampCache,
+                ImmutableTransactionOptions.builder().recordReadDigests(recordReadDigests()).build()) {
             @Override
             protected Map<Cell, byte[]> transformGetsForTesting(Map<Cell, byte[]> map) {
                 return Maps.transformValues(map, new Function<byte[], byte[]>() {
@@ -477,6 +492,71 @@ public abstract class AbstractSerializableTransactionTest extends AbstractTransa
         }
     }
 
+    @Test
+    public void testLongValuesReadWriteNoConflict() {
+        String longValue = Strings.repeat("a", 100);
+        Transaction t0 = startTransaction();
+        put(t0, "row1", "col1", longValue);
+        put(t0, "row2", "col1", longValue);
+        t0.commit();
+
+        Transaction t1 = startTransaction();
+        assertEquals(longValue, get(t1, "row1", "col1"));
+        BatchingVisitables.copyToList(t1.getRange(TEST_TABLE,
+                RangeRequest.builder().endRowExclusive(PtBytes.toBytes("row3")).build()));
+        put(t1, "row3", "col1", longValue);
+
+        Transaction t2 = startTransaction();
+        put(t2, "row4", "col1", longValue);
+        t2.commit();
+
+        t1.commit();
+    }
+
+    @Test
+    public void testLongValueCellReadWriteConflict() {
+        Transaction t0 = startTransaction();
+        put(t0, "row1", "col1", Strings.repeat("a", 100));
+        t0.commit();
+
+        Transaction t1 = startTransaction();
+        get(t1, "row1", "col1");
+        put(t1, "row2", "col1", "100");
+
+        Transaction t2 = startTransaction();
+        put(t2, "row1", "col1", Strings.repeat("b", 100));
+        t2.commit();
+
+        try {
+            t1.commit();
+            fail();
+        } catch (TransactionSerializableConflictException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testLongValueRangeReadWriteConflict() {
+        Transaction t0 = startTransaction();
+        put(t0, "row1", "col1", Strings.repeat("a", 100));
+        t0.commit();
+
+        Transaction t1 = startTransaction();
+        BatchingVisitables.copyToList(t1.getRange(TEST_TABLE, RangeRequest.builder().build()));
+        put(t1, "row2", "col1", "100");
+
+        Transaction t2 = startTransaction();
+        put(t2, "row1", "col1", Strings.repeat("a", 99) + "b");
+        t2.commit();
+
+        try {
+            t1.commit();
+            fail();
+        } catch (TransactionSerializableConflictException e) {
+            // expected
+        }
+    }
+
     @Test
     public void testColumnSelection() {
         String initialValue = "100";
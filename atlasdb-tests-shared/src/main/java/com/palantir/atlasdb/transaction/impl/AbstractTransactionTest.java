@@ -30,7 +30,11 @@ import java.util.Random;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.FutureTask;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.Test;
 
@@ -521,6 +525,59 @@ public abstract class AbstractTransactionTest extends TransactionTestSetup {
         }
     }
 
+    @Test
+    public void testRangeInParallelOrdered() {
+        Transaction t = startTransactionWithRowsForParallelScans();
+        List<RowResult<byte[]>> expected = BatchingVisitables.copyToList(
+                t.getRange(TEST_TABLE, RangeRequest.builder().build()));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (Stream<RowResult<byte[]>> rows = t.getRangeInParallelOrdered(
+                TEST_TABLE, RangeRequest.builder().batchHint(2).build(), getSplitRowsForParallelScans(), executor, 2)) {
+            assertEquals(getRowNames(expected), getRowNames(rows.collect(Collectors.toList())));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRangeInParallel() {
+        Transaction t = startTransactionWithRowsForParallelScans();
+        List<RowResult<byte[]>> expected = BatchingVisitables.copyToList(
+                t.getRange(TEST_TABLE, RangeRequest.builder().build()));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (Stream<RowResult<byte[]>> rows = t.getRangeInParallel(
+                TEST_TABLE, RangeRequest.builder().batchHint(2).build(), getSplitRowsForParallelScans(), executor, 2)) {
+            List<String> rowNames = getRowNames(rows.collect(Collectors.toList()));
+            assertEquals(expected.size(), rowNames.size());
+            assertEquals(ImmutableSet.copyOf(getRowNames(expected)), ImmutableSet.copyOf(rowNames));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Transaction startTransactionWithRowsForParallelScans() {
+        Transaction t = startTransaction();
+        for (int i = 0; i < 20; i++) {
+            put(t, "row" + i, "col1", "v" + i);
+        }
+        t.commit();
+
+        t = startTransaction();
+        put(t, "row5a", "col1", "local");
+        t.delete(TEST_TABLE, ImmutableSet.of(Cell.create(PtBytes.toBytes("row12"), PtBytes.toBytes("col1"))));
+        return t;
+    }
+
+    private static List<byte[]> getSplitRowsForParallelScans() {
+        return ImmutableList.of(PtBytes.toBytes("row1"), PtBytes.toBytes("row15"), PtBytes.toBytes("row4"));
+    }
+
+    private static List<String> getRowNames(List<RowResult<byte[]>> rows) {
+        return rows.stream().map(row -> PtBytes.toString(row.getRowName())).collect(Collectors.toList());
+    }
+
     @Test
     public void testRangePaging() {
         int totalPuts = 101;
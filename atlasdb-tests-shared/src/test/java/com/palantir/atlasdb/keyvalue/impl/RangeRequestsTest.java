@@ -16,11 +16,15 @@
 package com.palantir.atlasdb.keyvalue.impl;
 
 import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.google.common.collect.ImmutableList;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RangeRequests;
 
 public class RangeRequestsTest {
@@ -37,6 +41,54 @@ public class RangeRequestsTest {
         }
     }
 
+    @Test
+    public void testSplitCoversTheRangeInKeyOrder() {
+        RangeRequest range = RangeRequest.builder().batchHint(10).build();
+
+        List<RangeRequest> ranges = RangeRequests.split(range,
+                ImmutableList.of(PtBytes.toBytes("c"), PtBytes.toBytes("a"), PtBytes.toBytes("b")));
+
+        Assert.assertEquals(4, ranges.size());
+        assertRange(ranges.get(0), "", "a");
+        assertRange(ranges.get(1), "a", "b");
+        assertRange(ranges.get(2), "b", "c");
+        assertRange(ranges.get(3), "c", "");
+        for (RangeRequest subRange : ranges) {
+            Assert.assertEquals(Integer.valueOf(10), subRange.getBatchHint());
+        }
+    }
+
+    @Test
+    public void testSplitIgnoresRowsOutsideTheRangeAndDuplicates() {
+        RangeRequest range = RangeRequest.builder()
+                .startRowInclusive(PtBytes.toBytes("b"))
+                .endRowExclusive(PtBytes.toBytes("d"))
+                .build();
+
+        List<RangeRequest> ranges = RangeRequests.split(range, ImmutableList.of(
+                PtBytes.EMPTY_BYTE_ARRAY,
+                PtBytes.toBytes("a"),
+                PtBytes.toBytes("b"),
+                PtBytes.toBytes("c"),
+                PtBytes.toBytes("c"),
+                PtBytes.toBytes("d"),
+                PtBytes.toBytes("e")));
+
+        Assert.assertEquals(2, ranges.size());
+        assertRange(ranges.get(0), "b", "c");
+        assertRange(ranges.get(1), "c", "d");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSplitRejectsReverseRanges() {
+        RangeRequests.split(RangeRequest.reverseBuilder().build(), ImmutableList.of(PtBytes.toBytes("a")));
+    }
+
+    private static void assertRange(RangeRequest range, String start, String end) {
+        Assert.assertArrayEquals(PtBytes.toBytes(start), range.getStartInclusive());
+        Assert.assertArrayEquals(PtBytes.toBytes(end), range.getEndExclusive());
+    }
+
     private byte[] generateRandomWithFreqLogLen() {
         long randomLong = random.nextLong();
         // lg(n) distrobution of len
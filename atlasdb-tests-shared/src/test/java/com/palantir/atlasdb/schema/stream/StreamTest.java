@@ -247,6 +247,17 @@ public class StreamTest extends AtlasDbTestCase {
         storeAndCheckByteStreams(maxMemStore, getIncompressibleBytes(20_000_000));
     }
 
+    @Test
+    public void testStoreStreamWritingSeveralBlocksAtOnce() throws IOException {
+        byte[] bytesToStore = getIncompressibleBytes(
+                StreamTestStreamStore.BLOCK_SIZE_IN_BYTES * StreamTestStreamStore.CONCURRENT_BLOCK_WRITES * 2 + 1);
+
+        Pair<Long, Sha256Hash> idAndHash = defaultStore.storeStream(new ByteArrayInputStream(bytesToStore));
+
+        assertEquals(Sha256Hash.computeHash(bytesToStore), idAndHash.rhSide);
+        verifyLoadingStreams(defaultStore, idAndHash.lhSide, bytesToStore);
+    }
+
     private long storeAndCheckByteStreams(PersistentStreamStore store, byte[] bytesToStore) throws IOException {
         byte[] reference = PtBytes.toBytes("ref");
 
@@ -16,12 +16,17 @@
 package com.palantir.atlasdb.sweep;
 
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 import org.mockito.stubbing.Answer;
 
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import com.palantir.atlasdb.encoding.PtBytes;
 import com.palantir.atlasdb.keyvalue.api.ImmutableSweepResults;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.SweepResults;
@@ -40,6 +45,8 @@ import com.palantir.lock.RemoteLockService;
 public class BackgroundSweeperFastTest {
     private static final TableReference TABLE_REF = TableReference.createFromFullyQualifiedName(
             "backgroundsweeper.fasttest");
+    private static final TableReference OTHER_TABLE_REF = TableReference.createFromFullyQualifiedName(
+            "backgroundsweeper.othertable");
 
     private BackgroundSweeperImpl backgroundSweeper;
     private KeyValueService kvs = Mockito.mock(KeyValueService.class);
@@ -136,6 +143,7 @@ public class BackgroundSweeperFastTest {
         backgroundSweeper.runOnce();
         Mockito.verify(progressStore).saveProgress(
                 Mockito.any(),
+                Mockito.eq(0),
                 Mockito.eq(ImmutableSweepProgress.builder()
                         .tableRef(TABLE_REF)
                         .staleValuesDeleted(2)
@@ -223,17 +231,163 @@ public class BackgroundSweeperFastTest {
         Mockito.verify(kvs, Mockito.never()).compactInternally(TABLE_REF);
     }
 
+    @Test
+    public void testDoesNotChooseTablesOtherWorkersAreSweeping() {
+        BackgroundSweeperImpl worker = createWorker(0, 2);
+        setNoProgress();
+        Mockito.doReturn(ImmutableMap.of(
+                1, progressOf(OTHER_TABLE_REF),
+                2, progressOf(TABLE_REF)))
+                .when(progressStore).loadAllProgress(Mockito.any());
+        Mockito.doReturn(Optional.empty()).when(nextTableToSweepProvider)
+                .chooseNextTableToSweep(Mockito.any(), Mockito.anyLong(), Mockito.anySetOf(TableReference.class));
+        worker.runOnce();
+        Mockito.verify(nextTableToSweepProvider).chooseNextTableToSweep(
+                Mockito.any(),
+                Mockito.anyLong(),
+                Mockito.eq(ImmutableSet.of(OTHER_TABLE_REF)));
+    }
+
+    @Test
+    public void testWorkerSavesProgressInItsOwnRow() {
+        BackgroundSweeperImpl worker = createWorker(1, 2);
+        setNoProgress();
+        setNextTableToSweep(TABLE_REF);
+        setupTaskRunner(ImmutableSweepResults.builder()
+                .staleValuesDeleted(2)
+                .cellTsPairsExamined(10)
+                .sweptTimestamp(12345L)
+                .nextStartRow(new byte[] {1, 2, 3})
+                .build());
+        worker.runOnce();
+        Mockito.verify(progressStore).loadProgress(Mockito.any(), Mockito.eq(1));
+        Mockito.verify(progressStore, Mockito.times(2)).saveProgress(Mockito.any(), Mockito.eq(1), Mockito.any());
+    }
+
+    @Test
+    public void testWorkerClaimsChosenTableInItsOwnRow() {
+        BackgroundSweeperImpl worker = createWorker(1, 2);
+        setNoProgress();
+        setNextTableToSweep(TABLE_REF);
+        setupTaskRunner(ImmutableSweepResults.builder()
+                .staleValuesDeleted(0)
+                .cellTsPairsExamined(10)
+                .sweptTimestamp(12345L)
+                .build());
+        worker.runOnce();
+        Mockito.verify(progressStore).saveProgress(Mockito.any(), Mockito.eq(1), Mockito.eq(claimOf(TABLE_REF)));
+    }
+
+    @Test
+    public void testSingleSweeperDoesNotClaimTables() {
+        setNoProgress();
+        setNextTableToSweep(TABLE_REF);
+        setupTaskRunner(ImmutableSweepResults.builder()
+                .staleValuesDeleted(0)
+                .cellTsPairsExamined(10)
+                .sweptTimestamp(12345L)
+                .build());
+        backgroundSweeper.runOnce();
+        Mockito.verify(progressStore, Mockito.never()).loadAllProgress(Mockito.any());
+        Mockito.verify(progressStore, Mockito.never()).saveProgress(Mockito.any(), Mockito.anyInt(), Mockito.any());
+    }
+
+    @Test
+    public void testWorkerSweepsClaimedTableFromTheStart() {
+        BackgroundSweeperImpl worker = createWorker(1, 2);
+        setProgress(claimOf(TABLE_REF));
+        setupTaskRunner(ImmutableSweepResults.builder()
+                .staleValuesDeleted(2)
+                .cellTsPairsExamined(10)
+                .sweptTimestamp(12345L)
+                .build());
+        worker.runOnce();
+        Mockito.verify(nextTableToSweepProvider, Mockito.never())
+                .chooseNextTableToSweep(Mockito.any(), Mockito.anyLong(), Mockito.anySetOf(TableReference.class));
+        Mockito.verify(sweepTaskRunner).run(Mockito.eq(TABLE_REF), Mockito.any(), Mockito.eq(PtBytes.EMPTY_BYTE_ARRAY));
+        Mockito.verify(priorityStore).update(
+                Mockito.any(),
+                Mockito.eq(TABLE_REF),
+                Mockito.eq(ImmutableUpdateSweepPriority.builder()
+                        .newStaleValuesDeleted(2)
+                        .newCellTsPairsExamined(10)
+                        .newMinimumSweptTimestamp(12345L)
+                        .newLastSweepTimeMillis(currentTimeMillis)
+                        .newWriteCount(0L)
+                        .build()));
+    }
+
+    @Test
+    public void testClearsOnlyOwnProgressAfterCompleteRun() {
+        setNoProgress();
+        setNextTableToSweep(TABLE_REF);
+        setupTaskRunner(ImmutableSweepResults.builder()
+                .staleValuesDeleted(0)
+                .cellTsPairsExamined(10)
+                .sweptTimestamp(12345L)
+                .build());
+        backgroundSweeper.runOnce();
+        Mockito.verify(progressStore).clearProgress(0);
+        Mockito.verify(progressStore, Mockito.never()).clearProgress();
+    }
+
+    private BackgroundSweeperImpl createWorker(int workerId, int numWorkers) {
+        return new BackgroundSweeperImpl(
+                mockTxManager(),
+                Mockito.mock(RemoteLockService.class),
+                kvs,
+                progressStore,
+                priorityStore,
+                nextTableToSweepProvider,
+                sweepTaskRunner,
+                () -> sweepEnabled,
+                () -> 0L, // pauseMillis
+                () -> ImmutableSweepBatchConfig.builder()
+                        .deleteBatchSize(100)
+                        .candidateBatchSize(200)
+                        .maxCellTsPairsToExamine(1000)
+                        .build(),
+                Mockito.mock(BackgroundSweeperPerformanceLogger.class),
+                sweepMetrics,
+                Mockito.mock(PersistentLockManager.class),
+                () -> currentTimeMillis,
+                workerId,
+                numWorkers,
+                new ConcurrentHashMap<>(),
+                SweepThrottle.unlimited(sweepMetrics));
+    }
+
+    private static SweepProgress progressOf(TableReference tableRef) {
+        return ImmutableSweepProgress.builder()
+                .tableRef(tableRef)
+                .staleValuesDeleted(0)
+                .cellTsPairsExamined(0)
+                .minimumSweptTimestamp(0L)
+                .startRow(new byte[] {1, 2, 3})
+                .build();
+    }
+
+    private static SweepProgress claimOf(TableReference tableRef) {
+        return ImmutableSweepProgress.builder()
+                .tableRef(tableRef)
+                .staleValuesDeleted(0)
+                .cellTsPairsExamined(0)
+                .minimumSweptTimestamp(Long.MAX_VALUE)
+                .startRow(PtBytes.EMPTY_BYTE_ARRAY)
+                .build();
+    }
+
     private void setNoProgress() {
-        Mockito.doReturn(Optional.empty()).when(progressStore).loadProgress(Mockito.any());
+        Mockito.doReturn(Optional.empty()).when(progressStore).loadProgress(Mockito.any(), Mockito.anyInt());
     }
 
     private void setProgress(SweepProgress progress) {
-        Mockito.doReturn(Optional.of(progress)).when(progressStore).loadProgress(Mockito.any());
+        Mockito.doReturn(Optional.of(progress)).when(progressStore).loadProgress(Mockito.any(), Mockito.anyInt());
     }
 
     private void setNextTableToSweep(TableReference tableRef) {
         Mockito.doReturn(Optional.of(tableRef)).when(nextTableToSweepProvider)
-                .chooseNextTableToSweep(Mockito.any(), Mockito.anyLong());
+                .chooseNextTableToSweep(Mockito.any(), Mockito.anyLong(), Mockito.anySetOf(TableReference.class));
     }
 
     private void setupTaskRunner(SweepResults results) {
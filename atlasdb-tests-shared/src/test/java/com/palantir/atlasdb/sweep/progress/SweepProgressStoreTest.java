@@ -23,12 +23,14 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.google.common.collect.ImmutableMap;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
 import com.palantir.atlasdb.schema.generated.SweepTableFactory;
 import com.palantir.atlasdb.sweep.SweepTestUtils;
 import com.palantir.atlasdb.transaction.api.TransactionManager;
+import com.palantir.atlasdb.transaction.api.TransactionSerializableConflictException;
 import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.remoting2.tracing.Tracers;
 
@@ -103,4 +105,45 @@ public class SweepProgressStoreTest {
         Assert.assertFalse(txManager.runTaskReadOnly(progressStore::loadProgress).isPresent());
     }
 
+    @Test
+    public void testWorkersKeepSeparateProgress() {
+        txManager.runTaskWithRetry(tx -> {
+            progressStore.saveProgress(tx, 0, PROGRESS);
+            progressStore.saveProgress(tx, 1, OTHER_PROGRESS);
+            return null;
+        });
+        Assert.assertEquals(Optional.of(PROGRESS), txManager.runTaskReadOnly(tx -> progressStore.loadProgress(tx, 0)));
+        Assert.assertEquals(Optional.of(OTHER_PROGRESS),
+                txManager.runTaskReadOnly(tx -> progressStore.loadProgress(tx, 1)));
+        Assert.assertEquals(ImmutableMap.of(0, PROGRESS, 1, OTHER_PROGRESS),
+                txManager.runTaskReadOnly(progressStore::loadAllProgress));
+    }
+
+    @Test
+    public void testClearOneWorker() {
+        txManager.runTaskWithRetry(tx -> {
+            progressStore.saveProgress(tx, 0, PROGRESS);
+            progressStore.saveProgress(tx, 1, OTHER_PROGRESS);
+            return null;
+        });
+        progressStore.clearProgress(0);
+        Assert.assertFalse(txManager.runTaskReadOnly(tx -> progressStore.loadProgress(tx, 0)).isPresent());
+        Assert.assertEquals(Optional.of(OTHER_PROGRESS),
+                txManager.runTaskReadOnly(tx -> progressStore.loadProgress(tx, 1)));
+    }
+
+    @Test(expected = TransactionSerializableConflictException.class)
+    public void testConcurrentClaimsConflict() {
+        txManager.runTaskThrowOnConflict(tx -> {
+            progressStore.loadAllProgress(tx);
+            txManager.runTaskWithRetry(otherTx -> {
+                progressStore.loadAllProgress(otherTx);
+                progressStore.saveProgress(otherTx, 1, OTHER_PROGRESS);
+                return null;
+            });
+            progressStore.saveProgress(tx, 0, PROGRESS);
+            return null;
+        });
+    }
+
 }
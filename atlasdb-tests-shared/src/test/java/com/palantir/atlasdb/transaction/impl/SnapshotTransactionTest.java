@@ -38,9 +38,11 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.mutable.MutableInt;
@@ -54,6 +56,7 @@ import org.junit.Ignore;
 import org.junit.Test;
 
 import com.google.common.base.Joiner;
+import com.google.common.base.Suppliers;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -63,6 +66,7 @@ import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.AtlasDbTestCase;
 import com.palantir.atlasdb.cache.TimestampCache;
@@ -110,6 +114,7 @@ import com.palantir.lock.LockRefreshToken;
 import com.palantir.lock.LockRequest;
 import com.palantir.lock.LockService;
 import com.palantir.lock.SimpleTimeDuration;
+import com.palantir.lock.StringLockDescriptor;
 import com.palantir.lock.TimeDuration;
 import com.palantir.remoting2.tracing.Tracers;
 
@@ -562,6 +567,131 @@ public class SnapshotTransactionTest extends AtlasDbTestCase {
         t2.commit();
     }
 
+    @Test
+    public void pipelinedCommitChecksEveryTableForConflicts() {
+        Cell cell = Cell.create(PtBytes.toBytes("row1"), PtBytes.toBytes("column1"));
+        ExecutorService commitExecutor = PTExecutors.newCachedThreadPool();
+        try {
+            for (TableReference conflictingTable : ImmutableList.of(TABLE1, TABLE2)) {
+                SnapshotTransaction t1 = createPipelinedTransaction(commitExecutor);
+                SnapshotTransaction t2 = createPipelinedTransaction(commitExecutor);
+                t1.put(conflictingTable, ImmutableMap.of(cell, PtBytes.toBytes("t1")));
+                t2.put(TABLE1, ImmutableMap.of(cell, PtBytes.toBytes("t2")));
+                t2.put(TABLE2, ImmutableMap.of(cell, PtBytes.toBytes("t2")));
+                t1.commit();
+                try {
+                    t2.commit();
+                    fail();
+                } catch (TransactionConflictException e) {
+                    assertThat(e.getMessage(), containsString("table: " + conflictingTable.getQualifiedName()));
+                    assertEquals(1, e.getSpanningWrites().size());
+                }
+            }
+
+            SnapshotTransaction writer = createPipelinedTransaction(commitExecutor);
+            writer.put(TABLE1, ImmutableMap.of(cell, PtBytes.toBytes("writer")));
+            writer.put(TABLE2, ImmutableMap.of(cell, PtBytes.toBytes("writer")));
+            writer.commit();
+
+            Transaction reader = txManager.createNewTransaction();
+            assertEquals("writer", PtBytes.toString(reader.get(TABLE1, ImmutableSet.of(cell)).get(cell)));
+            assertEquals("writer", PtBytes.toString(reader.get(TABLE2, ImmutableSet.of(cell)).get(cell)));
+        } finally {
+            commitExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void pipelinedChecksHaveAllFinishedWhenAnotherCheckFails() {
+        ExecutorService commitExecutor = PTExecutors.newCachedThreadPool();
+        try {
+            SnapshotTransaction transaction = createPipelinedTransaction(commitExecutor);
+            AtomicBoolean slowCheckFinished = new AtomicBoolean();
+            Runnable slowCheck = () -> {
+                Uninterruptibles.sleepUninterruptibly(200, TimeUnit.MILLISECONDS);
+                slowCheckFinished.set(true);
+            };
+            Runnable failingCheck = () -> {
+                throw new IllegalStateException("conflict");
+            };
+            try {
+                transaction.runIndependentChecks(ImmutableList.of(slowCheck, failingCheck));
+                fail();
+            } catch (IllegalStateException e) {
+                assertTrue(slowCheckFinished.get());
+            }
+        } finally {
+            commitExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void pipelinedCommitFailsIfLocksAreLostDuringTheSerializableCheck() throws InterruptedException {
+        Cell cell = Cell.create(PtBytes.toBytes("row1"), PtBytes.toBytes("column1"));
+        LockRefreshToken externalLock = lockService.lock(LockClient.ANONYMOUS.getClientId(), LockRequest.builder(
+                ImmutableSortedMap.of(StringLockDescriptor.of("external"), LockMode.WRITE)).build());
+        ExecutorService commitExecutor = PTExecutors.newCachedThreadPool();
+        try {
+            SnapshotTransaction transaction = new SnapshotTransaction(
+                    keyValueService,
+                    lockService,
+                    timestampService,
+                    transactionService,
+                    NoOpCleaner.INSTANCE,
+                    Suppliers.ofInstance(timestampService.getFreshTimestamp()),
+                    TestConflictDetectionManagers.createWithStaticConflictDetection(
+                            ImmutableMap.of(TABLE1, ConflictHandler.RETRY_ON_WRITE_WRITE)),
+                    sweepStrategyManager,
+                    0L,
+                    ImmutableList.of(externalLock),
+                    AtlasDbConstraintCheckingMode.NO_CONSTRAINT_CHECKING,
+                    null,
+                    TransactionReadSentinelBehavior.THROW_EXCEPTION,
+                    false,
+                    timestampCache,
+                    ImmutableTransactionOptions.builder().commitExecutor(commitExecutor).build()) {
+                @Override
+                protected void throwIfReadWriteConflictForSerializable(long commitTimestamp) {
+                    // A slow serializable re-read, during which the lock is lost.
+                    Uninterruptibles.sleepUninterruptibly(200, TimeUnit.MILLISECONDS);
+                    lockService.unlock(externalLock);
+                }
+            };
+            transaction.put(TABLE1, ImmutableMap.of(cell, PtBytes.toBytes("value")));
+            try {
+                transaction.commit();
+                fail();
+            } catch (TransactionLockTimeoutException e) {
+                assertThat(e.getMessage(), containsString(externalLock.toString()));
+            }
+            assertTrue(txManager.createNewTransaction().get(TABLE1, ImmutableSet.of(cell)).isEmpty());
+        } finally {
+            commitExecutor.shutdownNow();
+        }
+    }
+
+    private SnapshotTransaction createPipelinedTransaction(ExecutorService commitExecutor) {
+        return new SnapshotTransaction(
+                keyValueService,
+                lockService,
+                timestampService,
+                transactionService,
+                NoOpCleaner.INSTANCE,
+                Suppliers.ofInstance(timestampService.getFreshTimestamp()),
+                TestConflictDetectionManagers.createWithStaticConflictDetection(ImmutableMap.of(
+                        TABLE1, ConflictHandler.RETRY_ON_WRITE_WRITE,
+                        TABLE2, ConflictHandler.RETRY_ON_WRITE_WRITE)),
+                sweepStrategyManager,
+                0L,
+                ImmutableList.of(),
+                AtlasDbConstraintCheckingMode.NO_CONSTRAINT_CHECKING,
+                null,
+                TransactionReadSentinelBehavior.THROW_EXCEPTION,
+                false,
+                timestampCache,
+                ImmutableTransactionOptions.builder().commitExecutor(commitExecutor).build());
+    }
+
     @Test
     public void readsFromThoroughlySweptTableShouldFailWhenLocksAreInvalid() throws Exception {
         keyValueService.createTable(
@@ -75,6 +75,7 @@ import net.jpountz.lz4.LZ4BlockInputStream;
 public final class UserPhotosStreamStore extends AbstractPersistentStreamStore {
     public static final int BLOCK_SIZE_IN_BYTES = 1000000; // 1MB. DO NOT CHANGE THIS WITHOUT AN UPGRADE TASK
     public static final int IN_MEMORY_THRESHOLD = 4194304; // streams under this size are kept in memory when loaded
+    public static final int CONCURRENT_BLOCK_WRITES = 4; // blocks written at once when storing outside a transaction
     public static final String STREAM_FILE_PREFIX = "UserPhotos_stream_";
     public static final String STREAM_FILE_SUFFIX = ".tmp";
 
@@ -103,6 +104,11 @@ public final class UserPhotosStreamStore extends AbstractPersistentStreamStore {
         return IN_MEMORY_THRESHOLD;
     }
 
+    @Override
+    protected int getNumberOfConcurrentBlockWrites() {
+        return CONCURRENT_BLOCK_WRITES;
+    }
+
     @Override
     protected void storeBlock(Transaction t, long id, long blockNumber, final byte[] block) {
         Preconditions.checkArgument(block.length <= BLOCK_SIZE_IN_BYTES, "Block to store in DB must be less than BLOCK_SIZE_IN_BYTES");
@@ -123,7 +129,7 @@ public final class UserPhotosStreamStore extends AbstractPersistentStreamStore {
         StreamMetadata metadata = metaTable.getMetadatas(ImmutableSet.of(row)).values().iterator().next();
         Preconditions.checkState(metadata.getStatus() == Status.STORING, "This stream is being cleaned up while storing blocks: " + id);
         Builder builder = StreamMetadata.newBuilder(metadata);
-        builder.setLength(blockNumber * BLOCK_SIZE_IN_BYTES + 1);
+        builder.setLength(Math.max(metadata.getLength(), blockNumber * BLOCK_SIZE_IN_BYTES + 1));
         metaTable.putMetadata(row, builder.build());
     }
 
@@ -17,6 +17,7 @@ package com.palantir.leader;
 
 import static com.google.common.collect.ImmutableList.copyOf;
 
+import java.io.Closeable;
 import java.util.AbstractMap;
 import java.util.Collections;
 import java.util.List;
@@ -30,9 +31,11 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
 
 import javax.annotation.Nullable;
 
@@ -49,6 +52,8 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.net.HostAndPort;
 import com.palantir.common.base.Throwables;
+import com.palantir.common.concurrent.NamedThreadFactory;
+import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.paxos.PaxosAcceptor;
 import com.palantir.paxos.PaxosLearner;
 import com.palantir.paxos.PaxosProposer;
@@ -65,7 +70,7 @@ import com.palantir.paxos.PaxosValue;
  *
  * @author rullman
  */
-public class PaxosLeaderElectionService implements PingableLeader, LeaderElectionService {
+public class PaxosLeaderElectionService implements PingableLeader, LeaderElectionService, Closeable {
     private static final Logger log = LoggerFactory.getLogger(PaxosLeaderElectionService.class);
 
     private final ReentrantLock lock;
@@ -87,6 +92,12 @@ public class PaxosLeaderElectionService implements PingableLeader, LeaderElectio
 
     private final PaxosLeaderElectionEventRecorder eventRecorder;
 
+    private final long leaseDurationNanos;
+    private final long maxClockDriftNanos;
+    private final LongSupplier nanoClock;
+    @Nullable private final ScheduledExecutorService leaseRenewalExecutor;
+    @Nullable private volatile LeadershipLease currentLease;
+
     @Deprecated // Use PaxosLeaderElectionServiceBuilder instead.
     public PaxosLeaderElectionService(PaxosProposer proposer,
                                       PaxosLearner knowledge,
@@ -99,7 +110,7 @@ public class PaxosLeaderElectionService implements PingableLeader, LeaderElectio
                                       long leaderPingResponseWaitMs) {
         this(proposer, knowledge, potentialLeadersToHosts, acceptors, learners, executor,
                 updatePollingWaitInMs, randomWaitBeforeProposingLeadership, leaderPingResponseWaitMs,
-                PaxosLeaderElectionEventRecorder.NO_OP);
+                PaxosLeaderElectionEventRecorder.NO_OP, 0L, 0L, System::nanoTime);
     }
 
     PaxosLeaderElectionService(PaxosProposer proposer,
@@ -111,7 +122,13 @@ public class PaxosLeaderElectionService implements PingableLeader, LeaderElectio
             long updatePollingWaitInMs,
             long randomWaitBeforeProposingLeadership,
             long leaderPingResponseWaitMs,
-            PaxosLeaderElectionEventRecorder eventRecorder) {
+            PaxosLeaderElectionEventRecorder eventRecorder,
+            long leaseDurationMs,
+            long maxClockDriftMs,
+            LongSupplier nanoClock) {
+        Preconditions.checkArgument(leaseDurationMs == 0 || leaseDurationMs > maxClockDriftMs,
+                "The leader lease duration %s must be greater than the maximum clock drift %s.",
+                leaseDurationMs, maxClockDriftMs);
         this.proposer = proposer;
         this.knowledge = knowledge;
         // XXX This map uses something that may be proxied as a key! Be very careful if making a new map from this.
@@ -124,6 +141,18 @@ public class PaxosLeaderElectionService implements PingableLeader, LeaderElectio
         this.leaderPingResponseWaitMs = leaderPingResponseWaitMs;
         lock = new ReentrantLock();
         this.eventRecorder = eventRecorder;
+        this.leaseDurationNanos = TimeUnit.MILLISECONDS.toNanos(leaseDurationMs);
+        this.maxClockDriftNanos = TimeUnit.MILLISECONDS.toNanos(maxClockDriftMs);
+        this.nanoClock = nanoClock;
+        if (leaseDurationMs > 0) {
+            this.leaseRenewalExecutor = PTExecutors.newSingleThreadScheduledExecutor(
+                    new NamedThreadFactory("leader-lease-renewal", true));
+            long renewalIntervalMs = Math.max(1L, (leaseDurationMs - maxClockDriftMs) / 2);
+            leaseRenewalExecutor.scheduleWithFixedDelay(
+                    this::renewLease, renewalIntervalMs, renewalIntervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            this.leaseRenewalExecutor = null;
+        }
     }
 
     @Override
@@ -453,6 +482,13 @@ public class PaxosLeaderElectionService implements PingableLeader, LeaderElectio
     }
 
     private StillLeadingStatus isStillLeading(PaxosLeadershipToken token) {
+        if (holdsLease(token)) {
+            return StillLeadingStatus.LEADING;
+        }
+        return isStillLeadingWithQuorum(token);
+    }
+
+    private StillLeadingStatus isStillLeadingWithQuorum(PaxosLeadershipToken token) {
         while (true) {
             StillLeadingCallBatch callBatch = getStillLeadingCallBatch(token);
 
@@ -564,6 +600,7 @@ public class PaxosLeaderElectionService implements PingableLeader, LeaderElectio
         }
 
         // check if node still has quorum
+        long checkStartNanos = nanoClock.getAsLong();
         List<PaxosResponse> responses = PaxosQuorumChecker.collectQuorumResponses(
                 acceptors,
                 new Function<PaxosAcceptor, PaxosResponse>() {
@@ -579,6 +616,7 @@ public class PaxosLeaderElectionService implements PingableLeader, LeaderElectio
                 true);
         if (PaxosQuorumChecker.hasQuorum(responses, proposer.getQuorumSize())) {
             // If we have a quorum we are good to go
+            grantLease(token, checkStartNanos);
             return StillLeadingStatus.LEADING;
         }
 
@@ -586,12 +624,71 @@ public class PaxosLeaderElectionService implements PingableLeader, LeaderElectio
             if (paxosResponse != null && !paxosResponse.isSuccessful()) {
                 // If we have a nack then someone has prepared or accepted a new seq.
                 // In this case we are most likely not the leader
+                currentLease = null;
                 return StillLeadingStatus.NOT_LEADING;
             }
         }
         return StillLeadingStatus.NO_QUORUM;
     }
 
+    /**
+     * Records that a quorum of acceptors confirmed our leadership for the given token at some point after the given
+     * time. The acceptors promise nothing newer until their lease expires, counted from when they answered, so our
+     * lease counted from before we asked expires first, even if our clock runs up to the maximum drift faster.
+     */
+    private void grantLease(LeadershipToken token, long checkStartNanos) {
+        if (leaseDurationNanos > 0) {
+            currentLease = new LeadershipLease(token, checkStartNanos + leaseDurationNanos - maxClockDriftNanos);
+        }
+    }
+
+    private boolean holdsLease(LeadershipToken token) {
+        LeadershipLease lease = currentLease;
+        if (lease == null || !lease.token.sameAs(token) || nanoClock.getAsLong() - lease.expiryNanos >= 0) {
+            return false;
+        }
+        // Leadership may have been given up locally, for instance after learning a newer value from a peer.
+        PaxosValue mostRecentValue = knowledge.getGreatestLearnedValue();
+        return isLastConfirmedLeader(mostRecentValue) && token.sameAs(genTokenFromValue(mostRecentValue));
+    }
+
+    /**
+     * Renews the lease ahead of its expiry, so that requests are not held up by the quorum check while we remain
+     * leader. If the renewal fails the lease simply runs out, and requests fall back to checking with a quorum.
+     */
+    private void renewLease() {
+        LeadershipLease lease = currentLease;
+        if (lease == null) {
+            return;
+        }
+        try {
+            isStillLeadingWithQuorum((PaxosLeadershipToken) lease.token);
+        } catch (Throwable t) {
+            log.warn("Failed to renew the leader lease", t);
+        }
+    }
+
+    /**
+     * Stops renewing the leader lease and its daemon thread. Leadership checks made after this always go to a quorum.
+     */
+    @Override
+    public void close() {
+        currentLease = null;
+        if (leaseRenewalExecutor != null) {
+            leaseRenewalExecutor.shutdownNow();
+        }
+    }
+
+    private static final class LeadershipLease {
+        private final LeadershipToken token;
+        private final long expiryNanos;
+
+        LeadershipLease(LeadershipToken token, long expiryNanos) {
+            this.token = token;
+            this.expiryNanos = expiryNanos;
+        }
+    }
+
     /**
      * Confirms if a given sequence is still the newest according to a given acceptor
      *
@@ -18,6 +18,7 @@ package com.palantir.leader;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
+import java.util.function.LongSupplier;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.net.HostAndPort;
@@ -36,6 +37,9 @@ public class PaxosLeaderElectionServiceBuilder {
     private long randomWaitBeforeProposingLeadershipMs;
     private long leaderPingResponseWaitMs;
     private PaxosLeaderElectionEventRecorder eventRecorder = PaxosLeaderElectionEventRecorder.NO_OP;
+    private long leaseDurationMs = 0L;
+    private long maxClockDriftMs = 0L;
+    private LongSupplier nanoClock = System::nanoTime;
 
     public PaxosLeaderElectionServiceBuilder proposer(PaxosProposer proposer) {
         this.proposer = proposer;
@@ -89,6 +93,25 @@ public class PaxosLeaderElectionServiceBuilder {
         return this;
     }
 
+    /**
+     * If positive, leadership confirmed by a quorum is trusted for this long, less the maximum clock drift, without
+     * checking with the acceptors again. The acceptors must be created with the same lease duration.
+     */
+    public PaxosLeaderElectionServiceBuilder leaseDurationMs(long leaseDurationMs) {
+        this.leaseDurationMs = leaseDurationMs;
+        return this;
+    }
+
+    public PaxosLeaderElectionServiceBuilder maxClockDriftMs(long maxClockDriftMs) {
+        this.maxClockDriftMs = maxClockDriftMs;
+        return this;
+    }
+
+    public PaxosLeaderElectionServiceBuilder nanoClock(LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        return this;
+    }
+
     public PaxosLeaderElectionService build() {
         return new PaxosLeaderElectionService(
                 proposer,
@@ -100,6 +123,9 @@ public class PaxosLeaderElectionServiceBuilder {
                 pingRateMs,
                 randomWaitBeforeProposingLeadershipMs,
                 leaderPingResponseWaitMs,
-                eventRecorder);
+                eventRecorder,
+                leaseDurationMs,
+                maxClockDriftMs,
+                nanoClock);
     }
 }
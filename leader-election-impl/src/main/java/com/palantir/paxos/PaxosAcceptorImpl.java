@@ -17,10 +17,14 @@ package com.palantir.paxos;
 
 import java.io.IOException;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.VisibleForTesting;
+
 public class PaxosAcceptorImpl implements PaxosAcceptor {
     private static final Logger logger = LoggerFactory.getLogger(PaxosAcceptorImpl.class);
 
@@ -30,23 +34,73 @@ public class PaxosAcceptorImpl implements PaxosAcceptor {
      * @return a new acceptor
      */
     public static PaxosAcceptor newAcceptor(String logDir) {
-        PaxosStateLog<PaxosAcceptorState> log = new PaxosStateLogImpl<PaxosAcceptorState>(logDir);
+        return newAcceptor(new PaxosStateLogImpl<PaxosAcceptorState>(logDir));
+    }
+
+    /**
+     * @param log durable log backing the acceptor
+     * @return a new acceptor
+     */
+    public static PaxosAcceptor newAcceptor(PaxosStateLog<PaxosAcceptorState> log) {
+        return newAcceptor(log, 0L, System::nanoTime);
+    }
+
+    /**
+     * Creates an acceptor that grants leader leases of the given duration. Each time the acceptor confirms the latest
+     * sequence to a leader checking its leadership, it refuses to promise or accept any later sequence for the
+     * duration of the lease, so no other node can become leader while the leader may still be relying on that
+     * confirmation. A newly started acceptor also waits out one lease, since it may have confirmed a leader before
+     * it restarted.
+     *
+     * @param logDir string path for directory to place durable logs
+     * @param leaseDurationMs the duration of leader leases, or zero to grant no leases
+     * @return a new acceptor
+     */
+    public static PaxosAcceptor newAcceptor(String logDir, long leaseDurationMs) {
+        return newAcceptor(new PaxosStateLogImpl<PaxosAcceptorState>(logDir), leaseDurationMs, System::nanoTime);
+    }
+
+    /**
+     * @param log durable log backing the acceptor
+     * @param leaseDurationMs the duration of leader leases, or zero to grant no leases
+     * @param nanoClock source of monotonic time, in nanoseconds
+     * @return a new acceptor
+     */
+    public static PaxosAcceptor newAcceptor(
+            PaxosStateLog<PaxosAcceptorState> log,
+            long leaseDurationMs,
+            LongSupplier nanoClock) {
         return new PaxosAcceptorImpl(
                 new ConcurrentSkipListMap<Long, PaxosAcceptorState>(),
                 log,
-                log.getGreatestLogEntry());
+                log.getGreatestLogEntry(),
+                TimeUnit.MILLISECONDS.toNanos(leaseDurationMs),
+                nanoClock);
     }
 
     final ConcurrentSkipListMap<Long, PaxosAcceptorState> state;
     final PaxosStateLog<PaxosAcceptorState> log;
     final long greatestInLogAtStartup;
 
-    private PaxosAcceptorImpl(ConcurrentSkipListMap<Long, PaxosAcceptorState> state,
+    private final long leaseDurationNanos;
+    private final LongSupplier nanoClock;
+    // Held while checking the lease together with the state change it allows, and while confirming the latest
+    // sequence together with starting a lease, so that a leader is never told a sequence older than one we promised.
+    private final Object leaseLock = new Object();
+    private volatile long lastLeaderConfirmationNanos;
+
+    @VisibleForTesting
+    PaxosAcceptorImpl(ConcurrentSkipListMap<Long, PaxosAcceptorState> state,
                               PaxosStateLog<PaxosAcceptorState> log,
-                              long greatestInLogAtStartup) {
+                              long greatestInLogAtStartup,
+                              long leaseDurationNanos,
+                              LongSupplier nanoClock) {
         this.state = state;
         this.log = log;
         this.greatestInLogAtStartup = greatestInLogAtStartup;
+        this.leaseDurationNanos = leaseDurationNanos;
+        this.nanoClock = nanoClock;
+        this.lastLeaderConfirmationNanos = nanoClock.getAsLong();
     }
 
     @Override
@@ -58,33 +112,42 @@ public class PaxosAcceptorImpl implements PaxosAcceptor {
             return PaxosPromise.reject(pid);
         }
 
-        for (;;) {
-            PaxosAcceptorState oldState = state.get(seq);
-
-            if (oldState != null && pid.compareTo(oldState.lastPromisedId) < 0) {
-                return PaxosPromise.reject(oldState.lastPromisedId);
-            }
-
-            // allow for the same propose to be repeated and return the same result.
-            if (oldState != null && pid.compareTo(oldState.lastPromisedId) == 0) {
-                return PaxosPromise.accept(
-                        oldState.lastPromisedId,
-                        oldState.lastAcceptedId,
-                        oldState.lastAcceptedValue);
+        PaxosAcceptorState newState;
+        synchronized (leaseLock) {
+            if (isLeaseHeldAgainst(seq)) {
+                return PaxosPromise.reject(pid);
             }
 
-            PaxosAcceptorState newState = oldState != null
-                    ? oldState.withPromise(pid)
-                    : PaxosAcceptorState.newState(pid);
-            if ((oldState == null && state.putIfAbsent(seq, newState) == null)
-                    || (oldState != null && state.replace(seq, oldState, newState))) {
-                log.writeRound(seq, newState);
-                return PaxosPromise.accept(
-                        newState.lastPromisedId,
-                        newState.lastAcceptedId,
-                        newState.lastAcceptedValue);
+            for (;;) {
+                PaxosAcceptorState oldState = state.get(seq);
+
+                if (oldState != null && pid.compareTo(oldState.lastPromisedId) < 0) {
+                    return PaxosPromise.reject(oldState.lastPromisedId);
+                }
+
+                // allow for the same propose to be repeated and return the same result.
+                if (oldState != null && pid.compareTo(oldState.lastPromisedId) == 0) {
+                    return PaxosPromise.accept(
+                            oldState.lastPromisedId,
+                            oldState.lastAcceptedId,
+                            oldState.lastAcceptedValue);
+                }
+
+                newState = oldState != null
+                        ? oldState.withPromise(pid)
+                        : PaxosAcceptorState.newState(pid);
+                if ((oldState == null && state.putIfAbsent(seq, newState) == null)
+                        || (oldState != null && state.replace(seq, oldState, newState))) {
+                    break;
+                }
             }
         }
+
+        log.writeRound(seq, newState);
+        return PaxosPromise.accept(
+                newState.lastPromisedId,
+                newState.lastAcceptedId,
+                newState.lastAcceptedValue);
     }
 
     @Override
@@ -96,28 +159,48 @@ public class PaxosAcceptorImpl implements PaxosAcceptor {
             return new BooleanPaxosResponse(false); // nack
         }
 
-        for (;;) {
-            PaxosAcceptorState oldState = state.get(seq);
-
-            // nack
-            if (oldState != null && proposal.id.compareTo(oldState.lastPromisedId) < 0) {
+        PaxosAcceptorState newState;
+        synchronized (leaseLock) {
+            if (isLeaseHeldAgainst(seq)) {
                 return new BooleanPaxosResponse(false);
             }
 
-            // ack
-            PaxosAcceptorState newState = oldState != null
-                    ? oldState.withState(proposal.id, proposal.id, proposal.val)
-                    : PaxosAcceptorState.newState(proposal.id);
-            if ((oldState == null && state.putIfAbsent(seq, newState) == null)
-                    || (oldState != null && state.replace(seq, oldState, newState))) {
-                log.writeRound(seq, newState);
-                return new BooleanPaxosResponse(true);
+            for (;;) {
+                PaxosAcceptorState oldState = state.get(seq);
+
+                // nack
+                if (oldState != null && proposal.id.compareTo(oldState.lastPromisedId) < 0) {
+                    return new BooleanPaxosResponse(false);
+                }
+
+                // ack
+                newState = oldState != null
+                        ? oldState.withState(proposal.id, proposal.id, proposal.val)
+                        : PaxosAcceptorState.newState(proposal.id);
+                if ((oldState == null && state.putIfAbsent(seq, newState) == null)
+                        || (oldState != null && state.replace(seq, oldState, newState))) {
+                    break;
+                }
             }
         }
+
+        log.writeRound(seq, newState);
+        return new BooleanPaxosResponse(true);
     }
 
     @Override
     public long getLatestSequencePreparedOrAccepted() {
+        if (leaseDurationNanos == 0) {
+            return getLatestSequence();
+        }
+        synchronized (leaseLock) {
+            // Start the lease before reading the latest sequence, so that it covers everything the leader learns.
+            lastLeaderConfirmationNanos = nanoClock.getAsLong();
+            return getLatestSequence();
+        }
+    }
+
+    private long getLatestSequence() {
         if (state.isEmpty()) {
             return greatestInLogAtStartup;
         } else {
@@ -125,6 +208,16 @@ public class PaxosAcceptorImpl implements PaxosAcceptor {
         }
     }
 
+    /**
+     * Returns true if a leader may hold a lease that a promise or acceptance of the given sequence would break.
+     * Sequences no later than the latest one are still allowed, so that rounds already in progress can finish.
+     */
+    private boolean isLeaseHeldAgainst(long seq) {
+        return leaseDurationNanos > 0
+                && seq > getLatestSequence()
+                && nanoClock.getAsLong() - lastLeaderConfirmationNanos < leaseDurationNanos;
+    }
+
     private void checkLogIfNeeded(long seq) throws TruncatedStateLogException, IOException {
         if (state.containsKey(seq)) {
             return;
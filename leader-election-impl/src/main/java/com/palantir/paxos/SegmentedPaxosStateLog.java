@@ -0,0 +1,774 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.paxos;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.palantir.common.base.Throwables;
+import com.palantir.common.persist.Persistable;
+
+/**
+ * A {@link PaxosStateLog} that appends checksummed records to preallocated segment files instead of writing one file
+ * per round like {@link PaxosStateLogImpl}. Only the segment being appended to is memory-mapped; once it fills up it
+ * is unmapped, and the rounds it holds are read with ordinary file reads.
+ * <p>
+ * An in-memory index maps each sequence number to the location of its latest record, so the greatest and least entry
+ * lookups never touch the file system. Concurrent writers append under a lock and then share fsyncs: whichever
+ * writer finds no sync in progress forces the active segment on behalf of everyone who has appended so far, and the
+ * others wait for it. A round is only added to the index once it is durable, so a reader never sees a round which
+ * could be lost in a crash. Truncation appends a marker record and then deletes every segment containing only rounds
+ * at or below the truncation point, so rounds that share a segment with later ones stay on disk until that segment is
+ * dropped, but are no longer visible.
+ * <p>
+ * Segments live in the {@value #SEGMENT_DIRECTORY} subdirectory of the log directory. A log directory written by
+ * {@link PaxosStateLogImpl} is migrated on first use: its rounds are copied into a new set of segments, which only
+ * replace the legacy files once complete, and the legacy files are then moved into the
+ * {@value #LEGACY_BACKUP_DIRECTORY} subdirectory.
+ */
+public class SegmentedPaxosStateLog<V extends Persistable & Versionable> implements PaxosStateLog<V>, Closeable {
+    private static final Logger log = LoggerFactory.getLogger(SegmentedPaxosStateLog.class);
+
+    @VisibleForTesting
+    static final String SEGMENT_DIRECTORY = "segments";
+    @VisibleForTesting
+    static final String LEGACY_BACKUP_DIRECTORY = "legacy-backup";
+    private static final String MIGRATION_DIRECTORY = "segments-migration";
+    private static final String SEGMENT_FILE_SUFFIX = ".segment";
+
+    /**
+     * Every client has an acceptor and a learner log, each of which keeps at least one segment, so this is kept small.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 1024 * 1024;
+
+    // Record layout: crc (4 bytes), type (1), payload length (4), seq (8), version (8), payload.
+    // The crc covers everything after itself. Segments are zero-filled, so a zero type marks the end of a segment.
+    private static final int CRC_SIZE = 4;
+    private static final int TYPE_OFFSET = CRC_SIZE;
+    private static final int LENGTH_OFFSET = TYPE_OFFSET + 1;
+    private static final int SEQ_OFFSET = LENGTH_OFFSET + 4;
+    private static final int VERSION_OFFSET = SEQ_OFFSET + 8;
+    @VisibleForTesting
+    static final int HEADER_SIZE = VERSION_OFFSET + 8;
+
+    private static final byte END_OF_SEGMENT = 0;
+    private static final byte ROUND = 1;
+    private static final byte TRUNCATE = 2;
+
+    /**
+     * Rounds migrated from the legacy layout have no recorded version, so any later write to them is accepted, just
+     * as {@link PaxosStateLogImpl} does after a restart.
+     */
+    private static final long UNKNOWN_VERSION = Long.MIN_VALUE;
+    private static final byte[] NO_PAYLOAD = new byte[0];
+    private static final byte[] ZEROS = new byte[64 * 1024];
+
+    private final File segmentDir;
+    private final int segmentSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final NavigableMap<Long, Segment> segments = new TreeMap<>();
+    private final NavigableMap<Long, Long> seqToLocation = new TreeMap<>();
+    private boolean hasBeenTruncated = false;
+    private long lastTruncatedSeq = Long.MIN_VALUE;
+    private long lastTruncationRecord = 0;
+    private volatile Segment activeSegment;
+
+    private final Object syncMonitor = new Object();
+    private volatile long appendedRecords = 0;
+    private long syncedRecords = 0;
+    private boolean isSyncing = false;
+
+    public static <V extends Persistable & Versionable> SegmentedPaxosStateLog<V> create(String path) {
+        return create(path, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * @param segmentSize the size of each newly created segment file, in bytes. A round which does not fit gets a
+     *                    segment of its own.
+     */
+    public static <V extends Persistable & Versionable> SegmentedPaxosStateLog<V> create(String path,
+            int segmentSize) {
+        Preconditions.checkArgument(segmentSize > HEADER_SIZE,
+                "segmentSize must exceed %s bytes, was %s", HEADER_SIZE, segmentSize);
+        File dir = new File(path);
+        try {
+            FileUtils.forceMkdir(dir);
+            File segmentDir = new File(dir, SEGMENT_DIRECTORY);
+            if (!segmentDir.exists()) {
+                createSegmentDirectory(dir, segmentDir, segmentSize);
+            }
+            moveLegacyLogFilesToBackup(dir);
+            return open(segmentDir, segmentSize);
+        } catch (IOException e) {
+            throw new RuntimeException("IO problem related to the path " + dir.getAbsolutePath(), e);
+        }
+    }
+
+    private static <V extends Persistable & Versionable> SegmentedPaxosStateLog<V> open(File segmentDir,
+            int segmentSize) throws IOException {
+        SegmentedPaxosStateLog<V> stateLog = new SegmentedPaxosStateLog<>(segmentDir, segmentSize);
+        stateLog.recover();
+        return stateLog;
+    }
+
+    private SegmentedPaxosStateLog(File segmentDir, int segmentSize) {
+        this.segmentDir = segmentDir;
+        this.segmentSize = segmentSize;
+    }
+
+    @Override
+    public void writeRound(long seq, V round) {
+        byte[] bytes = round.persistToBytes();
+        long location;
+        long recordNumber;
+        lock.lock();
+        try {
+            // reject old state
+            if (isOlderThanIndexed(seq, round.getVersion())) {
+                return;
+            }
+            location = append(ROUND, seq, round.getVersion(), bytes);
+            recordNumber = appendedRecords;
+        } catch (IOException e) {
+            log.error("problem writing paxos state", e);
+            throw Throwables.throwUncheckedException(e);
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(recordNumber);
+        lock.lock();
+        try {
+            // A newer version of the round may have been indexed in the meantime. A truncation since we appended also
+            // hides the round, just as its marker would when replaying the log.
+            boolean isTruncated = recordNumber < lastTruncationRecord && seq <= lastTruncatedSeq;
+            if (!isTruncated && !isOlderThanIndexed(seq, round.getVersion())) {
+                seqToLocation.put(seq, location);
+            }
+        } catch (IOException e) {
+            log.error("problem writing paxos state", e);
+            throw Throwables.throwUncheckedException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public byte[] readRound(long seq) throws IOException {
+        lock.lock();
+        try {
+            Long location = seqToLocation.get(seq);
+            if (location == null) {
+                return null;
+            }
+            return segments.get(segmentId(location)).readPayload(offset(location));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long getLeastLogEntry() {
+        lock.lock();
+        try {
+            // Like PaxosStateLogImpl, which keeps a placeholder file for NO_LOG_ENTRY until the first truncation.
+            return hasBeenTruncated && !seqToLocation.isEmpty()
+                    ? seqToLocation.firstKey()
+                    : PaxosAcceptor.NO_LOG_ENTRY;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long getGreatestLogEntry() {
+        lock.lock();
+        try {
+            return seqToLocation.isEmpty() ? PaxosAcceptor.NO_LOG_ENTRY : seqToLocation.lastKey();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void truncate(long toDeleteInclusive) {
+        lock.lock();
+        try {
+            long greatestLogEntry = getGreatestLogEntry();
+            if (greatestLogEntry >= 0) {
+                // We never want to remove our most recent entry
+                toDeleteInclusive = Math.min(greatestLogEntry - 1, toDeleteInclusive);
+            }
+            // The marker must be durable before any segment is deleted, or rounds in the remaining segments that
+            // it covers would reappear on restart.
+            append(TRUNCATE, toDeleteInclusive, UNKNOWN_VERSION, NO_PAYLOAD);
+            activeSegment.force();
+            applyTruncation(toDeleteInclusive);
+            lastTruncatedSeq = toDeleteInclusive;
+            lastTruncationRecord = appendedRecords;
+            dropSegmentsUpTo(toDeleteInclusive);
+        } catch (IOException e) {
+            log.error("problem truncating paxos state", e);
+            throw Throwables.throwUncheckedException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forces any outstanding writes to disk and releases the segment files. The log must not be used after it has
+     * been closed.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            activeSegment.force();
+            awaitNoSyncInProgress();
+            for (Segment segment : segments.values()) {
+                segment.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @VisibleForTesting
+    int getSegmentCount() {
+        lock.lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long append(byte type, long seq, long version, byte[] payload) throws IOException {
+        int recordSize = HEADER_SIZE + payload.length;
+        if (activeSegment.remaining() < recordSize) {
+            rollOver(recordSize);
+        }
+        Segment segment = activeSegment;
+        int offset = segment.append(type, seq, version, payload);
+        // Published after the record, so a syncer that observes this count also observes the segment holding it.
+        appendedRecords++;
+        return location(segment.id, offset);
+    }
+
+    private void rollOver(int minimumSize) throws IOException {
+        // Forcing the full segment here means syncers only ever need to force the active one.
+        Segment fullSegment = activeSegment;
+        fullSegment.force();
+        Segment segment = Segment.create(segmentFile(fullSegment.id + 1), Math.max(segmentSize, minimumSize));
+        syncDirectory(segmentDir);
+        segments.put(segment.id, segment);
+        activeSegment = segment;
+        // A sync which started before the switch may still be forcing the full segment, and touching an unmapped
+        // buffer crashes the JVM. Any later sync only sees the new segment.
+        awaitNoSyncInProgress();
+        fullSegment.seal();
+    }
+
+    /**
+     * Group commit: the first writer to arrive while no sync is running forces the active segment, which covers every
+     * record appended before it started, and writers that arrive in the meantime wait for it and then either find
+     * their record covered or run the next sync themselves.
+     */
+    private void awaitDurable(long recordNumber) {
+        while (true) {
+            synchronized (syncMonitor) {
+                while (isSyncing && syncedRecords < recordNumber) {
+                    try {
+                        syncMonitor.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw Throwables.rewrapAndThrowUncheckedException(e);
+                    }
+                }
+                if (syncedRecords >= recordNumber) {
+                    return;
+                }
+                isSyncing = true;
+            }
+            long syncTarget = appendedRecords;
+            boolean synced = false;
+            try {
+                activeSegment.force();
+                synced = true;
+            } finally {
+                synchronized (syncMonitor) {
+                    if (synced) {
+                        syncedRecords = Math.max(syncedRecords, syncTarget);
+                    }
+                    isSyncing = false;
+                    syncMonitor.notifyAll();
+                }
+            }
+        }
+    }
+
+    private void awaitNoSyncInProgress() {
+        boolean interrupted = false;
+        synchronized (syncMonitor) {
+            while (isSyncing) {
+                try {
+                    syncMonitor.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean isOlderThanIndexed(long seq, long version) throws IOException {
+        Long location = seqToLocation.get(seq);
+        return location != null && version < readVersion(location);
+    }
+
+    private long readVersion(long location) throws IOException {
+        return segments.get(segmentId(location)).readVersion(offset(location));
+    }
+
+    private void applyTruncation(long toDeleteInclusive) {
+        seqToLocation.headMap(toDeleteInclusive, true).clear();
+        hasBeenTruncated = true;
+    }
+
+    private void dropSegmentsUpTo(long toDeleteInclusive) {
+        Iterator<Segment> iterator = segments.values().iterator();
+        while (iterator.hasNext()) {
+            Segment segment = iterator.next();
+            if (segment != activeSegment && segment.maxSeq <= toDeleteInclusive) {
+                iterator.remove();
+                segment.close();
+                if (!segment.file.delete()) {
+                    log.warn("failed to delete log segment {}", segment.file.getAbsolutePath());
+                }
+            }
+        }
+    }
+
+    private void recover() throws IOException {
+        List<Long> segmentIds = Lists.newArrayList();
+        File[] files = segmentDir.listFiles();
+        if (files == null) {
+            throw new IOException("Could not list the segments in " + segmentDir.getAbsolutePath());
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(SEGMENT_FILE_SUFFIX)) {
+                segmentIds.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_FILE_SUFFIX.length())));
+            }
+        }
+        segmentIds.sort(Long::compare);
+
+        for (int i = 0; i < segmentIds.size(); i++) {
+            boolean isLastSegment = i == segmentIds.size() - 1;
+            Segment segment = Segment.open(segmentFile(segmentIds.get(i)));
+            segments.put(segment.id, segment);
+            replay(segment, isLastSegment);
+            if (!isLastSegment) {
+                segment.seal();
+            }
+        }
+        if (segments.isEmpty()) {
+            Segment segment = Segment.create(segmentFile(0), segmentSize);
+            syncDirectory(segmentDir);
+            segments.put(segment.id, segment);
+        }
+        activeSegment = segments.lastEntry().getValue();
+    }
+
+    private void replay(Segment segment, boolean isLastSegment) throws IOException {
+        int offset = 0;
+        while (segment.hasRecordAt(offset)) {
+            if (!segment.isValidRecordAt(offset)) {
+                if (!isLastSegment) {
+                    log.error("Paxos state log segment {} is corrupt at offset {}", segment.file, offset);
+                    throw new CorruptLogFileException();
+                }
+                // Records are only acknowledged once a later sync covers them, so nothing at or after a torn record
+                // in the last segment has been acknowledged, and it is safe to discard it.
+                log.warn("Discarding the unsynced tail of paxos state log segment {} from offset {}",
+                        segment.file, offset);
+                break;
+            }
+            long seq = segment.readSeq(offset);
+            if (segment.readType(offset) == TRUNCATE) {
+                applyTruncation(seq);
+            } else if (!isOlderThanIndexed(seq, segment.readVersion(offset))) {
+                // Writes of the same round may be appended out of version order, as the version check happens
+                // before a round is durable.
+                seqToLocation.put(seq, location(segment.id, offset));
+            }
+            segment.maxSeq = Math.max(segment.maxSeq, seq);
+            offset += segment.readRecordSize(offset);
+        }
+        segment.writeOffset = offset;
+        if (isLastSegment) {
+            // Unsynced records may have reached the disk beyond a torn one, or beyond one whose type never made it.
+            // They must not resurface once new records are appended in front of them.
+            segment.zeroFrom(offset);
+        }
+    }
+
+    private File segmentFile(long segmentId) {
+        return new File(segmentDir, String.format("%019d%s", segmentId, SEGMENT_FILE_SUFFIX));
+    }
+
+    private static long location(long segmentId, int offset) {
+        Preconditions.checkState(segmentId <= Integer.MAX_VALUE, "Too many paxos state log segments");
+        return (segmentId << Integer.SIZE) | offset;
+    }
+
+    private static long segmentId(long location) {
+        return location >>> Integer.SIZE;
+    }
+
+    private static int offset(long location) {
+        return (int) location;
+    }
+
+    private static void createSegmentDirectory(File dir, File segmentDir, int segmentSize) throws IOException {
+        File migrationDir = new File(dir, MIGRATION_DIRECTORY);
+        // Left over from a migration that did not complete; the legacy files are still authoritative.
+        FileUtils.deleteDirectory(migrationDir);
+        FileUtils.forceMkdir(migrationDir);
+
+        Map<Long, File> legacyFiles = getLegacyLogFiles(dir);
+        if (!legacyFiles.isEmpty()) {
+            log.info("Migrating {} paxos rounds in {} to the segmented log format", legacyFiles.size(), dir);
+            try (SegmentedPaxosStateLog<?> migrated = open(migrationDir, segmentSize)) {
+                migrated.copyFromLegacyLog(new PaxosStateLogImpl<>(dir.getPath()));
+            }
+        }
+        Files.move(migrationDir.toPath(), segmentDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(dir);
+    }
+
+    private void copyFromLegacyLog(PaxosStateLogImpl<?> legacyLog) throws IOException {
+        lock.lock();
+        try {
+            long least = legacyLog.getLeastLogEntry();
+            if (least != PaxosAcceptor.NO_LOG_ENTRY) {
+                // The legacy log has been truncated, so getLeastLogEntry should keep returning its least entry.
+                append(TRUNCATE, least - 1, UNKNOWN_VERSION, NO_PAYLOAD);
+                hasBeenTruncated = true;
+            }
+            for (long seq : getLegacyLogFiles(new File(legacyLog.path)).keySet()) {
+                if (seq == PaxosAcceptor.NO_LOG_ENTRY) {
+                    continue;
+                }
+                byte[] bytes = legacyLog.readRound(seq);
+                if (bytes != null) {
+                    seqToLocation.put(seq, append(ROUND, seq, UNKNOWN_VERSION, bytes));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Also called on every startup, in case we failed after the segments were moved into place but before the legacy
+     * files were moved out of the way.
+     */
+    private static void moveLegacyLogFilesToBackup(File dir) throws IOException {
+        Map<Long, File> legacyFiles = getLegacyLogFiles(dir);
+        if (legacyFiles.isEmpty()) {
+            return;
+        }
+        File backupDir = new File(dir, LEGACY_BACKUP_DIRECTORY);
+        log.warn("Moving {} legacy paxos log files in {} to {}; they are no longer read",
+                legacyFiles.size(), dir, backupDir);
+        FileUtils.forceMkdir(backupDir);
+        for (File file : legacyFiles.values()) {
+            Files.move(file.toPath(), new File(backupDir, file.getName()).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static NavigableMap<Long, File> getLegacyLogFiles(File dir) throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            throw new IOException("Could not list the files in " + dir.getAbsolutePath());
+        }
+        NavigableMap<Long, File> legacyFiles = new TreeMap<>();
+        for (File file : files) {
+            try {
+                legacyFiles.put(Long.parseLong(file.getName()), file);
+            } catch (NumberFormatException e) {
+                // not a legacy log entry
+            }
+        }
+        return legacyFiles;
+    }
+
+    private static void syncDirectory(File dir) {
+        // Makes newly created or renamed files durable; not every platform supports opening a directory.
+        try (FileChannel channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            log.debug("Could not sync directory {}", dir, e);
+        }
+    }
+
+    /**
+     * Releases the mapping straight away rather than whenever the buffer is garbage collected, which may be long after
+     * its file has been deleted. The buffer must not be touched afterwards.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.debug("Could not unmap a paxos state log segment; it will be unmapped when garbage collected", e);
+        }
+    }
+
+    private static final class Segment {
+        private final long id;
+        private final File file;
+        // The segment is mapped while it is being appended to, and read through the channel once sealed.
+        private MappedByteBuffer buffer;
+        private FileChannel channel;
+        private int writeOffset = 0;
+        private long maxSeq = Long.MIN_VALUE;
+
+        private Segment(long id, File file, MappedByteBuffer buffer) {
+            this.id = id;
+            this.file = file;
+            this.buffer = buffer;
+        }
+
+        static Segment create(File file, int size) throws IOException {
+            Preconditions.checkState(!file.exists(), "Paxos state log segment %s already exists", file);
+            return map(file, size);
+        }
+
+        static Segment open(File file) throws IOException {
+            return map(file, Math.toIntExact(file.length()));
+        }
+
+        private static Segment map(File file, int size) throws IOException {
+            String name = file.getName();
+            long id = Long.parseLong(name.substring(0, name.length() - SEGMENT_FILE_SUFFIX.length()));
+            // The mapping stays valid after the file is closed.
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(size);
+                return new Segment(id, file, raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size));
+            }
+        }
+
+        /**
+         * Unmaps a segment which will not be appended to again. The caller must ensure nobody is still using the
+         * mapping.
+         */
+        void seal() throws IOException {
+            if (buffer == null) {
+                return;
+            }
+            buffer.force();
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            MappedByteBuffer mapping = buffer;
+            buffer = null;
+            unmap(mapping);
+        }
+
+        void close() {
+            if (buffer != null) {
+                MappedByteBuffer mapping = buffer;
+                buffer = null;
+                unmap(mapping);
+            }
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    log.warn("failed to close log segment {}", file.getAbsolutePath(), e);
+                }
+                channel = null;
+            }
+        }
+
+        int remaining() {
+            return buffer.capacity() - writeOffset;
+        }
+
+        int append(byte type, long seq, long version, byte[] payload) {
+            int offset = writeOffset;
+            ByteBuffer record = buffer.duplicate();
+            record.position(offset + TYPE_OFFSET);
+            record.put(type);
+            record.putInt(payload.length);
+            record.putLong(seq);
+            record.putLong(version);
+            record.put(payload);
+            buffer.putInt(offset, checksum(buffer, offset, HEADER_SIZE + payload.length));
+            writeOffset = record.position();
+            maxSeq = Math.max(maxSeq, seq);
+            return offset;
+        }
+
+        byte[] readPayload(int offset) throws IOException {
+            ByteBuffer records = buffer;
+            int recordOffset = offset;
+            if (records == null) {
+                int length = read(offset, HEADER_SIZE).getInt(LENGTH_OFFSET);
+                if (length < 0 || length > channel.size() - offset - HEADER_SIZE) {
+                    throw new CorruptLogFileException();
+                }
+                records = read(offset, HEADER_SIZE + length);
+                recordOffset = 0;
+            }
+            if (!isValidRecordAt(records, recordOffset)) {
+                throw new CorruptLogFileException();
+            }
+            ByteBuffer record = records.duplicate();
+            record.position(recordOffset + HEADER_SIZE);
+            byte[] payload = new byte[records.getInt(recordOffset + LENGTH_OFFSET)];
+            record.get(payload);
+            return payload;
+        }
+
+        long readVersion(int offset) throws IOException {
+            if (buffer == null) {
+                return read(offset, HEADER_SIZE).getLong(VERSION_OFFSET);
+            }
+            return buffer.getLong(offset + VERSION_OFFSET);
+        }
+
+        private ByteBuffer read(int offset, int size) throws IOException {
+            ByteBuffer bytes = ByteBuffer.allocate(size);
+            long position = offset;
+            while (bytes.hasRemaining()) {
+                int read = channel.read(bytes, position);
+                if (read < 0) {
+                    throw new CorruptLogFileException();
+                }
+                position += read;
+            }
+            bytes.flip();
+            return bytes;
+        }
+
+        // The remaining accessors are only used while replaying, when the segment is mapped.
+
+        byte readType(int offset) {
+            return buffer.get(offset + TYPE_OFFSET);
+        }
+
+        long readSeq(int offset) {
+            return buffer.getLong(offset + SEQ_OFFSET);
+        }
+
+        int readRecordSize(int offset) {
+            return HEADER_SIZE + buffer.getInt(offset + LENGTH_OFFSET);
+        }
+
+        boolean hasRecordAt(int offset) {
+            return buffer.capacity() - offset >= HEADER_SIZE && readType(offset) != END_OF_SEGMENT;
+        }
+
+        boolean isValidRecordAt(int offset) {
+            return isValidRecordAt(buffer, offset);
+        }
+
+        void zeroFrom(int offset) {
+            if (isZeroFrom(offset)) {
+                return;
+            }
+            ByteBuffer tail = buffer.duplicate();
+            tail.position(offset);
+            while (tail.hasRemaining()) {
+                tail.put(ZEROS, 0, Math.min(ZEROS.length, tail.remaining()));
+            }
+            buffer.force();
+        }
+
+        private boolean isZeroFrom(int offset) {
+            int i = offset;
+            for (; i + Long.BYTES <= buffer.capacity(); i += Long.BYTES) {
+                if (buffer.getLong(i) != 0) {
+                    return false;
+                }
+            }
+            for (; i < buffer.capacity(); i++) {
+                if (buffer.get(i) != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void force() {
+            if (buffer != null) {
+                buffer.force();
+            }
+        }
+
+        private static boolean isValidRecordAt(ByteBuffer records, int offset) {
+            byte type = records.get(offset + TYPE_OFFSET);
+            if (type != ROUND && type != TRUNCATE) {
+                return false;
+            }
+            int length = records.getInt(offset + LENGTH_OFFSET);
+            if (length < 0 || length > records.capacity() - offset - HEADER_SIZE) {
+                return false;
+            }
+            return records.getInt(offset) == checksum(records, offset, HEADER_SIZE + length);
+        }
+
+        private static int checksum(ByteBuffer records, int offset, int recordSize) {
+            ByteBuffer covered = records.duplicate();
+            covered.limit(offset + recordSize);
+            covered.position(offset + CRC_SIZE);
+            CRC32 crc = new CRC32();
+            crc.update(covered);
+            return (int) crc.getValue();
+        }
+    }
+}
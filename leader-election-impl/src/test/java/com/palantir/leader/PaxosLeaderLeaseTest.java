@@ -0,0 +1,204 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.leader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.net.HostAndPort;
+import com.palantir.common.concurrent.PTExecutors;
+import com.palantir.leader.LeaderElectionService.LeadershipToken;
+import com.palantir.leader.LeaderElectionService.StillLeadingStatus;
+import com.palantir.paxos.BooleanPaxosResponse;
+import com.palantir.paxos.PaxosAcceptor;
+import com.palantir.paxos.PaxosAcceptorImpl;
+import com.palantir.paxos.PaxosAcceptorState;
+import com.palantir.paxos.PaxosLearner;
+import com.palantir.paxos.PaxosLearnerImpl;
+import com.palantir.paxos.PaxosPromise;
+import com.palantir.paxos.PaxosProposal;
+import com.palantir.paxos.PaxosProposalId;
+import com.palantir.paxos.PaxosProposer;
+import com.palantir.paxos.PaxosProposerImpl;
+import com.palantir.paxos.PaxosRoundFailureException;
+import com.palantir.paxos.PaxosStateLogImpl;
+import com.palantir.paxos.PaxosValue;
+
+public class PaxosLeaderLeaseTest {
+    private static final int NUM_NODES = 3;
+    private static final int QUORUM_SIZE = 2;
+    // Long enough that the background renewal never runs during a test.
+    private static final long LEASE_DURATION_MS = 60_000L;
+    private static final long MAX_CLOCK_DRIFT_MS = 1_000L;
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger leadershipConfirmations = new AtomicInteger();
+    private final ExecutorService executor = PTExecutors.newCachedThreadPool();
+    private final List<PaxosAcceptor> acceptors = Lists.newArrayList();
+    private final List<PaxosLearner> learners = Lists.newArrayList();
+
+    private PaxosLeaderElectionService leader;
+
+    @Before
+    public void setUp() throws Exception {
+        for (int i = 0; i < NUM_NODES; i++) {
+            acceptors.add(new CountingAcceptor(PaxosAcceptorImpl.newAcceptor(
+                    new PaxosStateLogImpl<PaxosAcceptorState>(tempFolder.newFolder().getPath()),
+                    LEASE_DURATION_MS,
+                    clock::get)));
+            learners.add(PaxosLearnerImpl.newLearner(tempFolder.newFolder().getPath()));
+        }
+        leader = new PaxosLeaderElectionServiceBuilder()
+                .proposer(createProposer(0))
+                .knowledge(learners.get(0))
+                .potentialLeadersToHosts(ImmutableMap.<PingableLeader, HostAndPort>of())
+                .acceptors(acceptors)
+                .learners(learners)
+                .executor(executor)
+                .pingRateMs(0L)
+                .randomWaitBeforeProposingLeadershipMs(0L)
+                .leaderPingResponseWaitMs(0L)
+                .leaseDurationMs(LEASE_DURATION_MS)
+                .maxClockDriftMs(MAX_CLOCK_DRIFT_MS)
+                .nanoClock(clock::get)
+                .build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        leader.close();
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void newAcceptorsWaitOutALeaseBeforePromising() throws Exception {
+        assertThatThrownBy(() -> createProposer(1).propose(0L, null)).isInstanceOf(PaxosRoundFailureException.class);
+
+        advanceClockMs(LEASE_DURATION_MS);
+
+        createProposer(1).propose(0L, null);
+    }
+
+    @Test
+    public void leadershipChecksWithinTheLeaseDoNotContactAcceptors() throws Exception {
+        LeadershipToken token = becomeLeader();
+        leadershipConfirmations.set(0);
+
+        advanceClockMs(LEASE_DURATION_MS - MAX_CLOCK_DRIFT_MS - 1);
+
+        assertThat(leader.isStillLeading(token)).isEqualTo(StillLeadingStatus.LEADING);
+        assertThat(leadershipConfirmations.get()).isZero();
+    }
+
+    @Test
+    public void leadershipChecksAfterTheLeaseLessDriftContactAcceptors() throws Exception {
+        LeadershipToken token = becomeLeader();
+        leadershipConfirmations.set(0);
+
+        advanceClockMs(LEASE_DURATION_MS - MAX_CLOCK_DRIFT_MS);
+
+        assertThat(leader.isStillLeading(token)).isEqualTo(StillLeadingStatus.LEADING);
+        assertThat(leadershipConfirmations.get()).isGreaterThanOrEqualTo(QUORUM_SIZE);
+    }
+
+    @Test
+    public void acceptorsRejectNewerRoundsUntilTheirLeaseExpires() throws Exception {
+        becomeLeader();
+        long nextRound = learners.get(0).getGreatestLearnedValue().getRound() + 1;
+
+        advanceClockMs(LEASE_DURATION_MS - 1);
+        assertThatThrownBy(() -> createProposer(1).propose(nextRound, null))
+                .isInstanceOf(PaxosRoundFailureException.class);
+
+        advanceClockMs(1);
+        createProposer(1).propose(nextRound, null);
+    }
+
+    @Test
+    public void leaseIsNotTrustedOnceANewerValueIsLearned() throws Exception {
+        LeadershipToken token = becomeLeader();
+        long nextRound = learners.get(0).getGreatestLearnedValue().getRound() + 1;
+
+        learners.get(0).learn(nextRound, new PaxosValue(UUID.randomUUID().toString(), nextRound, null));
+
+        assertThat(leader.isStillLeading(token)).isEqualTo(StillLeadingStatus.NOT_LEADING);
+    }
+
+    private LeadershipToken becomeLeader() throws InterruptedException {
+        advanceClockMs(LEASE_DURATION_MS);
+        LeadershipToken token = leader.blockOnBecomingLeader();
+        assertThat(leader.isStillLeading(token)).isEqualTo(StillLeadingStatus.LEADING);
+        return token;
+    }
+
+    private PaxosProposer createProposer(int node) {
+        return PaxosProposerImpl.newProposer(
+                learners.get(node),
+                ImmutableList.copyOf(acceptors),
+                ImmutableList.copyOf(learners),
+                QUORUM_SIZE,
+                UUID.randomUUID(),
+                executor);
+    }
+
+    private void advanceClockMs(long millis) {
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    private final class CountingAcceptor implements PaxosAcceptor {
+        private final PaxosAcceptor delegate;
+
+        CountingAcceptor(PaxosAcceptor delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public PaxosPromise prepare(long seq, PaxosProposalId pid) {
+            return delegate.prepare(seq, pid);
+        }
+
+        @Override
+        public BooleanPaxosResponse accept(long seq, PaxosProposal proposal) {
+            return delegate.accept(seq, proposal);
+        }
+
+        @Override
+        public long getLatestSequencePreparedOrAccepted() {
+            leadershipConfirmations.incrementAndGet();
+            return delegate.getLatestSequencePreparedOrAccepted();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.paxos;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+public class PaxosAcceptorImplTest {
+    private static final long LEASE_DURATION_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void leaderConfirmationDuringAPrepareSeesThePromisedSequence() throws Exception {
+        CountDownLatch promising = new CountDownLatch(1);
+        CountDownLatch confirmed = new CountDownLatch(1);
+        // Pauses a prepare after it has checked the lease but before it makes its promise, until the confirmation
+        // has finished or, if the confirmation has to wait for the prepare, for long enough to tell.
+        ConcurrentSkipListMap<Long, PaxosAcceptorState> state = new ConcurrentSkipListMap<Long, PaxosAcceptorState>() {
+            @Override
+            public PaxosAcceptorState putIfAbsent(Long seq, PaxosAcceptorState acceptorState) {
+                promising.countDown();
+                Uninterruptibles.awaitUninterruptibly(confirmed, 500, TimeUnit.MILLISECONDS);
+                return super.putIfAbsent(seq, acceptorState);
+            }
+        };
+        AtomicLong clock = new AtomicLong();
+        PaxosAcceptor acceptor = new PaxosAcceptorImpl(
+                state,
+                new PaxosStateLogImpl<>(folder.newFolder().getPath()),
+                PaxosAcceptor.NO_LOG_ENTRY,
+                LEASE_DURATION_NANOS,
+                clock::get);
+        clock.addAndGet(LEASE_DURATION_NANOS);
+
+        Future<PaxosPromise> promise = executor.submit(
+                () -> acceptor.prepare(0L, new PaxosProposalId(1L, UUID.randomUUID().toString())));
+        assertThat(promising.await(10, TimeUnit.SECONDS)).isTrue();
+        Future<Long> latestSequence = executor.submit(() -> {
+            long latest = acceptor.getLatestSequencePreparedOrAccepted();
+            confirmed.countDown();
+            return latest;
+        });
+
+        assertThat(promise.get().isSuccessful()).isTrue();
+        assertThat(latestSequence.get()).isEqualTo(0L);
+    }
+}
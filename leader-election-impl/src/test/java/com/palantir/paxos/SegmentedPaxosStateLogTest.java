@@ -0,0 +1,270 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.paxos;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Lists;
+
+public class SegmentedPaxosStateLogTest {
+    private static final int SMALL_SEGMENT_SIZE = 512;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String path;
+
+    @Before
+    public void setUp() throws IOException {
+        path = folder.newFolder().getPath();
+    }
+
+    @Test
+    public void newLogIsEmpty() throws IOException {
+        SegmentedPaxosStateLog<PaxosValue> log = SegmentedPaxosStateLog.create(path);
+
+        assertThat(log.getGreatestLogEntry()).isEqualTo(PaxosAcceptor.NO_LOG_ENTRY);
+        assertThat(log.getLeastLogEntry()).isEqualTo(PaxosAcceptor.NO_LOG_ENTRY);
+        assertThat(log.readRound(0)).isNull();
+    }
+
+    @Test
+    public void readsBackWrittenRounds() throws IOException {
+        SegmentedPaxosStateLog<PaxosValue> log = SegmentedPaxosStateLog.create(path);
+        log.writeRound(0, value(0));
+        log.writeRound(5, value(5));
+
+        assertRound(log, 0);
+        assertRound(log, 5);
+        assertThat(log.readRound(3)).isNull();
+        assertThat(log.getGreatestLogEntry()).isEqualTo(5);
+        assertThat(log.getLeastLogEntry()).isEqualTo(PaxosAcceptor.NO_LOG_ENTRY);
+    }
+
+    @Test
+    public void rejectsRoundsWithAnOlderVersion() throws IOException {
+        SegmentedPaxosStateLog<PaxosAcceptorState> log = SegmentedPaxosStateLog.create(path);
+        PaxosAcceptorState promised = PaxosAcceptorState.newState(new PaxosProposalId(2, "a"));
+        PaxosAcceptorState accepted = promised.withState(
+                new PaxosProposalId(2, "a"), new PaxosProposalId(2, "a"), value(1));
+        log.writeRound(1, accepted);
+        log.writeRound(1, promised);
+
+        assertThat(log.readRound(1)).isEqualTo(accepted.persistToBytes());
+    }
+
+    @Test
+    public void recoversRoundsAcrossSegmentsAfterReopening() throws IOException {
+        SegmentedPaxosStateLog<PaxosValue> log = SegmentedPaxosStateLog.create(path, SMALL_SEGMENT_SIZE);
+        for (long seq = 0; seq < 100; seq++) {
+            log.writeRound(seq, value(seq));
+        }
+        log.close();
+        assertThat(log.getSegmentCount()).isGreaterThan(1);
+
+        SegmentedPaxosStateLog<PaxosValue> reopened = SegmentedPaxosStateLog.create(path, SMALL_SEGMENT_SIZE);
+        for (long seq = 0; seq < 100; seq++) {
+            assertRound(reopened, seq);
+        }
+        assertThat(reopened.getGreatestLogEntry()).isEqualTo(99);
+        reopened.writeRound(100, value(100));
+        assertRound(reopened, 100);
+    }
+
+    @Test
+    public void readsRoundsFromFullSegments() throws IOException {
+        SegmentedPaxosStateLog<PaxosAcceptorState> log = SegmentedPaxosStateLog.create(path, SMALL_SEGMENT_SIZE);
+        PaxosAcceptorState promised = PaxosAcceptorState.newState(new PaxosProposalId(2, "a"));
+        PaxosAcceptorState accepted = promised.withState(
+                new PaxosProposalId(2, "a"), new PaxosProposalId(2, "a"), value(1));
+        log.writeRound(0, accepted);
+        for (long seq = 1; seq < 50; seq++) {
+            log.writeRound(seq, promised);
+        }
+        assertThat(log.getSegmentCount()).isGreaterThan(1);
+
+        log.writeRound(0, promised);
+
+        assertThat(log.readRound(0)).isEqualTo(accepted.persistToBytes());
+        assertThat(log.readRound(1)).isEqualTo(promised.persistToBytes());
+    }
+
+    @Test
+    public void truncateHidesRoundsDropsSegmentsAndSurvivesReopening() throws IOException {
+        SegmentedPaxosStateLog<PaxosValue> log = SegmentedPaxosStateLog.create(path, SMALL_SEGMENT_SIZE);
+        for (long seq = 0; seq < 100; seq++) {
+            log.writeRound(seq, value(seq));
+        }
+        int segmentsBeforeTruncation = log.getSegmentCount();
+
+        log.truncate(49);
+
+        assertThat(log.getSegmentCount()).isLessThan(segmentsBeforeTruncation);
+        assertThat(log.getLeastLogEntry()).isEqualTo(50);
+        assertThat(log.readRound(49)).isNull();
+        assertRound(log, 50);
+        log.close();
+
+        SegmentedPaxosStateLog<PaxosValue> reopened = SegmentedPaxosStateLog.create(path, SMALL_SEGMENT_SIZE);
+        assertThat(reopened.getLeastLogEntry()).isEqualTo(50);
+        assertThat(reopened.readRound(49)).isNull();
+        assertRound(reopened, 50);
+    }
+
+    @Test
+    public void truncateKeepsTheGreatestEntry() throws IOException {
+        SegmentedPaxosStateLog<PaxosValue> log = SegmentedPaxosStateLog.create(path);
+        log.writeRound(0, value(0));
+        log.writeRound(1, value(1));
+
+        log.truncate(1);
+
+        assertThat(log.getLeastLogEntry()).isEqualTo(1);
+        assertThat(log.getGreatestLogEntry()).isEqualTo(1);
+        assertRound(log, 1);
+    }
+
+    @Test
+    public void discardsTornRecordAtTheEndOfTheLog() throws IOException {
+        SegmentedPaxosStateLog<PaxosValue> log = SegmentedPaxosStateLog.create(path);
+        log.writeRound(0, value(0));
+        log.writeRound(1, value(1));
+        log.close();
+
+        int secondRecordOffset = SegmentedPaxosStateLog.HEADER_SIZE + value(0).persistToBytes().length;
+        corruptByteAt(secondRecordOffset + SegmentedPaxosStateLog.HEADER_SIZE);
+
+        SegmentedPaxosStateLog<PaxosValue> reopened = SegmentedPaxosStateLog.create(path);
+        assertRound(reopened, 0);
+        assertThat(reopened.readRound(1)).isNull();
+        assertThat(reopened.getGreatestLogEntry()).isEqualTo(0);
+
+        reopened.writeRound(2, value(2));
+        reopened.close();
+        assertRound(SegmentedPaxosStateLog.create(path), 2);
+    }
+
+    @Test
+    public void corruptionOutsideTheLastSegmentFailsStartup() throws IOException {
+        SegmentedPaxosStateLog<PaxosValue> log = SegmentedPaxosStateLog.create(path, SMALL_SEGMENT_SIZE);
+        for (long seq = 0; seq < 100; seq++) {
+            log.writeRound(seq, value(seq));
+        }
+        log.close();
+
+        corruptByteAt(SegmentedPaxosStateLog.HEADER_SIZE);
+
+        assertThatThrownBy(() -> SegmentedPaxosStateLog.create(path, SMALL_SEGMENT_SIZE))
+                .hasCauseInstanceOf(PaxosStateLog.CorruptLogFileException.class);
+    }
+
+    @Test
+    public void migratesLegacyLog() throws IOException {
+        PaxosStateLogImpl<PaxosValue> legacyLog = new PaxosStateLogImpl<>(path);
+        for (long seq = 0; seq < 10; seq++) {
+            legacyLog.writeRound(seq, value(seq));
+        }
+        legacyLog.truncate(3);
+
+        SegmentedPaxosStateLog<PaxosValue> log = SegmentedPaxosStateLog.create(path);
+
+        assertThat(log.getLeastLogEntry()).isEqualTo(4);
+        assertThat(log.getGreatestLogEntry()).isEqualTo(9);
+        assertThat(log.readRound(3)).isNull();
+        for (long seq = 4; seq < 10; seq++) {
+            assertRound(log, seq);
+        }
+        assertThat(new PaxosStateLogImpl<PaxosValue>(path).getGreatestLogEntry())
+                .as("legacy files are moved out of the way")
+                .isEqualTo(PaxosAcceptor.NO_LOG_ENTRY);
+        assertThat(new File(path, SegmentedPaxosStateLog.LEGACY_BACKUP_DIRECTORY).list()).contains("9");
+    }
+
+    @Test
+    public void migratesUntruncatedLegacyLog() throws IOException {
+        PaxosStateLogImpl<PaxosValue> legacyLog = new PaxosStateLogImpl<>(path);
+        legacyLog.writeRound(0, value(0));
+
+        SegmentedPaxosStateLog<PaxosValue> log = SegmentedPaxosStateLog.create(path);
+
+        assertThat(log.getLeastLogEntry()).isEqualTo(PaxosAcceptor.NO_LOG_ENTRY);
+        assertThat(log.getGreatestLogEntry()).isEqualTo(0);
+        assertRound(log, 0);
+    }
+
+    @Test
+    public void concurrentWritesAreAllRecorded() throws Exception {
+        SegmentedPaxosStateLog<PaxosValue> log = SegmentedPaxosStateLog.create(path, SMALL_SEGMENT_SIZE);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = Lists.newArrayList();
+            for (int thread = 0; thread < 8; thread++) {
+                long firstSeq = thread * 50;
+                futures.add(executor.submit(() -> {
+                    for (long seq = firstSeq; seq < firstSeq + 50; seq++) {
+                        log.writeRound(seq, value(seq));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        log.close();
+
+        SegmentedPaxosStateLog<PaxosValue> reopened = SegmentedPaxosStateLog.create(path, SMALL_SEGMENT_SIZE);
+        for (long seq = 0; seq < 400; seq++) {
+            assertRound(reopened, seq);
+        }
+    }
+
+    private void corruptByteAt(int offset) throws IOException {
+        File segment = new File(new File(path, SegmentedPaxosStateLog.SEGMENT_DIRECTORY),
+                String.format("%019d.segment", 0));
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.seek(offset);
+            int original = file.read();
+            file.seek(offset);
+            file.write(original ^ 0xFF);
+        }
+    }
+
+    private static void assertRound(PaxosStateLog<PaxosValue> log, long seq) throws IOException {
+        byte[] bytes = log.readRound(seq);
+        assertThat(bytes).isNotNull();
+        assertThat(PaxosValue.BYTES_HYDRATOR.hydrateFromBytes(bytes)).isEqualTo(value(seq));
+    }
+
+    private static PaxosValue value(long seq) {
+        return new PaxosValue("leader", seq, new byte[] {(byte) seq});
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock;
+
+import javax.annotation.concurrent.Immutable;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+
+/**
+ * A change to whether the write lock on a watched row is held, and the version at which {@link LockWatchService}
+ * logged it. A frozen lock is reported as held.
+ */
+@Immutable
+public final class LockWatchEvent {
+    private final long version;
+    private final LockDescriptor descriptor;
+    private final boolean locked;
+
+    @JsonCreator
+    public LockWatchEvent(
+            @JsonProperty("version") long version,
+            @JsonProperty("descriptor") LockDescriptor descriptor,
+            @JsonProperty("locked") boolean locked) {
+        this.version = version;
+        this.descriptor = descriptor;
+        this.locked = locked;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public LockDescriptor getDescriptor() {
+        return descriptor;
+    }
+
+    /** Whether the write lock was held once the change was made. */
+    public boolean isLocked() {
+        return locked;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        LockWatchEvent other = (LockWatchEvent) obj;
+        return version == other.version
+                && locked == other.locked
+                && descriptor.equals(other.descriptor);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(version, descriptor, locked);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(getClass().getSimpleName())
+                .add("version", version)
+                .add("descriptor", descriptor)
+                .add("locked", locked)
+                .toString();
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import javax.annotation.concurrent.Immutable;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * The result of a {@link LockWatchRequest}. This is either a snapshot of the write locks currently held on the
+ * watched tables, which replaces everything the client knew about them, or the changes to those locks since the
+ * version the client asked from, in the order they were logged. Either way, the client has seen every change up to
+ * {@link #getVersion()} once it has applied the result.
+ */
+@Immutable
+public final class LockWatchEvents {
+    private final UUID logId;
+    private final long version;
+    private final boolean snapshot;
+    private final ImmutableSet<LockDescriptor> lockedDescriptors;
+    private final ImmutableList<LockWatchEvent> events;
+
+    @JsonCreator
+    public LockWatchEvents(
+            @JsonProperty("logId") UUID logId,
+            @JsonProperty("version") long version,
+            @JsonProperty("snapshot") boolean snapshot,
+            @JsonProperty("lockedDescriptors") Set<LockDescriptor> lockedDescriptors,
+            @JsonProperty("events") List<LockWatchEvent> events) {
+        this.logId = logId;
+        this.version = version;
+        this.snapshot = snapshot;
+        this.lockedDescriptors = (lockedDescriptors == null)
+                ? ImmutableSet.of()
+                : ImmutableSet.copyOf(lockedDescriptors);
+        this.events = (events == null) ? ImmutableList.of() : ImmutableList.copyOf(events);
+    }
+
+    public static LockWatchEvents snapshot(UUID logId, long version, Set<LockDescriptor> lockedDescriptors) {
+        return new LockWatchEvents(logId, version, true, lockedDescriptors, ImmutableList.of());
+    }
+
+    public static LockWatchEvents changes(UUID logId, long version, List<LockWatchEvent> events) {
+        return new LockWatchEvents(logId, version, false, ImmutableSet.of(), events);
+    }
+
+    /** Identifies the log of changes; this changes whenever the lock service restarts. */
+    public UUID getLogId() {
+        return logId;
+    }
+
+    /** The version of the last change logged when the result was created. */
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isSnapshot() {
+        return snapshot;
+    }
+
+    /** For a snapshot, the watched rows whose write locks are held or frozen; otherwise empty. */
+    public Set<LockDescriptor> getLockedDescriptors() {
+        return lockedDescriptors;
+    }
+
+    /** For changes, the changes to the watched rows, in the order they were logged; otherwise empty. */
+    public List<LockWatchEvent> getEvents() {
+        return events;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(getClass().getSimpleName())
+                .add("logId", logId)
+                .add("version", version)
+                .add("snapshot", snapshot)
+                .add("lockedDescriptors", lockedDescriptors)
+                .add("events", events)
+                .toString();
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock;
+
+import java.util.Set;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * A request to {@link LockWatchService}: the tables whose row locks to watch, and the log and version of the last
+ * change to those locks that the client has seen, if any.
+ */
+@Immutable
+public final class LockWatchRequest {
+    private final ImmutableSet<String> tableNames;
+    @Nullable
+    private final UUID logId;
+    private final long lastKnownVersion;
+
+    @JsonCreator
+    public LockWatchRequest(
+            @JsonProperty("tableNames") Set<String> tableNames,
+            @JsonProperty("logId") @Nullable UUID logId,
+            @JsonProperty("lastKnownVersion") long lastKnownVersion) {
+        this.tableNames = ImmutableSet.copyOf(tableNames);
+        this.logId = logId;
+        this.lastKnownVersion = lastKnownVersion;
+    }
+
+    /** Requests a snapshot of the locks held on the given tables, and starts watching them. */
+    public static LockWatchRequest startWatching(Set<String> tableNames) {
+        return new LockWatchRequest(tableNames, null, 0L);
+    }
+
+    /** The fully qualified names of the watched tables. */
+    public Set<String> getTableNames() {
+        return tableNames;
+    }
+
+    /** The log the client has seen changes from, or null if it has not seen any yet. */
+    @Nullable
+    public UUID getLogId() {
+        return logId;
+    }
+
+    /** The version of the last change the client has seen. */
+    public long getLastKnownVersion() {
+        return lastKnownVersion;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        LockWatchRequest other = (LockWatchRequest) obj;
+        return lastKnownVersion == other.lastKnownVersion
+                && tableNames.equals(other.tableNames)
+                && Objects.equal(logId, other.logId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(tableNames, logId, lastKnownVersion);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(getClass().getSimpleName())
+                .add("tableNames", tableNames)
+                .add("logId", logId)
+                .add("lastKnownVersion", lastKnownVersion)
+                .toString();
+    }
+}
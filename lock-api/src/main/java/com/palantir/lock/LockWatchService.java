@@ -0,0 +1,38 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock;
+
+/**
+ * Reports changes to the write locks held on the rows of watched tables, identified by
+ * {@link AtlasRowLockDescriptor}s, so that a client can cache the contents of those rows and drop them whenever they
+ * may have been written.
+ * <p>
+ * Every change to whether such a lock is held is logged with a version which increases over the life of the log. A
+ * client first asks for a snapshot of the locks currently held on its tables, which also starts watching those
+ * tables, and then polls for the changes after the last version it has seen. A change is logged after a write lock
+ * is granted, and before the lock request returns, and after it is released; a client which has seen every change up
+ * to some version therefore knows of every lock that was held on its tables at that version.
+ * <p>
+ * The log only keeps a bounded number of recent changes, and is lost when the lock service restarts. In either case
+ * the client is sent a fresh snapshot instead of the changes it asked for.
+ */
+public interface LockWatchService {
+    /**
+     * Returns the changes to the write locks on the tables named in the request since the version in the request, or
+     * a snapshot of the locks currently held on those tables if those changes are not available.
+     */
+    LockWatchEvents getLockWatchEvents(LockWatchRequest request);
+}
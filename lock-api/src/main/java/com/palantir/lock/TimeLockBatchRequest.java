@@ -0,0 +1,87 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock;
+
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.concurrent.Immutable;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+
+/**
+ * A request to {@link TimeLockBatchService}: the number of fresh timestamps wanted by each client, and the lock
+ * tokens each client wants refreshed.
+ */
+@Immutable
+public final class TimeLockBatchRequest {
+    private final ImmutableMap<String, Integer> timestampRequests;
+    private final ImmutableMap<String, ImmutableSet<LockRefreshToken>> lockRefreshRequests;
+
+    @JsonCreator
+    public TimeLockBatchRequest(
+            @JsonProperty("timestampRequests") Map<String, Integer> timestampRequests,
+            @JsonProperty("lockRefreshRequests") Map<String, ? extends Set<LockRefreshToken>> lockRefreshRequests) {
+        this.timestampRequests = (timestampRequests == null)
+                ? ImmutableMap.of()
+                : ImmutableMap.copyOf(timestampRequests);
+        this.lockRefreshRequests = (lockRefreshRequests == null)
+                ? ImmutableMap.of()
+                : ImmutableMap.copyOf(Maps.transformValues(lockRefreshRequests, tokens -> ImmutableSet.copyOf(tokens)));
+    }
+
+    /** The number of fresh timestamps requested, by client. */
+    public Map<String, Integer> getTimestampRequests() {
+        return timestampRequests;
+    }
+
+    /** The tokens to refresh, by client. */
+    public Map<String, ImmutableSet<LockRefreshToken>> getLockRefreshRequests() {
+        return lockRefreshRequests;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        TimeLockBatchRequest other = (TimeLockBatchRequest) obj;
+        return timestampRequests.equals(other.timestampRequests)
+                && lockRefreshRequests.equals(other.lockRefreshRequests);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(timestampRequests, lockRefreshRequests);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(getClass().getSimpleName())
+                .add("timestampRequests", timestampRequests)
+                .add("lockRefreshRequests", lockRefreshRequests)
+                .toString();
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock;
+
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.concurrent.Immutable;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.palantir.timestamp.TimestampRange;
+
+/**
+ * The result of a {@link TimeLockBatchRequest}: a fresh timestamp range for each client that asked for timestamps,
+ * and for each client that asked for refreshes, the subset of its tokens that were still valid after refreshing.
+ */
+@Immutable
+public final class TimeLockBatchResponse {
+    private final ImmutableMap<String, TimestampRange> timestamps;
+    private final ImmutableMap<String, ImmutableSet<LockRefreshToken>> refreshedTokens;
+
+    @JsonCreator
+    public TimeLockBatchResponse(
+            @JsonProperty("timestamps") Map<String, TimestampRange> timestamps,
+            @JsonProperty("refreshedTokens") Map<String, ? extends Set<LockRefreshToken>> refreshedTokens) {
+        this.timestamps = (timestamps == null) ? ImmutableMap.of() : ImmutableMap.copyOf(timestamps);
+        this.refreshedTokens = (refreshedTokens == null)
+                ? ImmutableMap.of()
+                : ImmutableMap.copyOf(Maps.transformValues(refreshedTokens, tokens -> ImmutableSet.copyOf(tokens)));
+    }
+
+    /**
+     * A fresh range of timestamps, by client. Each range has at least one timestamp, but may be smaller than
+     * requested.
+     */
+    public Map<String, TimestampRange> getTimestamps() {
+        return timestamps;
+    }
+
+    /** The tokens that are still valid after being refreshed, by client. */
+    public Map<String, ImmutableSet<LockRefreshToken>> getRefreshedTokens() {
+        return refreshedTokens;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(getClass().getSimpleName())
+                .add("timestamps", timestamps)
+                .add("refreshedTokens", refreshedTokens)
+                .toString();
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+/**
+ * Serves timestamp and lock refresh requests for many timelock clients in a single call. Unlike the per-client
+ * endpoints, this is served from the root of the timelock server rather than under a client namespace, so the
+ * namespace {@value #BATCH_NAMESPACE} is reserved.
+ */
+@Path("/" + TimeLockBatchService.BATCH_NAMESPACE)
+public interface TimeLockBatchService {
+    String BATCH_NAMESPACE = "batch";
+
+    /**
+     * Fetches fresh timestamps and refreshes lock tokens for every client named in the request. The whole batch
+     * fails if any client is unknown to the server.
+     */
+    @POST // This has to be POST because we can't allow caching.
+    @Path("timestamps-and-lock-refreshes")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    TimeLockBatchResponse run(TimeLockBatchRequest request);
+}
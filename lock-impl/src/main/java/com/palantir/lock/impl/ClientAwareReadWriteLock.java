@@ -35,4 +35,7 @@ public interface ClientAwareReadWriteLock {
 
     /** Returns {@code true} iff the lock is in a frozen state. */
     boolean isFrozen();
+
+    /** Returns {@code true} iff some client holds the write lock, or the lock is in a frozen state. */
+    boolean isWriteLockedOrFrozen();
 }
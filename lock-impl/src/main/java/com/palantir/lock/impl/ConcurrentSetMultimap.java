@@ -0,0 +1,79 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.impl;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.SetMultimap;
+
+/**
+ * A set multimap backed by a concurrent hash map of concurrent sets.
+ * <p>
+ * Unlike {@link com.google.common.collect.Multimaps#synchronizedSetMultimap}, updates for different keys never
+ * contend on a shared monitor; the only locking is the per-bin locking done by {@link ConcurrentHashMap#compute},
+ * which keeps removal of a key's last value atomic with respect to concurrent puts for that key. Reads are weakly
+ * consistent.
+ */
+@ThreadSafe
+final class ConcurrentSetMultimap<K, V> {
+    private final ConcurrentMap<K, Set<V>> map = new ConcurrentHashMap<>();
+
+    void put(K key, V value) {
+        map.compute(key, (unused, values) -> {
+            Set<V> result = (values == null) ? ConcurrentHashMap.newKeySet() : values;
+            result.add(value);
+            return result;
+        });
+    }
+
+    void remove(K key, Object value) {
+        map.computeIfPresent(key, (unused, values) -> {
+            values.remove(value);
+            return values.isEmpty() ? null : values;
+        });
+    }
+
+    /**
+     * Returns an unmodifiable, weakly consistent view of the values for the given key.
+     */
+    Set<V> get(K key) {
+        Set<V> values = map.get(key);
+        return (values == null) ? Collections.emptySet() : Collections.unmodifiableSet(values);
+    }
+
+    int size() {
+        int size = 0;
+        for (Set<V> values : map.values()) {
+            size += values.size();
+        }
+        return size;
+    }
+
+    SetMultimap<K, V> snapshot() {
+        SetMultimap<K, V> snapshot = HashMultimap.create();
+        for (Map.Entry<K, Set<V>> entry : map.entrySet()) {
+            snapshot.putAll(entry.getKey(), entry.getValue());
+        }
+        return snapshot;
+    }
+}
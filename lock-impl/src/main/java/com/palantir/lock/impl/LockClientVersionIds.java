@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.impl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.palantir.lock.LockClient;
+
+/**
+ * Tracks, for each client, the multiset of version ids of its held lock tokens, so that the minimum can be found
+ * without scanning. Updates for a client are serialized by {@link ConcurrentHashMap#compute} on that client's entry;
+ * reads of the minimum take no lock.
+ */
+@ThreadSafe
+final class LockClientVersionIds {
+    private final ConcurrentMap<LockClient, ConcurrentSkipListMap<Long, Integer>> countsByClient =
+            new ConcurrentHashMap<>();
+
+    void add(LockClient client, long versionId) {
+        countsByClient.compute(client, (unused, counts) -> {
+            ConcurrentSkipListMap<Long, Integer> result = (counts == null) ? new ConcurrentSkipListMap<>() : counts;
+            result.merge(versionId, 1, Integer::sum);
+            return result;
+        });
+    }
+
+    void remove(LockClient client, long versionId) {
+        countsByClient.computeIfPresent(client, (unused, counts) -> {
+            counts.computeIfPresent(versionId, (id, count) -> (count == 1) ? null : count - 1);
+            return counts.isEmpty() ? null : counts;
+        });
+    }
+
+    @Nullable
+    Long getMin(LockClient client) {
+        ConcurrentSkipListMap<Long, Integer> counts = countsByClient.get(client);
+        if (counts == null) {
+            return null;
+        }
+        Map.Entry<Long, Integer> min = counts.firstEntry();
+        return (min == null) ? null : min.getKey();
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.impl;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.palantir.lock.ExpiringToken;
+
+/**
+ * A hierarchical timing wheel of tokens waiting to expire, replacing a priority queue ordered by expiration date.
+ * <p>
+ * Each level is a ring of buckets, each covering one tick of that level, and each level's tick is a whole turn of the
+ * level below. A token is added to the bucket of the lowest level whose turn reaches its expiration date, so adding a
+ * token takes constant time whatever the number of tokens. As time passes, the buckets of the lowest level are
+ * drained, and a bucket of a higher level is spread over the levels below when its tick begins; a token moves down
+ * at most once per level. Tokens are never removed or moved when refreshed: whoever polls an expired token should
+ * check whether it has been refreshed since it was added, and if so add the refreshed token back.
+ * <p>
+ * Adding tokens only takes the read side of a lock, so tokens are added concurrently; polling takes the write side.
+ */
+@ThreadSafe
+final class LockExpiryWheel<T extends ExpiringToken> {
+    private static final int BUCKETS_PER_LEVEL = 64;
+    private static final int LEVELS = 6;
+
+    private final long[] levelTickMillis = new long[LEVELS];
+    private final List<List<Queue<T>>> levels = Lists.newArrayListWithCapacity(LEVELS);
+    private final Queue<T> expired = new ConcurrentLinkedQueue<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicInteger size = new AtomicInteger();
+
+    /** The start of the tick of the lowest level which has not yet passed. */
+    @GuardedBy("lock")
+    private long currentTickMillis;
+
+    LockExpiryWheel(long tickMillis, long startMillis) {
+        Preconditions.checkArgument(tickMillis > 0, "tickMillis must be positive, was %s", tickMillis);
+        long levelTick = tickMillis;
+        for (int level = 0; level < LEVELS; level++) {
+            levelTickMillis[level] = levelTick;
+            levelTick *= BUCKETS_PER_LEVEL;
+            List<Queue<T>> buckets = Lists.newArrayListWithCapacity(BUCKETS_PER_LEVEL);
+            for (int bucket = 0; bucket < BUCKETS_PER_LEVEL; bucket++) {
+                buckets.add(new ConcurrentLinkedQueue<>());
+            }
+            levels.add(buckets);
+        }
+        currentTickMillis = startMillis - Math.floorMod(startMillis, tickMillis);
+    }
+
+    long getTickMillis() {
+        return levelTickMillis[0];
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    void add(T token) {
+        lock.readLock().lock();
+        try {
+            size.incrementAndGet();
+            place(token);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes and returns every token which expired before the given time, in no particular order. A token may be
+     * returned up to one tick of the lowest level after it expired, but never before.
+     */
+    List<T> pollExpired(long nowMillis) {
+        List<T> result = Lists.newArrayList();
+        lock.writeLock().lock();
+        try {
+            drainTo(expired, result);
+            while (currentTickMillis + levelTickMillis[0] <= nowMillis) {
+                drainTo(bucket(0, currentTickMillis), result);
+                currentTickMillis += levelTickMillis[0];
+                // Higher levels first, as their tokens may land in the bucket of a lower level starting now.
+                for (int level = LEVELS - 1; level > 0; level--) {
+                    if (Math.floorMod(currentTickMillis, levelTickMillis[level]) == 0) {
+                        Queue<T> bucket = bucket(level, currentTickMillis);
+                        for (T token = bucket.poll(); token != null; token = bucket.poll()) {
+                            place(token);
+                        }
+                    }
+                }
+                drainTo(expired, result);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        size.addAndGet(-result.size());
+        return result;
+    }
+
+    @GuardedBy("lock")
+    private void place(T token) {
+        long expirationMillis = token.getExpirationDateMs();
+        if (expirationMillis < currentTickMillis) {
+            expired.add(token);
+            return;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            long tick = levelTickMillis[level];
+            long levelStart = currentTickMillis - Math.floorMod(currentTickMillis, tick);
+            long levelEnd = levelStart + tick * BUCKETS_PER_LEVEL;
+            if (expirationMillis < levelEnd) {
+                bucket(level, expirationMillis).add(token);
+                return;
+            }
+        }
+        // Beyond the last turn of the highest level, so wait in its furthest bucket and be placed again from there.
+        long tick = levelTickMillis[LEVELS - 1];
+        long levelStart = currentTickMillis - Math.floorMod(currentTickMillis, tick);
+        bucket(LEVELS - 1, levelStart + tick * (BUCKETS_PER_LEVEL - 1)).add(token);
+    }
+
+    private Queue<T> bucket(int level, long timeMillis) {
+        return levels.get(level).get((int) Math.floorMod(timeMillis / levelTickMillis[level], BUCKETS_PER_LEVEL));
+    }
+
+    private static <T> void drainTo(Queue<T> queue, List<T> result) {
+        for (T token = queue.poll(); token != null; token = queue.poll()) {
+            result.add(token);
+        }
+    }
+}
@@ -58,6 +58,11 @@ public class LockServerLock implements ClientAwareReadWriteLock {
         return sync.isFrozen();
     }
 
+    @Override
+    public boolean isWriteLockedOrFrozen() {
+        return sync.isWriteLockedOrFrozen();
+    }
+
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(getClass().getSimpleName())
@@ -225,6 +225,10 @@ class LockServerSync extends AbstractQueuedSynchronizer {
         return frozen;
     }
 
+    synchronized boolean isWriteLockedOrFrozen() {
+        return getState() > 0 || frozen;
+    }
+
     @Override
     public synchronized String toString() {
         return MoreObjects.toStringHelper(getClass().getSimpleName())
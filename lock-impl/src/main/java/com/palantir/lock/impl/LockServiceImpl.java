@@ -24,17 +24,17 @@ import static com.palantir.lock.LockGroupBehavior.LOCK_AS_MANY_AS_POSSIBLE;
 import java.io.Closeable;
 import java.io.IOException;
 import java.math.BigInteger;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -56,7 +56,6 @@ import com.google.common.base.Supplier;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
-import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.ImmutableSortedMap.Builder;
@@ -64,11 +63,7 @@ import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.MapMaker;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Multimap;
-import com.google.common.collect.Multimaps;
-import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
-import com.google.common.collect.TreeMultiset;
 import com.palantir.common.base.Throwables;
 import com.palantir.common.concurrent.NamedThreadFactory;
 import com.palantir.common.concurrent.PTExecutors;
@@ -78,7 +73,6 @@ import com.palantir.lock.BlockingMode;
 import com.palantir.lock.ExpiringToken;
 import com.palantir.lock.HeldLocksGrant;
 import com.palantir.lock.HeldLocksToken;
-import com.palantir.lock.HeldLocksTokens;
 import com.palantir.lock.LockClient;
 import com.palantir.lock.LockCollection;
 import com.palantir.lock.LockCollections;
@@ -90,6 +84,9 @@ import com.palantir.lock.LockRequest;
 import com.palantir.lock.LockResponse;
 import com.palantir.lock.LockServerOptions;
 import com.palantir.lock.LockService;
+import com.palantir.lock.LockWatchEvents;
+import com.palantir.lock.LockWatchRequest;
+import com.palantir.lock.LockWatchService;
 import com.palantir.lock.RemoteLockService;
 import com.palantir.lock.SimpleHeldLocksToken;
 import com.palantir.lock.SimpleTimeDuration;
@@ -105,7 +102,8 @@ import com.palantir.util.JMXUtils;
  *
  * @author jtamer
  */
-@ThreadSafe public final class LockServiceImpl implements LockService, RemoteLockService, LockServiceImplMBean, Closeable {
+@ThreadSafe public final class LockServiceImpl
+        implements LockService, RemoteLockService, LockWatchService, LockServiceImplMBean, Closeable {
 
     private static final Logger log = LoggerFactory.getLogger(LockServiceImpl.class);
     private static final Logger requestLogger = LoggerFactory.getLogger("lock.request");
@@ -168,6 +166,12 @@ import com.palantir.util.JMXUtils;
     public static final int SECURE_RANDOM_POOL_SIZE = 100;
     private final SecureRandomPool randomPool = new SecureRandomPool(SECURE_RANDOM_ALGORITHM, SECURE_RANDOM_POOL_SIZE);
 
+    /**
+     * Token and grant ids are drawn from a per-thread SecureRandom seeded from the pool, so that issuing an id
+     * never contends on a shared generator or counter.
+     */
+    private final ThreadLocal<SecureRandom> tokenIdRandom = ThreadLocal.withInitial(this::newSeededSecureRandom);
+
     private final boolean isStandaloneServer;
     private final long slowLogTriggerMillis;
     private final TimeDuration maxAllowedLockTimeout;
@@ -199,34 +203,34 @@ import com.palantir.util.JMXUtils;
     private final ConcurrentMap<HeldLocksGrant, HeldLocks<HeldLocksGrant>> heldLocksGrantMap =
             new MapMaker().makeMap();
 
-    /** The priority queue of lock tokens waiting to be reaped. */
-    private final BlockingQueue<HeldLocksToken> lockTokenReaperQueue =
-            new PriorityBlockingQueue<HeldLocksToken>(1, ExpiringToken.COMPARATOR);
+    /** The timing wheel of lock tokens waiting to be reaped. */
+    private final LockExpiryWheel<HeldLocksToken> lockTokenExpiryWheel =
+            new LockExpiryWheel<>(REAPER_TICK_MILLIS, System.currentTimeMillis());
 
-    /** The priority queue of lock grants waiting to be reaped. */
-    private final BlockingQueue<HeldLocksGrant> lockGrantReaperQueue =
-            new PriorityBlockingQueue<HeldLocksGrant>(1, ExpiringToken.COMPARATOR);
+    /** The timing wheel of lock grants waiting to be reaped. */
+    private final LockExpiryWheel<HeldLocksGrant> lockGrantExpiryWheel =
+            new LockExpiryWheel<>(REAPER_TICK_MILLIS, System.currentTimeMillis());
 
     /** The mapping from lock client to the set of tokens held by that client. */
-    private final SetMultimap<LockClient, HeldLocksToken> lockClientMultimap =
-            Multimaps.synchronizedSetMultimap(HashMultimap.<LockClient, HeldLocksToken>create());
+    private final ConcurrentSetMultimap<LockClient, HeldLocksToken> lockClientMultimap =
+            new ConcurrentSetMultimap<>();
 
-    private final SetMultimap<LockClient, LockRequest> outstandingLockRequestMultimap =
-        Multimaps.synchronizedSetMultimap(HashMultimap.<LockClient, LockRequest>create());
+    private final ConcurrentSetMultimap<LockClient, LockRequest> outstandingLockRequestMultimap =
+            new ConcurrentSetMultimap<>();
 
     private final Set<Thread> indefinitelyBlockingThreads =
             Sets.newConcurrentHashSet();
 
-    private final Multimap<LockClient, Long> versionIdMap = Multimaps.synchronizedMultimap(
-            Multimaps.newMultimap(Maps.<LockClient, Collection<Long>>newHashMap(), new Supplier<TreeMultiset<Long>>() {
-                @Override
-                public TreeMultiset<Long> get() {
-                    return TreeMultiset.create();
-                }
-            }));
+    private final LockClientVersionIds versionIds = new LockClientVersionIds();
 
     private static final AtomicInteger instanceCount = new AtomicInteger();
+    private static final long REAPER_TICK_MILLIS = 100;
+    private static final SortedLockCollection<LockDescriptor> FAKE_REFRESH_LOCK_SET = LockCollections.of(
+            ImmutableSortedMap.of(StringLockDescriptor.of("refreshLockRefreshTokens"), LockMode.READ));
     private static final int MAX_FAILED_LOCKS_TO_LOG = 20;
+    private static final int MAX_LOCK_WATCH_EVENTS = 10_000;
+
+    private final LockWatchEventLog lockWatchEventLog = new LockWatchEventLog(MAX_LOCK_WATCH_EVENTS);
 
     /** Creates a new lock server instance with default options. */
     // TODO (jtamer) read lock server options from a prefs file
@@ -263,26 +267,38 @@ import com.palantir.util.JMXUtils;
         slowLogTriggerMillis = options.slowLogTriggerMillis();
         executor.execute(() -> {
             Thread.currentThread().setName("Held Locks Token Reaper");
-            reapLocks(lockTokenReaperQueue, heldLocksTokenMap);
+            reapLocks(lockTokenExpiryWheel, heldLocksTokenMap);
         });
         executor.execute(() -> {
             Thread.currentThread().setName("Held Locks Grant Reaper");
-            reapLocks(lockGrantReaperQueue, heldLocksGrantMap);
+            reapLocks(lockGrantExpiryWheel, heldLocksGrantMap);
         });
     }
 
+    private SecureRandom newSeededSecureRandom() {
+        byte[] seed = new byte[20];
+        randomPool.getSecureRandom().nextBytes(seed);
+        try {
+            SecureRandom random = SecureRandom.getInstance(SECURE_RANDOM_ALGORITHM); // (authorized)
+            random.setSeed(seed);
+            return random;
+        } catch (NoSuchAlgorithmException e) {
+            throw Throwables.rewrapAndThrowUncheckedException(e);
+        }
+    }
+
     private HeldLocksToken createHeldLocksToken(LockClient client,
             SortedLockCollection<LockDescriptor> lockDescriptorMap,
             LockCollection<? extends ClientAwareReadWriteLock> heldLocksMap, TimeDuration lockTimeout,
             @Nullable Long versionId, String requestThread) {
         while (true) {
-            BigInteger tokenId = new BigInteger(randomBitCount, randomPool.getSecureRandom());
+            BigInteger tokenId = new BigInteger(randomBitCount, tokenIdRandom.get());
             long expirationDateMs = currentTimeMillis() + lockTimeout.toMillis();
             HeldLocksToken token = new HeldLocksToken(tokenId, client, currentTimeMillis(),
                     expirationDateMs, lockDescriptorMap, lockTimeout, versionId, requestThread);
             HeldLocks<HeldLocksToken> heldLocks = HeldLocks.of(token, heldLocksMap);
             if (heldLocksTokenMap.putIfAbsent(token, heldLocks) == null) {
-                lockTokenReaperQueue.add(token);
+                lockTokenExpiryWheel.add(token);
                 if (!client.isAnonymous()) {
                     lockClientMultimap.put(client, token);
                 }
@@ -298,13 +314,13 @@ import com.palantir.util.JMXUtils;
             LockCollection<? extends ClientAwareReadWriteLock> heldLocksMap, TimeDuration lockTimeout,
             @Nullable Long versionId) {
         while (true) {
-            BigInteger grantId = new BigInteger(randomBitCount, randomPool.getSecureRandom());
+            BigInteger grantId = new BigInteger(randomBitCount, tokenIdRandom.get());
             long expirationDateMs = currentTimeMillis() + lockTimeout.toMillis();
             HeldLocksGrant grant = new HeldLocksGrant(grantId, System.currentTimeMillis(),
                     expirationDateMs, lockDescriptorMap, lockTimeout, versionId);
             HeldLocks<HeldLocksGrant> newHeldLocks = HeldLocks.of(grant, heldLocksMap);
             if (heldLocksGrantMap.putIfAbsent(grant, newHeldLocks) == null) {
-                lockGrantReaperQueue.add(grant);
+                lockGrantExpiryWheel.add(grant);
                 return grant;
             }
             log.error("Lock ID collision! The RANDOM_BIT_COUNT constant must be increased. "
@@ -408,10 +424,11 @@ import com.palantir.util.JMXUtils;
                 lockDescriptorMap.put(entry.getKey().getDescriptor(), entry.getValue());
             }
             if (request.getVersionId() != null) {
-                versionIdMap.put(client, request.getVersionId());
+                versionIds.add(client, request.getVersionId());
             }
             HeldLocksToken token = createHeldLocksToken(client, LockCollections.of(lockDescriptorMap.build()), LockCollections.of(locks),
                     request.getLockTimeout(), request.getVersionId(), request.getCreatingThreadName());
+            lockWatchEventLog.logChanges(locks.entrySet());
             locks.clear();
             if (log.isTraceEnabled()) {
                 log.trace(".lock({}, {}) returns {}", client, request, token);
@@ -450,7 +467,6 @@ import com.palantir.util.JMXUtils;
             throws InterruptedException {
         String previousThreadName = null;
         try {
-            previousThreadName = updateThreadName(request);
             for (Entry<LockDescriptor, LockMode> entry : request.getLockDescriptors().entries()) {
                 if (blockingMode == BlockingMode.BLOCK_INDEFINITELY_THEN_RELEASE
                         && !descriptorToLockMap.asMap().containsKey(entry.getKey())) {
@@ -468,8 +484,16 @@ import com.palantir.util.JMXUtils;
                     continue;
                 }
                 long startTime = System.currentTimeMillis();
-                @Nullable LockClient currentHolder = tryLock(lock.get(client, entry.getValue()),
-                        blockingMode, deadline);
+                KnownClientLock clientLock = lock.get(client, entry.getValue());
+                // Most locks are uncontended, so try to grab the lock before paying for the thread rename that
+                // only matters to someone looking at a blocked thread.
+                @Nullable LockClient currentHolder = clientLock.tryLock();
+                if (currentHolder != null && blockingMode != DO_NOT_BLOCK) {
+                    if (previousThreadName == null) {
+                        previousThreadName = updateThreadName(request);
+                    }
+                    currentHolder = tryLock(clientLock, blockingMode, deadline);
+                }
                 if (log.isDebugEnabled() || isSlowLogEnabled()) {
                     long responseTimeMillis = System.currentTimeMillis() - startTime;
                     logSlowLockAcquisition(entry.getKey().toString(), currentHolder, responseTimeMillis);
@@ -572,14 +596,14 @@ import com.palantir.util.JMXUtils;
         LockClient client = heldLocks.realToken.getClient();
         if (client.isAnonymous()) {
             heldLocksTokenMap.put(token, heldLocks);
-            lockTokenReaperQueue.add(token);
+            lockTokenExpiryWheel.add(token);
             log.warn(UNLOCK_AND_FREEZE_FROM_ANONYMOUS_CLIENT, heldLocks.realToken);
             throw new IllegalArgumentException(
                     MessageFormatter.format(UNLOCK_AND_FREEZE_FROM_ANONYMOUS_CLIENT, heldLocks.realToken).getMessage());
         }
         if (heldLocks.locks.hasReadLock()) {
             heldLocksTokenMap.put(token, heldLocks);
-            lockTokenReaperQueue.add(token);
+            lockTokenExpiryWheel.add(token);
             log.warn(UNLOCK_AND_FREEZE, heldLocks.realToken);
             throw new IllegalArgumentException(
                     MessageFormatter.format(UNLOCK_AND_FREEZE, heldLocks.realToken).getMessage());
@@ -589,7 +613,7 @@ import com.palantir.util.JMXUtils;
         }
         lockClientMultimap.remove(client, token);
         if (heldLocks.realToken.getVersionId() != null) {
-            versionIdMap.remove(client, heldLocks.realToken.getVersionId());
+            versionIds.remove(client, heldLocks.realToken.getVersionId());
         }
         if (log.isTraceEnabled()) {
             log.trace(".unlockAndFreeze({}) returns true", token);
@@ -618,12 +642,20 @@ import com.palantir.util.JMXUtils;
         for (Entry<? extends ClientAwareReadWriteLock, LockMode> entry : heldLocks.locks.entries()) {
             entry.getKey().get(client, entry.getValue()).unlock();
         }
+        lockWatchEventLog.logChanges(heldLocks.locks.entries());
         if (heldLocks.realToken.getVersionId() != null) {
-            versionIdMap.remove(client, heldLocks.realToken.getVersionId());
+            versionIds.remove(client, heldLocks.realToken.getVersionId());
         }
         return true;
     }
 
+    @Override
+    public LockWatchEvents getLockWatchEvents(LockWatchRequest request) {
+        Preconditions.checkNotNull(request);
+        // Every held lock is strongly referenced by its token or grant, so is still in the map.
+        return lockWatchEventLog.getEvents(request, descriptorToLockMap.asMap().values());
+    }
+
     @Override
     public Set<HeldLocksToken> getTokens(LockClient client) {
         Preconditions.checkNotNull(client);
@@ -633,12 +665,10 @@ import com.palantir.util.JMXUtils;
             throw new IllegalArgumentException("Illegal client!");
         }
         ImmutableSet.Builder<HeldLocksToken> tokens = ImmutableSet.builder();
-        synchronized (lockClientMultimap) {
-            for (HeldLocksToken token : lockClientMultimap.get(client)) {
-                @Nullable HeldLocks<HeldLocksToken> heldLocks = heldLocksTokenMap.get(token);
-                if ((heldLocks != null) && !isFrozen(heldLocks.locks.getKeys())) {
-                    tokens.add(token);
-                }
+        for (HeldLocksToken token : lockClientMultimap.get(client)) {
+            @Nullable HeldLocks<HeldLocksToken> heldLocks = heldLocksTokenMap.get(token);
+            if ((heldLocks != null) && !isFrozen(heldLocks.locks.getKeys())) {
+                tokens.add(token);
             }
         }
         ImmutableSet<HeldLocksToken> tokenSet = tokens.build();
@@ -652,8 +682,9 @@ import com.palantir.util.JMXUtils;
     public Set<HeldLocksToken> refreshTokens(Iterable<HeldLocksToken> tokens) {
         Preconditions.checkNotNull(tokens);
         ImmutableSet.Builder<HeldLocksToken> refreshedTokens = ImmutableSet.builder();
+        long now = currentTimeMillis();
         for (HeldLocksToken token : tokens) {
-            @Nullable HeldLocksToken refreshedToken = refreshToken(token);
+            @Nullable HeldLocksToken refreshedToken = refreshToken(token, now);
             if (refreshedToken != null) {
                 refreshedTokens.add(refreshedToken);
             }
@@ -668,30 +699,38 @@ import com.palantir.util.JMXUtils;
 
     @Override
     public Set<LockRefreshToken> refreshLockRefreshTokens(Iterable<LockRefreshToken> tokens) {
-        List<HeldLocksToken> fakeTokens = Lists.newArrayList();
-        LockDescriptor fakeLockDesc = StringLockDescriptor.of("refreshLockRefreshTokens");
-        SortedLockCollection<LockDescriptor> fakeLockSet = LockCollections.of(ImmutableSortedMap.of(fakeLockDesc, LockMode.READ));
+        // The whole batch is refreshed in one pass, as of one time. Tokens are only looked up by id, so each is looked
+        // up with the same placeholder locks.
+        ImmutableSet.Builder<LockRefreshToken> refreshedTokens = ImmutableSet.builder();
+        long now = currentTimeMillis();
         for (LockRefreshToken token : tokens) {
-            fakeTokens.add(new HeldLocksToken(
+            HeldLocksToken fakeToken = new HeldLocksToken(
                     token.getTokenId(),
                     LockClient.ANONYMOUS,
                     0L,
                     0L,
-                    fakeLockSet,
+                    FAKE_REFRESH_LOCK_SET,
                     maxAllowedLockTimeout,
                     0L,
-                    "UnknownThread-refreshLockRefreshTokens"));
+                    "UnknownThread-refreshLockRefreshTokens");
+            @Nullable HeldLocksToken refreshedToken = refreshToken(fakeToken, now);
+            if (refreshedToken != null) {
+                refreshedTokens.add(refreshedToken.getLockRefreshToken());
+            }
         }
-        return ImmutableSet.copyOf(Iterables.transform(refreshTokens(fakeTokens), HeldLocksTokens.getRefreshTokenFun()));
+        return refreshedTokens.build();
     }
 
-    @Nullable private HeldLocksToken refreshToken(HeldLocksToken token) {
+    /**
+     * Refreshes a token as of the given time. Refreshing only replaces the token held in {@link #heldLocksTokenMap};
+     * the reaper finds the new expiration date there when the token's old one passes.
+     */
+    @Nullable private HeldLocksToken refreshToken(HeldLocksToken token, long now) {
         Preconditions.checkNotNull(token);
         @Nullable HeldLocks<HeldLocksToken> heldLocks = heldLocksTokenMap.get(token);
         if ((heldLocks == null) || isFrozen(heldLocks.locks.getKeys())) {
             return null;
         }
-        long now = currentTimeMillis();
         long expirationDateMs = now
                 + heldLocks.realToken.getLockTimeout().toMillis();
         heldLocksTokenMap.replace(token, heldLocks, new HeldLocks<HeldLocksToken>(
@@ -776,7 +815,7 @@ import com.palantir.util.JMXUtils;
         }
         if (isFrozen(heldLocks.locks.getKeys())) {
             heldLocksTokenMap.put(token, heldLocks);
-            lockTokenReaperQueue.add(token);
+            lockTokenExpiryWheel.add(token);
             log.warn("Cannot convert to grant because token is frozen: {}", token);
             throw new IllegalArgumentException("token is frozen: " + token);
         }
@@ -785,7 +824,7 @@ import com.palantir.util.JMXUtils;
                     INTERNAL_LOCK_GRANT_CLIENT);
         } catch (IllegalMonitorStateException e) {
             heldLocksTokenMap.put(token, heldLocks);
-            lockTokenReaperQueue.add(token);
+            lockTokenExpiryWheel.add(token);
             log.warn("Failure converting {} to grant", token, e);
             throw e;
         }
@@ -896,20 +935,14 @@ import com.palantir.util.JMXUtils;
 
     @Override
     @Nullable public Long getMinLockedInVersionId(LockClient client) {
-        Long versionId = null;
-        synchronized (versionIdMap) {
-            Collection<Long> versionsForClient = versionIdMap.get(client);
-            if (versionsForClient != null && !versionsForClient.isEmpty()) {
-                versionId = versionsForClient.iterator().next();
-            }
-        }
+        Long versionId = versionIds.getMin(client);
         if (log.isTraceEnabled()) {
             log.trace(".getMinLockedInVersionId() returns {}", versionId);
         }
         return versionId;
     }
 
-    private <T extends ExpiringToken> void reapLocks(BlockingQueue<T> queue,
+    private <T extends ExpiringToken> void reapLocks(LockExpiryWheel<T> expiryWheel,
             ConcurrentMap<T, HeldLocks<T>> heldLocksMap) {
         while (true) {
             // shutdownNow() sends interrupt signal to the running threads to terminate them.
@@ -920,36 +953,20 @@ import com.palantir.util.JMXUtils;
                 break;
             }
             try {
-                T token = null;
                 try {
-                    token = queue.take();
-                    long sleepTimeMs = token.getExpirationDateMs() - currentTimeMillis()
-                            + maxAllowedClockDrift.toMillis();
-                    if (sleepTimeMs > 0) {
-                        Thread.sleep(sleepTimeMs);
-                    }
+                    Thread.sleep(expiryWheel.getTickMillis());
                 } catch (InterruptedException e) {
                     if (isShutDown) {
                         break;
                     } else {
                         log.warn("The lock server reaper thread should not be " +
                                 "interrupted if the server is not shutting down.", e);
-                        if (token == null) {
-                            continue;
-                        }
                     }
                 }
-                @Nullable HeldLocks<T> heldLocks = heldLocksMap.get(token);
-                if (heldLocks == null) {
-                    continue;
-                }
-                T realToken = heldLocks.realToken;
-                if (realToken.getExpirationDateMs() > currentTimeMillis()
-                        - maxAllowedClockDrift.toMillis()) {
-                    queue.add(realToken);
-                } else {
-                    log.warn("Lock token {} was not properly refreshed and is now being reaped.", realToken);
-                    unlockInternal(realToken, heldLocksMap);
+                // Tokens are only added to the wheel with the expiration date they were created or last reaped
+                // with, so any refreshed since then are added back with their new one.
+                for (T token : expiryWheel.pollExpired(currentTimeMillis() - maxAllowedClockDrift.toMillis())) {
+                    reapOrReschedule(token, expiryWheel, heldLocksMap);
                 }
             } catch (Throwable t) {
                 log.error("Something went wrong while reaping locks. Attempting to continue anyway.", t);
@@ -957,6 +974,28 @@ import com.palantir.util.JMXUtils;
         }
     }
 
+    private <T extends ExpiringToken> void reapOrReschedule(T token,
+            LockExpiryWheel<T> expiryWheel,
+            ConcurrentMap<T, HeldLocks<T>> heldLocksMap) {
+        try {
+            @Nullable HeldLocks<T> heldLocks = heldLocksMap.get(token);
+            if (heldLocks == null) {
+                return;
+            }
+            T realToken = heldLocks.realToken;
+            if (realToken.getExpirationDateMs() > currentTimeMillis()
+                    - maxAllowedClockDrift.toMillis()) {
+                expiryWheel.add(realToken);
+            } else {
+                log.warn("Lock token {} was not properly refreshed and is now being reaped.", realToken);
+                unlockInternal(realToken, heldLocksMap);
+            }
+        } catch (Throwable t) {
+            log.error("Something went wrong while reaping lock token {}. Attempting to continue anyway.", token, t);
+            expiryWheel.add(token);
+        }
+    }
+
     @Override
     public LockServerOptions getLockServerOptions() {
         LockServerOptions options = new LockServerOptions() {
@@ -1003,7 +1042,7 @@ import com.palantir.util.JMXUtils;
     private void logAllHeldAndOutstandingLocks() throws IOException {
         LockServiceStateLogger lockServiceStateLogger = new LockServiceStateLogger(
                 heldLocksTokenMap,
-                outstandingLockRequestMultimap,
+                outstandingLockRequestMultimap.snapshot(),
                 lockStateLoggerDir);
         lockServiceStateLogger.logLocks();
     }
@@ -1018,12 +1057,12 @@ import com.palantir.util.JMXUtils;
         logString.append("randomBitCount = ").append(randomBitCount).append("\n");
 
         logString.append("descriptorToLockMap.size = ").append(descriptorToLockMap.size()).append("\n");
-        logString.append("outstandingLockRequestMultimap.size = ").append(descriptorToLockMap.size()).append("\n");
+        logString.append("outstandingLockRequestMultimap.size = ").append(outstandingLockRequestMultimap.size())
+                .append("\n");
         logString.append("heldLocksTokenMap.size = ").append(heldLocksTokenMap.size()).append("\n");
         logString.append("heldLocksGrantMap.size = ").append(heldLocksGrantMap.size()).append("\n");
-        logString.append("lockTokenReaperQueue.size = ").append(lockTokenReaperQueue.size()).append("\n");
-        logString.append("lockGrantReaperQueue.size = ").append(lockGrantReaperQueue.size()).append("\n");
-        logString.append("lockClientMultimap.size = ").append(lockClientMultimap.size()).append("\n");
+        logString.append("lockTokenExpiryWheel.size = ").append(lockTokenExpiryWheel.size()).append("\n");
+        logString.append("lockGrantExpiryWheel.size = ").append(lockGrantExpiryWheel.size()).append("\n");
         logString.append("lockClientMultimap.size = ").append(lockClientMultimap.size()).append("\n");
 
         return logString;
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.impl;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.palantir.lock.LockDescriptor;
+import com.palantir.lock.LockMode;
+import com.palantir.lock.LockWatchEvent;
+import com.palantir.lock.LockWatchEvents;
+import com.palantir.lock.LockWatchRequest;
+
+/**
+ * The log of changes to the write locks on rows of watched tables behind {@link LockServiceImpl}'s
+ * {@link com.palantir.lock.LockWatchService}.
+ * <p>
+ * Rather than logging what a change was, each change logs whether the lock is held once the log's monitor has been
+ * taken. As changes are logged one at a time after the lock changes, the last change logged for a lock is always
+ * its current state, however the threads that grant and release it interleave. Tables are watched from the first
+ * snapshot requested for them until the lock service shuts down.
+ */
+@ThreadSafe
+final class LockWatchEventLog {
+    private final UUID logId = UUID.randomUUID();
+    private final int maxEvents;
+    private final Set<String> watchedTables = Sets.newConcurrentHashSet();
+
+    @GuardedBy("this")
+    private final Deque<LoggedEvent> events = new ArrayDeque<>();
+    @GuardedBy("this")
+    private long version = 0;
+    @GuardedBy("this")
+    private long lastDiscardedVersion = 0;
+
+    LockWatchEventLog(int maxEvents) {
+        Preconditions.checkArgument(maxEvents > 0, "maxEvents must be positive, was %s", maxEvents);
+        this.maxEvents = maxEvents;
+    }
+
+    /**
+     * Logs the current state of any of the given locks which are write locks on rows of watched tables. This must be
+     * called after the locks are granted or released.
+     */
+    void logChanges(Iterable<? extends Entry<? extends ClientAwareReadWriteLock, LockMode>> locks) {
+        if (watchedTables.isEmpty()) {
+            return;
+        }
+        List<ClientAwareReadWriteLock> watchedLocks = null;
+        List<String> tableNames = null;
+        for (Entry<? extends ClientAwareReadWriteLock, LockMode> entry : locks) {
+            if (entry.getValue() != LockMode.WRITE) {
+                continue;
+            }
+            String tableName = getWatchedTableName(entry.getKey().getDescriptor());
+            if (tableName != null) {
+                if (watchedLocks == null) {
+                    watchedLocks = Lists.newArrayList();
+                    tableNames = Lists.newArrayList();
+                }
+                watchedLocks.add(entry.getKey());
+                tableNames.add(tableName);
+            }
+        }
+        if (watchedLocks == null) {
+            return;
+        }
+        synchronized (this) {
+            for (int i = 0; i < watchedLocks.size(); i++) {
+                ClientAwareReadWriteLock lock = watchedLocks.get(i);
+                LockWatchEvent event = new LockWatchEvent(
+                        ++version, lock.getDescriptor(), lock.isWriteLockedOrFrozen());
+                events.addLast(new LoggedEvent(tableNames.get(i), event));
+                if (events.size() > maxEvents) {
+                    lastDiscardedVersion = events.removeFirst().event.getVersion();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the changes the request asks for if they are still in the log; otherwise starts watching the requested
+     * tables and returns a snapshot of which of the given locks are held on them.
+     */
+    synchronized LockWatchEvents getEvents(LockWatchRequest request,
+                                           Iterable<? extends ClientAwareReadWriteLock> allLocks) {
+        Set<String> requestedTables = request.getTableNames();
+        if (logId.equals(request.getLogId())
+                && watchedTables.containsAll(requestedTables)
+                && request.getLastKnownVersion() >= lastDiscardedVersion
+                && request.getLastKnownVersion() <= version) {
+            return LockWatchEvents.changes(logId, version,
+                    getEventsAfter(request.getLastKnownVersion(), requestedTables));
+        }
+        // Tables must be watched before the locks are read; see logChanges.
+        watchedTables.addAll(requestedTables);
+        ImmutableSet.Builder<LockDescriptor> lockedDescriptors = ImmutableSet.builder();
+        for (ClientAwareReadWriteLock lock : allLocks) {
+            String tableName = getTableName(lock.getDescriptor());
+            if (tableName != null && requestedTables.contains(tableName) && lock.isWriteLockedOrFrozen()) {
+                lockedDescriptors.add(lock.getDescriptor());
+            }
+        }
+        return LockWatchEvents.snapshot(logId, version, lockedDescriptors.build());
+    }
+
+    @GuardedBy("this")
+    private List<LockWatchEvent> getEventsAfter(long lastKnownVersion, Set<String> tableNames) {
+        List<LockWatchEvent> result = Lists.newArrayList();
+        for (Iterator<LoggedEvent> iter = events.descendingIterator(); iter.hasNext();) {
+            LoggedEvent loggedEvent = iter.next();
+            if (loggedEvent.event.getVersion() <= lastKnownVersion) {
+                break;
+            }
+            if (tableNames.contains(loggedEvent.tableName)) {
+                result.add(loggedEvent.event);
+            }
+        }
+        return Lists.reverse(result);
+    }
+
+    @Nullable
+    private String getWatchedTableName(LockDescriptor descriptor) {
+        String tableName = getTableName(descriptor);
+        return tableName != null && watchedTables.contains(tableName) ? tableName : null;
+    }
+
+    /**
+     * Returns the table of a descriptor made by {@link com.palantir.lock.AtlasRowLockDescriptor}, or null if the
+     * descriptor cannot be one.
+     */
+    @Nullable
+    private static String getTableName(LockDescriptor descriptor) {
+        byte[] bytes = descriptor.getBytes();
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == 0) {
+                return new String(bytes, 0, i);
+            }
+        }
+        return null;
+    }
+
+    private static final class LoggedEvent {
+        private final String tableName;
+        private final LockWatchEvent event;
+
+        LoggedEvent(String tableName, LockWatchEvent event) {
+            this.tableName = tableName;
+            this.event = event;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+public class ConcurrentSetMultimapTest {
+    private static final String KEY = "key";
+    private static final String OTHER_KEY = "other-key";
+    private static final int NUM_THREADS = 8;
+    private static final int NUM_ITERATIONS = 10_000;
+
+    private final ConcurrentSetMultimap<String, Integer> multimap = new ConcurrentSetMultimap<>();
+    private final ExecutorService executor = Executors.newFixedThreadPool(NUM_THREADS + 1);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void getReturnsTheValuesPutForAKey() {
+        multimap.put(KEY, 1);
+        multimap.put(KEY, 2);
+        multimap.put(KEY, 2);
+        multimap.put(OTHER_KEY, 3);
+
+        assertThat(multimap.get(KEY)).containsOnly(1, 2);
+        assertThat(multimap.get(OTHER_KEY)).containsOnly(3);
+        assertThat(multimap.size()).isEqualTo(3);
+    }
+
+    @Test
+    public void removingTheLastValueOfAKeyRemovesTheKey() {
+        multimap.put(KEY, 1);
+        multimap.remove(KEY, 1);
+        multimap.remove(OTHER_KEY, 1);
+
+        assertThat(multimap.get(KEY)).isEmpty();
+        assertThat(multimap.size()).isZero();
+        assertThat(multimap.snapshot().isEmpty()).isTrue();
+    }
+
+    @Test
+    public void putsRacingWithRemovalOfTheLastValueAreNotLost() throws Exception {
+        CyclicBarrier start = new CyclicBarrier(NUM_THREADS);
+        List<Future<?>> futures = Lists.newArrayList();
+        for (int thread = 0; thread < NUM_THREADS; thread++) {
+            int threadId = thread;
+            futures.add(executor.submit(() -> {
+                start.await();
+                // Keep the key's set emptying and refilling while the other threads put the values they keep.
+                for (int i = 1; i <= NUM_ITERATIONS; i++) {
+                    int transientValue = threadId * NUM_ITERATIONS + i;
+                    multimap.put(KEY, -transientValue);
+                    multimap.remove(KEY, -transientValue);
+                    if (i == NUM_ITERATIONS / 2) {
+                        multimap.put(KEY, threadId);
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+
+        ImmutableSet.Builder<Integer> expected = ImmutableSet.builder();
+        for (int thread = 0; thread < NUM_THREADS; thread++) {
+            expected.add(thread);
+        }
+        assertThat(multimap.get(KEY)).isEqualTo(expected.build());
+        assertThat(multimap.size()).isEqualTo(NUM_THREADS);
+    }
+
+    @Test
+    public void valuesCanBeReadWhileTheyAreModified() throws Exception {
+        AtomicBoolean done = new AtomicBoolean(false);
+        Future<?> writer = executor.submit(() -> {
+            for (int i = 0; i < NUM_ITERATIONS; i++) {
+                multimap.put(KEY, i);
+                multimap.remove(KEY, i - 1);
+            }
+            done.set(true);
+        });
+        Future<?> reader = executor.submit(() -> {
+            while (!done.get()) {
+                for (Integer value : multimap.get(KEY)) {
+                    assertThat(value).isBetween(0, NUM_ITERATIONS);
+                }
+                multimap.size();
+                multimap.snapshot();
+            }
+        });
+        writer.get(30, TimeUnit.SECONDS);
+        reader.get(30, TimeUnit.SECONDS);
+
+        assertThat(multimap.get(KEY)).containsOnly(NUM_ITERATIONS - 1);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+import com.palantir.lock.LockClient;
+
+public class LockClientVersionIdsTest {
+    private static final LockClient CLIENT = LockClient.of("client");
+    private static final LockClient OTHER_CLIENT = LockClient.of("other-client");
+
+    private final LockClientVersionIds versionIds = new LockClientVersionIds();
+
+    @Test
+    public void minIsNullForUnknownClient() {
+        assertThat(versionIds.getMin(CLIENT)).isNull();
+    }
+
+    @Test
+    public void minIsSmallestHeldVersionId() {
+        versionIds.add(CLIENT, 5L);
+        versionIds.add(CLIENT, 3L);
+        versionIds.add(CLIENT, 7L);
+        versionIds.add(OTHER_CLIENT, 1L);
+
+        assertThat(versionIds.getMin(CLIENT)).isEqualTo(3L);
+        assertThat(versionIds.getMin(OTHER_CLIENT)).isEqualTo(1L);
+    }
+
+    @Test
+    public void versionIdHeldTwiceIsOnlyReleasedByTheSecondRemove() {
+        versionIds.add(CLIENT, 3L);
+        versionIds.add(CLIENT, 3L);
+        versionIds.add(CLIENT, 5L);
+
+        versionIds.remove(CLIENT, 3L);
+        assertThat(versionIds.getMin(CLIENT)).isEqualTo(3L);
+
+        versionIds.remove(CLIENT, 3L);
+        assertThat(versionIds.getMin(CLIENT)).isEqualTo(5L);
+
+        versionIds.remove(CLIENT, 5L);
+        assertThat(versionIds.getMin(CLIENT)).isNull();
+    }
+
+    @Test
+    public void removingUnheldVersionIdIsNoOp() {
+        versionIds.add(CLIENT, 3L);
+        versionIds.remove(CLIENT, 4L);
+        versionIds.remove(OTHER_CLIENT, 3L);
+
+        assertThat(versionIds.getMin(CLIENT)).isEqualTo(3L);
+        assertThat(versionIds.getMin(OTHER_CLIENT)).isNull();
+    }
+}
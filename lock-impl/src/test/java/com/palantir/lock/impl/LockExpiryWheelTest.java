@@ -0,0 +1,112 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.palantir.lock.ExpiringToken;
+import com.palantir.lock.HeldLocksGrant;
+import com.palantir.lock.LockCollections;
+import com.palantir.lock.LockMode;
+import com.palantir.lock.SimpleTimeDuration;
+import com.palantir.lock.StringLockDescriptor;
+
+public class LockExpiryWheelTest {
+    private static final long TICK_MILLIS = 100;
+    private static final long START_MILLIS = 1_000_000;
+
+    private final LockExpiryWheel<HeldLocksGrant> wheel = new LockExpiryWheel<>(TICK_MILLIS, START_MILLIS);
+    private int nextId = 0;
+
+    @Test
+    public void tokenIsOnlyPolledOnceItHasExpired() {
+        HeldLocksGrant token = tokenExpiringAt(START_MILLIS + 250);
+        wheel.add(token);
+
+        assertThat(wheel.pollExpired(START_MILLIS + 250)).isEmpty();
+        assertThat(wheel.pollExpired(START_MILLIS + 300)).containsExactly(token);
+        assertThat(wheel.pollExpired(START_MILLIS + 1000)).isEmpty();
+        assertThat(wheel.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void tokenAddedAfterItExpiredIsPolledNextTime() {
+        HeldLocksGrant token = tokenExpiringAt(START_MILLIS - 1);
+        wheel.add(token);
+
+        assertThat(wheel.size()).isEqualTo(1);
+        assertThat(wheel.pollExpired(START_MILLIS)).containsExactly(token);
+    }
+
+    @Test
+    public void distantTokensMoveDownTheLevelsAndExpireOnTime() {
+        long expirationMillis = START_MILLIS + TimeUnit.HOURS.toMillis(10) + 42;
+        HeldLocksGrant token = tokenExpiringAt(expirationMillis);
+        wheel.add(token);
+
+        assertThat(wheel.pollExpired(expirationMillis)).isEmpty();
+        assertThat(wheel.pollExpired(expirationMillis + TICK_MILLIS)).containsExactly(token);
+    }
+
+    @Test
+    public void tokensAreNeverPolledEarlyNorMoreThanATickLate() {
+        Random random = new Random(0);
+        List<HeldLocksGrant> tokens = Lists.newArrayList();
+        for (int i = 0; i < 10_000; i++) {
+            HeldLocksGrant token = tokenExpiringAt(START_MILLIS + random.nextInt(10_000_000));
+            tokens.add(token);
+            wheel.add(token);
+        }
+        tokens.sort(ExpiringToken.COMPARATOR);
+
+        Set<HeldLocksGrant> polled = Sets.newHashSet();
+        int nextToExpire = 0;
+        for (long now = START_MILLIS; nextToExpire < tokens.size(); now += 1 + random.nextInt(500)) {
+            for (HeldLocksGrant token : wheel.pollExpired(now)) {
+                assertThat(token.getExpirationDateMs()).isLessThan(now);
+                assertThat(polled.add(token)).isTrue();
+            }
+            while (nextToExpire < tokens.size()
+                    && tokens.get(nextToExpire).getExpirationDateMs() < now - TICK_MILLIS) {
+                assertThat(polled).contains(tokens.get(nextToExpire));
+                nextToExpire++;
+            }
+        }
+        assertThat(polled).hasSameSizeAs(tokens);
+        assertThat(wheel.size()).isEqualTo(0);
+    }
+
+    private HeldLocksGrant tokenExpiringAt(long expirationMillis) {
+        return new HeldLocksGrant(
+                BigInteger.valueOf(nextId++),
+                START_MILLIS,
+                expirationMillis,
+                LockCollections.of(ImmutableSortedMap.of(StringLockDescriptor.of("lock"), LockMode.WRITE)),
+                SimpleTimeDuration.of(expirationMillis - START_MILLIS, TimeUnit.MILLISECONDS),
+                null);
+    }
+}
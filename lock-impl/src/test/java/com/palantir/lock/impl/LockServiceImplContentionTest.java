@@ -0,0 +1,137 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Lists;
+import com.palantir.lock.HeldLocksToken;
+import com.palantir.lock.LockClient;
+import com.palantir.lock.LockDescriptor;
+import com.palantir.lock.LockMode;
+import com.palantir.lock.LockRequest;
+import com.palantir.lock.LockResponse;
+import com.palantir.lock.StringLockDescriptor;
+
+public class LockServiceImplContentionTest {
+    private static final int NUM_THREADS = 8;
+    private static final int NUM_ITERATIONS = 500;
+    private static final LockDescriptor SHARED_LOCK = StringLockDescriptor.of("shared");
+
+    private final LockServiceImpl lockService = LockServiceImpl.create();
+    private final ExecutorService executor = Executors.newFixedThreadPool(NUM_THREADS + 1);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        lockService.close();
+    }
+
+    @Test
+    public void writeLocksStayExclusiveWhileManyClientsLockRefreshAndUnlock() throws Exception {
+        AtomicInteger numHolders = new AtomicInteger();
+        CyclicBarrier start = new CyclicBarrier(NUM_THREADS);
+        List<Future<?>> futures = Lists.newArrayList();
+        for (int thread = 0; thread < NUM_THREADS; thread++) {
+            LockClient client = LockClient.of("client-" + thread);
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < NUM_ITERATIONS; i++) {
+                    HeldLocksToken token = lock(client, SHARED_LOCK, LockMode.WRITE);
+                    assertThat(numHolders.incrementAndGet()).isEqualTo(1);
+                    assertThat(lockService.getTokens(client)).containsExactly(token);
+                    assertThat(lockService.refreshTokens(ImmutableSet.of(token))).hasSize(1);
+                    numHolders.decrementAndGet();
+                    assertThat(lockService.unlock(token)).isTrue();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+
+        for (int thread = 0; thread < NUM_THREADS; thread++) {
+            assertThat(lockService.getTokens(LockClient.of("client-" + thread))).isEmpty();
+        }
+        assertThat(tryLock(LockClient.of("another-client"), SHARED_LOCK, LockMode.WRITE).success()).isTrue();
+    }
+
+    @Test
+    public void refreshesHeldTokensWhileOtherClientsLockAndUnlock() throws Exception {
+        LockClient refreshingClient = LockClient.of("refreshing-client");
+        Set<HeldLocksToken> heldTokens = ImmutableSet.of(
+                lock(refreshingClient, StringLockDescriptor.of("held-1"), LockMode.WRITE),
+                lock(refreshingClient, StringLockDescriptor.of("held-2"), LockMode.READ));
+        AtomicBoolean done = new AtomicBoolean(false);
+
+        Future<?> refresher = executor.submit(() -> {
+            while (!done.get()) {
+                assertThat(lockService.refreshTokens(heldTokens)).hasSize(heldTokens.size());
+                assertThat(lockService.getTokens(refreshingClient)).isEqualTo(heldTokens);
+            }
+        });
+        List<Future<?>> futures = Lists.newArrayList();
+        for (int thread = 0; thread < NUM_THREADS; thread++) {
+            LockClient client = LockClient.of("client-" + thread);
+            LockDescriptor descriptor = StringLockDescriptor.of("lock-" + thread % 2);
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < NUM_ITERATIONS; i++) {
+                    assertThat(lockService.unlock(lock(client, descriptor, LockMode.READ))).isTrue();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        done.set(true);
+        refresher.get(60, TimeUnit.SECONDS);
+
+        assertThat(lockService.getTokens(refreshingClient)).isEqualTo(heldTokens);
+        heldTokens.forEach(lockService::unlock);
+        assertThat(lockService.getTokens(refreshingClient)).isEmpty();
+    }
+
+    private HeldLocksToken lock(LockClient client, LockDescriptor descriptor, LockMode mode)
+            throws InterruptedException {
+        HeldLocksToken token = lockService.lockWithFullLockResponse(client,
+                LockRequest.builder(ImmutableSortedMap.of(descriptor, mode)).build()).getToken();
+        assertThat(token).isNotNull();
+        return token;
+    }
+
+    private LockResponse tryLock(LockClient client, LockDescriptor descriptor, LockMode mode)
+            throws InterruptedException {
+        return lockService.lockWithFullLockResponse(client,
+                LockRequest.builder(ImmutableSortedMap.of(descriptor, mode)).doNotBlock().build());
+    }
+}
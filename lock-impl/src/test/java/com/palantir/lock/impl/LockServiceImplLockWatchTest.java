@@ -0,0 +1,125 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import com.palantir.lock.AtlasRowLockDescriptor;
+import com.palantir.lock.LockClient;
+import com.palantir.lock.LockDescriptor;
+import com.palantir.lock.LockMode;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.LockRequest;
+import com.palantir.lock.LockWatchEvent;
+import com.palantir.lock.LockWatchEvents;
+import com.palantir.lock.LockWatchRequest;
+
+public class LockServiceImplLockWatchTest {
+    private static final String WATCHED_TABLE = "ns.watched";
+    private static final Set<String> WATCHED_TABLES = ImmutableSet.of(WATCHED_TABLE);
+    private static final LockDescriptor WATCHED_ROW = row(WATCHED_TABLE, "row");
+    private static final LockDescriptor OTHER_WATCHED_ROW = row(WATCHED_TABLE, "other");
+    private static final LockDescriptor UNWATCHED_ROW = row("ns.unwatched", "row");
+
+    private final LockServiceImpl lockService = LockServiceImpl.create();
+
+    @After
+    public void tearDown() {
+        lockService.close();
+    }
+
+    @Test
+    public void snapshotContainsTheWriteLocksHeldOnWatchedTables() throws InterruptedException {
+        lock(WATCHED_ROW, LockMode.WRITE);
+        lock(OTHER_WATCHED_ROW, LockMode.READ);
+        lock(UNWATCHED_ROW, LockMode.WRITE);
+
+        LockWatchEvents snapshot = lockService.getLockWatchEvents(LockWatchRequest.startWatching(WATCHED_TABLES));
+
+        assertThat(snapshot.isSnapshot()).isTrue();
+        assertThat(snapshot.getLockedDescriptors()).containsExactly(WATCHED_ROW);
+    }
+
+    @Test
+    public void logsLockingAndUnlockingWatchedRows() throws InterruptedException {
+        LockWatchEvents snapshot = lockService.getLockWatchEvents(LockWatchRequest.startWatching(WATCHED_TABLES));
+
+        LockRefreshToken token = lock(WATCHED_ROW, LockMode.WRITE);
+        lockService.unlock(token);
+        LockWatchEvents changes = getChangesSince(snapshot);
+
+        assertThat(changes.isSnapshot()).isFalse();
+        assertThat(changes.getEvents()).containsExactly(
+                new LockWatchEvent(snapshot.getVersion() + 1, WATCHED_ROW, true),
+                new LockWatchEvent(snapshot.getVersion() + 2, WATCHED_ROW, false));
+        assertThat(changes.getVersion()).isEqualTo(snapshot.getVersion() + 2);
+    }
+
+    @Test
+    public void doesNotReportReadLocksOrUnwatchedTables() throws InterruptedException {
+        LockWatchEvents snapshot = lockService.getLockWatchEvents(LockWatchRequest.startWatching(WATCHED_TABLES));
+
+        lockService.unlock(lock(WATCHED_ROW, LockMode.READ));
+        lockService.unlock(lock(UNWATCHED_ROW, LockMode.WRITE));
+
+        assertThat(getChangesSince(snapshot).getEvents()).isEmpty();
+    }
+
+    @Test
+    public void returnsASnapshotForAnUnknownLog() throws InterruptedException {
+        lock(WATCHED_ROW, LockMode.WRITE);
+
+        LockWatchEvents result = lockService.getLockWatchEvents(
+                new LockWatchRequest(WATCHED_TABLES, UUID.randomUUID(), 0L));
+
+        assertThat(result.isSnapshot()).isTrue();
+        assertThat(result.getLockedDescriptors()).containsExactly(WATCHED_ROW);
+    }
+
+    @Test
+    public void returnsASnapshotWhenNewTablesAreWatched() {
+        LockWatchEvents snapshot = lockService.getLockWatchEvents(LockWatchRequest.startWatching(WATCHED_TABLES));
+
+        LockWatchEvents result = lockService.getLockWatchEvents(new LockWatchRequest(
+                ImmutableSet.of(WATCHED_TABLE, "ns.unwatched"), snapshot.getLogId(), snapshot.getVersion()));
+
+        assertThat(result.isSnapshot()).isTrue();
+    }
+
+    private LockWatchEvents getChangesSince(LockWatchEvents previous) {
+        return lockService.getLockWatchEvents(
+                new LockWatchRequest(WATCHED_TABLES, previous.getLogId(), previous.getVersion()));
+    }
+
+    private LockRefreshToken lock(LockDescriptor descriptor, LockMode mode) throws InterruptedException {
+        return lockService.lock(
+                LockClient.ANONYMOUS.getClientId(),
+                LockRequest.builder(ImmutableSortedMap.of(descriptor, mode)).doNotBlock().build());
+    }
+
+    private static LockDescriptor row(String tableName, String rowName) {
+        return AtlasRowLockDescriptor.of(tableName, rowName.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.timelock;
+
+import java.util.Map;
+import java.util.Set;
+
+import javax.ws.rs.NotFoundException;
+
+import com.google.common.collect.Maps;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.TimeLockBatchRequest;
+import com.palantir.lock.TimeLockBatchResponse;
+import com.palantir.lock.TimeLockBatchService;
+import com.palantir.timestamp.TimestampRange;
+
+public class TimeLockBatchResource implements TimeLockBatchService {
+    private final Map<String, TimeLockServices> clientToServices;
+
+    public TimeLockBatchResource(Map<String, TimeLockServices> clientToServices) {
+        this.clientToServices = clientToServices;
+    }
+
+    @Override
+    public TimeLockBatchResponse run(TimeLockBatchRequest request) {
+        // Resolve every client up front, so that an unknown client fails the batch before any work is done.
+        request.getTimestampRequests().keySet().forEach(this::getTimeLockServicesForClient);
+        request.getLockRefreshRequests().keySet().forEach(this::getTimeLockServicesForClient);
+
+        Map<String, TimestampRange> timestamps = Maps.newHashMapWithExpectedSize(
+                request.getTimestampRequests().size());
+        for (Map.Entry<String, Integer> entry : request.getTimestampRequests().entrySet()) {
+            timestamps.put(entry.getKey(), getTimeLockServicesForClient(entry.getKey())
+                    .getTimestampService()
+                    .getFreshTimestamps(entry.getValue()));
+        }
+
+        Map<String, Set<LockRefreshToken>> refreshedTokens = Maps.newHashMapWithExpectedSize(
+                request.getLockRefreshRequests().size());
+        for (Map.Entry<String, ? extends Set<LockRefreshToken>> entry
+                : request.getLockRefreshRequests().entrySet()) {
+            refreshedTokens.put(entry.getKey(), getTimeLockServicesForClient(entry.getKey())
+                    .getLockService()
+                    .refreshLockRefreshTokens(entry.getValue()));
+        }
+        return new TimeLockBatchResponse(timestamps, refreshedTokens);
+    }
+
+    private TimeLockServices getTimeLockServicesForClient(String client) {
+        TimeLockServices services = clientToServices.get(client);
+        if (services == null) {
+            throw new NotFoundException("Client doesn't exist");
+        }
+        return services;
+    }
+}
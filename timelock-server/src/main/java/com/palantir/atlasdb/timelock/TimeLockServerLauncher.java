@@ -76,6 +76,7 @@ public class TimeLockServerLauncher extends Application<TimeLockServerConfigurat
         environment.getObjectMapper().registerModule(new Jdk8Module());
         environment.jersey().register(HttpRemotingJerseyFeature.DEFAULT);
         environment.jersey().register(new TimeLockResource(clientToServices));
+        environment.jersey().register(new TimeLockBatchResource(clientToServices));
     }
 
 }
@@ -25,6 +25,7 @@ import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import com.palantir.atlasdb.timelock.TimeLockServer;
 import com.palantir.atlasdb.timelock.paxos.PaxosTimeLockServer;
+import com.palantir.paxos.SegmentedPaxosStateLog;
 import com.palantir.remoting2.config.ssl.SslConfiguration;
 
 import io.dropwizard.setup.Environment;
@@ -33,6 +34,8 @@ import io.dropwizard.setup.Environment;
 @JsonDeserialize(as = ImmutablePaxosConfiguration.class)
 @Value.Immutable
 public abstract class PaxosConfiguration implements TimeLockAlgorithmConfiguration {
+    private static final int MIN_SEGMENT_SIZE_BYTES = 4096;
+
     @Value.Default
     public File paxosDataDir() {
         return new File("var/data/paxos");
@@ -55,6 +58,51 @@ public abstract class PaxosConfiguration implements TimeLockAlgorithmConfigurati
         return 5000L;
     }
 
+    /**
+     * If true, the paxos logs for each client's timestamp bound are kept in memory-mapped segment files rather
+     * than in one file per round. Existing logs are migrated to the new format on startup, after which the data
+     * directory can no longer be read by versions that predate this option.
+     */
+    @Value.Default
+    public boolean useSegmentedStateLog() {
+        return false;
+    }
+
+    /**
+     * The size of each segment file of the segmented paxos logs. Every client has two logs, each of which keeps at
+     * least one segment on disk.
+     */
+    @Value.Default
+    public int segmentedStateLogSegmentSizeBytes() {
+        return SegmentedPaxosStateLog.DEFAULT_SEGMENT_SIZE;
+    }
+
+    /**
+     * If true, the timestamp bounds of all clients are stored in one shared paxos log, and one paxos round stores
+     * the new bounds of every client which needs one at the time, instead of each client running its own rounds.
+     * A client's bound is read from its own log until it first stores a bound in the shared log, after which its
+     * own log is no longer written, so this cannot safely be turned off again. Every server must use the same value.
+     */
+    @Value.Default
+    public boolean multiplexTimestampBounds() {
+        return false;
+    }
+
+    /**
+     * If positive, the leader answers leadership checks locally for this long after a quorum confirms its
+     * leadership, less {@link #leaderLeaseMaxClockDriftMs()}, instead of asking the quorum on every request.
+     * Failover after the leader dies takes up to this much longer. Every server must use the same value.
+     */
+    @Value.Default
+    public long leaderLeaseDurationMs() {
+        return 0L;
+    }
+
+    @Value.Default
+    public long leaderLeaseMaxClockDriftMs() {
+        return 0L;
+    }
+
     @Value.Check
     protected final void check() {
         Preconditions.checkArgument(paxosDataDir().exists() || paxosDataDir().mkdirs(),
@@ -65,6 +113,11 @@ public abstract class PaxosConfiguration implements TimeLockAlgorithmConfigurati
                 "Maximum wait before proposal must be positive; found '%s'.", maximumWaitBeforeProposalMs());
         Preconditions.checkArgument(leaderPingResponseWaitMs() > 0,
                 "Leader ping response wait interval must be positive; found '%s'.", leaderPingResponseWaitMs());
+        Preconditions.checkArgument(segmentedStateLogSegmentSizeBytes() >= MIN_SEGMENT_SIZE_BYTES,
+                "Segmented state log segment size must be at least %s bytes; found '%s'.",
+                MIN_SEGMENT_SIZE_BYTES, segmentedStateLogSegmentSizeBytes());
+        Preconditions.checkArgument(leaderLeaseDurationMs() >= 0,
+                "Leader lease duration must be non-negative; found '%s'.", leaderLeaseDurationMs());
     }
 
     @Override
@@ -25,6 +25,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
 import com.palantir.atlasdb.timelock.paxos.PaxosTimeLockConstants;
+import com.palantir.lock.TimeLockBatchService;
 
 import io.dropwizard.Configuration;
 import io.dropwizard.jetty.HttpConnectorFactory;
@@ -74,6 +75,12 @@ public class TimeLockServerConfiguration extends Configuration {
         Preconditions.checkState(!clientNames.contains(PaxosTimeLockConstants.LEADER_ELECTION_NAMESPACE),
                 String.format("The namespace '%s' is reserved for the leader election service. Please use a different"
                         + " name.", PaxosTimeLockConstants.LEADER_ELECTION_NAMESPACE));
+        Preconditions.checkState(!clientNames.contains(TimeLockBatchService.BATCH_NAMESPACE),
+                String.format("The namespace '%s' is reserved for the batch endpoint. Please use a different"
+                        + " name.", TimeLockBatchService.BATCH_NAMESPACE));
+        Preconditions.checkState(!clientNames.contains(PaxosTimeLockConstants.MULTIPLEXED_BOUNDS_NAMESPACE),
+                String.format("The namespace '%s' is reserved for multiplexed timestamp bounds. Please use a different"
+                        + " name.", PaxosTimeLockConstants.MULTIPLEXED_BOUNDS_NAMESPACE));
     }
 
     public TimeLockAlgorithmConfiguration algorithm() {
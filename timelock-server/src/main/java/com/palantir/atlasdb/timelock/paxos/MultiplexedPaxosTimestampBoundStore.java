@@ -0,0 +1,453 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.timelock.paxos;
+
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.LongSupplier;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.immutables.value.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
+import com.google.common.io.ByteArrayDataInput;
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.SettableFuture;
+import com.palantir.atlasdb.timelock.paxos.PaxosTimestampBoundStore.PaxosLong;
+import com.palantir.atlasdb.util.AtlasDbMetrics;
+import com.palantir.common.base.Throwables;
+import com.palantir.common.concurrent.RequestBatcher;
+import com.palantir.common.remoting.ServiceNotAvailableException;
+import com.palantir.leader.NotCurrentLeaderException;
+import com.palantir.paxos.PaxosAcceptor;
+import com.palantir.paxos.PaxosLearner;
+import com.palantir.paxos.PaxosProposer;
+import com.palantir.paxos.PaxosQuorumChecker;
+import com.palantir.paxos.PaxosResponse;
+import com.palantir.paxos.PaxosRoundFailureException;
+import com.palantir.paxos.PaxosValue;
+import com.palantir.timestamp.DebugLogger;
+import com.palantir.timestamp.TimestampBoundStore;
+
+/**
+ * Stores the timestamp bounds of many clients in a single Paxos log, so that one Paxos round stores new bounds for
+ * any number of clients. Each value agreed on in the log is the complete map from client to bound, so only the
+ * latest agreed value is ever needed.
+ * <p>
+ * Each client uses the {@link TimestampBoundStore} returned by {@link #forClient}. Their requests are batched with a
+ * {@link RequestBatcher}, so at most one Paxos round is in flight at any time: requests which arrive while it runs
+ * are all served by the next round. Every read in a batch is served by a single read of the latest agreed value from
+ * a quorum.
+ * <p>
+ * A client whose bound is not yet in the shared log starts from the bound in its own, unmultiplexed log, which is
+ * not written to again once the client has stored a bound in the shared log.
+ */
+@ThreadSafe
+public class MultiplexedPaxosTimestampBoundStore {
+    private static final Logger log = LoggerFactory.getLogger(MultiplexedPaxosTimestampBoundStore.class);
+
+    private static final int QUORUM_OF_ONE = 1;
+    private static final boolean ONLY_LOG_ON_QUORUM_FAILURE = true;
+
+    private final PaxosProposer proposer;
+    private final PaxosLearner knowledge;
+
+    private final List<PaxosAcceptor> acceptors;
+    private final List<PaxosLearner> learners;
+    private final long maximumWaitBeforeProposalMs;
+    private final ExecutorService executor;
+
+    private final RequestBatcher<PendingRequest> batcher;
+    private final Histogram boundsPerProposal;
+
+    /** The latest state we know to be agreed, or null if it must be read from a quorum before proposing. */
+    @GuardedBy("this")
+    private SequenceAndBounds agreedState;
+
+    public MultiplexedPaxosTimestampBoundStore(PaxosProposer proposer,
+            PaxosLearner knowledge,
+            List<PaxosAcceptor> acceptors,
+            List<PaxosLearner> learners,
+            long maximumWaitBeforeProposalMs,
+            ExecutorService executor) {
+        this(proposer, knowledge, acceptors, learners, maximumWaitBeforeProposalMs, executor,
+                AtlasDbMetrics.getMetricRegistry());
+    }
+
+    @VisibleForTesting
+    MultiplexedPaxosTimestampBoundStore(PaxosProposer proposer,
+            PaxosLearner knowledge,
+            List<PaxosAcceptor> acceptors,
+            List<PaxosLearner> learners,
+            long maximumWaitBeforeProposalMs,
+            ExecutorService executor,
+            MetricRegistry metricRegistry) {
+        DebugLogger.logger.info("Creating MultiplexedPaxosTimestampBoundStore. The UUID of my proposer is {}.",
+                proposer.getUuid());
+        this.proposer = proposer;
+        this.knowledge = knowledge;
+        this.acceptors = acceptors;
+        this.learners = learners;
+        this.maximumWaitBeforeProposalMs = maximumWaitBeforeProposalMs;
+        this.executor = executor;
+        this.batcher = RequestBatcher.create(executor, this::processBatch,
+                (request, failure) -> request.result.setException(failure));
+        this.boundsPerProposal = metricRegistry.histogram(
+                MetricRegistry.name(MultiplexedPaxosTimestampBoundStore.class, "boundsPerProposal"));
+    }
+
+    /**
+     * Returns the bound store of the given client. If the client has no bound in the shared log, its upper limit is
+     * read from the given supplier, which should read the client's unmultiplexed log.
+     */
+    public TimestampBoundStore forClient(String client, LongSupplier unmultiplexedUpperLimit) {
+        return new ClientBoundStore(client, unmultiplexedUpperLimit);
+    }
+
+    private Optional<Long> submit(PendingRequest request) {
+        batcher.submit(request);
+        try {
+            return request.result.get();
+        } catch (InterruptedException e) {
+            throw Throwables.rewrapAndThrowUncheckedException(e);
+        } catch (ExecutionException e) {
+            throw Throwables.rewrapAndThrowUncheckedException(e.getCause());
+        }
+    }
+
+    private synchronized void processBatch(List<PendingRequest> batch) {
+        try {
+            if (agreedState == null || batch.stream().anyMatch(PendingRequest::isRead)) {
+                agreedState = getLatestAgreedState();
+            }
+        } catch (Throwable t) {
+            batch.forEach(request -> request.result.setException(t));
+            return;
+        }
+
+        Map<String, Long> newBounds = Maps.newHashMap();
+        List<PendingRequest> stores = Lists.newArrayList();
+        for (PendingRequest request : batch) {
+            Long agreedBound = agreedState.getBounds().get(request.client);
+            if (request.isRead()) {
+                request.result.set(Optional.ofNullable(agreedBound));
+            } else if (!Objects.equals(agreedBound, request.expectedBound)) {
+                request.result.setException(new NotCurrentLeaderException(String.format(
+                        "Timestamp limit for client '%s' changed from under us: we last saw '%s', but it is now '%s'."
+                                + " This suggests that we have lost leadership, and another timelock server has"
+                                + " gained leadership and updated the timestamp bound.",
+                        request.client,
+                        request.expectedBound,
+                        agreedBound)));
+            } else {
+                stores.add(request);
+                newBounds.merge(request.client, request.limit, Math::max);
+            }
+        }
+        if (stores.isEmpty()) {
+            return;
+        }
+
+        try {
+            SequenceAndBounds newState = proposeBounds(newBounds);
+            for (PendingRequest request : stores) {
+                Long newLimit = newState.getBounds().get(request.client);
+                if (newLimit == null || newLimit < request.limit) {
+                    // See PaxosTimestampBoundStore.storeUpperLimit; proposing again at the next sequence is unsafe.
+                    request.result.setException(new NotCurrentLeaderException(String.format(
+                            "We updated the timestamp limit of client '%s' to %s, which was less than our target %s.",
+                            request.client,
+                            newLimit,
+                            request.limit)));
+                } else {
+                    request.result.set(Optional.of(newLimit));
+                }
+            }
+        } catch (Throwable t) {
+            // We don't know whether the proposal was accepted, so the agreed state must be read again.
+            agreedState = null;
+            stores.forEach(request -> request.result.setException(t));
+        }
+    }
+
+    /**
+     * Proposes the agreed bounds, updated with the given ones, at the sequence number after the agreed state.
+     *
+     * @throws NotCurrentLeaderException if another proposer's value was agreed on for that sequence number
+     */
+    @GuardedBy("this")
+    private SequenceAndBounds proposeBounds(Map<String, Long> newBounds) {
+        long newSeq = agreedState.getSeqId() + 1;
+        Map<String, Long> bounds = Maps.newHashMap(agreedState.getBounds());
+        bounds.putAll(newBounds);
+        byte[] proposal = encodeBounds(bounds);
+        boundsPerProposal.update(newBounds.size());
+        while (true) {
+            try {
+                proposer.propose(newSeq, proposal);
+                PaxosValue value = knowledge.getLearnedValue(newSeq);
+                if (!value.getLeaderUUID().equals(proposer.getUuid())) {
+                    agreedState = null;
+                    throw new NotCurrentLeaderException(String.format(
+                            "Timestamp limits changed from under us for sequence '%s' (proposer with UUID '%s' changed"
+                                    + " them, our UUID is '%s'). This suggests that we have lost leadership, and"
+                                    + " another timelock server has gained leadership and updated the bounds.",
+                            newSeq,
+                            value.getLeaderUUID(),
+                            proposer.getUuid()));
+                }
+                agreedState = ImmutableSequenceAndBounds.of(newSeq, decodeBounds(value.getData()));
+                DebugLogger.logger.info("Storing limits for {} clients at sequence '{}' yielded consensus.",
+                        newBounds.size(),
+                        newSeq);
+                return agreedState;
+            } catch (PaxosRoundFailureException e) {
+                waitForRandomBackoff(e);
+            }
+        }
+    }
+
+    /**
+     * Contacts a quorum of acceptors to find the latest sequence number prepared or accepted, and obtains agreement
+     * on its value.
+     *
+     * @throws ServiceNotAvailableException if we couldn't contact a quorum
+     */
+    private SequenceAndBounds getLatestAgreedState() {
+        List<PaxosLong> responses = PaxosQuorumChecker.collectQuorumResponses(
+                ImmutableList.copyOf(acceptors),
+                acceptor -> ImmutablePaxosLong.of(acceptor.getLatestSequencePreparedOrAccepted()),
+                proposer.getQuorumSize(),
+                executor,
+                PaxosQuorumChecker.DEFAULT_REMOTE_REQUESTS_TIMEOUT_IN_SECONDS,
+                ONLY_LOG_ON_QUORUM_FAILURE);
+        if (!PaxosQuorumChecker.hasQuorum(responses, proposer.getQuorumSize())) {
+            throw new ServiceNotAvailableException("could not get a quorum");
+        }
+        PaxosLong max = Ordering.natural().onResultOf(PaxosLong::getValue).max(responses);
+        return getAgreedState(max.getValue());
+    }
+
+    /**
+     * Obtains agreement for a given sequence number, in the same way as
+     * {@link PaxosTimestampBoundStore#getAgreedState(long)}.
+     */
+    @VisibleForTesting
+    SequenceAndBounds getAgreedState(long seq) {
+        Optional<SequenceAndBounds> state = getLearnedState(seq);
+        if (state.isPresent()) {
+            return state.get();
+        }
+
+        Optional<SequenceAndBounds> lastState = getLearnedState(seq - 1);
+        if (!lastState.isPresent()) {
+            SequenceAndBounds forced = forceAgreedState(seq - 2, null);
+            lastState = Optional.of(forceAgreedState(seq - 1, forced.getBounds()));
+        }
+
+        return forceAgreedState(seq, lastState.get().getBounds());
+    }
+
+    /**
+     * Forces agreement to be reached for a given sequence number, in the same way as
+     * {@link PaxosTimestampBoundStore#forceAgreedState(long, Long)}.
+     */
+    @VisibleForTesting
+    SequenceAndBounds forceAgreedState(long seq, @Nullable Map<String, Long> oldBounds) {
+        if (seq <= PaxosAcceptor.NO_LOG_ENTRY) {
+            return ImmutableSequenceAndBounds.of(PaxosAcceptor.NO_LOG_ENTRY, ImmutableSortedMap.of());
+        }
+
+        Optional<SequenceAndBounds> state = getLearnedState(seq);
+        if (state.isPresent()) {
+            return state.get();
+        }
+
+        while (true) {
+            try {
+                byte[] acceptedValue = proposer.propose(seq, oldBounds == null ? null : encodeBounds(oldBounds));
+                Preconditions.checkNotNull(acceptedValue, "Proposed value can't be null, but was in sequence %s", seq);
+                return ImmutableSequenceAndBounds.of(seq, decodeBounds(acceptedValue));
+            } catch (PaxosRoundFailureException e) {
+                waitForRandomBackoff(e);
+            }
+        }
+    }
+
+    private Optional<SequenceAndBounds> getLearnedState(long seq) {
+        if (seq <= PaxosAcceptor.NO_LOG_ENTRY) {
+            return Optional.of(ImmutableSequenceAndBounds.of(PaxosAcceptor.NO_LOG_ENTRY, ImmutableSortedMap.of()));
+        }
+        List<PaxosBounds> responses = PaxosQuorumChecker.collectQuorumResponses(
+                ImmutableList.copyOf(learners),
+                learner -> getLearnedBounds(seq, learner),
+                QUORUM_OF_ONE,
+                executor,
+                PaxosQuorumChecker.DEFAULT_REMOTE_REQUESTS_TIMEOUT_IN_SECONDS,
+                ONLY_LOG_ON_QUORUM_FAILURE);
+        if (responses.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(ImmutableSequenceAndBounds.of(seq, responses.iterator().next().getBounds()));
+    }
+
+    private static PaxosBounds getLearnedBounds(long seq, PaxosLearner learner) {
+        PaxosValue value = learner.getLearnedValue(seq);
+        if (value == null) {
+            throw new NoSuchElementException(
+                    String.format("Tried to get a learned value for sequence number '%d' which didn't exist", seq));
+        }
+        return ImmutablePaxosBounds.of(decodeBounds(value.getData()));
+    }
+
+    @VisibleForTesting
+    static byte[] encodeBounds(Map<String, Long> bounds) {
+        ByteArrayDataOutput output = ByteStreams.newDataOutput();
+        output.writeInt(bounds.size());
+        ImmutableSortedMap.copyOf(bounds).forEach((client, bound) -> {
+            output.writeUTF(client);
+            output.writeLong(bound);
+        });
+        return output.toByteArray();
+    }
+
+    @VisibleForTesting
+    static Map<String, Long> decodeBounds(byte[] value) {
+        ByteArrayDataInput input = ByteStreams.newDataInput(value);
+        int size = input.readInt();
+        ImmutableSortedMap.Builder<String, Long> bounds = ImmutableSortedMap.naturalOrder();
+        for (int i = 0; i < size; i++) {
+            bounds.put(input.readUTF(), input.readLong());
+        }
+        return bounds.build();
+    }
+
+    private void waitForRandomBackoff(PaxosRoundFailureException paxosException) {
+        long backoffTime = (long) (maximumWaitBeforeProposalMs * Math.random() + 1);
+        log.info("Paxos proposal couldn't complete, because we could not connect to a quorum of nodes. We"
+                + " will retry in {} ms.",
+                backoffTime,
+                paxosException);
+        try {
+            Thread.sleep(backoffTime);
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private final class ClientBoundStore implements TimestampBoundStore {
+        private final String client;
+        private final LongSupplier unmultiplexedUpperLimit;
+
+        @GuardedBy("this")
+        private boolean hasReadUpperLimit = false;
+        /** The client's bound in the shared log when we last read or stored it, or null if it had none. */
+        @GuardedBy("this")
+        private Long agreedBound;
+        @GuardedBy("this")
+        private long upperLimit;
+
+        ClientBoundStore(String client, LongSupplier unmultiplexedUpperLimit) {
+            this.client = client;
+            this.unmultiplexedUpperLimit = unmultiplexedUpperLimit;
+        }
+
+        @Override
+        public synchronized long getUpperLimit() {
+            Optional<Long> bound = submit(new PendingRequest(client, null, null));
+            agreedBound = bound.orElse(null);
+            upperLimit = bound.isPresent() ? bound.get() : unmultiplexedUpperLimit.getAsLong();
+            hasReadUpperLimit = true;
+            return upperLimit;
+        }
+
+        /**
+         * Stores a new timestamp limit for this client, in a Paxos round shared with other clients.
+         *
+         * @throws IllegalArgumentException if trying to persist a limit smaller than the agreed limit
+         * @throws NotCurrentLeaderException if the timestamp limit has changed out from under us
+         */
+        @Override
+        public synchronized void storeUpperLimit(long limit) {
+            Preconditions.checkState(hasReadUpperLimit,
+                    "getUpperLimit() must be called before storeUpperLimit() for client %s", client);
+            Preconditions.checkArgument(limit >= upperLimit,
+                    "Tried to store an upper limit %s less than the current limit %s", limit, upperLimit);
+            long newLimit = submit(new PendingRequest(client, limit, agreedBound)).get();
+            agreedBound = newLimit;
+            upperLimit = newLimit;
+        }
+    }
+
+    private static final class PendingRequest {
+        private final String client;
+        /** The limit to store, or null to read the client's bound. */
+        @Nullable
+        private final Long limit;
+        @Nullable
+        private final Long expectedBound;
+        private final SettableFuture<Optional<Long>> result = SettableFuture.create();
+
+        PendingRequest(String client, @Nullable Long limit, @Nullable Long expectedBound) {
+            this.client = client;
+            this.limit = limit;
+            this.expectedBound = expectedBound;
+        }
+
+        boolean isRead() {
+            return limit == null;
+        }
+    }
+
+    @Value.Immutable
+    interface PaxosBounds extends PaxosResponse {
+        @Override
+        default boolean isSuccessful() {
+            return true;
+        }
+
+        @Value.Parameter
+        Map<String, Long> getBounds();
+    }
+
+    @Value.Immutable
+    interface SequenceAndBounds {
+        @Value.Parameter
+        long getSeqId();
+
+        @Value.Parameter
+        Map<String, Long> getBounds();
+    }
+}
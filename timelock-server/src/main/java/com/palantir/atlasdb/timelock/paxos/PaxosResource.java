@@ -25,23 +25,35 @@ import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Maps;
 import com.palantir.atlasdb.util.AtlasDbMetrics;
+import com.palantir.common.persist.Persistable;
+import com.palantir.leader.PaxosKnowledgeEventRecorder;
 import com.palantir.paxos.PaxosAcceptor;
 import com.palantir.paxos.PaxosAcceptorImpl;
 import com.palantir.paxos.PaxosLearner;
 import com.palantir.paxos.PaxosLearnerImpl;
+import com.palantir.paxos.PaxosStateLog;
+import com.palantir.paxos.PaxosStateLogImpl;
+import com.palantir.paxos.SegmentedPaxosStateLog;
+import com.palantir.paxos.Versionable;
 
 @Path("/" + PaxosTimeLockConstants.INTERNAL_NAMESPACE
         + "/" + PaxosTimeLockConstants.CLIENT_PAXOS_NAMESPACE
         + "/{client: [a-zA-Z0-9_-]+}")
 public final class PaxosResource {
     private final String logDirectory;
+    private final boolean useSegmentedStateLog;
+    private final int segmentSizeBytes;
     private final Map<String, PaxosLearner> paxosLearners;
     private final Map<String, PaxosAcceptor> paxosAcceptors;
 
     private PaxosResource(String logDirectory,
+            boolean useSegmentedStateLog,
+            int segmentSizeBytes,
             Map<String, PaxosLearner> paxosLearners,
             Map<String, PaxosAcceptor> paxosAcceptors) {
         this.logDirectory = logDirectory;
+        this.useSegmentedStateLog = useSegmentedStateLog;
+        this.segmentSizeBytes = segmentSizeBytes;
         this.paxosLearners = paxosLearners;
         this.paxosAcceptors = paxosAcceptors;
     }
@@ -51,7 +63,12 @@ public final class PaxosResource {
     }
 
     public static PaxosResource create(String logDirectory) {
-        return new PaxosResource(logDirectory, Maps.newConcurrentMap(), Maps.newConcurrentMap());
+        return create(logDirectory, false, SegmentedPaxosStateLog.DEFAULT_SEGMENT_SIZE);
+    }
+
+    public static PaxosResource create(String logDirectory, boolean useSegmentedStateLog, int segmentSizeBytes) {
+        return new PaxosResource(logDirectory, useSegmentedStateLog, segmentSizeBytes,
+                Maps.newConcurrentMap(), Maps.newConcurrentMap());
     }
 
     public void addInstrumentedClient(String client) {
@@ -62,7 +79,8 @@ public final class PaxosResource {
                 .toString();
         PaxosLearner learner = instrument(
                 PaxosLearner.class,
-                PaxosLearnerImpl.newLearner(learnerLogDir),
+                PaxosLearnerImpl.newLearner(
+                        createStateLog(learnerLogDir), PaxosKnowledgeEventRecorder.NO_OP),
                 client);
         paxosLearners.put(client, learner);
 
@@ -70,11 +88,17 @@ public final class PaxosResource {
                 .toString();
         PaxosAcceptor acceptor = instrument(
                 PaxosAcceptor.class,
-                PaxosAcceptorImpl.newAcceptor(acceptorLogDir),
+                PaxosAcceptorImpl.newAcceptor(createStateLog(acceptorLogDir)),
                 client);
         paxosAcceptors.put(client, acceptor);
     }
 
+    private <V extends Persistable & Versionable> PaxosStateLog<V> createStateLog(String logDir) {
+        return useSegmentedStateLog
+                ? SegmentedPaxosStateLog.create(logDir, segmentSizeBytes)
+                : new PaxosStateLogImpl<>(logDir);
+    }
+
     private static <T> T instrument(Class<T> serviceClass, T service, String client) {
         return AtlasDbMetrics.instrument(serviceClass, service, MetricRegistry.name(serviceClass, client));
     }
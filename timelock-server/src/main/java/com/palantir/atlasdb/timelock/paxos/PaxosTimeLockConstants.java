@@ -27,6 +27,9 @@ public final class PaxosTimeLockConstants {
     public static final String LEADER_PAXOS_NAMESPACE = "leaderPaxos";
     public static final String CLIENT_PAXOS_NAMESPACE = "clientPaxos";
 
+    // Reserved client namespace holding the shared log of multiplexed timestamp bounds
+    public static final String MULTIPLEXED_BOUNDS_NAMESPACE = "multiplexedBounds";
+
     private PaxosTimeLockConstants() {
     }
 }
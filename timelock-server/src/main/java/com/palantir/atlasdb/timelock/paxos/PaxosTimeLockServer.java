@@ -15,6 +15,8 @@
  */
 package com.palantir.atlasdb.timelock.paxos;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.nio.file.Paths;
 import java.util.Collection;
 import java.util.List;
@@ -27,9 +29,14 @@ import java.util.stream.Collectors;
 
 import javax.net.ssl.SSLSocketFactory;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import com.codahale.metrics.MetricRegistry;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Optional;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
@@ -67,13 +74,18 @@ import com.palantir.timestamp.TimestampBoundStore;
 import io.dropwizard.setup.Environment;
 
 public class PaxosTimeLockServer implements TimeLockServer {
+    private static final Logger log = LoggerFactory.getLogger(PaxosTimeLockServer.class);
+
     private final PaxosConfiguration paxosConfiguration;
     private final Environment environment;
 
     private Set<String> remoteServers;
     private Optional<SSLSocketFactory> optionalSecurity = Optional.absent();
     private LeaderElectionService leaderElectionService;
+    private Closeable leaderElectionServiceCloser;
     private PaxosResource paxosResource;
+    private MultiplexedPaxosTimestampBoundStore multiplexedBoundStore;
+    private ExecutorService multiplexedExecutor;
     private Semaphore sharedThreadPool = new Semaphore(-1);
     private TimeLockServerConfiguration timeLockServerConfiguration;
 
@@ -95,6 +107,23 @@ public class PaxosTimeLockServer implements TimeLockServer {
         registerHealthCheck(configuration);
     }
 
+    @Override
+    public void onStop() {
+        if (leaderElectionServiceCloser != null) {
+            try {
+                leaderElectionServiceCloser.close();
+            } catch (IOException e) {
+                log.warn("Failed to stop the leader election service", e);
+            }
+            leaderElectionServiceCloser = null;
+        }
+    }
+
+    @Override
+    public void onStartupFailure() {
+        onStop();
+    }
+
     private void registerExceptionMappers() {
         if (timeLockServerConfiguration.useClientRequestLimit()) {
             environment.jersey().register(new TooManyRequestsExceptionMapper());
@@ -104,7 +133,10 @@ public class PaxosTimeLockServer implements TimeLockServer {
     }
 
     private void registerPaxosResource() {
-        paxosResource = PaxosResource.create(paxosConfiguration.paxosDataDir().toString());
+        paxosResource = PaxosResource.create(
+                paxosConfiguration.paxosDataDir().toString(),
+                paxosConfiguration.useSegmentedStateLog(),
+                paxosConfiguration.segmentedStateLogSegmentSizeBytes());
         environment.jersey().register(paxosResource);
     }
 
@@ -124,6 +156,7 @@ public class PaxosTimeLockServer implements TimeLockServer {
                         .build(),
                 "leader-election-service");
         leaderElectionService = localPaxosServices.leaderElectionService();
+        leaderElectionServiceCloser = localPaxosServices.leaderElectionServiceCloser();
 
         environment.jersey().register(localPaxosServices.pingableLeader());
         environment.jersey().register(new LeadershipResource(
@@ -154,6 +187,8 @@ public class PaxosTimeLockServer implements TimeLockServer {
                     .quorumSize(getQuorumSize(configuration.cluster().servers()))
                     .leaderPingResponseWaitMs(paxosConfiguration.leaderPingResponseWaitMs())
                     .randomWaitBeforeProposingLeadershipMs(paxosConfiguration.maximumWaitBeforeProposalMs())
+                    .leaderLeaseDurationMs(paxosConfiguration.leaderLeaseDurationMs())
+                    .leaderLeaseMaxClockDriftMs(paxosConfiguration.leaderLeaseMaxClockDriftMs())
                     .build();
     }
 
@@ -235,43 +270,109 @@ public class PaxosTimeLockServer implements TimeLockServer {
     private ManagedTimestampService createPaxosBackedTimestampService(String client) {
         paxosResource.addInstrumentedClient(client);
 
-        ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
-                .setNameFormat("atlas-consensus-" + client + "-%d")
+        if (paxosConfiguration.multiplexTimestampBounds()) {
+            MultiplexedPaxosTimestampBoundStore multiplexedStore = getMultiplexedBoundStore();
+            Supplier<TimestampBoundStore> unmultiplexedStore =
+                    Suppliers.memoize(() -> createUnmultiplexedBoundStore(client));
+            return AwaitingLeadershipProxy.newProxyInstance(
+                    ManagedTimestampService.class,
+                    () -> createManagedTimestampService(
+                            client,
+                            multiplexedStore.forClient(client, () -> unmultiplexedStore.get().getUpperLimit())),
+                    leaderElectionService);
+        }
+
+        ExecutorService executor = createConsensusExecutor(client);
+        List<PaxosAcceptor> acceptors = createAcceptors(client);
+        List<PaxosLearner> learners = createLearners(client);
+        PaxosProposer proposer = createProposer(client, acceptors, learners, executor);
+
+        PaxosSynchronizer.synchronizeLearner(paxosResource.getPaxosLearner(client), learners);
+
+        return AwaitingLeadershipProxy.newProxyInstance(
+                ManagedTimestampService.class,
+                () -> createManagedPaxosTimestampService(proposer, client, acceptors, learners),
+                leaderElectionService);
+    }
+
+    private synchronized MultiplexedPaxosTimestampBoundStore getMultiplexedBoundStore() {
+        if (multiplexedBoundStore == null) {
+            String namespace = PaxosTimeLockConstants.MULTIPLEXED_BOUNDS_NAMESPACE;
+            paxosResource.addInstrumentedClient(namespace);
+            multiplexedExecutor = createConsensusExecutor(namespace);
+            List<PaxosAcceptor> acceptors = createAcceptors(namespace);
+            List<PaxosLearner> learners = createLearners(namespace);
+            PaxosProposer proposer = createProposer(namespace, acceptors, learners, multiplexedExecutor);
+
+            PaxosLearner ourLearner = paxosResource.getPaxosLearner(namespace);
+            PaxosSynchronizer.synchronizeLearner(ourLearner, learners);
+
+            multiplexedBoundStore = new MultiplexedPaxosTimestampBoundStore(
+                    proposer,
+                    ourLearner,
+                    ImmutableList.copyOf(acceptors),
+                    ImmutableList.copyOf(learners),
+                    paxosConfiguration.maximumWaitBeforeProposalMs(),
+                    multiplexedExecutor);
+        }
+        return multiplexedBoundStore;
+    }
+
+    /**
+     * Creates the store of the client's own paxos log, from which the bound of a client which has not yet stored a
+     * bound in the shared log is read. It shares the executor of the shared log.
+     */
+    private TimestampBoundStore createUnmultiplexedBoundStore(String client) {
+        List<PaxosAcceptor> acceptors = createAcceptors(client);
+        List<PaxosLearner> learners = createLearners(client);
+        PaxosProposer proposer = createProposer(client, acceptors, learners, multiplexedExecutor);
+        return new PaxosTimestampBoundStore(
+                proposer,
+                paxosResource.getPaxosLearner(client),
+                ImmutableList.copyOf(acceptors),
+                ImmutableList.copyOf(learners),
+                paxosConfiguration.maximumWaitBeforeProposalMs(),
+                multiplexedExecutor);
+    }
+
+    private static ExecutorService createConsensusExecutor(String namespace) {
+        return Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+                .setNameFormat("atlas-consensus-" + namespace + "-%d")
                 .setDaemon(true)
                 .build());
+    }
 
-        Set<String> namespacedUris = PaxosTimeLockUriUtils.getClientPaxosUris(remoteServers, client);
-        List<PaxosAcceptor> acceptors = Leaders.createProxyAndLocalList(
-                paxosResource.getPaxosAcceptor(client),
-                namespacedUris,
+    private List<PaxosAcceptor> createAcceptors(String namespace) {
+        return Leaders.createProxyAndLocalList(
+                paxosResource.getPaxosAcceptor(namespace),
+                PaxosTimeLockUriUtils.getClientPaxosUris(remoteServers, namespace),
                 optionalSecurity,
                 PaxosAcceptor.class,
-                "timestamp-bound-store." + client);
+                "timestamp-bound-store." + namespace);
+    }
 
-        PaxosLearner ourLearner = paxosResource.getPaxosLearner(client);
-        List<PaxosLearner> learners = Leaders.createProxyAndLocalList(
-                ourLearner,
-                namespacedUris,
+    private List<PaxosLearner> createLearners(String namespace) {
+        return Leaders.createProxyAndLocalList(
+                paxosResource.getPaxosLearner(namespace),
+                PaxosTimeLockUriUtils.getClientPaxosUris(remoteServers, namespace),
                 optionalSecurity,
                 PaxosLearner.class,
-                "timestamp-bound-store." + client);
+                "timestamp-bound-store." + namespace);
+    }
 
-        PaxosProposer proposer = instrument(PaxosProposer.class,
+    private PaxosProposer createProposer(String namespace,
+            List<PaxosAcceptor> acceptors,
+            List<PaxosLearner> learners,
+            ExecutorService executor) {
+        return instrument(PaxosProposer.class,
                 PaxosProposerImpl.newProposer(
-                        ourLearner,
+                        paxosResource.getPaxosLearner(namespace),
                         ImmutableList.copyOf(acceptors),
                         ImmutableList.copyOf(learners),
                         getQuorumSize(acceptors),
                         UUID.randomUUID(),
                         executor),
-                client);
-
-        PaxosSynchronizer.synchronizeLearner(ourLearner, learners);
-
-        return AwaitingLeadershipProxy.newProxyInstance(
-                ManagedTimestampService.class,
-                () -> createManagedPaxosTimestampService(proposer, client, acceptors, learners),
-                leaderElectionService);
+                namespace);
     }
 
     private ManagedTimestampService createManagedPaxosTimestampService(
@@ -279,14 +380,17 @@ public class PaxosTimeLockServer implements TimeLockServer {
             String client,
             List<PaxosAcceptor> acceptors,
             List<PaxosLearner> learners) {
-        TimestampBoundStore boundStore = instrument(TimestampBoundStore.class,
+        return createManagedTimestampService(client,
                 new PaxosTimestampBoundStore(
                         proposer,
                         paxosResource.getPaxosLearner(client),
                         ImmutableList.copyOf(acceptors),
                         ImmutableList.copyOf(learners),
-                        paxosConfiguration.maximumWaitBeforeProposalMs()),
-                client);
+                        paxosConfiguration.maximumWaitBeforeProposalMs()));
+    }
+
+    private static ManagedTimestampService createManagedTimestampService(String client, TimestampBoundStore store) {
+        TimestampBoundStore boundStore = instrument(TimestampBoundStore.class, store, client);
         PersistentTimestampService persistentTimestampService = PersistentTimestampService.create(boundStore);
         return new DelegatingManagedTimestampService(persistentTimestampService, persistentTimestampService);
     }
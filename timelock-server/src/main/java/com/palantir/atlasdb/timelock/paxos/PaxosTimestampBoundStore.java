@@ -63,14 +63,23 @@ public class PaxosTimestampBoundStore implements TimestampBoundStore {
     @GuardedBy("this")
     private SequenceAndBound agreedState;
 
-    private final ExecutorService executor = Tracers.wrap(PTExecutors.newCachedThreadPool(
-            PTExecutors.newNamedThreadFactory(true)));
+    private final ExecutorService executor;
 
     public PaxosTimestampBoundStore(PaxosProposer proposer,
             PaxosLearner knowledge,
             List<PaxosAcceptor> acceptors,
             List<PaxosLearner> learners,
             long maximumWaitBeforeProposalMs) {
+        this(proposer, knowledge, acceptors, learners, maximumWaitBeforeProposalMs,
+                Tracers.wrap(PTExecutors.newCachedThreadPool(PTExecutors.newNamedThreadFactory(true))));
+    }
+
+    public PaxosTimestampBoundStore(PaxosProposer proposer,
+            PaxosLearner knowledge,
+            List<PaxosAcceptor> acceptors,
+            List<PaxosLearner> learners,
+            long maximumWaitBeforeProposalMs,
+            ExecutorService executor) {
         DebugLogger.logger.info("Creating PaxosTimestampBoundStore. The UUID of my proposer is {}."
                 + " Currently, I believe the timestamp bound is {}.",
                 proposer.getUuid(),
@@ -80,6 +89,7 @@ public class PaxosTimestampBoundStore implements TimestampBoundStore {
         this.acceptors = acceptors;
         this.learners = learners;
         this.maximumWaitBeforeProposalMs = maximumWaitBeforeProposalMs;
+        this.executor = executor;
     }
 
     /**
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.timelock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import java.math.BigInteger;
+
+import javax.ws.rs.NotFoundException;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.LockService;
+import com.palantir.lock.TimeLockBatchRequest;
+import com.palantir.lock.TimeLockBatchResponse;
+import com.palantir.timestamp.TimestampManagementService;
+import com.palantir.timestamp.TimestampRange;
+import com.palantir.timestamp.TimestampService;
+
+public class TimeLockBatchResourceTest {
+    private static final String CLIENT_1 = "client-1";
+    private static final String CLIENT_2 = "client-2";
+    private static final String NON_EXISTING_CLIENT = "non-existing-client";
+
+    private static final LockRefreshToken VALID_TOKEN = new LockRefreshToken(BigInteger.ONE, 1L);
+    private static final LockRefreshToken EXPIRED_TOKEN = new LockRefreshToken(BigInteger.TEN, 1L);
+
+    private final TimestampService timestampService1 = mock(TimestampService.class);
+    private final TimestampService timestampService2 = mock(TimestampService.class);
+    private final LockService lockService1 = mock(LockService.class);
+    private final LockService lockService2 = mock(LockService.class);
+
+    private final TimeLockBatchResource resource = new TimeLockBatchResource(ImmutableMap.of(
+            CLIENT_1, TimeLockServices.create(
+                    timestampService1, lockService1, mock(TimestampManagementService.class)),
+            CLIENT_2, TimeLockServices.create(
+                    timestampService2, lockService2, mock(TimestampManagementService.class))));
+
+    @Test
+    public void servesRequestsForEachClientFromItsOwnServices() {
+        when(timestampService1.getFreshTimestamps(3)).thenReturn(TimestampRange.createInclusiveRange(10, 12));
+        when(timestampService2.getFreshTimestamps(1)).thenReturn(TimestampRange.createInclusiveRange(20, 20));
+        when(lockService2.refreshLockRefreshTokens(ImmutableSet.of(VALID_TOKEN, EXPIRED_TOKEN)))
+                .thenReturn(ImmutableSet.of(VALID_TOKEN));
+
+        TimeLockBatchResponse response = resource.run(new TimeLockBatchRequest(
+                ImmutableMap.of(CLIENT_1, 3, CLIENT_2, 1),
+                ImmutableMap.of(CLIENT_2, ImmutableSet.of(VALID_TOKEN, EXPIRED_TOKEN))));
+
+        assertThat(response.getTimestamps().get(CLIENT_1).getLowerBound()).isEqualTo(10);
+        assertThat(response.getTimestamps().get(CLIENT_1).getUpperBound()).isEqualTo(12);
+        assertThat(response.getTimestamps().get(CLIENT_2).getLowerBound()).isEqualTo(20);
+        assertThat(response.getRefreshedTokens()).containsOnlyKeys(CLIENT_2);
+        assertThat(response.getRefreshedTokens().get(CLIENT_2)).containsExactly(VALID_TOKEN);
+        verifyZeroInteractions(lockService1);
+    }
+
+    @Test
+    public void unknownClientFailsTheWholeBatch() {
+        assertThatThrownBy(() -> resource.run(new TimeLockBatchRequest(
+                ImmutableMap.of(CLIENT_1, 1),
+                ImmutableMap.of(NON_EXISTING_CLIENT, ImmutableSet.of(VALID_TOKEN)))))
+                .isInstanceOf(NotFoundException.class);
+        verifyZeroInteractions(timestampService1);
+    }
+}
@@ -24,6 +24,7 @@ import org.junit.Test;
 
 import com.google.common.collect.ImmutableSet;
 import com.palantir.atlasdb.timelock.paxos.PaxosTimeLockConstants;
+import com.palantir.lock.TimeLockBatchService;
 
 public class TimeLockServerConfigurationTest {
     private static final String ADDRESS = "localhost:8701";
@@ -64,6 +65,22 @@ public class TimeLockServerConfigurationTest {
                 .isInstanceOf(IllegalStateException.class);
     }
 
+    @Test
+    public void shouldRejectClientsConflictingWithBatchEndpoint() {
+        assertThatThrownBy(() -> createSimpleConfig(
+                CLUSTER,
+                ImmutableSet.of(TimeLockBatchService.BATCH_NAMESPACE)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void shouldRejectClientsConflictingWithMultiplexedBoundsNamespace() {
+        assertThatThrownBy(() -> createSimpleConfig(
+                CLUSTER,
+                ImmutableSet.of(PaxosTimeLockConstants.MULTIPLEXED_BOUNDS_NAMESPACE)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
     @Test
     public void shouldRejectClientsWithEmptyName() {
         assertThatThrownBy(() -> createSimpleConfig(CLUSTER, ImmutableSet.of("")))
@@ -0,0 +1,356 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.timelock.paxos;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.palantir.common.concurrent.PTExecutors;
+import com.palantir.common.remoting.ServiceNotAvailableException;
+import com.palantir.leader.NotCurrentLeaderException;
+import com.palantir.leader.proxy.ToggleableExceptionProxy;
+import com.palantir.paxos.PaxosAcceptor;
+import com.palantir.paxos.PaxosAcceptorImpl;
+import com.palantir.paxos.PaxosLearner;
+import com.palantir.paxos.PaxosLearnerImpl;
+import com.palantir.paxos.PaxosProposer;
+import com.palantir.paxos.PaxosProposerImpl;
+import com.palantir.paxos.PaxosRoundFailureException;
+import com.palantir.remoting2.tracing.Tracers;
+import com.palantir.timestamp.TimestampBoundStore;
+
+public class MultiplexedPaxosTimestampBoundStoreTest {
+    private static final int NUM_NODES = 5;
+
+    private static final String LOG_DIR = "testlogs/";
+    private static final String LEARNER_DIR_PREFIX = LOG_DIR + "learner/";
+    private static final String ACCEPTOR_DIR_PREFIX = LOG_DIR + "acceptor/";
+    private static final long TIMESTAMP_1 = 100000;
+    private static final long TIMESTAMP_2 = 200000;
+    private static final long UNMULTIPLEXED_BOUND = 42;
+    private static final String CLIENT_1 = "client1";
+    private static final String CLIENT_2 = "client2";
+
+    private static final RuntimeException EXCEPTION = new RuntimeException("exception");
+
+    private final ExecutorService executor = Tracers.wrap(PTExecutors.newCachedThreadPool());
+    private final List<PaxosAcceptor> acceptors = Lists.newArrayList();
+    private final List<PaxosLearner> learners = Lists.newArrayList();
+    private final List<AtomicBoolean> failureToggles = Lists.newArrayList();
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    private MultiplexedPaxosTimestampBoundStore store;
+
+    @Before
+    public void setUp() {
+        for (int i = 0; i < NUM_NODES; i++) {
+            AtomicBoolean failureController = new AtomicBoolean(false);
+            acceptors.add(ToggleableExceptionProxy.newProxyInstance(
+                    PaxosAcceptor.class,
+                    PaxosAcceptorImpl.newAcceptor(ACCEPTOR_DIR_PREFIX + i),
+                    failureController,
+                    EXCEPTION));
+            learners.add(ToggleableExceptionProxy.newProxyInstance(
+                    PaxosLearner.class,
+                    PaxosLearnerImpl.newLearner(LEARNER_DIR_PREFIX + i),
+                    failureController,
+                    EXCEPTION));
+            failureToggles.add(failureController);
+        }
+
+        store = createStore(0, createPaxosProposer(0));
+    }
+
+    @After
+    public void tearDown() throws InterruptedException, IOException {
+        try {
+            executor.shutdownNow();
+            boolean terminated = executor.awaitTermination(10, TimeUnit.SECONDS);
+            if (!terminated) {
+                throw new IllegalStateException(
+                        "Some threads are still hanging around! Can't proceed or they might corrupt future tests.");
+            }
+        } finally {
+            FileUtils.deleteDirectory(new File(LOG_DIR));
+        }
+    }
+
+    @Test
+    public void clientsBeginFromTheirUnmultiplexedBound() {
+        assertThat(forClient(store, CLIENT_1).getUpperLimit()).isEqualTo(UNMULTIPLEXED_BOUND);
+    }
+
+    @Test
+    public void storesBoundsOfSeveralClientsInTheSharedLog() {
+        TimestampBoundStore client1 = forClient(store, CLIENT_1);
+        TimestampBoundStore client2 = forClient(store, CLIENT_2);
+        client1.getUpperLimit();
+        client2.getUpperLimit();
+        client1.storeUpperLimit(TIMESTAMP_1);
+        client2.storeUpperLimit(TIMESTAMP_2);
+
+        MultiplexedPaxosTimestampBoundStore otherStore = createStore(1, createPaxosProposer(1));
+        assertThat(forClientWithoutUnmultiplexedBound(otherStore, CLIENT_1).getUpperLimit()).isEqualTo(TIMESTAMP_1);
+        assertThat(forClientWithoutUnmultiplexedBound(otherStore, CLIENT_2).getUpperLimit()).isEqualTo(TIMESTAMP_2);
+    }
+
+    @Test
+    public void throwsIfStoringLimitLessThanUpperLimit() {
+        TimestampBoundStore client = forClient(store, CLIENT_1);
+        client.getUpperLimit();
+        client.storeUpperLimit(TIMESTAMP_2);
+        assertThatThrownBy(() -> client.storeUpperLimit(TIMESTAMP_1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void throwsIfCannotObtainQuorum() {
+        failureToggles.get(1).set(true);
+        failureToggles.get(2).set(true);
+        failureToggles.get(3).set(true);
+        assertThatThrownBy(() -> forClient(store, CLIENT_1).getUpperLimit())
+                .isInstanceOf(ServiceNotAvailableException.class);
+    }
+
+    @Test
+    public void retriesProposeUntilSuccessful() {
+        store = createStore(0, new OnceFailingPaxosProposer(createPaxosProposer(0)));
+        TimestampBoundStore client = forClient(store, CLIENT_1);
+        client.getUpperLimit();
+        client.storeUpperLimit(TIMESTAMP_1);
+        assertThat(client.getUpperLimit()).isEqualTo(TIMESTAMP_1);
+    }
+
+    @Test
+    public void keepsServingRequestsAfterAProposalThrowsAnError() {
+        AtomicBoolean hasFailed = new AtomicBoolean(false);
+        store = createStore(0, new ForwardingPaxosProposer(createPaxosProposer(0)) {
+            @Override
+            public byte[] propose(long seq, @Nullable byte[] proposalValue) throws PaxosRoundFailureException {
+                if (hasFailed.compareAndSet(false, true)) {
+                    throw new AssertionError("proposer failed");
+                }
+                return super.propose(seq, proposalValue);
+            }
+        });
+        TimestampBoundStore client = forClient(store, CLIENT_1);
+        client.getUpperLimit();
+
+        assertThatThrownBy(() -> client.storeUpperLimit(TIMESTAMP_1)).isInstanceOf(AssertionError.class);
+        client.storeUpperLimit(TIMESTAMP_2);
+        assertThat(forClient(store, CLIENT_2).getUpperLimit()).isEqualTo(UNMULTIPLEXED_BOUND);
+        assertThat(client.getUpperLimit()).isEqualTo(TIMESTAMP_2);
+    }
+
+    @Test
+    public void throwsIfBoundsChangedUnderUs() {
+        TimestampBoundStore client1 = forClient(store, CLIENT_1);
+        TimestampBoundStore client2 = forClient(store, CLIENT_2);
+        client1.getUpperLimit();
+        client2.getUpperLimit();
+
+        MultiplexedPaxosTimestampBoundStore otherStore = createStore(1, createPaxosProposer(1));
+        TimestampBoundStore otherClient1 = forClient(otherStore, CLIENT_1);
+        otherClient1.getUpperLimit();
+        otherClient1.storeUpperLimit(TIMESTAMP_1);
+
+        assertThatThrownBy(() -> client2.storeUpperLimit(TIMESTAMP_2)).isInstanceOf(NotCurrentLeaderException.class);
+        assertThatThrownBy(() -> client1.storeUpperLimit(TIMESTAMP_2)).isInstanceOf(NotCurrentLeaderException.class);
+    }
+
+    @Test
+    public void canStoreBoundsAgainAfterRereadingThem() {
+        MultiplexedPaxosTimestampBoundStore otherStore = createStore(1, createPaxosProposer(1));
+        TimestampBoundStore otherClient = forClient(otherStore, CLIENT_1);
+        otherClient.getUpperLimit();
+        otherClient.storeUpperLimit(TIMESTAMP_1);
+
+        TimestampBoundStore client = forClient(store, CLIENT_1);
+        assertThat(client.getUpperLimit()).isEqualTo(TIMESTAMP_1);
+        client.storeUpperLimit(TIMESTAMP_2);
+        assertThat(forClientWithoutUnmultiplexedBound(otherStore, CLIENT_1).getUpperLimit()).isEqualTo(TIMESTAMP_2);
+    }
+
+    @Test
+    public void boundsQueuedWhileAProposalIsInFlightShareTheNextProposal() throws Exception {
+        CountDownLatch firstProposalStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstProposal = new CountDownLatch(1);
+        AtomicInteger proposals = new AtomicInteger();
+        PaxosProposer delegate = createPaxosProposer(0);
+        store = createStore(0, new ForwardingPaxosProposer(delegate) {
+            @Override
+            public byte[] propose(long seq, @Nullable byte[] proposalValue) throws PaxosRoundFailureException {
+                if (proposals.getAndIncrement() == 0) {
+                    firstProposalStarted.countDown();
+                    Uninterruptibles.awaitUninterruptibly(releaseFirstProposal);
+                }
+                return super.propose(seq, proposalValue);
+            }
+        });
+
+        int numClients = 10;
+        List<TimestampBoundStore> clients = Lists.newArrayList();
+        for (int i = 0; i < numClients; i++) {
+            TimestampBoundStore client = forClient(store, "client" + i);
+            client.getUpperLimit();
+            clients.add(client);
+        }
+
+        List<Future<?>> stores = Lists.newArrayList();
+        List<Thread> waitingThreads = Lists.newCopyOnWriteArrayList();
+        stores.add(executor.submit(() -> clients.get(0).storeUpperLimit(TIMESTAMP_1)));
+        assertThat(firstProposalStarted.await(10, TimeUnit.SECONDS)).isTrue();
+        for (int i = 1; i < numClients; i++) {
+            TimestampBoundStore client = clients.get(i);
+            stores.add(executor.submit(() -> {
+                waitingThreads.add(Thread.currentThread());
+                client.storeUpperLimit(TIMESTAMP_2);
+            }));
+        }
+        awaitAllWaiting(waitingThreads, numClients - 1);
+        releaseFirstProposal.countDown();
+        for (Future<?> future : stores) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+
+        assertThat(proposals.get()).isEqualTo(2);
+        assertThat(metricRegistry.histogram(MetricRegistry.name(
+                MultiplexedPaxosTimestampBoundStore.class, "boundsPerProposal")).getSnapshot().getMax())
+                .isEqualTo(numClients - 1);
+        MultiplexedPaxosTimestampBoundStore otherStore = createStore(1, createPaxosProposer(1));
+        for (int i = 1; i < numClients; i++) {
+            assertThat(forClientWithoutUnmultiplexedBound(otherStore, "client" + i).getUpperLimit())
+                    .isEqualTo(TIMESTAMP_2);
+        }
+    }
+
+    @Test
+    public void canEncodeAndDecodeBounds() {
+        Map<String, Long> bounds = ImmutableMap.of(CLIENT_1, TIMESTAMP_1, CLIENT_2, TIMESTAMP_2);
+        assertThat(MultiplexedPaxosTimestampBoundStore.decodeBounds(
+                MultiplexedPaxosTimestampBoundStore.encodeBounds(bounds))).isEqualTo(bounds);
+    }
+
+    @Test
+    public void canGetAgreedInitialState() {
+        assertThat(store.getAgreedState(0).getBounds()).isEmpty();
+    }
+
+    private static void awaitAllWaiting(List<Thread> threads, int expectedThreads) {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (threads.size() < expectedThreads
+                || threads.stream().anyMatch(thread -> thread.getState() != Thread.State.WAITING)) {
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Uninterruptibles.sleepUninterruptibly(10, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static TimestampBoundStore forClient(MultiplexedPaxosTimestampBoundStore boundStore, String client) {
+        return boundStore.forClient(client, () -> UNMULTIPLEXED_BOUND);
+    }
+
+    private static TimestampBoundStore forClientWithoutUnmultiplexedBound(
+            MultiplexedPaxosTimestampBoundStore boundStore,
+            String client) {
+        return boundStore.forClient(client, () -> {
+            throw new AssertionError("Client should already have a bound in the shared log");
+        });
+    }
+
+    private MultiplexedPaxosTimestampBoundStore createStore(int nodeIndex, PaxosProposer proposer) {
+        return new MultiplexedPaxosTimestampBoundStore(
+                proposer,
+                learners.get(nodeIndex),
+                ImmutableList.copyOf(acceptors),
+                ImmutableList.copyOf(learners),
+                1000L,
+                executor,
+                metricRegistry);
+    }
+
+    private PaxosProposer createPaxosProposer(int nodeIndex) {
+        return PaxosProposerImpl.newProposer(
+                learners.get(nodeIndex),
+                ImmutableList.copyOf(acceptors),
+                ImmutableList.copyOf(learners),
+                NUM_NODES / 2 + 1,
+                UUID.randomUUID(),
+                executor);
+    }
+
+    private static class ForwardingPaxosProposer implements PaxosProposer {
+        private final PaxosProposer delegate;
+
+        ForwardingPaxosProposer(PaxosProposer delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public byte[] propose(long seq, @Nullable byte[] proposalValue) throws PaxosRoundFailureException {
+            return delegate.propose(seq, proposalValue);
+        }
+
+        @Override
+        public int getQuorumSize() {
+            return delegate.getQuorumSize();
+        }
+
+        @Override
+        public String getUuid() {
+            return delegate.getUuid();
+        }
+    }
+
+    private static class OnceFailingPaxosProposer extends ForwardingPaxosProposer {
+        private boolean hasFailed = false;
+
+        OnceFailingPaxosProposer(PaxosProposer delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public byte[] propose(long seq, @Nullable byte[] proposalValue) throws PaxosRoundFailureException {
+            if (hasFailed) {
+                return super.propose(seq, proposalValue);
+            }
+            hasFailed = true;
+            throw new PaxosRoundFailureException("paxos fail");
+        }
+    }
+}